@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.compression;
+
+import com.societegenerale.commons.amqp.core.config.CompressionAlgorithm;
+import com.societegenerale.commons.amqp.core.config.CompressionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.core.Correlation;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the payloads published on the exchanges configured with compression, when they are larger than the
+ * threshold of the exchange. The 'contentEncoding' is prefixed by the compression encoding, e.g. 'gzip, UTF-8', as
+ * expected by the {@link DecompressingMessagePostProcessor}. Payloads already compressed, e.g. when re-queued from a
+ * dead letter queue, and payloads that do not get smaller are sent as is.
+ * <p>
+ * It must be the last before publish post processor, as the payload can not be changed once compressed.
+ */
+@Slf4j
+public class CompressingMessagePostProcessor implements MessagePostProcessor {
+
+  /**
+   * The delimiter of the encodings used by spring-amqp, which decompresses the payloads the same way.
+   */
+  static final String ENCODING_DELIMITER = ", ";
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Map<String, CompressionConfig> compressionConfigs;
+
+  private final CompressionListener[] listeners;
+
+  /**
+   * @param compressionConfigs the compression configuration of each exchange, by exchange name
+   * @param listeners          notified of each compression
+   */
+  public CompressingMessagePostProcessor(Map<String, CompressionConfig> compressionConfigs, List<CompressionListener> listeners) {
+    this.compressionConfigs = new HashMap<>(compressionConfigs);
+    this.listeners = listeners.toArray(new CompressionListener[0]);
+  }
+
+  @Override
+  public Message postProcessMessage(Message message) {
+    return message;
+  }
+
+  @Override
+  public Message postProcessMessage(Message message, Correlation correlation, String exchange, String routingKey) {
+    CompressionConfig compressionConfig = exchange != null ? compressionConfigs.get(exchange) : null;
+    byte[] body = message.getBody();
+    if (compressionConfig == null || body == null || body.length < compressionConfig.getThreshold()) {
+      return message;
+    }
+    MessageProperties messageProperties = message.getMessageProperties();
+    String contentEncoding = messageProperties.getContentEncoding();
+    if (DecompressingMessagePostProcessor.isCompressed(contentEncoding)) {
+      return message;
+    }
+    CompressionAlgorithm algorithm = compressionConfig.getAlgorithm();
+    long start = System.nanoTime();
+    byte[] compressed = compress(algorithm, compressionConfig.getLevel(), body);
+    long durationNanos = System.nanoTime() - start;
+    for (CompressionListener listener : listeners) {
+      listener.compressed(exchange, algorithm.getValue(), body.length, compressed.length, durationNanos);
+    }
+    if (compressed.length >= body.length) {
+      log.debug("Payload of {} bytes not compressed for the exchange '{}' : no size reduction", body.length, exchange);
+      return message;
+    }
+    messageProperties.setContentEncoding(algorithm.getValue() + (contentEncoding == null ? "" : ENCODING_DELIMITER + contentEncoding));
+    messageProperties.setContentLength(compressed.length);
+    return new Message(compressed, messageProperties);
+  }
+
+  public boolean isCompressed(String exchange) {
+    return compressionConfigs.containsKey(exchange);
+  }
+
+  static byte[] compress(CompressionAlgorithm algorithm, int level, byte[] body) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+    try {
+      if (algorithm == CompressionAlgorithm.GZIP) {
+        try (GZIPOutputStream gzip = new LevelGZIPOutputStream(out, level)) {
+          gzip.write(body);
+        }
+      } else {
+        Deflater deflater = new Deflater(level);
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater, BUFFER_SIZE)) {
+          deflate.write(body);
+        } finally {
+          deflater.end();
+        }
+      }
+    } catch (IOException e) {
+      throw new AmqpIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * A {@link GZIPOutputStream} with a compression level.
+   */
+  private static final class LevelGZIPOutputStream extends GZIPOutputStream {
+
+    private LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+      super(out, BUFFER_SIZE);
+      def.setLevel(level);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.compression;
+
+/**
+ * Notified of each payload compressed on publish and decompressed on receive.
+ */
+public interface CompressionListener {
+
+  /**
+   * @param exchange       the exchange the message is published on
+   * @param encoding       the compression encoding (gzip, deflate)
+   * @param size           the size of the payload
+   * @param compressedSize the size of the compressed payload, the payload is sent as is when it is not smaller
+   * @param durationNanos  the time spent compressing
+   */
+  void compressed(String exchange, String encoding, int size, int compressedSize, long durationNanos);
+
+  /**
+   * @param encoding       the compression encoding (gzip, deflate, zip)
+   * @param compressedSize the size of the compressed payload
+   * @param size           the size of the decompressed payload
+   * @param durationNanos  the time spent decompressing
+   */
+  void decompressed(String encoding, int compressedSize, int size, long durationNanos);
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.compression;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.support.postprocessor.DelegatingDecompressingPostProcessor;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+/**
+ * Decompresses the received payloads according to their 'contentEncoding' (gzip, deflate or zip), restoring the
+ * original encoding. Payloads that are not compressed are left as is.
+ */
+public class DecompressingMessagePostProcessor implements MessagePostProcessor, Ordered {
+
+  private final DelegatingDecompressingPostProcessor delegate = new DelegatingDecompressingPostProcessor();
+
+  private final CompressionListener[] listeners;
+
+  /**
+   * @param listeners notified of each decompression
+   */
+  public DecompressingMessagePostProcessor(List<CompressionListener> listeners) {
+    this.listeners = listeners.toArray(new CompressionListener[0]);
+  }
+
+  @Override
+  public Message postProcessMessage(Message message) {
+    String contentEncoding = message.getMessageProperties().getContentEncoding();
+    if (!isCompressed(contentEncoding)) {
+      return message;
+    }
+    int compressedSize = message.getBody().length;
+    long start = System.nanoTime();
+    Message decompressed = delegate.postProcessMessage(message);
+    long durationNanos = System.nanoTime() - start;
+    String encoding = encoding(contentEncoding);
+    for (CompressionListener listener : listeners) {
+      listener.decompressed(encoding, compressedSize, decompressed.getBody().length, durationNanos);
+    }
+    return decompressed;
+  }
+
+  /**
+   * Runs first, the other post processors may read the payload.
+   */
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+  static boolean isCompressed(String contentEncoding) {
+    if (contentEncoding == null) {
+      return false;
+    }
+    String encoding = encoding(contentEncoding);
+    return "gzip".equals(encoding) || "deflate".equals(encoding) || "zip".equals(encoding);
+  }
+
+  private static String encoding(String contentEncoding) {
+    int delimiter = contentEncoding.indexOf(':');
+    if (delimiter < 0) {
+      delimiter = contentEncoding.indexOf(',');
+    }
+    return delimiter < 0 ? contentEncoding : contentEncoding.substring(0, delimiter).trim();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.compression;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the payload compressions as Micrometer meters :
+ * <ul>
+ * <li>'rabbitmq.compression' : time spent compressing and decompressing, tagged by 'operation' and 'encoding'</li>
+ * <li>'rabbitmq.compression.ratio' : payload size divided by the compressed size, tagged by 'exchange' and 'encoding'</li>
+ * </ul>
+ * The meters are registered once, on their first use.
+ */
+public class MicrometerCompressionListener implements CompressionListener {
+
+  public static final String TIMER = "rabbitmq.compression";
+
+  public static final String RATIO = "rabbitmq.compression.ratio";
+
+  private final MeterRegistry meterRegistry;
+
+  private final Map<String, CompressionMeters> compressionMeters = new ConcurrentHashMap<>();
+
+  private final Map<String, Timer> decompressionTimers = new ConcurrentHashMap<>();
+
+  public MicrometerCompressionListener(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void compressed(String exchange, String encoding, int size, int compressedSize, long durationNanos) {
+    CompressionMeters meters = compressionMeters.computeIfAbsent(exchange + ':' + encoding, key -> new CompressionMeters(
+        timer("compress", encoding),
+        DistributionSummary.builder(RATIO)
+            .description("Payload size divided by the compressed size")
+            .tag("exchange", exchange)
+            .tag("encoding", encoding)
+            .register(meterRegistry)));
+    meters.timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    meters.ratio.record(compressedSize == 0 ? 0 : (double) size / compressedSize);
+  }
+
+  @Override
+  public void decompressed(String encoding, int compressedSize, int size, long durationNanos) {
+    decompressionTimers.computeIfAbsent(encoding, key -> timer("decompress", encoding))
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer timer(String operation, String encoding) {
+    return Timer.builder(TIMER)
+        .description("Time spent compressing or decompressing the payloads")
+        .tag("operation", operation)
+        .tag("encoding", encoding)
+        .register(meterRegistry);
+  }
+
+  private static final class CompressionMeters {
+
+    private final Timer timer;
+
+    private final DistributionSummary ratio;
+
+    private CompressionMeters(Timer timer, DistributionSummary ratio) {
+      this.timer = timer;
+      this.ratio = ratio;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the asynchronous publisher, publishing with broker confirms.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class AsyncPublisherConfig extends AbstractConfig {
+
+  /**
+   * Enable or disable the asynchronous publisher.
+   * Default value will be <b>false</b>
+   */
+  private boolean enabled;
+
+  /**
+   * Number of channels, in confirm mode, used to publish.
+   * Default value will be <b>2</b>
+   */
+  @Builder.Default
+  private int channels = 2;
+
+  /**
+   * Max number of published messages waiting for their confirm, all channels included.
+   * Default value will be <b>1000</b>
+   */
+  @Builder.Default
+  private int window = 1000;
+
+  /**
+   * Time in milliseconds a send waits for room in the window before failing.
+   * Default value will be <b>5000</b>
+   */
+  @Builder.Default
+  private long windowTimeout = 5000;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (channels < 1) {
+      log.error("Invalid Channels : At least one channel must be used by the asynchronous publisher");
+      valid = false;
+    }
+    if (window < 1) {
+      log.error("Invalid Window : Window must be greater than zero");
+      valid = false;
+    }
+    if (windowTimeout < 0) {
+      log.error("Invalid WindowTimeout : WindowTimeout must not be negative");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Asynchronous publisher configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
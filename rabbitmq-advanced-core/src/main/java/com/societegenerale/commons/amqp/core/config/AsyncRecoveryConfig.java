@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the asynchronous recovery, publishing the dead lettered messages in batches with broker confirms.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class AsyncRecoveryConfig extends AbstractConfig {
+
+  /**
+   * Enable or disable the asynchronous recovery.
+   * Default value will be <b>false</b>
+   */
+  private boolean enabled;
+
+  /**
+   * Max number of dead lettered messages waiting to be published. The messages are sent synchronously when it is full.
+   * Default value will be <b>1000</b>
+   */
+  @Builder.Default
+  private int bufferSize = 1000;
+
+  /**
+   * Max number of dead lettered messages published before waiting for their confirms.
+   * Default value will be <b>100</b>
+   */
+  @Builder.Default
+  private int batchSize = 100;
+
+  /**
+   * Time in milliseconds to wait for the confirms of a batch.
+   * Default value will be <b>5000</b>
+   */
+  @Builder.Default
+  private long confirmTimeout = 5000;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (bufferSize < 1) {
+      log.error("Invalid BufferSize : BufferSize must be greater than zero");
+      valid = false;
+    }
+    if (batchSize < 1) {
+      log.error("Invalid BatchSize : BatchSize must be greater than zero");
+      valid = false;
+    }
+    if (confirmTimeout < 1) {
+      log.error("Invalid ConfirmTimeout : ConfirmTimeout must be greater than zero");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Asynchronous recovery configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
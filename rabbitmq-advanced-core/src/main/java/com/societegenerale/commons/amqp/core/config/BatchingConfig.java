@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the batching of the messages published on an exchange : the messages are sent together in a single
+ * message, de-batched by the listeners.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class BatchingConfig extends AbstractConfig {
+
+  /**
+   * Enable or disable the batching, to disable it on an exchange when it is enabled on the default exchange.
+   * Default value will be <b>true</b>
+   */
+  @Builder.Default
+  private boolean enabled = true;
+
+  /**
+   * Max number of messages in a batch.
+   * Default value will be <b>100</b>
+   */
+  @Builder.Default
+  private int batchSize = 100;
+
+  /**
+   * Max size of a batch in bytes.
+   * Default value will be <b>65536</b>
+   */
+  @Builder.Default
+  private int bufferLimit = 64 * 1024;
+
+  /**
+   * Time in milliseconds after which a batch is sent even if it is not full.
+   * Default value will be <b>100</b>
+   */
+  @Builder.Default
+  private long flushTimeout = 100;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (batchSize < 1) {
+      log.error("Invalid BatchSize : BatchSize must be greater than zero");
+      valid = false;
+    }
+    if (bufferLimit < 1) {
+      log.error("Invalid BufferLimit : BufferLimit must be greater than zero");
+      valid = false;
+    }
+    if (flushTimeout <= 0) {
+      log.error("Invalid FlushTimeout : FlushTimeout must be greater than zero");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Batching configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+/**
+ * The compression algorithms of the message payloads, by their 'contentEncoding' value.
+ */
+public enum CompressionAlgorithm {
+  GZIP("gzip"),
+  DEFLATE("deflate");
+
+  private String value;
+
+  CompressionAlgorithm(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+}
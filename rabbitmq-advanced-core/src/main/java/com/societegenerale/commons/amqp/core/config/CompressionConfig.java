@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.zip.Deflater;
+
+/**
+ * Configuration of the compression of the payloads published on an exchange. The listeners decompress them
+ * transparently.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class CompressionConfig extends AbstractConfig {
+
+  /**
+   * Enable or disable the compression, to disable it on an exchange when it is enabled on the default exchange.
+   * Default value will be <b>true</b>
+   */
+  @Builder.Default
+  private boolean enabled = true;
+
+  /**
+   * Compression algorithm.
+   * Default value will be <b>gzip</b>
+   */
+  @Builder.Default
+  private CompressionAlgorithm algorithm = CompressionAlgorithm.GZIP;
+
+  /**
+   * Min size in bytes of the payloads to compress, smaller payloads are sent as is.
+   * Default value will be <b>1024</b>
+   */
+  @Builder.Default
+  private int threshold = 1024;
+
+  /**
+   * Compression level, from 0 (none) to 9 (best compression), -1 being the default level of the algorithm.
+   * Default value will be <b>-1</b>
+   */
+  @Builder.Default
+  private int level = Deflater.DEFAULT_COMPRESSION;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (algorithm == null) {
+      log.error("Invalid Algorithm : Algorithm must be provided for the compression");
+      valid = false;
+    }
+    if (threshold < 0) {
+      log.error("Invalid Threshold : Threshold must be greater than or equal to zero");
+      valid = false;
+    }
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      log.error("Invalid Level : Level must be between -1 and 9");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Compression configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the correlation id set on the published messages.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class CorrelationConfig extends AbstractConfig {
+
+  /**
+   * Generator used when no trace is active (random-uuid, thread-local-random-uuid, time-ordered, node-counter)
+   * Default value will be <b>random-uuid</b>
+   */
+  @Builder.Default
+  private CorrelationIdGeneratorType generator = CorrelationIdGeneratorType.RANDOM_UUID;
+
+  /**
+   * Node id prefixing the correlation ids, for the node-counter generator.
+   * Default value will be <b>a random id</b>
+   */
+  private String nodeId;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (generator == null) {
+      log.error("Invalid Generator : Generator must be provided for the correlation configuration");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Correlation configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
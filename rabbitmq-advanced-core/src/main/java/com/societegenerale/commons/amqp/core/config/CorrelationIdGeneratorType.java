@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+/**
+ * Generators available to create the correlation id of a message published outside of any trace.
+ */
+public enum CorrelationIdGeneratorType {
+  /**
+   * Random UUID from the shared SecureRandom (UUID.randomUUID)
+   */
+  RANDOM_UUID,
+  /**
+   * Random version 4 UUID from the ThreadLocalRandom of the publishing thread
+   */
+  THREAD_LOCAL_RANDOM_UUID,
+  /**
+   * Monotonic version 7 UUID, ordered by creation time
+   */
+  TIME_ORDERED,
+  /**
+   * Node id followed by the start time of the generator and a counter
+   */
+  NODE_COUNTER
+}
@@ -47,6 +47,41 @@ public class DeadLetterConfig extends AbstractConfig {
   @Builder.Default
   private String queuePostfix = DEFAULT_DEAD_LETTER_QUEUE_POSTFIX;
 
+  /**
+   * How the failed messages are sent to the dead letter queue.
+   * Default value will be <b>republish</b>
+   */
+  @Builder.Default
+  private DeadLetterMode mode = DeadLetterMode.REPUBLISH;
+
+  /**
+   * Exchange the exception records of the messages dead lettered by the broker are published to, the broker keeping no
+   * exception details. No record is published when not set
+   */
+  @NestedConfigurationProperty
+  private ExchangeConfig exceptionExchange;
+
+  /**
+   * Stack trace stored in the headers of the dead lettered messages
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private StackTraceConfig stackTrace = new StackTraceConfig();
+
+  /**
+   * Asynchronous publishing of the dead lettered messages
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private AsyncRecoveryConfig asyncRecovery = new AsyncRecoveryConfig();
+
+  /**
+   * Dispatch of the failed messages to the message exception handlers
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private ExceptionHandlersConfig exceptionHandlers = new ExceptionHandlersConfig();
+
   public String createDeadLetterQueueName(String queueName) {
     return new StringBuilder()
         .append(queueName)
@@ -56,6 +91,22 @@ public class DeadLetterConfig extends AbstractConfig {
   @Override
   public boolean validate() {
     log.info("Validating DeadLetterConfig...");
+    if (stackTrace != null && !stackTrace.validate()) {
+      log.error("Invalid DeadLetterConfig Configuration : Invalid StackTrace");
+      return false;
+    }
+    if (asyncRecovery != null && !asyncRecovery.validate()) {
+      log.error("Invalid DeadLetterConfig Configuration : Invalid AsyncRecovery");
+      return false;
+    }
+    if (exceptionHandlers != null && !exceptionHandlers.validate()) {
+      log.error("Invalid DeadLetterConfig Configuration : Invalid ExceptionHandlers");
+      return false;
+    }
+    if (exceptionExchange != null && !exceptionExchange.validate()) {
+      log.error("Invalid DeadLetterConfig Configuration : Invalid ExceptionExchange");
+      return false;
+    }
     if (deadLetterExchange != null && deadLetterExchange.validate()) {
       log.info("DeadLetterConfig configuration validated successfully for deadLetterExchange '{}'", deadLetterExchange);
       return true;
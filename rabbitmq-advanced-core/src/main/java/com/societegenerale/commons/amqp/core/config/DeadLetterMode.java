@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+/**
+ * How a failed message is sent to its dead letter queue.
+ */
+public enum DeadLetterMode {
+  /**
+   * The message is published again to the dead letter exchange, with the exception details in its headers
+   */
+  REPUBLISH,
+  /**
+   * The message is rejected without requeue and dead lettered by the broker, with the 'x-death' headers only, when its
+   * queue has a dead letter exchange. The exception details are given to the message exception handlers and logged
+   */
+  BROKER
+}
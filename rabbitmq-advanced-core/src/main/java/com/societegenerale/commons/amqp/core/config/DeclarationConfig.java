@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+/**
+ * Configuration of the way the auto configured topology is declared on startup.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class DeclarationConfig extends AbstractConfig {
+
+  /**
+   * Strategy used to declare the exchanges, queues and bindings (sequential, pipelined, parallel)
+   * Default value will be <b>sequential</b>
+   */
+  @Builder.Default
+  private DeclarationStrategy strategy = DeclarationStrategy.SEQUENTIAL;
+
+  /**
+   * Number of channels used to declare the topology, each one with its own worker for the parallel strategy. Not used by the sequential strategy.
+   */
+  @Builder.Default
+  private int channels = 4;
+
+  /**
+   * Max number of declarations sent on a channel before waiting for the broker replies. Only used by the pipelined strategy.
+   */
+  @Builder.Default
+  private int window = 100;
+
+  /**
+   * Timeout in milliseconds to wait for the broker replies. Not used by the sequential strategy.
+   */
+  @Builder.Default
+  private long timeout = 30000;
+
+  /**
+   * Only registers the topology on startup and declares each entity on its first use (publish or listener start).
+   * Default value will be <b>false</b>
+   */
+  private boolean lazy;
+
+  /**
+   * Fingerprint of the declared topology, to avoid declaring it again when it did not change.
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private FingerprintConfig fingerprint = new FingerprintConfig();
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (strategy == null) {
+      log.error("Invalid Strategy : Strategy must be provided for the declaration configuration");
+      valid = false;
+    }
+    if (channels < 1) {
+      log.error("Invalid Channels : At least one channel must be used to declare the topology");
+      valid = false;
+    }
+    if (window < 1) {
+      log.error("Invalid Window : Window must be greater than zero");
+      valid = false;
+    }
+    if (timeout <= 0) {
+      log.error("Invalid Timeout : Timeout must be greater than zero");
+      valid = false;
+    }
+    if (fingerprint != null && fingerprint.isEnabled()) {
+      valid = fingerprint.validate() && valid;
+    }
+    if (valid) {
+      log.info("Declaration configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
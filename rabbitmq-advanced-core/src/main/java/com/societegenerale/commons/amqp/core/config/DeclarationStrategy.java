@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+/**
+ * Strategies available to declare the auto configured topology on startup.
+ */
+public enum DeclarationStrategy {
+  /**
+   * Declares each entity one after the other through the RabbitAdmin
+   */
+  SEQUENTIAL,
+  /**
+   * Pipelines the declarations over a small pool of channels
+   */
+  PIPELINED,
+  /**
+   * Declares the entities of each layer concurrently, with one worker thread and channel per configured channel
+   */
+  PARALLEL
+}
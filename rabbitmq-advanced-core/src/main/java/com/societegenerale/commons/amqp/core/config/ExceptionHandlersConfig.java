@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the dispatch of the failed messages to the message exception handlers.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class ExceptionHandlersConfig extends AbstractConfig {
+
+  /**
+   * Run the message exception handlers concurrently, instead of one after the other on the listener thread.
+   * Default value will be <b>false</b>
+   */
+  private boolean parallel;
+
+  /**
+   * Max number of handlers running at once, as many waiting for a thread.
+   * Default value will be <b>4</b>
+   */
+  @Builder.Default
+  private int threads = 4;
+
+  /**
+   * Time in milliseconds a handler is given before being counted as failed.
+   * Default value will be <b>5000</b>
+   */
+  @Builder.Default
+  private long timeout = 5000;
+
+  /**
+   * Number of consecutive failures, or timeouts, of a handler opening its circuit breaker.
+   * Default value will be <b>5</b>
+   */
+  @Builder.Default
+  private int failureThreshold = 5;
+
+  /**
+   * Time in milliseconds a handler is skipped once its circuit breaker is open, before being tried again.
+   * Default value will be <b>30000</b>
+   */
+  @Builder.Default
+  private long openDuration = 30000;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (threads < 1) {
+      log.error("Invalid Threads : Threads must be greater than zero");
+      valid = false;
+    }
+    if (timeout < 1) {
+      log.error("Invalid Timeout : Timeout must be greater than zero");
+      valid = false;
+    }
+    if (failureThreshold < 1) {
+      log.error("Invalid FailureThreshold : FailureThreshold must be greater than zero");
+      valid = false;
+    }
+    if (openDuration < 0) {
+      log.error("Invalid OpenDuration : OpenDuration must not be negative");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Exception handlers configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
@@ -22,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.springframework.amqp.core.AbstractExchange;
 import org.springframework.amqp.core.CustomExchange;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
 import java.util.Map;
 
@@ -74,11 +75,36 @@ public class ExchangeConfig extends AbstractConfig {
   @Singular
   private Map<String, Object> arguments;
 
+  /**
+   * Batching of the messages published on the exchange
+   */
+  @NestedConfigurationProperty
+  private BatchingConfig batching;
+
+  /**
+   * Compression of the payloads published on the exchange
+   */
+  @NestedConfigurationProperty
+  private CompressionConfig compression;
+
+  /**
+   * Format the payloads published on the exchange are serialized with
+   */
+  private MessageFormat messageFormat;
+
   public boolean validate() {
     if (StringUtils.isEmpty(getName())) {
       log.error("Invalid Exchange Configuration : Name must be provided for an exchange");
       return false;
     }
+    if (batching != null && batching.isEnabled() && !batching.validate()) {
+      log.error("Invalid Exchange Configuration : Invalid batching for the exchange '{}'", getName());
+      return false;
+    }
+    if (compression != null && compression.isEnabled() && !compression.validate()) {
+      log.error("Invalid Exchange Configuration : Invalid compression for the exchange '{}'", getName());
+      return false;
+    }
     log.info("Exchange configuration validated successfully for exchange '{}'", getName());
     return true;
   }
@@ -91,11 +117,40 @@ public class ExchangeConfig extends AbstractConfig {
     setInternal(getDefaultConfig(getName(), "internal", getInternal(), defaultExchangeConfig.getInternal(), Boolean.FALSE));
     setDelayed(getDefaultConfig(getName(), "delayed", getDelayed(), defaultExchangeConfig.getDelayed(), Boolean.FALSE));
     setArguments(loadArguments(getArguments(), defaultExchangeConfig.getArguments()));
+    setBatching(getDefaultConfig(getBatching(), defaultExchangeConfig.getBatching()));
+    setCompression(getDefaultConfig(getCompression(), defaultExchangeConfig.getCompression()));
+    setMessageFormat(getDefaultConfig(getMessageFormat(), defaultExchangeConfig.getMessageFormat()));
     setDefaultConfigApplied(true);
     log.info("DefaultExchangeConfig applied on the current ExchangeConfig :: ExchangeConfig = {{}} , DefaultExchangeConfig = {{}}", this, defaultExchangeConfig);
     return this;
   }
 
+  /**
+   * @param defaultExchangeConfig the default exchange configuration, may be null
+   * @return the batching of the exchange, or of the default exchange when not configured, null when not batched
+   */
+  public BatchingConfig resolveBatching(ExchangeConfig defaultExchangeConfig) {
+    BatchingConfig batchingConfig = batching != null || defaultExchangeConfig == null ? batching : defaultExchangeConfig.getBatching();
+    return batchingConfig != null && batchingConfig.isEnabled() ? batchingConfig : null;
+  }
+
+  /**
+   * @param defaultExchangeConfig the default exchange configuration, may be null
+   * @return the compression of the exchange, or of the default exchange when not configured, null when not compressed
+   */
+  public CompressionConfig resolveCompression(ExchangeConfig defaultExchangeConfig) {
+    CompressionConfig compressionConfig = compression != null || defaultExchangeConfig == null ? compression : defaultExchangeConfig.getCompression();
+    return compressionConfig != null && compressionConfig.isEnabled() ? compressionConfig : null;
+  }
+
+  /**
+   * @param defaultExchangeConfig the default exchange configuration, may be null
+   * @return the message format of the exchange, or of the default exchange when not configured, may be null
+   */
+  public MessageFormat resolveMessageFormat(ExchangeConfig defaultExchangeConfig) {
+    return messageFormat != null || defaultExchangeConfig == null ? messageFormat : defaultExchangeConfig.getMessageFormat();
+  }
+
   public AbstractExchange buildExchange(ExchangeConfig defaultExchangeConfig) {
     if (!isDefaultConfigApplied()) {
       applyDefaultConfig(defaultExchangeConfig);
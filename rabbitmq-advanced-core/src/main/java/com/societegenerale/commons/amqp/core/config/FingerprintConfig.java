@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the topology fingerprint, used to avoid declaring again an unchanged topology on restart.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class FingerprintConfig extends AbstractConfig {
+
+  /**
+   * Enable or disable the topology fingerprint.
+   * Default value will be <b>false</b>
+   */
+  private boolean enabled;
+
+  /**
+   * Where the fingerprint of the last declared topology is kept (file, broker). The file store needs a file surviving
+   * the restarts, e.g. on a persistent volume.
+   * Default value will be <b>broker</b>
+   */
+  @Builder.Default
+  private FingerprintStoreType store = FingerprintStoreType.BROKER;
+
+  /**
+   * What to do when the fingerprint matches (passive, skip)
+   * Default value will be <b>passive</b>
+   */
+  @Builder.Default
+  private FingerprintMatchAction onMatch = FingerprintMatchAction.PASSIVE;
+
+  /**
+   * File holding the fingerprint, for the file store. The default temporary directory is usually wiped on the restarts
+   * of a container : set a file on a persistent volume.
+   */
+  @Builder.Default
+  private String file = System.getProperty("java.io.tmpdir") + "/rabbitmq-advanced-topology.fingerprint";
+
+  /**
+   * Name prefix of the marker queue, for the broker store. The fingerprint is appended to it.
+   */
+  @Builder.Default
+  private String markerPrefix = "rabbitmq-advanced.topology.";
+
+  /**
+   * Time in milliseconds after which an unused marker queue is deleted by the broker, for the broker store.
+   * Default value will be <b>7 days</b>
+   */
+  @Builder.Default
+  private long markerExpires = 7 * 24 * 60 * 60 * 1000L;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (store == null) {
+      log.error("Invalid Store : Store must be provided for the fingerprint configuration");
+      valid = false;
+    } else if (store == FingerprintStoreType.FILE && StringUtils.isEmpty(file)) {
+      log.error("Invalid File : File must be provided for the file fingerprint store");
+      valid = false;
+    } else if (store == FingerprintStoreType.BROKER && (StringUtils.isEmpty(markerPrefix) || markerExpires <= 0)) {
+      log.error("Invalid Marker : Marker prefix and a positive marker expiry must be provided for the broker fingerprint store");
+      valid = false;
+    }
+    if (onMatch == null) {
+      log.error("Invalid OnMatch : OnMatch must be provided for the fingerprint configuration");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Fingerprint configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+/**
+ * Places where the fingerprint of the last declared topology can be kept.
+ */
+public enum FingerprintStoreType {
+  /**
+   * A local file, only useful when it survives the restarts (persistent volume, same host)
+   */
+  FILE,
+  /**
+   * A small marker queue on the broker, shared by all the instances of the application
+   */
+  BROKER
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the leader election of the auto requeue, so that a single instance of the application pushes the
+ * requeue messages.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class LeaderElectionConfig extends AbstractConfig {
+
+  /**
+   * Enable or disable the leader election.
+   * Default value will be <b>false</b>
+   */
+  private boolean enabled;
+
+  /**
+   * Lock electing the leader (in-memory, exclusive-queue)
+   * Default value will be <b>exclusive-queue</b>
+   */
+  @Builder.Default
+  private LockProviderType lockProvider = LockProviderType.EXCLUSIVE_QUEUE;
+
+  /**
+   * Name prefix of the lock queue, for the exclusive queue lock. The name of the lock is appended to it.
+   */
+  @Builder.Default
+  private String lockQueuePrefix = "rabbitmq-advanced.lock.";
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (lockProvider == null) {
+      log.error("Invalid LockProvider : LockProvider must be provided for the leader election configuration");
+      valid = false;
+    } else if (lockProvider == LockProviderType.EXCLUSIVE_QUEUE && StringUtils.isEmpty(lockQueuePrefix)) {
+      log.error("Invalid LockQueuePrefix : LockQueuePrefix must be provided for the exclusive queue lock");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Leader election configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
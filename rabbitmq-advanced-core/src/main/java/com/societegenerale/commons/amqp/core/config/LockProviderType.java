@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+/**
+ * Locks electing the instance of the application running the auto requeue.
+ */
+public enum LockProviderType {
+  /**
+   * A lock local to the application, only electing a leader among the schedulers of the same JVM, e.g. in tests
+   */
+  IN_MEMORY,
+  /**
+   * An exclusive queue on the broker, held by the connection of a single instance of the application
+   */
+  EXCLUSIVE_QUEUE
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the RabbitMQ management API, read to find the broker node hosting each dead letter queue.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class ManagementApiConfig extends AbstractConfig {
+
+  /**
+   * Base url of the management API, e.g. 'http://rabbitmq:15672'. Its a mandatory property
+   */
+  private String url;
+
+  /**
+   * User of the management API.
+   * Default value will be <b>guest</b>
+   */
+  @Builder.Default
+  private String username = "guest";
+
+  /**
+   * Password of the management API user.
+   * Default value will be <b>guest</b>
+   */
+  @Builder.Default
+  private String password = "guest";
+
+  /**
+   * Time in milliseconds the node of a queue is remembered before being read again.
+   * Default value will be <b>60000</b>
+   */
+  @Builder.Default
+  private long cacheTtl = 60000;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (StringUtils.isEmpty(url)) {
+      log.error("Invalid Url : Url must be provided for the management API configuration");
+      valid = false;
+    }
+    if (cacheTtl < 0) {
+      log.error("Invalid CacheTtl : CacheTtl must be positive or 0 for the management API configuration");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Management API configuration validated successfully : '{}'", url);
+    }
+    return valid;
+  }
+}
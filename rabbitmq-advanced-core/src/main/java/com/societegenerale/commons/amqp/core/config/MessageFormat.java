@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+/**
+ * The formats the payloads are serialized with, by Jackson, and their 'contentType'.
+ */
+public enum MessageFormat {
+  JSON("application/json", null),
+  SMILE("application/x-jackson-smile", "com.fasterxml.jackson.dataformat.smile.SmileFactory"),
+  CBOR("application/cbor", "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+
+  private String contentType;
+
+  private String factoryClassName;
+
+  MessageFormat(String contentType, String factoryClassName) {
+    this.contentType = contentType;
+    this.factoryClassName = factoryClassName;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * @return the class name of the Jackson factory of the format, null for JSON
+   */
+  public String getFactoryClassName() {
+    return factoryClassName;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+/**
+ * Configuration of the way the messages are prepared and published by the auto configured RabbitTemplate.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class PublisherConfig extends AbstractConfig {
+
+  /**
+   * Writes the trace, correlation id and info headers in a single before publish post processor.
+   * Default value will be <b>false</b>
+   */
+  private boolean fusedPipeline;
+
+  /**
+   * Format the payloads are serialized with, unless another one is configured on their exchange.
+   * Default value will be <b>json</b>
+   */
+  @Builder.Default
+  private MessageFormat messageFormat = MessageFormat.JSON;
+
+  /**
+   * Registers the Jackson Blackbird module, when it is on the classpath, to access the properties of the payloads
+   * without reflection.
+   * Default value will be <b>true</b>
+   */
+  @Builder.Default
+  private boolean blackbird = true;
+
+  /**
+   * Asynchronous publisher, returning a future completed by the broker confirm of each message.
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private AsyncPublisherConfig async = new AsyncPublisherConfig();
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (messageFormat == null) {
+      log.error("Invalid MessageFormat : MessageFormat must be provided for the publisher");
+      valid = false;
+    }
+    if (valid && async != null && async.isEnabled()) {
+      valid = async.validate();
+    }
+    if (valid) {
+      log.info("Publisher configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
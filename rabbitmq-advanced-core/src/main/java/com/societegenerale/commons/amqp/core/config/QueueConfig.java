@@ -22,7 +22,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.amqp.core.Queue;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -68,11 +73,33 @@ public class QueueConfig extends AbstractConfig {
   @Singular
   private Map<String, Object> arguments;
 
+  /**
+   * Delays of the retry ladder, e.g. '1s,10s,60s,10m' : a failed message waits in the wait queue of the next delay, then
+   * comes back to the queue, and is dead lettered once all the delays are used.
+   * If not set, the failed messages are dead lettered directly
+   */
+  private List<Duration> retryDelays;
+
+  /**
+   * Rate limit of the messages requeued from the dead letter queue to this queue.
+   * If not set, the rate limit of the requeue configuration applies
+   */
+  @NestedConfigurationProperty
+  private ReQueueRateConfig reQueueRateLimit;
+
   public boolean validate() {
     if (StringUtils.isEmpty(getName())) {
       log.error("Invalid Queue Configuration : Name must be provided for a queue");
       return false;
     }
+    if (retryDelays != null && retryDelays.stream().anyMatch(delay -> delay == null || delay.toMillis() < 1)) {
+      log.error("Invalid Queue Configuration : RetryDelays must be at least one millisecond for queue '{}'", getName());
+      return false;
+    }
+    if (reQueueRateLimit != null && !reQueueRateLimit.validate()) {
+      log.error("Invalid Queue Configuration : Invalid ReQueueRateLimit for queue '{}'", getName());
+      return false;
+    }
     log.info("Queue configuration validated successfully for queue '{}'", getName());
     return true;
   }
@@ -86,12 +113,21 @@ public class QueueConfig extends AbstractConfig {
     setDeadLetterEnabled(getDefaultConfig(getName(), "deadLetterEnabled", getDeadLetterEnabled(),
         defaultQueueConfig.getDeadLetterEnabled(), Boolean.FALSE));
     setArguments(loadArguments(getArguments(), defaultQueueConfig.getArguments()));
+    setRetryDelays(getDefaultConfig(getRetryDelays(), defaultQueueConfig.getRetryDelays()));
     setDefaultConfigApplied(true);
     log.info("DefaultQueueConfig applied on the current ExchangeConfig :: ExchangeConfig = {{}} , DefaultQueueConfig = {{}}",
         this, defaultQueueConfig);
     return this;
   }
 
+  /**
+   * @param defaultReQueueRateConfig the rate limit of the requeue configuration, may be null
+   * @return the requeue rate limit of the queue, or the default one when not configured
+   */
+  public ReQueueRateConfig resolveReQueueRateLimit(ReQueueRateConfig defaultReQueueRateConfig) {
+    return reQueueRateLimit != null ? reQueueRateLimit : defaultReQueueRateConfig;
+  }
+
   public Queue buildQueue(QueueConfig defaultQueueConfig, DeadLetterConfig deadLetterConfig) {
     if (!isDefaultConfigApplied()) {
       applyDefaultConfig(defaultQueueConfig);
@@ -109,6 +145,17 @@ public class QueueConfig extends AbstractConfig {
     return queue;
   }
 
+  /**
+   * @return the queue without dead lettering, whatever the deadLetterEnabled flag : the parked messages are not dead
+   * lettered, no dead letter queue being declared for the parking lot
+   */
+  public Queue buildParkingLotQueue(QueueConfig defaultQueueConfig) {
+    if (!isDefaultConfigApplied()) {
+      applyDefaultConfig(defaultQueueConfig);
+    }
+    return new Queue(getName(), getDurable(), getExclusive(), getAutoDelete(), new HashMap<>(getArguments()));
+  }
+
   public Queue buildDeadLetterQueue(QueueConfig defaultQueueConfig, DeadLetterConfig deadLetterConfig) {
     if (!isDefaultConfigApplied()) {
       applyDefaultConfig(defaultQueueConfig);
@@ -116,4 +163,52 @@ public class QueueConfig extends AbstractConfig {
     return new Queue(deadLetterConfig.createDeadLetterQueueName(getName()), getDurable(), getExclusive(), getAutoDelete(), getArguments());
   }
 
+  public String createRetryQueueName(Duration retryDelay) {
+    return getName() + ".retry." + retryDelay.toMillis();
+  }
+
+  public static String createReQueueDelayQueueName(String queueName, long tierDelay) {
+    return queueName + ".requeue-delay." + tierDelay;
+  }
+
+  /**
+   * @return the queues the requeued messages wait in until their expiration, one per tier of the backoff, before being
+   * dead lettered back to this queue through the default exchange
+   */
+  public List<Queue> buildReQueueDelayQueues(QueueConfig defaultQueueConfig, ReQueueBackoffConfig backoffConfig) {
+    if (!isDefaultConfigApplied()) {
+      applyDefaultConfig(defaultQueueConfig);
+    }
+    List<Queue> delayQueues = new ArrayList<>();
+    for (long tierDelay : backoffConfig.tierDelays()) {
+      Map<String, Object> delayArguments = new HashMap<>();
+      delayArguments.put("x-message-ttl", backoffConfig.tierTimeToLive(tierDelay));
+      delayArguments.put("x-dead-letter-exchange", "");
+      delayArguments.put("x-dead-letter-routing-key", getName());
+      delayQueues.add(new Queue(createReQueueDelayQueueName(getName(), tierDelay), getDurable(), getExclusive(), getAutoDelete(), delayArguments));
+    }
+    return delayQueues;
+  }
+
+  /**
+   * @return the wait queues of the retry ladder : their messages expire after the delay and are dead lettered back to
+   * this queue through the default exchange
+   */
+  public List<Queue> buildRetryQueues(QueueConfig defaultQueueConfig) {
+    if (!isDefaultConfigApplied()) {
+      applyDefaultConfig(defaultQueueConfig);
+    }
+    List<Queue> retryQueues = new ArrayList<>();
+    if (getRetryDelays() != null) {
+      for (Duration retryDelay : getRetryDelays()) {
+        Map<String, Object> retryArguments = new HashMap<>();
+        retryArguments.put("x-message-ttl", retryDelay.toMillis());
+        retryArguments.put("x-dead-letter-exchange", "");
+        retryArguments.put("x-dead-letter-routing-key", getName());
+        retryQueues.add(new Queue(createRetryQueueName(retryDelay), getDurable(), getExclusive(), getAutoDelete(), retryArguments));
+      }
+    }
+    return retryQueues;
+  }
+
 }
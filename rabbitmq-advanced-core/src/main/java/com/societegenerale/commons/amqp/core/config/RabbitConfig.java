@@ -71,6 +71,27 @@ public class RabbitConfig {
   @NestedConfigurationProperty
   private ReQueueConfig reQueueConfig;
 
+  /**
+   * Declaration Configuration to configure the way the exchanges, queues and bindings are declared on startup.
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private DeclarationConfig declaration = new DeclarationConfig();
+
+  /**
+   * Correlation Configuration to configure the way the correlation id of the published messages is generated.
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private CorrelationConfig correlation = new CorrelationConfig();
+
+  /**
+   * Publisher Configuration to configure the way the messages are published.
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private PublisherConfig publisher = new PublisherConfig();
+
   /**
    * Info Headers can be used to add additional information to be added in each message headers
    */
@@ -126,6 +147,21 @@ public class RabbitConfig {
       valid = validate("ReQueueConfig", reQueueConfig, valid);
     }
 
+    if (declaration != null) {
+      log.info("Validating DeclarationConfig...");
+      valid = validate("DeclarationConfig", declaration, valid);
+    }
+
+    if (correlation != null) {
+      log.info("Validating CorrelationConfig...");
+      valid = validate("CorrelationConfig", correlation, valid);
+    }
+
+    if (publisher != null) {
+      log.info("Validating PublisherConfig...");
+      valid = validate("PublisherConfig", publisher, valid);
+    }
+
     if (valid) {
       log.info("RabbitConfig Validation done successfully. RabbitConfig = {{}}", this.toString());
     } else {
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the requeue backoff : a message requeued again and again waits longer and longer before being
+ * delivered to its queue.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class ReQueueBackoffConfig extends AbstractConfig {
+
+  /**
+   * Enable or disable the requeue backoff.
+   * Default value will be <b>false</b>
+   */
+  private boolean enabled;
+
+  /**
+   * Delay in milliseconds of the first requeue of a message.
+   * Default value will be <b>1000</b>
+   */
+  @Builder.Default
+  private long initialDelay = 1000;
+
+  /**
+   * Factor applied to the delay at each new requeue of a message.
+   * Default value will be <b>2</b>
+   */
+  @Builder.Default
+  private double multiplier = 2;
+
+  /**
+   * Max delay in milliseconds of a requeue.
+   * Default value will be <b>600000</b>
+   */
+  @Builder.Default
+  private long maxDelay = 600000;
+
+  /**
+   * Random part of the delay, e.g. '0.2' for a delay between 80% and 120% of the computed one, so that the messages
+   * requeued together are not delivered together.
+   * Default value will be <b>0.2</b>
+   */
+  @Builder.Default
+  private double jitter = 0.2;
+
+  /**
+   * Delayed exchange delivering the requeued messages after their delay, bound to the queues with their name as routing
+   * key. If not set, the messages wait in the delay queues of their tier, declared for each queue with dead letter
+   * enabled.
+   */
+  private String delayedExchange;
+
+  /**
+   * @return the delays in milliseconds of the delay queue tiers : the delays of the successive requeues without jitter,
+   * up to the max delay
+   */
+  public List<Long> tierDelays() {
+    List<Long> tierDelays = new ArrayList<>();
+    if (multiplier > 1) {
+      for (double delay = initialDelay; delay < maxDelay; delay *= multiplier) {
+        tierDelays.add(Math.round(delay));
+      }
+    }
+    tierDelays.add(multiplier > 1 ? maxDelay : Math.min(initialDelay, maxDelay));
+    return tierDelays;
+  }
+
+  /**
+   * @param delay the delay in milliseconds of a requeue
+   * @return the delay of the tier closest to the delay, the jittered delays of a requeue sharing the tier of its delay
+   */
+  public long tierDelay(long delay) {
+    long closest = 0;
+    double closestDistance = Double.MAX_VALUE;
+    for (long tierDelay : tierDelays()) {
+      double distance = Math.abs(Math.log((double) Math.max(1, delay) / tierDelay));
+      if (distance < closestDistance) {
+        closest = tierDelay;
+        closestDistance = distance;
+      }
+    }
+    return closest;
+  }
+
+  /**
+   * @param tierDelay the delay of a tier
+   * @return the time to live of the messages of the tier delay queue, the longest jittered delay of the tier
+   */
+  public long tierTimeToLive(long tierDelay) {
+    return (long) Math.ceil(tierDelay * (1 + jitter));
+  }
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (initialDelay < 1 || maxDelay < initialDelay) {
+      log.error("Invalid Delay : InitialDelay must be greater than zero and not greater than MaxDelay");
+      valid = false;
+    }
+    if (multiplier < 1) {
+      log.error("Invalid Multiplier : Multiplier must be at least 1");
+      valid = false;
+    }
+    if (jitter < 0 || jitter >= 1) {
+      log.error("Invalid Jitter : Jitter must be between 0 and 1");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Requeue backoff configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
@@ -51,6 +51,13 @@ public class ReQueueConfig extends AbstractConfig {
   @NestedConfigurationProperty
   private QueueConfig queue;
 
+  /**
+   * Parking lot queue configuration : the messages rejected by the requeue policy are sent to this queue, declared
+   * without dead letter exchange. If not set, they are sent back to the tail of their dead letter queue
+   */
+  @NestedConfigurationProperty
+  private QueueConfig parkingLotQueue;
+
   /**
    * Routing key for requeue exchange and queue binding
    */
@@ -58,7 +65,7 @@ public class ReQueueConfig extends AbstractConfig {
 
   /**
    * If 'true' : Auto requeue will be enabled. These properties (cron,messageCount) need to be set.
-   * Not recommended for cluster environment
+   * Not recommended for cluster environment without leader election
    */
   private boolean autoRequeueEnabled;
 
@@ -73,6 +80,77 @@ public class ReQueueConfig extends AbstractConfig {
    */
   private int messageCount;
 
+  /**
+   * If 'true' : auto requeue first reads the depth of the dead letter queues with passive declares over a single channel,
+   * skips the empty ones and requeues the others from the deepest, sizing the message count to their depth.
+   * Default value will be <b>false</b>
+   */
+  private boolean depthAware;
+
+  /**
+   * Leader election of the auto requeue, for a single instance of the application to push the requeue messages
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private LeaderElectionConfig leaderElection = new LeaderElectionConfig();
+
+  /**
+   * Max number of dead letter queue messages pushed ahead to the requeue consumer and not acked yet.
+   * If '0' : the messages are received one at a time from the dead letter queue.
+   * Default value will be <b>250</b>
+   */
+  @Builder.Default
+  private int prefetch = 250;
+
+  /**
+   * Number of requeued messages published before waiting for their confirms and acking them in the dead letter queue.
+   * Default value will be <b>100</b>
+   */
+  @Builder.Default
+  private int ackBatchSize = 100;
+
+  /**
+   * Number of dead letter queues requeued in parallel by a pool of workers.
+   * If '0' : the dead letter queues are requeued one after another by the requeue listener.
+   * Default value will be <b>0</b>
+   */
+  private int workers;
+
+  /**
+   * Max number of dead letter queues hosted by the same broker node requeued at the same time by the workers.
+   * Default value will be <b>2</b>
+   */
+  @Builder.Default
+  private int maxDrainsPerNode = 2;
+
+  /**
+   * Management API read to find the broker node of each dead letter queue, for the 'maxDrainsPerNode' cap.
+   * If not set, the node is unknown and only the workers limit the drains
+   */
+  @NestedConfigurationProperty
+  private ManagementApiConfig managementApi;
+
+  /**
+   * Max number of messages requeued from a dead letter queue by a worker before giving way to the other dead letter queues.
+   * Default value will be <b>1000</b>
+   */
+  @Builder.Default
+  private int sliceSize = 1000;
+
+  /**
+   * Rate limit of the requeue, for all the queues without their own 're-queue-rate-limit'
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private ReQueueRateConfig rateLimit = new ReQueueRateConfig();
+
+  /**
+   * Backoff of the requeue, delaying the delivery of the messages requeued again and again
+   */
+  @NestedConfigurationProperty
+  @Builder.Default
+  private ReQueueBackoffConfig backoff = new ReQueueBackoffConfig();
+
   public boolean validate() {
 
     boolean valid = true;
@@ -81,6 +159,24 @@ public class ReQueueConfig extends AbstractConfig {
 
     valid = validate("queue", queue, valid);
 
+    valid = validate("rateLimit", rateLimit, valid);
+
+    if (backoff != null && backoff.isEnabled()) {
+      valid = validate("backoff", backoff, valid);
+    }
+
+    if (leaderElection != null && leaderElection.isEnabled()) {
+      valid = validate("leaderElection", leaderElection, valid);
+    }
+
+    if (parkingLotQueue != null) {
+      valid = validate("parkingLotQueue", parkingLotQueue, valid);
+    }
+
+    if (managementApi != null) {
+      valid = validate("managementApi", managementApi, valid);
+    }
+
     if (StringUtils.isEmpty(routingKey)) {
       log.error("Invalid RoutingKey : RoutingKey must be provided for requeue configuration");
       valid = false;
@@ -91,6 +187,26 @@ public class ReQueueConfig extends AbstractConfig {
       valid = false;
     }
 
+    if (prefetch < 0) {
+      log.error("Invalid Prefetch : Prefetch must be positive or 0 for requeue configuration");
+      valid = false;
+    }
+
+    if (ackBatchSize <= 0 || (prefetch > 0 && ackBatchSize > prefetch)) {
+      log.error("Invalid AckBatchSize : AckBatchSize must be positive and not greater than the prefetch for requeue configuration");
+      valid = false;
+    }
+
+    if (workers < 0 || (workers > 0 && prefetch == 0)) {
+      log.error("Invalid Workers : Workers must be positive or 0, and requires a prefetch for requeue configuration");
+      valid = false;
+    }
+
+    if (workers > 0 && (maxDrainsPerNode <= 0 || sliceSize <= 0)) {
+      log.error("Invalid Workers : MaxDrainsPerNode and SliceSize must be positive for requeue configuration");
+      valid = false;
+    }
+
     if (valid) {
       log.info("Requeue configuration validated successfully : '{}'", this);
     }
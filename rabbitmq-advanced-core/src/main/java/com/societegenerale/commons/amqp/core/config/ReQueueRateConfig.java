@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the requeue rate limit : the rate of the messages requeued to a queue is capped, and adapted to the
+ * depth of the queue and to the failures of its listener.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class ReQueueRateConfig extends AbstractConfig {
+
+  /**
+   * Max number of messages requeued per second. '0' for no limit.
+   * Default value will be <b>0</b>
+   */
+  private double messagesPerSecond;
+
+  /**
+   * Max number of message body bytes requeued per second. '0' for no limit.
+   * Default value will be <b>0</b>
+   */
+  private long bytesPerSecond;
+
+  /**
+   * Depth of the queue above which the requeue slows down, halving its rate until the depth goes back under it.
+   * The requeue pauses instead when there is no rate limit. '0' to disable.
+   * Default value will be <b>0</b>
+   */
+  private long depthWatermark;
+
+  /**
+   * Ratio of the requeued messages failing again in their listener above which the requeue slows down, as for the
+   * depth watermark. '0' to disable.
+   * Default value will be <b>0</b>
+   */
+  private double maxFailureRatio;
+
+  /**
+   * Time in milliseconds between two checks of the queue depth and of the failures, the rate going up again a bit at
+   * each check without slow down.
+   * Default value will be <b>1000</b>
+   */
+  @Builder.Default
+  private long checkInterval = 1000;
+
+  /**
+   * @return true when the rate of the requeue is limited or adapted
+   */
+  public boolean isLimited() {
+    return messagesPerSecond > 0 || bytesPerSecond > 0 || depthWatermark > 0 || maxFailureRatio > 0;
+  }
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (messagesPerSecond < 0 || bytesPerSecond < 0 || depthWatermark < 0) {
+      log.error("Invalid ReQueueRate : MessagesPerSecond, BytesPerSecond and DepthWatermark must be positive or 0");
+      valid = false;
+    }
+    if (maxFailureRatio < 0 || maxFailureRatio > 1) {
+      log.error("Invalid MaxFailureRatio : MaxFailureRatio must be between 0 and 1");
+      valid = false;
+    }
+    if (checkInterval < 1) {
+      log.error("Invalid CheckInterval : CheckInterval must be greater than zero");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Requeue rate configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.config;
+
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the stack trace stored in the headers of the dead lettered messages.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Slf4j
+@ConfigurationProperties
+public class StackTraceConfig extends AbstractConfig {
+
+  /**
+   * Full stack trace, or its fingerprint and top frames.
+   * Default value will be <b>full</b>
+   */
+  @Builder.Default
+  private StackTraceMode mode = StackTraceMode.FULL;
+
+  /**
+   * Number of frames stored in compact mode.
+   * Default value will be <b>10</b>
+   */
+  @Builder.Default
+  private int frames = 10;
+
+  /**
+   * Number of fingerprints remembered to log each full stack trace once, the least recently seen being forgotten first.
+   * Default value will be <b>1000</b>
+   */
+  @Builder.Default
+  private int cacheSize = 1000;
+
+  @Override
+  public boolean validate() {
+    boolean valid = true;
+    if (mode == null) {
+      log.error("Invalid Mode : Mode must be provided for the stack trace");
+      valid = false;
+    }
+    if (frames < 1) {
+      log.error("Invalid Frames : Frames must be greater than zero");
+      valid = false;
+    }
+    if (cacheSize < 1) {
+      log.error("Invalid CacheSize : CacheSize must be greater than zero");
+      valid = false;
+    }
+    if (valid) {
+      log.info("Stack trace configuration validated successfully : '{}'", this);
+    }
+    return valid;
+  }
+}
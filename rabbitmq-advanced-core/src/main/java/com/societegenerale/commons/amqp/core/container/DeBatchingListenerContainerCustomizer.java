@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.container;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Enables the de-batching on the listener containers consuming a queue bound to an exchange configured with batching.
+ */
+@Slf4j
+public class DeBatchingListenerContainerCustomizer implements ListenerContainerCustomizer {
+
+  private final Set<String> batchedQueues;
+
+  /**
+   * @param batchedQueues the names of the queues bound to an exchange configured with batching
+   */
+  public DeBatchingListenerContainerCustomizer(Set<String> batchedQueues) {
+    this.batchedQueues = batchedQueues;
+  }
+
+  @Override
+  public void customize(AbstractMessageListenerContainer container) {
+    for (String queueName : container.getQueueNames()) {
+      if (batchedQueues.contains(queueName)) {
+        container.setDeBatchingEnabled(true);
+        log.info("De-batching enabled on the listener container of the queues {}", Arrays.toString(container.getQueueNames()));
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.container;
+
+import com.societegenerale.commons.amqp.core.compression.DecompressingMessagePostProcessor;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+
+/**
+ * Adds the {@link DecompressingMessagePostProcessor} to the after receive post processors of the listener containers,
+ * so the listeners receive the payloads as they were before their compression.
+ */
+public class DecompressingListenerContainerCustomizer implements ListenerContainerCustomizer {
+
+  private final DecompressingMessagePostProcessor decompressingMessagePostProcessor;
+
+  public DecompressingListenerContainerCustomizer(DecompressingMessagePostProcessor decompressingMessagePostProcessor) {
+    this.decompressingMessagePostProcessor = decompressingMessagePostProcessor;
+  }
+
+  @Override
+  public void customize(AbstractMessageListenerContainer container) {
+    container.addAfterReceivePostProcessors(decompressingMessagePostProcessor);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.container;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Acknowledgement of the delivery being processed by a listener, which the recoverer can defer to complete it later from
+ * another thread, once the dead lettered message is confirmed.
+ */
+@Slf4j
+public class DeferredAck {
+
+  private final Channel channel;
+
+  private final long deliveryTag;
+
+  private volatile boolean deferred;
+
+  DeferredAck(Channel channel, long deliveryTag) {
+    this.channel = channel;
+    this.deliveryTag = deliveryTag;
+  }
+
+  /**
+   * The delivery is no longer acked when the listener returns, but when {@link #complete(boolean)} is called.
+   */
+  public void defer() {
+    deferred = true;
+  }
+
+  public boolean isDeferred() {
+    return deferred;
+  }
+
+  /**
+   * @param acked true to ack the delivery, false to nack it so that the broker delivers it again
+   */
+  public void complete(boolean acked) {
+    try {
+      if (acked) {
+        channel.basicAck(deliveryTag, false);
+      } else {
+        channel.basicNack(deliveryTag, false, true);
+      }
+    } catch (Exception e) {
+      // the broker delivers the message again once the channel is closed
+      log.warn("Unable to {} the delivery {} : {}", acked ? "ack" : "nack", deliveryTag, e.getMessage());
+    }
+  }
+}
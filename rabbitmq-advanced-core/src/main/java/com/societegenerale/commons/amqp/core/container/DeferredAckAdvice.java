@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.container;
+
+import com.rabbitmq.client.Channel;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.amqp.ImmediateAcknowledgeAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.listener.support.ContainerUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outermost advice of a listener container in manual acknowledge mode, acking the deliveries itself as the container
+ * does in auto mode : acked when the listener returns, nacked when it throws, unless the recoverer deferred the
+ * acknowledgement with {@link #currentAck()}.
+ */
+public class DeferredAckAdvice implements MethodInterceptor {
+
+  private static final Log LOGGER = LogFactory.getLog(DeferredAckAdvice.class);
+
+  private static final ThreadLocal<DeferredAck> CURRENT_ACK = new ThreadLocal<>();
+
+  private final boolean defaultRequeueRejected;
+
+  /**
+   * @param defaultRequeueRejected whether the deliveries failing with an exception are requeued, as configured on the
+   *                               container
+   */
+  public DeferredAckAdvice(boolean defaultRequeueRejected) {
+    this.defaultRequeueRejected = defaultRequeueRejected;
+  }
+
+  /**
+   * @return the acknowledgement of the delivery processed by the current thread, null outside of a listener container
+   * using this advice or for a batch of messages
+   */
+  public static DeferredAck currentAck() {
+    return CURRENT_ACK.get();
+  }
+
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    Channel channel = (Channel) invocation.getArguments()[0];
+    Object data = invocation.getArguments()[1];
+    List<Long> deliveryTags = deliveryTags(data);
+    DeferredAck deferredAck = data instanceof Message ? new DeferredAck(channel, deliveryTags.get(0)) : null;
+    CURRENT_ACK.set(deferredAck);
+    try {
+      Object result = invocation.proceed();
+      if (deferredAck == null || !deferredAck.isDeferred()) {
+        for (Long deliveryTag : deliveryTags) {
+          channel.basicAck(deliveryTag, false);
+        }
+      }
+      return result;
+    } catch (Throwable e) {
+      if (deferredAck == null || !deferredAck.isDeferred()) {
+        boolean acked = causeChainHasImmediateAcknowledge(e);
+        boolean requeue = !acked && ContainerUtils.shouldRequeue(defaultRequeueRejected, e, LOGGER);
+        for (Long deliveryTag : deliveryTags) {
+          if (acked) {
+            channel.basicAck(deliveryTag, false);
+          } else {
+            channel.basicNack(deliveryTag, false, requeue);
+          }
+        }
+      }
+      throw e;
+    } finally {
+      CURRENT_ACK.remove();
+    }
+  }
+
+  private static List<Long> deliveryTags(Object data) {
+    List<Long> deliveryTags = new ArrayList<>();
+    if (data instanceof Message) {
+      deliveryTags.add(((Message) data).getMessageProperties().getDeliveryTag());
+    } else if (data instanceof List) {
+      for (Object message : (List<?>) data) {
+        deliveryTags.add(((Message) message).getMessageProperties().getDeliveryTag());
+      }
+    }
+    return deliveryTags;
+  }
+
+  private static boolean causeChainHasImmediateAcknowledge(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ImmediateAcknowledgeAmqpException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
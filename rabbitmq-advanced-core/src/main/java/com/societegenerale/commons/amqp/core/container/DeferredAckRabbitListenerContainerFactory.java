@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.container;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+/**
+ * Builds the listener containers in auto acknowledge mode in manual mode instead, with a {@link DeferredAckAdvice} around
+ * their advice chain acking the deliveries, so that the recoverer can ack a failed delivery only once its dead lettered
+ * message is confirmed. The containers are set up before they are initialized, the advice chain proxy being built then.
+ * <p>
+ * The containers in none or manual acknowledge mode, from the factory or from their endpoint, are left as they are.
+ */
+public class DeferredAckRabbitListenerContainerFactory extends SimpleRabbitListenerContainerFactory {
+
+  @Override
+  protected void initializeContainer(SimpleMessageListenerContainer instance, RabbitListenerEndpoint endpoint) {
+    super.initializeContainer(instance, endpoint);
+    if (instance.getAcknowledgeMode() != AcknowledgeMode.AUTO) {
+      return;
+    }
+    Advice[] adviceChain = getAdviceChain() != null ? getAdviceChain() : new Advice[0];
+    Advice[] deferredAckAdviceChain = new Advice[adviceChain.length + 1];
+    deferredAckAdviceChain[0] = new DeferredAckAdvice(!Boolean.FALSE.equals(getDefaultRequeueRejected()));
+    System.arraycopy(adviceChain, 0, deferredAckAdviceChain, 1, adviceChain.length);
+    instance.setAdviceChain(deferredAckAdviceChain);
+    instance.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+  }
+}
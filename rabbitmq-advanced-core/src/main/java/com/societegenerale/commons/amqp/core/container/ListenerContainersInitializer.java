@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.container;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies the {@link ListenerContainerCustomizer}s to the listener containers, the '@RabbitListener' ones as well as the
+ * container beans, just before they are started.
+ * <p>
+ * Containers registered after the application context is started are not customized.
+ */
+@Slf4j
+public class ListenerContainersInitializer implements SmartLifecycle, ApplicationContextAware {
+
+  /**
+   * Started before the listener containers and their registry, which use the default phase (Integer.MAX_VALUE).
+   */
+  public static final int PHASE = Integer.MAX_VALUE - 1000;
+
+  private final List<ListenerContainerCustomizer> customizers;
+
+  private final Set<AbstractMessageListenerContainer> customized = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private ApplicationContext applicationContext;
+
+  private volatile boolean running;
+
+  public ListenerContainersInitializer(List<ListenerContainerCustomizer> customizers) {
+    this.customizers = customizers;
+  }
+
+  @Override
+  public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+    this.applicationContext = applicationContext;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (!customizers.isEmpty()) {
+      for (AbstractMessageListenerContainer container : getListenerContainers()) {
+        if (customized.add(container)) {
+          customizers.forEach(customizer -> customizer.customize(container));
+        }
+      }
+      log.info("{} listener containers customized", customized.size());
+    }
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  private List<AbstractMessageListenerContainer> getListenerContainers() {
+    List<AbstractMessageListenerContainer> containers = new ArrayList<>(
+        applicationContext.getBeansOfType(AbstractMessageListenerContainer.class, false, false).values());
+    applicationContext.getBeanProvider(RabbitListenerEndpointRegistry.class).ifAvailable(registry -> {
+      for (MessageListenerContainer container : registry.getListenerContainers()) {
+        if (container instanceof AbstractMessageListenerContainer) {
+          containers.add((AbstractMessageListenerContainer) container);
+        }
+      }
+    });
+    return containers;
+  }
+}
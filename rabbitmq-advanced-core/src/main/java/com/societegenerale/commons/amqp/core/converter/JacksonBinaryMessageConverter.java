@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.converter;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SmartMessageConverter;
+import org.springframework.core.ParameterizedTypeReference;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Converts the payloads with a Jackson binary format (Smile, CBOR), the type of the payload being carried by the same
+ * headers as with the {@link org.springframework.amqp.support.converter.Jackson2JsonMessageConverter}. The payloads
+ * of another content type are returned as is.
+ */
+public class JacksonBinaryMessageConverter extends AbstractMessageConverter implements SmartMessageConverter {
+
+  private final ObjectMapper objectMapper;
+
+  private final String contentType;
+
+  private final DefaultJackson2JavaTypeMapper javaTypeMapper = new DefaultJackson2JavaTypeMapper();
+
+  /**
+   * @param objectMapper    the object mapper of the binary format
+   * @param contentType     the content type of the binary format
+   * @param trustedPackages the packages of the types the payloads can be converted to, '*' for all
+   */
+  public JacksonBinaryMessageConverter(ObjectMapper objectMapper, String contentType, String... trustedPackages) {
+    this.objectMapper = objectMapper;
+    this.contentType = contentType;
+    this.javaTypeMapper.setTrustedPackages(trustedPackages);
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public Jackson2JavaTypeMapper getJavaTypeMapper() {
+    return javaTypeMapper;
+  }
+
+  @Override
+  protected Message createMessage(Object object, MessageProperties messageProperties) {
+    return createMessage(object, messageProperties, null);
+  }
+
+  @Override
+  protected Message createMessage(Object object, MessageProperties messageProperties, Type genericType) {
+    byte[] bytes;
+    try {
+      bytes = objectMapper.writeValueAsBytes(object);
+    } catch (IOException e) {
+      throw new MessageConversionException("Failed to convert the payload to " + contentType, e);
+    }
+    messageProperties.setContentType(contentType);
+    messageProperties.setContentLength(bytes.length);
+    JavaType javaType = genericType != null ? objectMapper.constructType(genericType) : objectMapper.constructType(object.getClass());
+    javaTypeMapper.fromJavaType(javaType, messageProperties);
+    return new Message(bytes, messageProperties);
+  }
+
+  @Override
+  public Object fromMessage(Message message) {
+    return fromMessage(message, null);
+  }
+
+  @Override
+  public Object fromMessage(Message message, Object conversionHint) {
+    MessageProperties messageProperties = message.getMessageProperties();
+    if (!contentType.equals(NegotiatingMessageConverter.mimeType(messageProperties.getContentType()))) {
+      return message.getBody();
+    }
+    JavaType javaType = conversionHint instanceof ParameterizedTypeReference
+        ? objectMapper.constructType(((ParameterizedTypeReference<?>) conversionHint).getType())
+        : javaTypeMapper.toJavaType(messageProperties);
+    try {
+      return objectMapper.readValue(message.getBody(), javaType);
+    } catch (IOException e) {
+      throw new MessageConversionException("Failed to convert the " + contentType + " payload to " + javaType, e);
+    }
+  }
+}
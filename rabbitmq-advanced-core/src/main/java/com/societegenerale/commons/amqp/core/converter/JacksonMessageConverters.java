@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.converter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.societegenerale.commons.amqp.core.config.MessageFormat;
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+
+/**
+ * Creates the Jackson message converters of the {@link MessageFormat}s. The binary formats and the Blackbird module are
+ * optional : they are loaded by name, only when they are on the classpath.
+ */
+@Slf4j
+public final class JacksonMessageConverters {
+
+  static final String BLACKBIRD_MODULE = "com.fasterxml.jackson.module.blackbird.BlackbirdModule";
+
+  private JacksonMessageConverters() {
+  }
+
+  /**
+   * @return true when the format can be used, its Jackson factory being on the classpath
+   */
+  public static boolean isAvailable(MessageFormat format) {
+    return format.getFactoryClassName() == null || ClassUtils.isPresent(format.getFactoryClassName(), classLoader());
+  }
+
+  /**
+   * @param format    the format of the payloads
+   * @param blackbird registers the Blackbird module when it is on the classpath
+   * @return the converter of the format, trusting all the packages like the default Jackson2JsonMessageConverter
+   */
+  public static MessageConverter create(MessageFormat format, boolean blackbird) {
+    if (!isAvailable(format)) {
+      throw new RabbitmqConfigurationException("The message format '" + format + "' needs '" + format.getFactoryClassName()
+          + "' on the classpath");
+    }
+    ObjectMapper objectMapper = format.getFactoryClassName() == null
+        ? new ObjectMapper() : new ObjectMapper((JsonFactory) instantiate(format.getFactoryClassName()));
+    objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    if (blackbird && ClassUtils.isPresent(BLACKBIRD_MODULE, classLoader())) {
+      objectMapper.registerModule((Module) instantiate(BLACKBIRD_MODULE));
+    }
+    if (format == MessageFormat.JSON) {
+      return new Jackson2JsonMessageConverter(objectMapper, "*");
+    }
+    return new JacksonBinaryMessageConverter(objectMapper, format.getContentType(), "*");
+  }
+
+  /**
+   * @param defaultFormat   the format of the payloads published on an exchange without format
+   * @param blackbird       registers the Blackbird module when it is on the classpath
+   * @param exchangeFormats the format of the exchanges, by exchange name
+   * @return a converter receiving all the available formats
+   */
+  public static NegotiatingMessageConverter negotiating(MessageFormat defaultFormat, boolean blackbird,
+                                                        Map<String, MessageFormat> exchangeFormats) {
+    MessageConverter defaultConverter = create(defaultFormat, blackbird);
+    NegotiatingMessageConverter negotiatingMessageConverter = new NegotiatingMessageConverter(defaultConverter);
+    for (MessageFormat format : MessageFormat.values()) {
+      if (format == defaultFormat) {
+        negotiatingMessageConverter.addConverter(format.getContentType(), defaultConverter);
+      } else if (isAvailable(format)) {
+        negotiatingMessageConverter.addConverter(format.getContentType(), create(format, blackbird));
+      }
+    }
+    exchangeFormats.forEach((exchange, format) -> negotiatingMessageConverter.setExchangeContentType(exchange, format.getContentType()));
+    log.info("Message converters : published as '{}' by default, received as {}", defaultFormat.getContentType(),
+        negotiatingMessageConverter.getConverters().keySet());
+    return negotiatingMessageConverter;
+  }
+
+  private static Object instantiate(String className) {
+    try {
+      return BeanUtils.instantiateClass(ClassUtils.forName(className, classLoader()));
+    } catch (ClassNotFoundException | LinkageError e) {
+      throw new RabbitmqConfigurationException("Failed to load '" + className + "' : " + e.getMessage());
+    }
+  }
+
+  private static ClassLoader classLoader() {
+    return JacksonMessageConverters.class.getClassLoader();
+  }
+}
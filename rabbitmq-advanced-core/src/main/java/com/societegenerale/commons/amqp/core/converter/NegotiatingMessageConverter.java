@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.converter;
+
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SmartMessageConverter;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts the received payloads with the converter of their 'contentType', and the published payloads with the
+ * converter of their exchange when it is known, e.g. by the auto configured RabbitTemplate, the batching templates and
+ * the asynchronous publisher, or with the default converter.
+ * <p>
+ * The payloads of an unknown content type are given to the default converter.
+ */
+public class NegotiatingMessageConverter implements SmartMessageConverter {
+
+  private final MessageConverter defaultConverter;
+
+  private final Map<String, MessageConverter> converters = new LinkedHashMap<>();
+
+  private final Map<String, MessageConverter> exchangeConverters = new HashMap<>();
+
+  /**
+   * @param defaultConverter the converter of the published payloads when their exchange has no converter
+   */
+  public NegotiatingMessageConverter(MessageConverter defaultConverter) {
+    this.defaultConverter = defaultConverter;
+  }
+
+  /**
+   * @param contentType the content type converted by the converter
+   * @param converter   the converter
+   */
+  public void addConverter(String contentType, MessageConverter converter) {
+    converters.put(contentType, converter);
+  }
+
+  /**
+   * @param exchange    the exchange name
+   * @param contentType the content type of the payloads published on the exchange, a converter must be registered for it
+   */
+  public void setExchangeContentType(String exchange, String contentType) {
+    MessageConverter converter = converters.get(contentType);
+    if (converter == null) {
+      throw new RabbitmqConfigurationException("No message converter for the content type '" + contentType
+          + "' of the exchange '" + exchange + "' : check the format is on the classpath");
+    }
+    exchangeConverters.put(exchange, converter);
+  }
+
+  public Map<String, MessageConverter> getConverters() {
+    return converters;
+  }
+
+  @Override
+  public Message toMessage(Object object, MessageProperties messageProperties) {
+    return defaultConverter.toMessage(object, messageProperties);
+  }
+
+  @Override
+  public Message toMessage(Object object, MessageProperties messageProperties, Type genericType) {
+    return defaultConverter.toMessage(object, messageProperties, genericType);
+  }
+
+  /**
+   * @param exchange the exchange the payload is published on
+   */
+  public Message toMessage(Object object, MessageProperties messageProperties, String exchange) {
+    return exchangeConverter(exchange).toMessage(object, messageProperties);
+  }
+
+  /**
+   * @return a converter publishing with the converter of the exchange, this converter when the exchange has none
+   */
+  public MessageConverter forExchange(String exchange) {
+    MessageConverter exchangeConverter = exchangeConverters.get(exchange);
+    return exchangeConverter == null ? this : new ExchangeMessageConverter(exchangeConverter);
+  }
+
+  @Override
+  public Object fromMessage(Message message) {
+    return converter(message).fromMessage(message);
+  }
+
+  @Override
+  public Object fromMessage(Message message, Object conversionHint) {
+    MessageConverter converter = converter(message);
+    return converter instanceof SmartMessageConverter
+        ? ((SmartMessageConverter) converter).fromMessage(message, conversionHint) : converter.fromMessage(message);
+  }
+
+  private MessageConverter converter(Message message) {
+    String contentType = mimeType(message.getMessageProperties().getContentType());
+    MessageConverter converter = contentType != null ? converters.get(contentType) : null;
+    return converter != null ? converter : defaultConverter;
+  }
+
+  private MessageConverter exchangeConverter(String exchange) {
+    MessageConverter converter = exchange != null ? exchangeConverters.get(exchange) : null;
+    return converter != null ? converter : defaultConverter;
+  }
+
+  /**
+   * @return the content type without its parameters, e.g. the charset
+   */
+  static String mimeType(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    int semicolon = contentType.indexOf(';');
+    return semicolon < 0 ? contentType : contentType.substring(0, semicolon).trim();
+  }
+
+  /**
+   * Publishes with the converter of an exchange, and receives like the {@link NegotiatingMessageConverter}.
+   */
+  private final class ExchangeMessageConverter implements SmartMessageConverter {
+
+    private final MessageConverter exchangeConverter;
+
+    private ExchangeMessageConverter(MessageConverter exchangeConverter) {
+      this.exchangeConverter = exchangeConverter;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+      return exchangeConverter.toMessage(object, messageProperties);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties, Type genericType) {
+      return exchangeConverter.toMessage(object, messageProperties, genericType);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+      return NegotiatingMessageConverter.this.fromMessage(message);
+    }
+
+    @Override
+    public Object fromMessage(Message message, Object conversionHint) {
+      return NegotiatingMessageConverter.this.fromMessage(message, conversionHint);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import com.societegenerale.commons.amqp.core.config.CorrelationIdGeneratorType;
+
+/**
+ * Generates the correlation id of a message published outside of any trace. Implementations are called concurrently
+ * by all the publishing threads.
+ */
+@FunctionalInterface
+public interface CorrelationIdGenerator {
+
+  String generate();
+
+  /**
+   * Creates the built-in generator of the given type.
+   *
+   * @param type   the generator type
+   * @param nodeId the node id, only used by the node counter generator (a random one is used when empty)
+   * @return the generator
+   */
+  static CorrelationIdGenerator of(CorrelationIdGeneratorType type, String nodeId) {
+    switch (type) {
+      case THREAD_LOCAL_RANDOM_UUID:
+        return new ThreadLocalRandomUuidCorrelationIdGenerator();
+      case TIME_ORDERED:
+        return new TimeOrderedCorrelationIdGenerator();
+      case NODE_COUNTER:
+        return new NodeCounterCorrelationIdGenerator(nodeId);
+      case RANDOM_UUID:
+      default:
+        return new RandomUuidCorrelationIdGenerator();
+    }
+  }
+}
@@ -23,6 +23,8 @@ import org.springframework.amqp.rabbit.core.CorrelationDataPostProcessor;
 
 /**
  * Created by Anand Manissery on 7/13/2017.
+ * <p>
+ * The correlation post processor is only run again when the message was not already correlated before publishing.
  */
 public class DefaultCorrelationDataPostProcessor implements CorrelationDataPostProcessor {
 
@@ -34,14 +36,20 @@ public class DefaultCorrelationDataPostProcessor implements CorrelationDataPostP
 
   @Override
   public CorrelationData postProcess(final Message message, CorrelationData correlationData) {
-    CorrelationData resultCorrelationData = correlationData == null ? new CorrelationData() : correlationData;
     MessageProperties messageProperties = message.getMessageProperties();
     if (correlationData != null && correlationData.getId() != null) {
       messageProperties.setCorrelationId(correlationData.getId());
     }
-    correlationPostProcessor.postProcessMessage(message);
-    resultCorrelationData.setId(messageProperties.getCorrelationId());
-    return resultCorrelationData;
+    String correlationId = messageProperties.getCorrelationId();
+    if (correlationId == null || !correlationId.equals(messageProperties.getHeaders().get(DefaultCorrelationPostProcessor.CORRELATION_ID))) {
+      correlationPostProcessor.postProcessMessage(message);
+      correlationId = messageProperties.getCorrelationId();
+    }
+    if (correlationData == null) {
+      return new CorrelationData(correlationId);
+    }
+    correlationData.setId(correlationId);
+    return correlationData;
   }
 
 }
\ No newline at end of file
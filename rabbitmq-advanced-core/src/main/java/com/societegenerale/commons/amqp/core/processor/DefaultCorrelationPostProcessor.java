@@ -16,36 +16,75 @@
 
 package com.societegenerale.commons.amqp.core.processor;
 
+import brave.Span;
 import brave.Tracer;
+import brave.propagation.CurrentTraceContext;
+import brave.propagation.TraceContext;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.UUID;
-
 /**
  * Created by Anand Manissery on 7/13/2017.
  */
-public class DefaultCorrelationPostProcessor implements CorrelationPostProcessor {
+public class DefaultCorrelationPostProcessor implements CorrelationPostProcessor, PublishHeaderWriter {
+
+  static final String CORRELATION_ID = "correlation-id";
 
   private Tracer tracer;
 
+  private final CorrelationIdGenerator correlationIdGenerator;
+
+  private CurrentTraceContext currentTraceContext;
+
   @Autowired(required = false)
   public DefaultCorrelationPostProcessor(Tracer tracer) {
+    this(tracer, new RandomUuidCorrelationIdGenerator());
+  }
+
+  /**
+   * @param tracer                 the tracer, the trace id is used as correlation id when a span is active
+   * @param correlationIdGenerator generates the correlation id when no span is active
+   */
+  public DefaultCorrelationPostProcessor(Tracer tracer, CorrelationIdGenerator correlationIdGenerator) {
     this.tracer=tracer;
+    this.correlationIdGenerator=correlationIdGenerator;
   }
 
   @Override
   public Message postProcessMessage(final Message message) {
-    MessageProperties messageProperties = message.getMessageProperties();
+    writeHeaders(message.getMessageProperties(), null, null);
+    return message;
+  }
+
+  @Override
+  public void writeHeaders(MessageProperties messageProperties, String exchange, String routingKey) {
     String correlationId = messageProperties.getCorrelationId();
     if (correlationId == null) {
-      correlationId = (tracer!=null && tracer.currentSpan()!=null)?
-              tracer.currentSpan().context().traceIdString():UUID.randomUUID().toString();
+      correlationId = currentTraceId();
+      if (correlationId == null) {
+        correlationId = correlationIdGenerator.generate();
+      }
       messageProperties.setCorrelationId(correlationId);
     }
-    messageProperties.getHeaders().put("correlation-id", correlationId);
-    return message;
+    messageProperties.getHeaders().put(CORRELATION_ID, correlationId);
+  }
+
+  private String currentTraceId() {
+    if (currentTraceContext != null) {
+      TraceContext traceContext = currentTraceContext.get();
+      return traceContext != null ? traceContext.traceIdString() : null;
+    }
+    Span span = tracer != null ? tracer.currentSpan() : null;
+    return span != null ? span.context().traceIdString() : null;
+  }
+
+  /**
+   * @param currentTraceContext when set, the trace id is read from the current trace context instead of the current
+   *                            span of the tracer, which avoids building a span for each message
+   */
+  public void setCurrentTraceContext(CurrentTraceContext currentTraceContext) {
+    this.currentTraceContext = currentTraceContext;
   }
 
 }
\ No newline at end of file
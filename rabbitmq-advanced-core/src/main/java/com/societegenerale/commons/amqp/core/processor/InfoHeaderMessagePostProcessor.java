@@ -16,38 +16,111 @@
 
 package com.societegenerale.commons.amqp.core.processor;
 
-import lombok.Data;
-import lombok.Singular;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessagePostProcessor;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Created by Anand Manissery on 7/13/2017.
+ * <p>
+ * The configured headers and the application name are resolved once, on the first message, into an immutable map.
+ * The 'execution-time' has a precision of one second, so the whole info header is built at most once per second and
+ * shared by all the messages sent during that second : nothing is allocated nor mutated per message.
  */
-@Data
-public class InfoHeaderMessagePostProcessor implements MessagePostProcessor {
+public class InfoHeaderMessagePostProcessor implements MessagePostProcessor, PublishHeaderWriter {
+
+  static final String INFO_HEADER = "info";
+
+  static final String APPLICATION_NAME = "spring-application-name";
+
+  static final String EXECUTION_TIME = "execution-time";
 
-  @Singular
   private Map<String, Object> headers = new HashMap<>();
 
   @Autowired
   private Environment environment;
 
+  private volatile Map<String, Object> staticHeaders;
+
+  private volatile InfoHeader current = new InfoHeader(Long.MIN_VALUE, Collections.emptyMap());
+
   @Override
   public Message postProcessMessage(final Message message) {
-    MessageProperties messageProperties = message.getMessageProperties();
-    headers.putIfAbsent("spring-application-name",
-        getEnvironment().getProperty("spring.application.name", String.class));
-    headers.put("execution-time", new Date().toString());
-    messageProperties.getHeaders().putIfAbsent("info", headers);
+    writeHeaders(message.getMessageProperties(), null, null);
     return message;
   }
 
+  @Override
+  public void writeHeaders(MessageProperties messageProperties, String exchange, String routingKey) {
+    messageProperties.getHeaders().putIfAbsent(INFO_HEADER, infoHeader(System.currentTimeMillis()));
+  }
+
+  Map<String, Object> infoHeader(long now) {
+    long second = now / 1000;
+    InfoHeader infoHeader = current;
+    if (infoHeader.second != second) {
+      Map<String, Object> info = new LinkedHashMap<>(getStaticHeaders());
+      info.put(EXECUTION_TIME, new Date(second * 1000).toString());
+      infoHeader = new InfoHeader(second, Collections.unmodifiableMap(info));
+      current = infoHeader;
+    }
+    return infoHeader.info;
+  }
+
+  private Map<String, Object> getStaticHeaders() {
+    Map<String, Object> resolved = staticHeaders;
+    if (resolved == null) {
+      Map<String, Object> info = new LinkedHashMap<>(headers);
+      info.putIfAbsent(APPLICATION_NAME, getEnvironment().getProperty("spring.application.name", String.class));
+      resolved = Collections.unmodifiableMap(info);
+      staticHeaders = resolved;
+    }
+    return resolved;
+  }
+
+  /**
+   * @return the configured headers. Changes made after the first message are not taken into account.
+   */
+  public Map<String, Object> getHeaders() {
+    return headers;
+  }
+
+  public void setHeaders(Map<String, Object> headers) {
+    this.headers = headers != null ? headers : new HashMap<>();
+    reset();
+  }
+
+  public Environment getEnvironment() {
+    return environment;
+  }
+
+  public void setEnvironment(Environment environment) {
+    this.environment = environment;
+    reset();
+  }
+
+  private void reset() {
+    staticHeaders = null;
+    current = new InfoHeader(Long.MIN_VALUE, Collections.emptyMap());
+  }
+
+  private static final class InfoHeader {
+
+    private final long second;
+
+    private final Map<String, Object> info;
+
+    private InfoHeader(long second, Map<String, Object> info) {
+      this.second = second;
+      this.info = info;
+    }
+  }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import com.societegenerale.commons.amqp.core.topology.LazyTopologyDeclarer;
+import org.springframework.amqp.core.Correlation;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.util.StringUtils;
+
+/**
+ * Declares the target exchange, or the target queue when publishing through the default exchange, on the first publish.
+ */
+public class LazyDeclaringMessagePostProcessor implements MessagePostProcessor {
+
+  private final LazyTopologyDeclarer lazyTopologyDeclarer;
+
+  public LazyDeclaringMessagePostProcessor(LazyTopologyDeclarer lazyTopologyDeclarer) {
+    this.lazyTopologyDeclarer = lazyTopologyDeclarer;
+  }
+
+  @Override
+  public Message postProcessMessage(Message message) {
+    return message;
+  }
+
+  @Override
+  public Message postProcessMessage(Message message, Correlation correlation, String exchange, String routingKey) {
+    if (StringUtils.hasLength(exchange)) {
+      lazyTopologyDeclarer.ensureExchange(exchange, routingKey);
+    } else if (StringUtils.hasLength(routingKey)) {
+      lazyTopologyDeclarer.ensureQueue(routingKey);
+    }
+    return message;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates ids made of the node id, the start time of the generator and a counter, e.g. 'node-1-l5x3k2a0-42'. The
+ * start time keeps the ids unique across restarts of the same node. The node id must be unique among the publishers.
+ */
+public class NodeCounterCorrelationIdGenerator implements CorrelationIdGenerator {
+
+  private final String prefix;
+
+  private final AtomicLong counter = new AtomicLong();
+
+  /**
+   * @param nodeId the node id, a random one is used when empty
+   */
+  public NodeCounterCorrelationIdGenerator(String nodeId) {
+    String node = StringUtils.hasText(nodeId) ? nodeId : Long.toHexString(ThreadLocalRandom.current().nextLong());
+    this.prefix = node + "-" + Long.toString(System.currentTimeMillis(), Character.MAX_RADIX) + "-";
+  }
+
+  @Override
+  public String generate() {
+    return prefix + counter.incrementAndGet();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * One stage of the {@link PublishPipeline} : writes its headers in the properties of the message being published.
+ */
+public interface PublishHeaderWriter {
+
+  /**
+   * @param messageProperties the properties of the message being published
+   * @param exchange          the target exchange, null when unknown
+   * @param routingKey        the routing key, null when unknown
+   */
+  void writeHeaders(MessageProperties messageProperties, String exchange, String routingKey);
+
+  /**
+   * @return false to leave the stage out of the pipeline
+   */
+  default boolean isEnabled() {
+    return true;
+  }
+}
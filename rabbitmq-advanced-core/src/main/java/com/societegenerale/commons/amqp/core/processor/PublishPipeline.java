@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import org.springframework.amqp.core.Correlation;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single before publish post processor running all the header writers (trace propagation, correlation id, info
+ * headers...) in one pass over the message properties. The enabled writers are resolved once, in order, when the
+ * pipeline is built.
+ */
+public class PublishPipeline implements MessagePostProcessor {
+
+  private final PublishHeaderWriter[] writers;
+
+  public PublishPipeline(List<? extends PublishHeaderWriter> writers) {
+    this.writers = writers.stream().filter(PublishHeaderWriter::isEnabled).toArray(PublishHeaderWriter[]::new);
+  }
+
+  @Override
+  public Message postProcessMessage(Message message) {
+    return postProcessMessage(message, null, null, null);
+  }
+
+  @Override
+  public Message postProcessMessage(Message message, Correlation correlation, String exchange, String routingKey) {
+    MessageProperties messageProperties = message.getMessageProperties();
+    for (PublishHeaderWriter writer : writers) {
+      writer.writeHeaders(messageProperties, exchange, routingKey);
+    }
+    return message;
+  }
+
+  /**
+   * @return the enabled writers, in the order they are run
+   */
+  public List<PublishHeaderWriter> getWriters() {
+    return Collections.unmodifiableList(Arrays.asList(writers));
+  }
+
+  /**
+   * @param processor a post processor
+   * @return true if the processor is one of the writers of the pipeline, or the pipeline itself
+   */
+  public boolean contains(Object processor) {
+    if (processor == this) {
+      return true;
+    }
+    for (PublishHeaderWriter writer : writers) {
+      if (writer == processor) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates version 7 UUIDs : the 48 first bits hold the creation time in milliseconds, the next 12 bits a sequence
+ * within the millisecond and the remaining bits are random. The ids of a generator are strictly increasing, also in
+ * their string form, so the messages sort by publish time (in a dead letter queue for instance). When more than 4096
+ * ids are generated within the same millisecond, the timestamp moves ahead of the clock until it catches up.
+ */
+public class TimeOrderedCorrelationIdGenerator implements CorrelationIdGenerator {
+
+  private static final int SEQUENCE_BITS = 12;
+
+  private final LongSupplier clock;
+
+  /**
+   * Last timestamp in milliseconds, shifted left by the sequence bits, plus the last sequence.
+   */
+  private final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+  public TimeOrderedCorrelationIdGenerator() {
+    this(System::currentTimeMillis);
+  }
+
+  TimeOrderedCorrelationIdGenerator(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  @Override
+  public String generate() {
+    long timestampAndSequence = nextTimestampAndSequence();
+    long mostSigBits = ((timestampAndSequence >>> SEQUENCE_BITS) << 16) | 0x7000L
+        | (timestampAndSequence & ((1L << SEQUENCE_BITS) - 1));
+    long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(mostSigBits, leastSigBits).toString();
+  }
+
+  private long nextTimestampAndSequence() {
+    long now = clock.getAsLong() << SEQUENCE_BITS;
+    while (true) {
+      long last = lastTimestampAndSequence.get();
+      long next = now > last ? now : last + 1;
+      if (lastTimestampAndSequence.compareAndSet(last, next)) {
+        return next;
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.List;
+
+/**
+ * Propagates the trace in the headers of the published messages, the way the brave spring rabbit instrumentation does :
+ * a 'publish' producer span, child of the current span or of the trace found in the message headers, is recorded and
+ * injected in the message. Used by the {@link PublishPipeline} in place of the tracing post processor added to the
+ * RabbitTemplate by sleuth.
+ */
+public class TracingHeaderWriter implements PublishHeaderWriter {
+
+  private final Tracing tracing;
+
+  private final Tracer tracer;
+
+  private final String remoteServiceName;
+
+  private final TraceContext.Injector<MessageProperties> injector;
+
+  private final TraceContext.Extractor<MessageProperties> extractor;
+
+  private final List<String> propagationKeys;
+
+  /**
+   * @param tracing           the tracing, the writer is disabled when null
+   * @param remoteServiceName the remote service name of the producer spans
+   */
+  public TracingHeaderWriter(Tracing tracing, String remoteServiceName) {
+    this.tracing = tracing;
+    this.tracer = tracing != null ? tracing.tracer() : null;
+    this.remoteServiceName = remoteServiceName;
+    this.injector = tracing != null ? tracing.propagation().injector(MessageProperties::setHeader) : null;
+    this.extractor = tracing != null ? tracing.propagation().extractor(TracingHeaderWriter::getHeader) : null;
+    this.propagationKeys = tracing != null ? tracing.propagation().keys() : null;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return tracing != null;
+  }
+
+  @Override
+  public void writeHeaders(MessageProperties messageProperties, String exchange, String routingKey) {
+    TraceContext parent = tracing.currentTraceContext().get();
+    Span span;
+    if (parent != null) {
+      span = tracer.newChild(parent);
+    } else {
+      TraceContextOrSamplingFlags extracted = extractor.extract(messageProperties);
+      for (String key : propagationKeys) {
+        messageProperties.getHeaders().remove(key);
+      }
+      span = tracer.nextSpan(extracted);
+    }
+    if (!span.isNoop()) {
+      span.kind(Span.Kind.PRODUCER).name("publish");
+      if (remoteServiceName != null) {
+        span.remoteServiceName(remoteServiceName);
+      }
+      long timestamp = tracing.clock(span.context()).currentTimeMicroseconds();
+      span.start(timestamp).finish(timestamp);
+    }
+    injector.inject(span.context(), messageProperties);
+  }
+
+  private static String getHeader(MessageProperties messageProperties, String key) {
+    Object value = messageProperties.getHeaders().get(key);
+    return value != null ? value.toString() : null;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.rabbitmq.client.AMQP;
+import com.societegenerale.commons.amqp.core.converter.NegotiatingMessageConverter;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes the messages with broker confirms, without waiting for them : each send returns a future completed by the
+ * confirm of the message (an ack, or a nack with its reason), or exceptionally when the message could not be published.
+ * <p>
+ * The messages are published round robin over a few channels in confirm mode. The number of messages waiting for
+ * their confirm is capped by the window : a send blocks while the window is full, and fails after the window timeout.
+ * The futures are completed by a dedicated thread, never by the connection thread, so that their callbacks can publish
+ * again.
+ */
+public class AsyncRabbitPublisher implements AutoCloseable {
+
+  private final MessageConverter messageConverter;
+
+  private final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
+
+  private final Semaphore window;
+
+  private final int windowSize;
+
+  private final long windowTimeout;
+
+  private final ExecutorService confirmExecutor;
+
+  private final ConfirmingChannel[] channels;
+
+  private final AtomicInteger nextChannel = new AtomicInteger();
+
+  private volatile MessagePostProcessor[] beforePublishPostProcessors = new MessagePostProcessor[0];
+
+  /**
+   * @param connectionFactory the connection factory
+   * @param messageConverter  converts the payloads sent with {@link #convertAndSend(String, String, Object)}, with the
+   *                          converter of their exchange when it is a {@link NegotiatingMessageConverter}
+   * @param channels          the number of channels used to publish
+   * @param window            the max number of messages waiting for their confirm
+   * @param windowTimeout     the time in milliseconds a send waits for room in the window
+   */
+  public AsyncRabbitPublisher(ConnectionFactory connectionFactory, MessageConverter messageConverter, int channels, int window,
+                              long windowTimeout) {
+    this.messageConverter = messageConverter;
+    this.window = new Semaphore(window);
+    this.windowSize = window;
+    this.windowTimeout = windowTimeout;
+    this.confirmExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("rabbitmq-confirm-"));
+    this.channels = new ConfirmingChannel[Math.max(1, channels)];
+    for (int i = 0; i < this.channels.length; i++) {
+      this.channels[i] = new ConfirmingChannel(connectionFactory, this.window, confirmExecutor);
+    }
+  }
+
+  /**
+   * @param beforePublishPostProcessors the post processors applied to each message before it is published, in order
+   */
+  public void setBeforePublishPostProcessors(MessagePostProcessor... beforePublishPostProcessors) {
+    this.beforePublishPostProcessors = beforePublishPostProcessors.clone();
+  }
+
+  public CompletableFuture<Confirm> convertAndSend(String exchange, String routingKey, Object payload) {
+    Message message = messageConverter instanceof NegotiatingMessageConverter
+        ? ((NegotiatingMessageConverter) messageConverter).toMessage(payload, new MessageProperties(), exchange)
+        : messageConverter.toMessage(payload, new MessageProperties());
+    return send(exchange, routingKey, message);
+  }
+
+  public CompletableFuture<Confirm> send(String exchange, String routingKey, Message message) {
+    CompletableFuture<Confirm> future = new CompletableFuture<>();
+    try {
+      if (!window.tryAcquire(windowTimeout, TimeUnit.MILLISECONDS)) {
+        future.completeExceptionally(new AmqpTimeoutException("No room in the publish window after " + windowTimeout
+            + " ms : " + windowSize + " messages are waiting for their confirm"));
+        return future;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(new AmqpException("Interrupted while waiting for room in the publish window", e));
+      return future;
+    }
+    String exchangeName = exchange != null ? exchange : "";
+    String routingKeyName = routingKey != null ? routingKey : "";
+    AMQP.BasicProperties properties;
+    Message messageToSend = message;
+    try {
+      for (MessagePostProcessor beforePublishPostProcessor : beforePublishPostProcessors) {
+        messageToSend = beforePublishPostProcessor.postProcessMessage(messageToSend, null, exchangeName, routingKeyName);
+      }
+      properties = messagePropertiesConverter.fromMessageProperties(messageToSend.getMessageProperties(), StandardCharsets.UTF_8.name());
+    } catch (RuntimeException e) {
+      window.release();
+      future.completeExceptionally(e);
+      return future;
+    }
+    channels[Math.floorMod(nextChannel.getAndIncrement(), channels.length)]
+        .publish(exchangeName, routingKeyName, properties, messageToSend.getBody(), future);
+    return future;
+  }
+
+  /**
+   * @return the number of messages waiting for their confirm
+   */
+  public int getInFlight() {
+    return windowSize - window.availablePermits();
+  }
+
+  @Override
+  public void close() {
+    for (ConfirmingChannel channel : channels) {
+      channel.close();
+    }
+    confirmExecutor.shutdown();
+  }
+}
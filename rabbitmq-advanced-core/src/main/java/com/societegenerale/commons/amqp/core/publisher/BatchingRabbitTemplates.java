@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.societegenerale.commons.amqp.core.config.BatchingConfig;
+import com.societegenerale.commons.amqp.core.converter.NegotiatingMessageConverter;
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The batching templates of the exchanges configured with batching, by exchange name. Each template publishes on its
+ * exchange by default, with the message converter of the exchange. The pending batches are sent when the application stops.
+ */
+@Slf4j
+public class BatchingRabbitTemplates implements SmartLifecycle, DisposableBean {
+
+  private final Map<String, BatchingRabbitTemplate> templates = new LinkedHashMap<>();
+
+  private ThreadPoolTaskScheduler scheduler;
+
+  private volatile boolean running;
+
+  /**
+   * @param connectionFactory the connection factory
+   * @param batchingConfigs   the batching configuration of each exchange, by exchange name
+   * @param configurer        applied to each template once created, e.g. to set the message converter
+   */
+  public BatchingRabbitTemplates(ConnectionFactory connectionFactory, Map<String, BatchingConfig> batchingConfigs,
+                                 Consumer<BatchingRabbitTemplate> configurer) {
+    if (!batchingConfigs.isEmpty()) {
+      scheduler = new ThreadPoolTaskScheduler();
+      scheduler.setThreadNamePrefix("rabbitmq-batching-");
+      scheduler.initialize();
+    }
+    for (Map.Entry<String, BatchingConfig> entry : batchingConfigs.entrySet()) {
+      BatchingConfig batchingConfig = entry.getValue();
+      SimpleBatchingStrategy batchingStrategy = new SimpleBatchingStrategy(batchingConfig.getBatchSize(),
+          batchingConfig.getBufferLimit(), batchingConfig.getFlushTimeout());
+      BatchingRabbitTemplate template = new BatchingRabbitTemplate(connectionFactory, batchingStrategy, scheduler);
+      configurer.accept(template);
+      template.setExchange(entry.getKey());
+      if (template.getMessageConverter() instanceof NegotiatingMessageConverter) {
+        template.setMessageConverter(((NegotiatingMessageConverter) template.getMessageConverter()).forExchange(entry.getKey()));
+      }
+      templates.put(entry.getKey(), template);
+      log.info("Batching template created for the exchange '{}' : {}", entry.getKey(), batchingConfig);
+    }
+  }
+
+  /**
+   * @param exchange the exchange name
+   * @return the batching template of the exchange
+   */
+  public BatchingRabbitTemplate get(String exchange) {
+    BatchingRabbitTemplate template = templates.get(exchange);
+    if (template == null) {
+      throw new RabbitmqConfigurationException("No batching configured for the exchange '" + exchange + "'");
+    }
+    return template;
+  }
+
+  public boolean contains(String exchange) {
+    return templates.containsKey(exchange);
+  }
+
+  public Collection<BatchingRabbitTemplate> getTemplates() {
+    return Collections.unmodifiableCollection(templates.values());
+  }
+
+  @Override
+  public void start() {
+    templates.values().forEach(BatchingRabbitTemplate::start);
+    running = true;
+  }
+
+  /**
+   * Sends the pending batches.
+   */
+  @Override
+  public void stop() {
+    running = false;
+    templates.values().forEach(BatchingRabbitTemplate::stop);
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public void destroy() {
+    templates.values().forEach(BatchingRabbitTemplate::destroy);
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+import org.springframework.amqp.rabbit.support.RabbitExceptionTranslator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A channel in confirm mode, opened again when the broker or the connection closed it. The futures of the messages
+ * waiting for their confirm are kept by delivery tag ; a multiple ack or nack completes all the futures up to its
+ * delivery tag in a single task of the confirm executor. The publishes on the channel are serialized, the delivery
+ * tags being given by the publish order.
+ */
+@Slf4j
+class ConfirmingChannel {
+
+  private static final Confirm ACK = new Confirm(true, null);
+
+  private static final Confirm NACK = new Confirm(false, "Negative acknowledgement from the broker");
+
+  private final ConnectionFactory connectionFactory;
+
+  private final Semaphore window;
+
+  private final Executor confirmExecutor;
+
+  private PublishingChannel current;
+
+  ConfirmingChannel(ConnectionFactory connectionFactory, Semaphore window, Executor confirmExecutor) {
+    this.connectionFactory = connectionFactory;
+    this.window = window;
+    this.confirmExecutor = confirmExecutor;
+  }
+
+  /**
+   * Publishes the message, a permit of the window having been acquired for it. The permit is given back, and the
+   * future completed, once the message is confirmed or could not be published.
+   */
+  synchronized void publish(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body,
+                            CompletableFuture<Confirm> future) {
+    try {
+      if (current == null || !current.channel.isOpen()) {
+        current = new PublishingChannel(connectionFactory.createConnection().createChannel(false));
+      }
+    } catch (Exception e) {
+      window.release();
+      future.completeExceptionally(RabbitExceptionTranslator.convertRabbitAccessException(e));
+      return;
+    }
+    current.publish(exchange, routingKey, properties, body, future);
+  }
+
+  synchronized void close() {
+    if (current != null) {
+      current.close();
+      current = null;
+    }
+  }
+
+  private void complete(List<CompletableFuture<Confirm>> confirmed, Confirm confirm) {
+    if (confirmed.isEmpty()) {
+      return;
+    }
+    window.release(confirmed.size());
+    Runnable completion = () -> confirmed.forEach(future -> future.complete(confirm));
+    try {
+      confirmExecutor.execute(completion);
+    } catch (RejectedExecutionException e) {
+      completion.run();
+    }
+  }
+
+  /**
+   * One opened channel with the messages published on it, each one having its own delivery tags.
+   */
+  private class PublishingChannel implements ConfirmListener, ShutdownListener {
+
+    private final Channel channel;
+
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Confirm>> outstanding = new ConcurrentSkipListMap<>();
+
+    private PublishingChannel(Channel channel) throws IOException {
+      this.channel = channel;
+      channel.confirmSelect();
+      channel.addConfirmListener(this);
+      channel.addShutdownListener(this);
+    }
+
+    private void publish(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body,
+                         CompletableFuture<Confirm> future) {
+      long deliveryTag = channel.getNextPublishSeqNo();
+      outstanding.put(deliveryTag, future);
+      try {
+        channel.basicPublish(exchange, routingKey, false, properties, body);
+      } catch (Exception e) {
+        if (outstanding.remove(deliveryTag) != null) {
+          window.release();
+          future.completeExceptionally(RabbitExceptionTranslator.convertRabbitAccessException(e));
+        }
+      }
+    }
+
+    @Override
+    public void handleAck(long deliveryTag, boolean multiple) {
+      complete(remove(deliveryTag, multiple), ACK);
+    }
+
+    @Override
+    public void handleNack(long deliveryTag, boolean multiple) {
+      complete(remove(deliveryTag, multiple), NACK);
+    }
+
+    @Override
+    public void shutdownCompleted(ShutdownSignalException cause) {
+      List<CompletableFuture<Confirm>> unconfirmed = remove(Long.MAX_VALUE, true);
+      if (!unconfirmed.isEmpty()) {
+        log.warn("Channel closed with {} messages waiting for their confirm : {}", unconfirmed.size(), cause.getMessage());
+      }
+      complete(unconfirmed, new Confirm(false, "Channel closed : " + cause.getMessage()));
+    }
+
+    private List<CompletableFuture<Confirm>> remove(long deliveryTag, boolean multiple) {
+      if (!multiple) {
+        CompletableFuture<Confirm> future = outstanding.remove(deliveryTag);
+        return future != null ? Collections.singletonList(future) : Collections.emptyList();
+      }
+      List<CompletableFuture<Confirm>> confirmed = new ArrayList<>();
+      Map.Entry<Long, CompletableFuture<Confirm>> first;
+      while ((first = outstanding.firstEntry()) != null && first.getKey() <= deliveryTag) {
+        if (outstanding.remove(first.getKey(), first.getValue())) {
+          confirmed.add(first.getValue());
+        }
+      }
+      return confirmed;
+    }
+
+    private void close() {
+      RabbitUtils.setPhysicalCloseRequired(channel, true);
+      RabbitUtils.closeChannel(channel);
+    }
+  }
+}
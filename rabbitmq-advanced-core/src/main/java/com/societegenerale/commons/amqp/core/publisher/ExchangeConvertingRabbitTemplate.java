@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.societegenerale.commons.amqp.core.converter.NegotiatingMessageConverter;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * A {@link RabbitTemplate} converting the payloads with the converter of the exchange they are published on, when its
+ * message converter is a {@link NegotiatingMessageConverter}, like the batching templates and the asynchronous publisher.
+ * The payloads are otherwise converted like the {@link RabbitTemplate} does.
+ */
+public class ExchangeConvertingRabbitTemplate extends RabbitTemplate {
+
+  public ExchangeConvertingRabbitTemplate() {
+    super();
+  }
+
+  public ExchangeConvertingRabbitTemplate(ConnectionFactory connectionFactory) {
+    super(connectionFactory);
+  }
+
+  @Override
+  public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) throws AmqpException {
+    send(exchange, routingKey, convertMessageIfNecessary(object, exchange), correlationData);
+  }
+
+  @Override
+  public void convertAndSend(String exchange, String routingKey, Object message, MessagePostProcessor messagePostProcessor,
+                             CorrelationData correlationData) throws AmqpException {
+    Message messageToSend = convertMessageIfNecessary(message, exchange);
+    messageToSend = messagePostProcessor.postProcessMessage(messageToSend, correlationData, nullSafeExchange(exchange),
+        nullSafeRoutingKey(routingKey));
+    send(exchange, routingKey, messageToSend, correlationData);
+  }
+
+  @Override
+  protected Message convertSendAndReceiveRaw(String exchange, String routingKey, Object message, MessagePostProcessor messagePostProcessor,
+                                             CorrelationData correlationData) {
+    Message requestMessage = convertMessageIfNecessary(message, exchange);
+    if (messagePostProcessor != null) {
+      requestMessage = messagePostProcessor.postProcessMessage(requestMessage, correlationData, nullSafeExchange(exchange),
+          nullSafeRoutingKey(routingKey));
+    }
+    return doSendAndReceive(exchange, routingKey, requestMessage, correlationData);
+  }
+
+  /**
+   * @param object   the payload, or a message sent as is
+   * @param exchange the exchange the payload is published on, the default exchange of the template when null
+   */
+  protected Message convertMessageIfNecessary(Object object, String exchange) {
+    MessageConverter messageConverter = getMessageConverter();
+    if (object instanceof Message || !(messageConverter instanceof NegotiatingMessageConverter)) {
+      return convertMessageIfNecessary(object);
+    }
+    return ((NegotiatingMessageConverter) messageConverter).toMessage(object, new MessageProperties(), nullSafeExchange(exchange));
+  }
+}
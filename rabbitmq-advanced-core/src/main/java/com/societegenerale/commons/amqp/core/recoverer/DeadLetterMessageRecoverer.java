@@ -16,16 +16,30 @@
 
 package com.societegenerale.commons.amqp.core.recoverer;
 
+import com.societegenerale.commons.amqp.core.config.DeadLetterMode;
+import com.societegenerale.commons.amqp.core.config.ExchangeConfig;
+import com.societegenerale.commons.amqp.core.config.QueueConfig;
 import com.societegenerale.commons.amqp.core.config.RabbitConfig;
+import com.societegenerale.commons.amqp.core.config.StackTraceConfig;
+import com.societegenerale.commons.amqp.core.config.StackTraceMode;
+import com.societegenerale.commons.amqp.core.container.DeferredAck;
+import com.societegenerale.commons.amqp.core.container.DeferredAckAdvice;
 import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandler;
+import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandlerDispatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.exception.ExceptionUtils;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.retry.MessageRecoverer;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by Anand Manissery on 7/13/2017.
@@ -33,6 +47,8 @@ import java.util.*;
 @Slf4j
 public class DeadLetterMessageRecoverer implements MessageRecoverer {
 
+  private static final String X_RETRY_ATTEMPT = "x-retry-attempt";
+
   @Autowired
   private AmqpTemplate errorTemplate;
 
@@ -42,18 +58,39 @@ public class DeadLetterMessageRecoverer implements MessageRecoverer {
   @Autowired(required = false)
   private List<MessageExceptionHandler> messageExceptionHandlers=new ArrayList<>();
 
+  @Autowired(required = false)
+  private MessageExceptionHandlerDispatcher messageExceptionHandlerDispatcher;
+
+  @Autowired(required = false)
+  private DeadLetterPublisher deadLetterPublisher;
+
+  private volatile StackTraceCompactor stackTraceCompactor;
+
   @Override
   public void recover(final Message message, final Throwable cause) {
+    if (retryLater(message, cause)) {
+      return;
+    }
+    String deadLetterExchangeName = rabbitmqProperties.getDeadLetterConfig().getDeadLetterExchange().getName();
+    String deadLetterRoutingKey = rabbitmqProperties.getDeadLetterConfig().createDeadLetterQueueName(message.getMessageProperties().getConsumerQueue());
+
+    if (isBrokerDeadLettered(message.getMessageProperties().getConsumerQueue())) {
+      // the broker dead letters the message as it was delivered, the headers are not computed
+      handle(message, cause);
+      publishExceptionRecord(message, cause);
+      log.warn("Rejecting failed message to be dead lettered by the broker to exchange '{}', routing key '{}', message {{}} , cause {}",
+          deadLetterExchangeName, deadLetterRoutingKey, message, cause);
+      throw new AmqpRejectAndDontRequeueException("Message dead lettered by the broker : " + ExceptionUtils.getMessage(cause), cause);
+    }
+
     Map<String, Object> headers = message.getMessageProperties().getHeaders();
-    headers.put("x-exception-stacktrace", ExceptionUtils.getFullStackTrace(cause));
+    putStackTrace(message, cause);
     headers.put("x-exception-message", ExceptionUtils.getMessage(cause));
     headers.put("x-exception-root-cause-message", ExceptionUtils.getRootCauseMessage(cause));
     headers.put("x-original-exchange", message.getMessageProperties().getReceivedExchange());
     headers.put("x-original-routingKey", message.getMessageProperties().getReceivedRoutingKey());
     headers.put("x-original-queue", message.getMessageProperties().getConsumerQueue());
     headers.put("x-recover-time", new Date().toString());
-    String deadLetterExchangeName = rabbitmqProperties.getDeadLetterConfig().getDeadLetterExchange().getName();
-    String deadLetterRoutingKey = rabbitmqProperties.getDeadLetterConfig().createDeadLetterQueueName(message.getMessageProperties().getConsumerQueue());
     headers.put("x-dead-letter-exchange", deadLetterExchangeName);
     headers.put("x-dead-letter-queue", deadLetterRoutingKey);
     if(headers.containsKey("correlation-id")) {
@@ -62,16 +99,9 @@ public class DeadLetterMessageRecoverer implements MessageRecoverer {
 
     headers.putAll(loadAdditionalHeaders(message, cause));
 
-    for (MessageExceptionHandler messageExceptionHandler : messageExceptionHandlers) {
-      try {
-        messageExceptionHandler.handle(message, cause);
-      } catch (Exception e) {
-        // To catch any exception in the  MessageExceptionHandler to avoid the interruption in other MessageExceptionHandlers
-        log.error("Exception occurred while processing '{}' message exception handler.", messageExceptionHandler, e);
-      }
-    }
+    handle(message, cause);
 
-    this.errorTemplate.send(deadLetterExchangeName, deadLetterRoutingKey, message);
+    send(deadLetterExchangeName, deadLetterRoutingKey, message);
 
     log.warn("Republishing failed message to exchange '{}', routing key '{}', message {{}} , cause {}",
             deadLetterExchangeName, deadLetterRoutingKey, message, cause);
@@ -79,6 +109,158 @@ public class DeadLetterMessageRecoverer implements MessageRecoverer {
 
   }
 
+  private void handle(Message message, Throwable cause) {
+    if (messageExceptionHandlerDispatcher != null) {
+      messageExceptionHandlerDispatcher.dispatch(message, cause);
+    } else {
+      for (MessageExceptionHandler messageExceptionHandler : messageExceptionHandlers) {
+        try {
+          messageExceptionHandler.handle(message, cause);
+        } catch (Exception e) {
+          // To catch any exception in the  MessageExceptionHandler to avoid the interruption in other MessageExceptionHandlers
+          log.error("Exception occurred while processing '{}' message exception handler.", messageExceptionHandler, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends the message to the wait queue of the next delay of the retry ladder of its queue, if any left.
+   *
+   * @return true when the message is to be retried later
+   */
+  private boolean retryLater(Message message, Throwable cause) {
+    QueueConfig queueConfig = findQueueConfig(message.getMessageProperties().getConsumerQueue());
+    if (queueConfig == null) {
+      return false;
+    }
+    QueueConfig defaultQueue = rabbitmqProperties.getDefaultQueue();
+    List<Duration> retryDelays = queueConfig.getRetryDelays() != null || defaultQueue == null
+        ? queueConfig.getRetryDelays() : defaultQueue.getRetryDelays();
+    Map<String, Object> headers = message.getMessageProperties().getHeaders();
+    Object retryAttempt = headers.get(X_RETRY_ATTEMPT);
+    int attempt = retryAttempt instanceof Number ? ((Number) retryAttempt).intValue() : 0;
+    if (retryDelays == null || attempt >= retryDelays.size()) {
+      return false;
+    }
+    Duration retryDelay = retryDelays.get(attempt);
+    headers.put(X_RETRY_ATTEMPT, attempt + 1);
+    log.warn("Retrying failed message from queue '{}' in {} ms, attempt {} of {}, cause {}", queueConfig.getName(),
+        retryDelay.toMillis(), attempt + 1, retryDelays.size(), ExceptionUtils.getMessage(cause));
+    send("", queueConfig.createRetryQueueName(retryDelay), message);
+    return true;
+  }
+
+  /**
+   * @return true when the message is to be rejected and dead lettered by the broker, its queue having a dead letter exchange
+   */
+  private boolean isBrokerDeadLettered(String queueName) {
+    if (rabbitmqProperties.getDeadLetterConfig().getMode() != DeadLetterMode.BROKER) {
+      return false;
+    }
+    QueueConfig queueConfig = findQueueConfig(queueName);
+    if (queueConfig == null) {
+      return false;
+    }
+    QueueConfig defaultQueue = rabbitmqProperties.getDefaultQueue();
+    Boolean deadLetterEnabled = queueConfig.getDeadLetterEnabled() != null || defaultQueue == null
+        ? queueConfig.getDeadLetterEnabled() : defaultQueue.getDeadLetterEnabled();
+    return Boolean.TRUE.equals(deadLetterEnabled)
+        || (queueConfig.getArguments() != null && queueConfig.getArguments().containsKey("x-dead-letter-exchange"));
+  }
+
+  private QueueConfig findQueueConfig(String queueName) {
+    if (queueName == null || rabbitmqProperties.getQueues() == null) {
+      return null;
+    }
+    for (QueueConfig queueConfig : rabbitmqProperties.getQueues().values()) {
+      if (queueName.equals(queueConfig.getName())) {
+        return queueConfig;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Publishes the exception details of a message dead lettered by the broker to the exception exchange, if any : an
+   * empty message with the message id and the correlation id of the failed message, the exception class, message and
+   * fingerprint in its headers, routed with the name of the queue. A failed publish does not prevent the rejection.
+   */
+  private void publishExceptionRecord(Message message, Throwable cause) {
+    ExchangeConfig exceptionExchange = rabbitmqProperties.getDeadLetterConfig().getExceptionExchange();
+    if (exceptionExchange == null) {
+      return;
+    }
+    MessageProperties properties = message.getMessageProperties();
+    StackTraceConfig stackTraceConfig = rabbitmqProperties.getDeadLetterConfig().getStackTrace();
+    Message record = MessageBuilder.withBody(new byte[0])
+        .setMessageId(properties.getMessageId())
+        .setCorrelationId(properties.getCorrelationId() != null ? properties.getCorrelationId()
+            : (String) properties.getHeaders().get("correlation-id"))
+        .setHeader("x-original-queue", properties.getConsumerQueue())
+        .setHeader("x-recover-time", new Date().toString())
+        .build();
+    if (cause != null) {
+      Map<String, Object> headers = record.getMessageProperties().getHeaders();
+      headers.put("x-exception-class", cause.getClass().getName());
+      headers.put("x-exception-message", ExceptionUtils.getMessage(cause));
+      headers.put("x-exception-fingerprint",
+          getStackTraceCompactor(stackTraceConfig != null ? stackTraceConfig : new StackTraceConfig()).fingerprint(cause));
+    }
+    try {
+      errorTemplate.send(exceptionExchange.getName(), properties.getConsumerQueue(), record);
+    } catch (AmqpException e) {
+      log.warn("Unable to publish the exception record of the message with message-id '{}' to exchange '{}' : {}",
+          properties.getMessageId(), exceptionExchange.getName(), e.getMessage());
+    }
+  }
+
+  /**
+   * Hands the message over to the dead letter publisher when the listener container lets the acknowledgement of the
+   * original delivery be deferred until the message is confirmed, sends it from the listener thread otherwise.
+   */
+  private void send(String exchange, String routingKey, Message message) {
+    DeferredAck deferredAck = deadLetterPublisher != null ? DeferredAckAdvice.currentAck() : null;
+    CompletableFuture<Boolean> confirmed = deferredAck != null ? deadLetterPublisher.publish(exchange, routingKey, message) : null;
+    if (confirmed == null) {
+      this.errorTemplate.send(exchange, routingKey, message);
+      return;
+    }
+    deferredAck.defer();
+    confirmed.whenComplete((acked, e) -> deferredAck.complete(Boolean.TRUE.equals(acked)));
+  }
+
+  private void putStackTrace(Message message, Throwable cause) {
+    Map<String, Object> headers = message.getMessageProperties().getHeaders();
+    StackTraceConfig stackTraceConfig = rabbitmqProperties.getDeadLetterConfig().getStackTrace();
+    if (cause == null || stackTraceConfig == null || stackTraceConfig.getMode() != StackTraceMode.COMPACT) {
+      headers.put("x-exception-stacktrace", ExceptionUtils.getFullStackTrace(cause));
+      return;
+    }
+    StackTraceCompactor compactor = getStackTraceCompactor(stackTraceConfig);
+    String fingerprint = compactor.fingerprint(cause);
+    headers.put("x-exception-fingerprint", fingerprint);
+    headers.put("x-exception-stacktrace", compactor.compact(cause));
+    if (compactor.firstSeen(fingerprint)) {
+      log.error("Exception with fingerprint '{}' while consuming from queue '{}'", fingerprint,
+          message.getMessageProperties().getConsumerQueue(), cause);
+    }
+  }
+
+  private StackTraceCompactor getStackTraceCompactor(StackTraceConfig stackTraceConfig) {
+    StackTraceCompactor compactor = stackTraceCompactor;
+    if (compactor == null) {
+      synchronized (this) {
+        compactor = stackTraceCompactor;
+        if (compactor == null) {
+          compactor = new StackTraceCompactor(stackTraceConfig.getFrames(), stackTraceConfig.getCacheSize());
+          stackTraceCompactor = compactor;
+        }
+      }
+    }
+    return compactor;
+  }
+
   /**
    * This is a dummy implementation that doesn't do anything.. If you extend this class, you can simply override this method to provide your own additional headers
    */
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the dead lettered messages from a dedicated thread : the messages handed over by the listener threads are
+ * buffered, then published in batches on a channel in confirm mode, waiting once for the confirms of the whole batch.
+ * <p>
+ * {@link #publish(String, String, Message)} returns right away with the outcome of the publish, completed with true
+ * once the message is confirmed and with false when it could not be published or was not confirmed in time : the
+ * original delivery is acked from it, or nacked to be delivered again, the message being possibly dead lettered twice.
+ */
+@Slf4j
+public class DeadLetterPublisher implements AutoCloseable {
+
+  private final ConnectionFactory connectionFactory;
+
+  private final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
+
+  private final BlockingQueue<PendingDeadLetter> buffer;
+
+  private final int batchSize;
+
+  private final long confirmTimeout;
+
+  private final ExecutorService publisherExecutor;
+
+  private volatile MessagePostProcessor[] beforePublishPostProcessors = new MessagePostProcessor[0];
+
+  private volatile boolean running = true;
+
+  private Channel channel;
+
+  /**
+   * @param connectionFactory the connection factory
+   * @param bufferSize        the max number of messages waiting to be published
+   * @param batchSize         the max number of messages published before waiting for their confirms
+   * @param confirmTimeout    the time in milliseconds to wait for the confirms of a batch
+   */
+  public DeadLetterPublisher(ConnectionFactory connectionFactory, int bufferSize, int batchSize, long confirmTimeout) {
+    this.connectionFactory = connectionFactory;
+    this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    this.batchSize = batchSize;
+    this.confirmTimeout = confirmTimeout;
+    this.publisherExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("rabbitmq-dead-letter-"));
+    this.publisherExecutor.execute(this::run);
+  }
+
+  /**
+   * @param beforePublishPostProcessors the post processors applied to each message before it is published, in order
+   */
+  public void setBeforePublishPostProcessors(MessagePostProcessor... beforePublishPostProcessors) {
+    this.beforePublishPostProcessors = beforePublishPostProcessors.clone();
+  }
+
+  /**
+   * Hands the message over to the publisher thread, without waiting for its publish.
+   *
+   * @return the outcome of the publish, true once the message is confirmed by the broker, or null when the buffer is
+   * full, the message being then left to the caller
+   */
+  public CompletableFuture<Boolean> publish(String exchange, String routingKey, Message message) {
+    PendingDeadLetter pending = new PendingDeadLetter(exchange, routingKey, message);
+    if (!running || !buffer.offer(pending)) {
+      log.warn("Dead letter buffer full or closed, leaving the message to exchange '{}' to the caller", exchange);
+      return null;
+    }
+    if (!running && buffer.remove(pending)) {
+      // closed meanwhile, the message is not going to be published
+      return null;
+    }
+    return pending.confirmed;
+  }
+
+  /**
+   * @return the number of messages waiting to be published
+   */
+  public int getBuffered() {
+    return buffer.size();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    publisherExecutor.shutdownNow();
+    try {
+      publisherExecutor.awaitTermination(confirmTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    List<PendingDeadLetter> remaining = new ArrayList<>();
+    buffer.drainTo(remaining);
+    remaining.forEach(pending -> pending.confirmed.complete(false));
+  }
+
+  private void run() {
+    List<PendingDeadLetter> batch = new ArrayList<>(batchSize);
+    try {
+      while (running) {
+        PendingDeadLetter first = buffer.take();
+        batch.add(first);
+        buffer.drainTo(batch, batchSize - 1);
+        publish(batch);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      batch.forEach(pending -> pending.confirmed.complete(false));
+      closeChannel();
+    }
+  }
+
+  private void publish(List<PendingDeadLetter> batch) {
+    List<PendingDeadLetter> published = new ArrayList<>(batch.size());
+    try {
+      Channel publishingChannel = channel();
+      for (PendingDeadLetter pending : batch) {
+        Message message = pending.message;
+        AMQP.BasicProperties properties;
+        try {
+          for (MessagePostProcessor beforePublishPostProcessor : beforePublishPostProcessors) {
+            message = beforePublishPostProcessor.postProcessMessage(message, null, pending.exchange, pending.routingKey);
+          }
+          properties = messagePropertiesConverter.fromMessageProperties(message.getMessageProperties(), StandardCharsets.UTF_8.name());
+        } catch (RuntimeException e) {
+          log.warn("Unable to prepare the dead lettered message to exchange '{}' : {}", pending.exchange, e.getMessage());
+          pending.confirmed.complete(false);
+          continue;
+        }
+        published.add(pending);
+        publishingChannel.basicPublish(pending.exchange, pending.routingKey, false, properties, message.getBody());
+      }
+      if (!published.isEmpty()) {
+        publishingChannel.waitForConfirmsOrDie(confirmTimeout);
+      }
+      published.forEach(pending -> pending.confirmed.complete(true));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      batch.forEach(pending -> pending.confirmed.complete(false));
+    } catch (Exception e) {
+      log.warn("Unable to publish {} dead lettered messages with confirms : {}", batch.size(), e.getMessage());
+      closeChannel();
+      batch.forEach(pending -> pending.confirmed.complete(false));
+    }
+  }
+
+  private Channel channel() throws Exception {
+    if (channel == null || !channel.isOpen()) {
+      Channel newChannel = connectionFactory.createConnection().createChannel(false);
+      newChannel.confirmSelect();
+      channel = newChannel;
+    }
+    return channel;
+  }
+
+  private void closeChannel() {
+    if (channel != null) {
+      RabbitUtils.setPhysicalCloseRequired(channel, true);
+      RabbitUtils.closeChannel(channel);
+      channel = null;
+    }
+  }
+
+  private static class PendingDeadLetter {
+
+    private final String exchange;
+
+    private final String routingKey;
+
+    private final Message message;
+
+    private final CompletableFuture<Boolean> confirmed = new CompletableFuture<>();
+
+    private PendingDeadLetter(String exchange, String routingKey, Message message) {
+      this.exchange = exchange;
+      this.routingKey = routingKey;
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compacts the stack traces stored in the headers of the dead lettered messages :
+ * <ul>
+ * <li>the fingerprint identifies a stack trace by the exception classes and the frames of its causes, the messages and
+ * the numbers of the generated classes (lambdas, proxies, accessors) being left out, so that the same failure gets the
+ * same fingerprint on every message and every instance of the application</li>
+ * <li>the compact stack trace keeps the top frames of the exception and of its root cause</li>
+ * <li>the fingerprints already seen are remembered in a bounded cache, the least recently seen being forgotten first, so
+ * that each full stack trace is logged once</li>
+ * </ul>
+ */
+public class StackTraceCompactor {
+
+  private static final Pattern GENERATED_CLASS = Pattern.compile(
+      "(\\$\\$Lambda\\$|\\$Proxy|GeneratedMethodAccessor|GeneratedConstructorAccessor|\\$\\$EnhancerBySpringCGLIB\\$\\$|\\$\\$FastClassBySpringCGLIB\\$\\$)[0-9a-f]+(/0x[0-9a-f]+)?");
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final int frames;
+
+  private final Map<String, Boolean> seen;
+
+  /**
+   * @param frames    the number of frames kept for the exception and for its root cause
+   * @param cacheSize the number of fingerprints remembered
+   */
+  public StackTraceCompactor(int frames, int cacheSize) {
+    this.frames = frames;
+    this.seen = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  /**
+   * @return the first 64 bits of the SHA-256 of the normalized stack trace, in hexadecimal
+   */
+  public String fingerprint(Throwable cause) {
+    StringBuilder normalized = new StringBuilder(1024);
+    Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Throwable throwable = cause; throwable != null && visited.add(throwable); throwable = throwable.getCause()) {
+      normalized.append(normalize(throwable.getClass().getName())).append('\n');
+      for (StackTraceElement element : throwable.getStackTrace()) {
+        normalized.append(normalize(element.getClassName())).append('.').append(element.getMethodName())
+            .append(':').append(element.getLineNumber()).append('\n');
+      }
+    }
+    byte[] digest = sha256(normalized.toString().getBytes(StandardCharsets.UTF_8));
+    char[] fingerprint = new char[16];
+    for (int i = 0; i < 8; i++) {
+      fingerprint[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+      fingerprint[i * 2 + 1] = HEX[digest[i] & 0xF];
+    }
+    return new String(fingerprint);
+  }
+
+  /**
+   * @return the exception and its top frames, followed by the root cause and its top frames
+   */
+  public String compact(Throwable cause) {
+    StringBuilder compact = new StringBuilder(256);
+    appendFrames(compact, cause);
+    Throwable rootCause = rootCause(cause);
+    if (rootCause != cause) {
+      compact.append("Caused by: ");
+      appendFrames(compact, rootCause);
+    }
+    return compact.toString();
+  }
+
+  /**
+   * @return true the first time the fingerprint is seen, or once it has been forgotten
+   */
+  public synchronized boolean firstSeen(String fingerprint) {
+    return seen.put(fingerprint, Boolean.TRUE) == null;
+  }
+
+  private void appendFrames(StringBuilder compact, Throwable throwable) {
+    compact.append(throwable).append('\n');
+    StackTraceElement[] stackTrace = throwable.getStackTrace();
+    int kept = Math.min(frames, stackTrace.length);
+    for (int i = 0; i < kept; i++) {
+      compact.append("\tat ").append(stackTrace[i]).append('\n');
+    }
+    if (kept < stackTrace.length) {
+      compact.append("\t... ").append(stackTrace.length - kept).append(" more\n");
+    }
+  }
+
+  private static Throwable rootCause(Throwable cause) {
+    Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Throwable rootCause = cause;
+    while (rootCause.getCause() != null && visited.add(rootCause)) {
+      rootCause = rootCause.getCause();
+    }
+    return rootCause;
+  }
+
+  private static String normalize(String className) {
+    return className.indexOf('$') < 0 && !className.contains("Generated") ? className : GENERATED_CLASS.matcher(className).replaceAll("$1");
+  }
+
+  private static byte[] sha256(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -24,4 +24,14 @@ import org.springframework.amqp.core.Message;
 @FunctionalInterface
 public interface MessageExceptionHandler {
   void handle(Message message, Throwable cause);
+
+  /**
+   * When the handlers run in parallel, each on a copy of the message, the failed message is sent to the dead letter
+   * exchange once the critical handlers are done, without waiting for the others.
+   *
+   * @return true when the handler must be done before the message is sent to the dead letter exchange
+   */
+  default boolean isCritical() {
+    return true;
+  }
 }
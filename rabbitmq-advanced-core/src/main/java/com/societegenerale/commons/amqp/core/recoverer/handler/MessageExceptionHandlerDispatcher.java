@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer.handler;
+
+import com.societegenerale.commons.amqp.core.util.ExecutorServices;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the message exception handlers concurrently : the critical handlers are waited for, the others are not. Each
+ * handler gets its own copy of the message, which can be changed meanwhile by the other handlers or by the publish of
+ * the message to the dead letter exchange, a timed out handler being still running.
+ * <p>
+ * At most the given number of handlers run at once, and as many wait for a thread : the handlers beyond are rejected
+ * and counted as failed.
+ * <p>
+ * Each handler is given a timeout, after which it is counted as failed. A handler failing a number of times in a row is
+ * skipped for a while by its circuit breaker, then tried again once : its circuit breaker is closed on success, opened
+ * again on failure.
+ */
+@Slf4j
+public class MessageExceptionHandlerDispatcher implements AutoCloseable {
+
+  private final List<GuardedHandler> handlers = new ArrayList<>();
+
+  private final ExecutorService executor;
+
+  private final long timeout;
+
+  /**
+   * @param handlers         the message exception handlers
+   * @param threads          the max number of handlers running at once
+   * @param timeout          the time in milliseconds a handler is given before being counted as failed
+   * @param failureThreshold the number of consecutive failures opening the circuit breaker of a handler
+   * @param openDuration     the time in milliseconds a handler is skipped once its circuit breaker is open
+   */
+  public MessageExceptionHandlerDispatcher(List<MessageExceptionHandler> handlers, int threads, long timeout,
+                                           int failureThreshold, long openDuration) {
+    for (MessageExceptionHandler handler : handlers) {
+      this.handlers.add(new GuardedHandler(handler, failureThreshold, openDuration));
+    }
+    this.executor = ExecutorServices.newBlockingExecutor("message-exception-handler-", threads, threads);
+    this.timeout = timeout;
+  }
+
+  /**
+   * Starts all the handlers, and returns once the critical ones are done or timed out.
+   */
+  public void dispatch(Message message, Throwable cause) {
+    List<CompletableFuture<Void>> critical = new ArrayList<>();
+    for (GuardedHandler handler : handlers) {
+      if (!handler.allow()) {
+        log.debug("Circuit breaker open, skipping message exception handler '{}'", handler.handler);
+        continue;
+      }
+      CompletableFuture<Void> future = run(handler, MessageBuilder.fromClonedMessage(message).build(), cause);
+      if (handler.handler.isCritical()) {
+        critical.add(future);
+      }
+    }
+    for (CompletableFuture<Void> future : critical) {
+      // each future completes within the timeout
+      future.exceptionally(e -> null).join();
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private CompletableFuture<Void> run(GuardedHandler handler, Message message, Throwable cause) {
+    CompletableFuture<Void> future;
+    try {
+      future = CompletableFuture.runAsync(() -> handler.handler.handle(message, cause), executor);
+    } catch (RejectedExecutionException e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    return future.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((result, e) -> {
+      if (e == null) {
+        handler.succeeded();
+      } else {
+        handler.failed();
+        Throwable failure = e instanceof CompletionException ? e.getCause() : e;
+        if (failure instanceof TimeoutException) {
+          log.warn("Message exception handler '{}' still running after {} ms", handler.handler, timeout);
+        } else {
+          log.error("Exception occurred while processing '{}' message exception handler.", handler.handler, failure);
+        }
+      }
+    });
+  }
+
+  private static class GuardedHandler {
+
+    private final MessageExceptionHandler handler;
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private int failures;
+
+    private long openUntil;
+
+    private GuardedHandler(MessageExceptionHandler handler, int failureThreshold, long openDuration) {
+      this.handler = handler;
+      this.failureThreshold = failureThreshold;
+      this.openDuration = openDuration;
+    }
+
+    private synchronized boolean allow() {
+      if (failures < failureThreshold) {
+        return true;
+      }
+      long now = System.currentTimeMillis();
+      if (now < openUntil) {
+        return false;
+      }
+      // a single trial until it succeeds or fails
+      openUntil = now + openDuration;
+      return true;
+    }
+
+    private synchronized void succeeded() {
+      failures = 0;
+    }
+
+    private synchronized void failed() {
+      failures++;
+      if (failures == failureThreshold) {
+        openUntil = System.currentTimeMillis() + openDuration;
+        log.warn("Circuit breaker opened for {} ms on message exception handler '{}' after {} failures", openDuration, handler, failures);
+      }
+    }
+  }
+}
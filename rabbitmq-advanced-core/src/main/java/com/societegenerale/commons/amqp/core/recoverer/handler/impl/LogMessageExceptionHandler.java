@@ -17,22 +17,39 @@
 package com.societegenerale.commons.amqp.core.recoverer.handler.impl;
 
 import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandler;
+import com.societegenerale.commons.amqp.core.util.TokenBucket;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by Anand Manissery on 7/14/2017.
+ * <p>
+ * Logs a preview of the body only, the binary bodies in hexadecimal or base64, and the headers without the stack trace
+ * which is logged with the cause. The logs are limited per queue and exception type by a token bucket, the number of
+ * suppressed logs being given with the next one, or logged on its own at the summary interval and when the limiters are
+ * dropped.
  */
 @Slf4j
-public class LogMessageExceptionHandler implements MessageExceptionHandler {
+public class LogMessageExceptionHandler implements MessageExceptionHandler, AutoCloseable {
 
   private static final List<String> directlyReadableContentTypes;
 
+  private static final int MAX_LIMITERS = 1000;
+
   static{
 
     directlyReadableContentTypes=Collections.unmodifiableList(Arrays.asList("text/plain",
@@ -42,20 +59,180 @@ public class LogMessageExceptionHandler implements MessageExceptionHandler {
     
   }
 
+  /**
+   * Encoding of the preview of the binary bodies
+   */
+  public enum BinaryPreview {
+    HEX, BASE64
+  }
+
+  private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+  private int maxBodyPreview = 1024;
+
+  private BinaryPreview binaryPreview = BinaryPreview.HEX;
+
+  private volatile int burst = 10;
+
+  private volatile double logsPerSecond = 1;
+
+  private volatile long summaryInterval = 60000;
+
+  private ScheduledExecutorService summaryScheduler;
+
+  /**
+   * @param maxBodyPreview the max number of bytes of the body logged. Default is 1024
+   */
+  public void setMaxBodyPreview(int maxBodyPreview) {
+    this.maxBodyPreview = maxBodyPreview;
+  }
+
+  /**
+   * @param binaryPreview the encoding of the preview of the binary bodies. Default is hex
+   */
+  public void setBinaryPreview(BinaryPreview binaryPreview) {
+    this.binaryPreview = binaryPreview;
+  }
+
+  /**
+   * @param burst         the number of logs allowed at once per queue and exception type. Default is 10
+   * @param logsPerSecond the number of logs allowed per second per queue and exception type, once the burst is used.
+   *                      Default is 1
+   */
+  public void setRateLimit(int burst, double logsPerSecond) {
+    this.burst = burst;
+    this.logsPerSecond = logsPerSecond;
+    clearLimiters();
+  }
+
+  /**
+   * @param summaryInterval the time in milliseconds after which the suppressed logs not given with a later log are
+   *                        counted in a log of their own. Default is 60000
+   */
+  public void setSummaryInterval(long summaryInterval) {
+    this.summaryInterval = summaryInterval;
+  }
+
   @Override
   public void handle(Message message, Throwable cause) {
     Map<String, Object> headers = message.getMessageProperties().getHeaders();
-    log.warn("Exception occurred while processing the message from queue {{}} , message {{}} , headers {{}} :  cause",
-        headers.get("x-original-queue"), getMessageString(message), headers, cause);
+    // the consumer queue is known in both modes, the x-original-queue header being only added by the republishing one
+    Object queue = message.getMessageProperties().getConsumerQueue() != null ? message.getMessageProperties().getConsumerQueue()
+        : headers.get("x-original-queue");
+    Limiter limiter = getLimiter(queue, cause == null ? null : cause.getClass().getName());
+    if (!limiter.bucket.tryAcquire()) {
+      limiter.suppressed.incrementAndGet();
+      startSummaries();
+      return;
+    }
+    long suppressed = limiter.suppressed.getAndSet(0);
+    Map<String, Object> loggedHeaders = new LinkedHashMap<>(headers);
+    loggedHeaders.remove("x-exception-stacktrace");
+    if (suppressed > 0) {
+      log.warn("Exception occurred while processing the message from queue {{}} , message {{}} , headers {{}} , suppressed {} similar errors since the last one :  cause",
+          queue, getMessageString(message), loggedHeaders, suppressed, cause);
+    } else {
+      log.warn("Exception occurred while processing the message from queue {{}} , message {{}} , headers {{}} :  cause",
+          queue, getMessageString(message), loggedHeaders, cause);
+    }
+  }
+
+  @Override
+  public boolean isCritical() {
+    return false;
+  }
+
+  /**
+   * Logs the suppressed logs not given yet, and stops the summaries.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (summaryScheduler != null) {
+        summaryScheduler.shutdownNow();
+        summaryScheduler = null;
+      }
+    }
+    limiters.values().forEach(this::logSuppressed);
   }
 
   protected String getMessageString(Message message) {
     String contentType = message.getMessageProperties() != null ? message.getMessageProperties().getContentType() : null;
-
+    byte[] body = message.getBody();
+    int previewLength = Math.min(body.length, maxBodyPreview);
+    String size = (previewLength < body.length ? "..." : "") + "(byte[" + body.length + "])";
     if (directlyReadableContentTypes.contains(contentType)) {
-      return new String(message.getBody());
+      String preview = new String(body, 0, previewLength, StandardCharsets.UTF_8);
+      return previewLength < body.length ? preview + size : preview;
+    } else if (binaryPreview == BinaryPreview.BASE64) {
+      return Base64.getEncoder().encodeToString(Arrays.copyOf(body, previewLength)) + size;
     } else {
-      return Arrays.toString(message.getBody()) + "(byte[" + message.getBody().length + "])";
+      return toHex(body, previewLength) + size;
+    }
+  }
+
+  private Limiter getLimiter(Object queue, String exceptionType) {
+    String key = queue + "|" + exceptionType;
+    Limiter limiter = limiters.get(key);
+    if (limiter == null) {
+      if (limiters.size() >= MAX_LIMITERS) {
+        clearLimiters();
+      }
+      limiter = limiters.computeIfAbsent(key, k -> new Limiter(queue, exceptionType, new TokenBucket(burst, logsPerSecond)));
+    }
+    return limiter;
+  }
+
+  private void clearLimiters() {
+    for (String key : limiters.keySet()) {
+      Limiter limiter = limiters.remove(key);
+      if (limiter != null) {
+        logSuppressed(limiter);
+      }
+    }
+  }
+
+  private synchronized void startSummaries() {
+    if (summaryScheduler == null) {
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("message-exception-log-");
+      threadFactory.setDaemon(true);
+      summaryScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      summaryScheduler.scheduleWithFixedDelay(() -> limiters.values().forEach(this::logSuppressed),
+          summaryInterval, summaryInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void logSuppressed(Limiter limiter) {
+    long suppressed = limiter.suppressed.getAndSet(0);
+    if (suppressed > 0) {
+      log.warn("Exception occurred while processing the messages from queue {{}} , suppressed {} similar errors since the last one , cause {{}}",
+          limiter.queue, suppressed, limiter.exceptionType);
+    }
+  }
+
+  private static String toHex(byte[] bytes, int length) {
+    char[] hex = new char[length * 2];
+    for (int i = 0; i < length; i++) {
+      hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+      hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+    }
+    return new String(hex);
+  }
+
+  private static class Limiter {
+
+    private final Object queue;
+
+    private final String exceptionType;
+
+    private final TokenBucket bucket;
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private Limiter(Object queue, String exceptionType, TokenBucket bucket) {
+      this.queue = queue;
+      this.exceptionType = exceptionType;
+      this.bucket = bucket;
     }
   }
 }
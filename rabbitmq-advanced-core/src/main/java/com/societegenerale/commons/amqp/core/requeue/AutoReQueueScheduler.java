@@ -18,6 +18,7 @@ package com.societegenerale.commons.amqp.core.requeue;
 
 import com.societegenerale.commons.amqp.core.config.QueueConfig;
 import com.societegenerale.commons.amqp.core.config.RabbitConfig;
+import com.societegenerale.commons.amqp.core.requeue.lock.LockProvider;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.BooleanUtils;
@@ -26,7 +27,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Created by Anand Manissery on 7/13/2017.
@@ -41,24 +47,78 @@ public class AutoReQueueScheduler {
   @Autowired
   private RabbitTemplate rabbitTemplate;
 
+  @Autowired(required = false)
+  private LockProvider lockProvider;
+
   @Value("${rabbitmq.auto-config.re-queue-config.message-count:10}")
   private int messageCount;
 
   @Scheduled(cron = "${rabbitmq.auto-config.re-queue-config.cron}")
   public void autoReQueue() {
-    log.info("Auto ReQueue Starting...");
     String reQueueExchange = rabbitConfig.getReQueueConfig().getExchange().getName();
+    // the lock stays held while the instance is alive, for it to be the only one pushing the requeue messages
+    if (lockProvider != null && !lockProvider.tryLock("auto-requeue." + reQueueExchange)) {
+      log.info("Auto ReQueue skipped : scheduled by another instance");
+      return;
+    }
+    log.info("Auto ReQueue Starting...");
     String reQueueRoutingKey = rabbitConfig.getReQueueConfig().getRoutingKey();
+    List<String> deadLetterQueues = new ArrayList<>();
     for (Map.Entry<String, QueueConfig> entry : rabbitConfig.getQueues().entrySet()) {
       if (BooleanUtils.isTrue(entry.getValue().getDeadLetterEnabled())) {
-        ReQueueMessage reQueueMessage = ReQueueMessage.builder()
-            .deadLetterQueue(rabbitConfig.getDeadLetterConfig().createDeadLetterQueueName(entry.getValue().getName()))
-            .messageCount(messageCount)
-            .build();
-        rabbitTemplate.convertAndSend(reQueueExchange, reQueueRoutingKey, reQueueMessage);
+        deadLetterQueues.add(rabbitConfig.getDeadLetterConfig().createDeadLetterQueueName(entry.getValue().getName()));
       }
     }
+    List<ReQueueMessage> reQueueMessages = rabbitConfig.getReQueueConfig().isDepthAware() ?
+        depthAwareReQueueMessages(deadLetterQueues) :
+        deadLetterQueues.stream().map(deadLetterQueue -> reQueueMessage(deadLetterQueue, messageCount)).collect(Collectors.toList());
+    for (ReQueueMessage reQueueMessage : reQueueMessages) {
+      rabbitTemplate.convertAndSend(reQueueExchange, reQueueRoutingKey, reQueueMessage);
+    }
     log.info("Auto ReQueue completed...");
   }
 
+  /**
+   * @return the requeue messages of the non empty dead letter queues, from the deepest
+   */
+  private List<ReQueueMessage> depthAwareReQueueMessages(List<String> deadLetterQueues) {
+    Map<String, Integer> depths = readDepths(deadLetterQueues);
+    log.info("Auto ReQueue skipping {} empty DeadLetterQueues", depths.values().stream().filter(depth -> depth == 0).count());
+    return depths.entrySet().stream()
+        .filter(entry -> entry.getValue() > 0)
+        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+        .map(entry -> reQueueMessage(entry.getKey(), messageCount < 0 ? entry.getValue() : Math.min(messageCount, entry.getValue())))
+        .collect(Collectors.toList());
+  }
+
+  private Map<String, Integer> readDepths(List<String> deadLetterQueues) {
+    Map<String, Integer> depths = new LinkedHashMap<>();
+    int next = 0;
+    while (next < deadLetterQueues.size()) {
+      int from = next;
+      // a missing queue closes the channel : the next queues are read on a new one
+      Integer read = rabbitTemplate.execute(channel -> {
+        int index = from;
+        try {
+          for (; index < deadLetterQueues.size(); index++) {
+            depths.put(deadLetterQueues.get(index), channel.queueDeclarePassive(deadLetterQueues.get(index)).getMessageCount());
+          }
+        } catch (IOException e) {
+          log.warn("Unable to read the depth of DeadLetterQueue '{}' : {}", deadLetterQueues.get(index), e.getMessage());
+          index++;
+        }
+        return index;
+      });
+      next = read != null ? read : deadLetterQueues.size();
+    }
+    return depths;
+  }
+
+  private ReQueueMessage reQueueMessage(String deadLetterQueue, int messageCount) {
+    return ReQueueMessage.builder()
+        .deadLetterQueue(deadLetterQueue)
+        .messageCount(messageCount)
+        .build();
+  }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the broker node hosting a queue with the RabbitMQ management API, the 'node' of 'GET /api/queues/vhost/name'.
+ * The nodes are remembered for a while, the unknown ones as well, so that the API is not called on each requeue.
+ */
+@Slf4j
+public class ManagementApiQueueNodeResolver implements QueueNodeResolver {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private final String url;
+
+  private final String virtualHost;
+
+  private final String authorization;
+
+  private final long cacheTtl;
+
+  private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final Map<String, CachedNode> nodes = new ConcurrentHashMap<>();
+
+  /**
+   * @param url         the base url of the management API
+   * @param virtualHost the virtual host of the queues
+   * @param username    the user of the management API
+   * @param password    the password of the user
+   * @param cacheTtl    the time in milliseconds the node of a queue is remembered
+   */
+  public ManagementApiQueueNodeResolver(String url, String virtualHost, String username, String password, long cacheTtl) {
+    this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    this.virtualHost = virtualHost;
+    this.authorization = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    this.cacheTtl = TimeUnit.MILLISECONDS.toNanos(cacheTtl);
+  }
+
+  @Override
+  public String resolveNode(String queue) {
+    long now = System.nanoTime();
+    CachedNode cachedNode = nodes.get(queue);
+    if (cachedNode == null || now - cachedNode.expiresAt >= 0) {
+      cachedNode = new CachedNode(readNode(queue), now + cacheTtl);
+      nodes.put(queue, cachedNode);
+    }
+    return cachedNode.node;
+  }
+
+  private String readNode(String queue) {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/api/queues/" + encode(virtualHost) + "/" + encode(queue)))
+        .header("Authorization", authorization)
+        .timeout(TIMEOUT)
+        .GET()
+        .build();
+    try {
+      HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200) {
+        log.warn("Unable to read the node of queue '{}' from the management API : status {}", queue, response.statusCode());
+        return null;
+      }
+      JsonNode node = objectMapper.readTree(response.body()).get("node");
+      return node != null && node.isTextual() ? node.asText() : null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to read the node of queue '{}' from the management API : {}", queue, e.getMessage());
+      return null;
+    }
+  }
+
+  private static String encode(String pathSegment) {
+    // the default virtual host '/' is encoded as '%2F', as the management API expects it
+    return URLEncoder.encode(pathSegment, StandardCharsets.UTF_8).replace("+", "%20");
+  }
+
+  private static final class CachedNode {
+
+    private final String node;
+
+    private final long expiresAt;
+
+    private CachedNode(String node, long expiresAt) {
+      this.node = node;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+/**
+ * Resolves the broker node hosting a queue, to limit the number of dead letter queues drained at the same time on
+ * each node.
+ */
+@FunctionalInterface
+public interface QueueNodeResolver {
+
+  /**
+   * @param queue the queue name
+   * @return the name of the node hosting the queue, or null when unknown, the drains of the queue being then only
+   * limited by the workers
+   */
+  String resolveNode(String queue);
+}
@@ -16,54 +16,143 @@
 
 package com.societegenerale.commons.amqp.core.requeue;
 
+import com.societegenerale.commons.amqp.core.config.ReQueueBackoffConfig;
 import com.societegenerale.commons.amqp.core.requeue.policy.ReQueuePolicy;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Created by Anand Manissery on 7/13/2017.
  */
 @Slf4j
-@AllArgsConstructor
 public class ReQueueConsumer {
 
   private final RabbitTemplate rabbitTemplate;
 
-  private final ReQueuePolicy reQueuePolicy;
-
   private long timeout;
 
+  private final ReQueueDrainer reQueueDrainer;
+
+  private ReQueueEngine reQueueEngine;
+
+  private final ReQueueRouter reQueueRouter;
+
+  /**
+   * Requeues the messages one at a time, receiving them from the dead letter queue with the template.
+   */
+  public ReQueueConsumer(RabbitTemplate rabbitTemplate, ReQueuePolicy reQueuePolicy, long timeout) {
+    this(rabbitTemplate, reQueuePolicy, timeout, null);
+  }
+
+  /**
+   * Requeues the messages with the given drainer, streaming them from the dead letter queue.
+   */
+  public ReQueueConsumer(RabbitTemplate rabbitTemplate, ReQueuePolicy reQueuePolicy, long timeout, ReQueueDrainer reQueueDrainer) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.reQueueRouter = new ReQueueRouter(reQueuePolicy);
+    this.timeout = timeout;
+    this.reQueueDrainer = reQueueDrainer;
+  }
+
+  /**
+   * @param parkingLotQueue the queue the messages rejected by the requeue policy are sent to, back to the tail of the
+   *                        dead letter queue when null
+   */
+  public void setParkingLotQueue(String parkingLotQueue) {
+    reQueueRouter.setParkingLotQueue(parkingLotQueue);
+  }
+
+  /**
+   * @param reQueueEngine the engine the dead letter queues are submitted to, drained by its workers instead of the
+   *                      listener thread
+   */
+  public void setReQueueEngine(ReQueueEngine reQueueEngine) {
+    this.reQueueEngine = reQueueEngine;
+  }
+
+  /**
+   * @param reQueueThrottles the throttles pacing the messages requeued to each queue by the receive loop, not paced when
+   *                         null. The drainer has throttles of its own
+   */
+  public void setReQueueThrottles(ReQueueThrottles reQueueThrottles) {
+    reQueueRouter.setReQueueThrottles(reQueueThrottles);
+  }
+
+  /**
+   * @param backoffConfig the requeue backoff, the messages delayed by the requeue policy being published to its delayed
+   *                      exchange or to the delay queue of their tier. The messages are not delayed when null
+   */
+  public void setBackoffConfig(ReQueueBackoffConfig backoffConfig) {
+    reQueueRouter.setBackoffConfig(backoffConfig);
+  }
+
   @RabbitListener(queues = "${rabbitmq.auto-config.re-queue-config.queue.name}")
   public void onMessage(ReQueueMessage reQueueMessage) {
     log.info("Requeue processing started for DeadLetterQueue '{}' with MessageCount '{}'", reQueueMessage.getDeadLetterQueue(), reQueueMessage.getMessageCount());
+    // one message at least, as with the receive loop
+    int messageCount = reQueueMessage.getMessageCount() == 0 ? 1 : reQueueMessage.getMessageCount();
+    if (reQueueEngine != null) {
+      reQueueEngine.submit(reQueueMessage.getDeadLetterQueue(), messageCount);
+      return;
+    }
+    if (reQueueDrainer != null) {
+      int count = reQueueDrainer.drain(reQueueMessage.getDeadLetterQueue(), messageCount);
+      log.info("Requeue processing completed for DeadLetterQueue '{}' : {} messages read", reQueueMessage.getDeadLetterQueue(), count);
+      return;
+    }
+    String runId = UUID.randomUUID().toString();
     int count = 0;
-    List<Message> requeueFailureMessages = new ArrayList<>();
 
     do {
       Message message = rabbitTemplate.receive(reQueueMessage.getDeadLetterQueue(), timeout);
       if (message == null) {
         break;
       }
-      Map<String, Object> headers = message.getMessageProperties().getHeaders();
-      if (reQueuePolicy!=null && reQueuePolicy.canReQueue(message)) {
-        String queueName = (String) headers.get("x-original-queue");
-        rabbitTemplate.send(queueName, message);
-      } else {
-        log.warn("Can not requeue the message with correlation-id '{}' as per the requeue policy", headers.get("correlation-id"));
-        requeueFailureMessages.add(message);
+      if (ReQueueRouter.isReadAgain(message, runId)) {
+        // back to a message rejected in this run : the whole queue was read
+        rabbitTemplate.send("", reQueueMessage.getDeadLetterQueue(), message);
+        break;
       }
+      ReQueueRouter.Route route;
+      try {
+        route = reQueueRouter.route(reQueueMessage.getDeadLetterQueue(), message, runId);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        // already acked by the receive : back to the dead letter queue
+        rabbitTemplate.send("", reQueueMessage.getDeadLetterQueue(), message);
+        log.warn("Requeue of DeadLetterQueue '{}' interrupted after {} messages", reQueueMessage.getDeadLetterQueue(), count);
+        break;
+      }
+      rabbitTemplate.send(route.getExchange(), route.getRoutingKey(), message);
       count++;
     } while (reQueueMessage.getMessageCount() < 0 || reQueueMessage.getMessageCount() > count);
 
-    requeueFailureMessages.forEach(message -> rabbitTemplate.send(reQueueMessage.getDeadLetterQueue(), message));
     log.info("Requeue processing completed for DeadLetterQueue '{}'", reQueueMessage.getDeadLetterQueue());
   }
 
+  /**
+   * @return the queue the message was consumed from : set by the recoverer when it published the message to the dead
+   * letter exchange, or by the broker when it dead lettered the message
+   */
+  static String getOriginalQueue(Map<String, Object> headers) {
+    Object queue = headers.get("x-original-queue");
+    if (queue == null && headers.get("x-death") instanceof List) {
+      List<?> deaths = (List<?>) headers.get("x-death");
+      // the most recent death first, the first death being in a wait queue of the retry ladder if any
+      if (!deaths.isEmpty() && deaths.get(0) instanceof Map) {
+        queue = ((Map<?, ?>) deaths.get(0)).get("queue");
+      }
+    }
+    if (queue == null) {
+      queue = headers.get("x-first-death-queue");
+    }
+    return queue != null ? queue.toString() : null;
+  }
+
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.societegenerale.commons.amqp.core.config.ReQueueBackoffConfig;
+import com.societegenerale.commons.amqp.core.requeue.policy.ReQueuePolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the messages of a dead letter queue back to their original queues with a short-lived consumer : the broker
+ * pushes up to 'prefetch' messages ahead, the requeued messages are published on a channel in confirm mode and the
+ * dead letter queue deliveries are acked in batches, once all the messages of the batch are confirmed.
+ * <p>
+ * The messages rejected by the requeue policy are published to the parking lot queue when there is one, otherwise back
+ * to the tail of the dead letter queue, marked with the id of the run : reading one of them again means the whole queue
+ * was read, which ends the run. The deliveries not processed when the run ends are returned to the dead letter queue
+ * when the channel is closed.
+ */
+@Slf4j
+public class ReQueueDrainer {
+
+  static final String REQUEUE_RUN_HEADER = "x-requeue-run";
+
+  private static final Delivery CANCELLED = new Delivery(null, null, null);
+
+  private final ConnectionFactory connectionFactory;
+
+  private final int prefetch;
+
+  private final int ackBatchSize;
+
+  private final long timeout;
+
+  private final MessagePropertiesConverter messagePropertiesConverter = new DefaultMessagePropertiesConverter();
+
+  private final ReQueueRouter reQueueRouter;
+
+  /**
+   * @param connectionFactory the connection factory
+   * @param reQueuePolicy     the requeue policy, no message being requeued when null
+   * @param prefetch          the max number of dead letter queue deliveries not acked yet
+   * @param ackBatchSize      the max number of messages published before waiting for their confirms and acking them
+   * @param timeout           the time in milliseconds to wait for the next delivery and for the confirms of a batch
+   */
+  public ReQueueDrainer(ConnectionFactory connectionFactory, ReQueuePolicy reQueuePolicy, int prefetch, int ackBatchSize, long timeout) {
+    this.connectionFactory = connectionFactory;
+    this.reQueueRouter = new ReQueueRouter(reQueuePolicy);
+    this.prefetch = prefetch;
+    // no more deliveries pushed once 'prefetch' deliveries are waiting for their ack
+    this.ackBatchSize = Math.min(ackBatchSize, prefetch);
+    this.timeout = timeout;
+  }
+
+  /**
+   * @param parkingLotQueue the queue the messages rejected by the requeue policy are sent to, back to the dead letter
+   *                        queue when null
+   */
+  public void setParkingLotQueue(String parkingLotQueue) {
+    reQueueRouter.setParkingLotQueue(parkingLotQueue);
+  }
+
+  /**
+   * @param reQueueThrottles the throttles pacing the messages requeued to each queue, not paced when null
+   */
+  public void setReQueueThrottles(ReQueueThrottles reQueueThrottles) {
+    reQueueRouter.setReQueueThrottles(reQueueThrottles);
+  }
+
+  /**
+   * @param backoffConfig the requeue backoff, the messages delayed by the requeue policy being published to its delayed
+   *                      exchange or to the delay queue of their tier. The messages are not delayed when null
+   */
+  public void setBackoffConfig(ReQueueBackoffConfig backoffConfig) {
+    reQueueRouter.setBackoffConfig(backoffConfig);
+  }
+
+  /**
+   * Requeues the messages of the dead letter queue.
+   *
+   * @param deadLetterQueue the dead letter queue
+   * @param messageCount    the max number of messages to read, all the messages when negative
+   * @return the number of messages read from the dead letter queue
+   */
+  public int drain(String deadLetterQueue, int messageCount) {
+    return drain(deadLetterQueue, messageCount, UUID.randomUUID().toString());
+  }
+
+  /**
+   * Requeues the messages of the dead letter queue, as a part of a run made of several drains.
+   *
+   * @param deadLetterQueue the dead letter queue
+   * @param messageCount    the max number of messages to read, all the messages when negative
+   * @param runId           the id of the run, marking the messages sent back to the dead letter queue
+   * @return the number of messages read from the dead letter queue, less than the message count when the whole queue
+   * was read
+   */
+  public int drain(String deadLetterQueue, int messageCount, String runId) {
+    BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+    Channel channel = connectionFactory.createConnection().createChannel(false);
+    int count = 0;
+    try {
+      channel.basicQos(prefetch);
+      channel.confirmSelect();
+      String consumerTag = channel.basicConsume(deadLetterQueue, false, new DefaultConsumer(channel) {
+
+        @Override
+        public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+          deliveries.add(new Delivery(envelope, properties, body));
+        }
+
+        @Override
+        public void handleCancel(String consumerTag) {
+          deliveries.add(CANCELLED);
+        }
+      });
+
+      int unconfirmed = 0;
+      long lastDeliveryTag = 0;
+      while (messageCount < 0 || messageCount > count) {
+        Delivery delivery = deliveries.poll(timeout, TimeUnit.MILLISECONDS);
+        if (delivery == null || delivery == CANCELLED) {
+          break;
+        }
+        Message message = new Message(delivery.body,
+            messagePropertiesConverter.toMessageProperties(delivery.properties, delivery.envelope, StandardCharsets.UTF_8.name()));
+        if (ReQueueRouter.isReadAgain(message, runId)) {
+          // back to a message rejected in this run : left in the queue, returned when the channel is closed
+          break;
+        }
+        reQueue(channel, deadLetterQueue, message, runId);
+        lastDeliveryTag = delivery.envelope.getDeliveryTag();
+        count++;
+        if (++unconfirmed >= ackBatchSize) {
+          confirmAndAck(channel, lastDeliveryTag);
+          unconfirmed = 0;
+        }
+      }
+      if (unconfirmed > 0) {
+        confirmAndAck(channel, lastDeliveryTag);
+      }
+      channel.basicCancel(consumerTag);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Requeue of DeadLetterQueue '{}' interrupted after {} messages", deadLetterQueue, count);
+    } catch (Exception e) {
+      // the deliveries not acked yet are returned to the dead letter queue : the messages already published may be
+      // requeued twice
+      throw new AmqpException("Unable to requeue the messages of DeadLetterQueue '" + deadLetterQueue + "'", e);
+    } finally {
+      RabbitUtils.setPhysicalCloseRequired(channel, true);
+      RabbitUtils.closeChannel(channel);
+    }
+    return count;
+  }
+
+  private void reQueue(Channel channel, String deadLetterQueue, Message message, String runId) throws Exception {
+    ReQueueRouter.Route route = reQueueRouter.route(deadLetterQueue, message, runId);
+    AMQP.BasicProperties properties = messagePropertiesConverter.fromMessageProperties(message.getMessageProperties(), StandardCharsets.UTF_8.name());
+    channel.basicPublish(route.getExchange(), route.getRoutingKey(), false, properties, message.getBody());
+  }
+
+  private void confirmAndAck(Channel channel, long lastDeliveryTag) throws Exception {
+    channel.waitForConfirmsOrDie(timeout);
+    channel.basicAck(lastDeliveryTag, true);
+  }
+
+  private static class Delivery {
+
+    private final Envelope envelope;
+
+    private final AMQP.BasicProperties properties;
+
+    private final byte[] body;
+
+    private Delivery(Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+      this.envelope = envelope;
+      this.properties = properties;
+      this.body = body;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.societegenerale.commons.amqp.core.util.ExecutorServices;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requeues several dead letter queues in parallel with a pool of workers.
+ * <p>
+ * Each dead letter queue is drained by slices of messages : once a slice is requeued, the dead letter queue goes back
+ * to the end of the line, so that a huge dead letter queue does not delay the others. At most 'maxDrainsPerNode' dead
+ * letter queues hosted by the same broker node are drained at the same time, the dead letter queues of an unknown node
+ * being only limited by the workers. A dead letter queue already waiting or being drained is not submitted twice.
+ */
+@Slf4j
+public class ReQueueEngine implements AutoCloseable {
+
+  private final ReQueueDrainer reQueueDrainer;
+
+  private final QueueNodeResolver queueNodeResolver;
+
+  private final int workers;
+
+  private final int maxDrainsPerNode;
+
+  private final int sliceSize;
+
+  private final ExecutorService executor;
+
+  private final Object lock = new Object();
+
+  private final Deque<Job> ready = new ArrayDeque<>();
+
+  private final Map<String, Job> jobs = new HashMap<>();
+
+  private final Map<String, ReQueueProgress> progress = new LinkedHashMap<>();
+
+  private final Map<String, Integer> drainsPerNode = new HashMap<>();
+
+  private int activeDrains;
+
+  private boolean running = true;
+
+  /**
+   * @param reQueueDrainer    the drainer requeuing the messages of a dead letter queue
+   * @param queueNodeResolver the resolver of the broker node hosting a dead letter queue, no node cap applying to the
+   *                          queues it returns null for
+   * @param workers           the max number of dead letter queues drained at the same time
+   * @param maxDrainsPerNode  the max number of dead letter queues of the same node drained at the same time
+   * @param sliceSize         the max number of messages read from a dead letter queue before giving way to the others
+   */
+  public ReQueueEngine(ReQueueDrainer reQueueDrainer, QueueNodeResolver queueNodeResolver, int workers, int maxDrainsPerNode, int sliceSize) {
+    this.reQueueDrainer = reQueueDrainer;
+    this.queueNodeResolver = queueNodeResolver;
+    this.workers = workers;
+    this.maxDrainsPerNode = maxDrainsPerNode;
+    this.sliceSize = sliceSize;
+    this.executor = ExecutorServices.newBlockingExecutor("rabbitmq-requeue-", workers);
+  }
+
+  /**
+   * Submits the requeue of a dead letter queue.
+   *
+   * @param deadLetterQueue the dead letter queue
+   * @param messageCount    the max number of messages to read, all the messages when negative
+   * @return false when the dead letter queue is already waiting or being drained
+   */
+  public boolean submit(String deadLetterQueue, int messageCount) {
+    String node = queueNodeResolver.resolveNode(deadLetterQueue);
+    synchronized (lock) {
+      if (!running) {
+        return false;
+      }
+      if (jobs.containsKey(deadLetterQueue)) {
+        log.info("Requeue of DeadLetterQueue '{}' already in progress", deadLetterQueue);
+        return false;
+      }
+      Job job = new Job(deadLetterQueue, node, messageCount);
+      jobs.put(deadLetterQueue, job);
+      ready.addLast(job);
+      progress.put(deadLetterQueue, job.snapshot());
+      dispatch();
+    }
+    return true;
+  }
+
+  /**
+   * @return the progress of the requeue of each submitted dead letter queue, the last requeue of a dead letter queue
+   * replacing the previous one
+   */
+  public Map<String, ReQueueProgress> getProgress() {
+    synchronized (lock) {
+      Map<String, ReQueueProgress> snapshot = new LinkedHashMap<>();
+      progress.forEach((queue, queueProgress) -> snapshot.put(queue, queueProgress.toBuilder().build()));
+      return snapshot;
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (lock) {
+      running = false;
+      ready.clear();
+    }
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void dispatch() {
+    Iterator<Job> iterator = ready.iterator();
+    while (activeDrains < workers && iterator.hasNext()) {
+      Job job = iterator.next();
+      if (job.node != null && drainsPerNode.getOrDefault(job.node, 0) >= maxDrainsPerNode) {
+        continue;
+      }
+      iterator.remove();
+      activeDrains++;
+      if (job.node != null) {
+        drainsPerNode.merge(job.node, 1, Integer::sum);
+      }
+      if (job.state == ReQueueProgress.State.QUEUED) {
+        job.state = ReQueueProgress.State.RUNNING;
+        job.startTime = System.currentTimeMillis();
+      }
+      progress.put(job.deadLetterQueue, job.snapshot());
+      executor.execute(() -> drainSlice(job));
+    }
+  }
+
+  private void drainSlice(Job job) {
+    int limit = job.remaining < 0 ? sliceSize : (int) Math.min(sliceSize, job.remaining);
+    int read = 0;
+    boolean failed = false;
+    try {
+      read = reQueueDrainer.drain(job.deadLetterQueue, limit, job.runId);
+    } catch (RuntimeException e) {
+      log.error("Requeue of DeadLetterQueue '{}' failed after {} messages", job.deadLetterQueue, job.messagesRead, e);
+      failed = true;
+    }
+    synchronized (lock) {
+      activeDrains--;
+      if (job.node != null) {
+        drainsPerNode.merge(job.node, -1, Integer::sum);
+      }
+      job.messagesRead += read;
+      job.slices++;
+      if (job.remaining > 0) {
+        job.remaining -= read;
+      }
+      if (failed || read < limit || job.remaining == 0 || !running) {
+        job.state = failed ? ReQueueProgress.State.FAILED : ReQueueProgress.State.COMPLETED;
+        job.endTime = System.currentTimeMillis();
+        jobs.remove(job.deadLetterQueue);
+        log.info(failed ? "Requeue processing failed for DeadLetterQueue '{}' : {} messages read in {} ms" :
+            "Requeue processing completed for DeadLetterQueue '{}' : {} messages read in {} ms", job.deadLetterQueue,
+            job.messagesRead, job.endTime - job.startTime);
+      } else {
+        log.info("Requeue processing in progress for DeadLetterQueue '{}' : {} messages read", job.deadLetterQueue, job.messagesRead);
+        ready.addLast(job);
+      }
+      progress.put(job.deadLetterQueue, job.snapshot());
+      if (running) {
+        dispatch();
+      }
+    }
+  }
+
+  private static class Job {
+
+    private final String deadLetterQueue;
+
+    private final String node;
+
+    // marks the messages sent back to the dead letter queue during all the slices of the requeue
+    private final String runId = UUID.randomUUID().toString();
+
+    private long remaining;
+
+    private ReQueueProgress.State state = ReQueueProgress.State.QUEUED;
+
+    private long messagesRead;
+
+    private int slices;
+
+    private long startTime;
+
+    private long endTime;
+
+    private Job(String deadLetterQueue, String node, int messageCount) {
+      this.deadLetterQueue = deadLetterQueue;
+      this.node = node;
+      this.remaining = messageCount;
+    }
+
+    private ReQueueProgress snapshot() {
+      return ReQueueProgress.builder()
+          .deadLetterQueue(deadLetterQueue)
+          .node(node)
+          .state(state)
+          .messagesRead(messagesRead)
+          .slices(slices)
+          .startTime(startTime)
+          .endTime(endTime)
+          .build();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandler;
+import org.springframework.amqp.core.Message;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the failed messages of each queue, for the requeue to slow down when the requeued messages fail again.
+ */
+public class ReQueueFailureTracker implements MessageExceptionHandler {
+
+  private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+
+  @Override
+  public void handle(Message message, Throwable cause) {
+    String queue = message.getMessageProperties().getConsumerQueue();
+    if (queue != null) {
+      failures.computeIfAbsent(queue, key -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  @Override
+  public boolean isCritical() {
+    return false;
+  }
+
+  /**
+   * @return the number of failed messages of the queue since the application started
+   */
+  public long getFailures(String queue) {
+    AtomicLong queueFailures = failures.get(queue);
+    return queueFailures != null ? queueFailures.get() : 0;
+  }
+}
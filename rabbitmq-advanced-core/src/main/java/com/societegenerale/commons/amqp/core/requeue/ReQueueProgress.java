@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of the requeue of a dead letter queue by the {@link ReQueueEngine}.
+ */
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class ReQueueProgress {
+
+  public enum State {
+    QUEUED, RUNNING, COMPLETED, FAILED
+  }
+
+  private String deadLetterQueue;
+
+  private String node;
+
+  private State state;
+
+  /**
+   * number of messages read from the dead letter queue so far
+   */
+  private long messagesRead;
+
+  /**
+   * number of drains of the dead letter queue so far, each one reading at most a slice of messages
+   */
+  private int slices;
+
+  private long startTime;
+
+  private long endTime;
+}
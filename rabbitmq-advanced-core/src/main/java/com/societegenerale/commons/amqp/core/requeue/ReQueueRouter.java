@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.societegenerale.commons.amqp.core.config.QueueConfig;
+import com.societegenerale.commons.amqp.core.config.ReQueueBackoffConfig;
+import com.societegenerale.commons.amqp.core.requeue.policy.ReQueuePolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+
+import java.util.Map;
+
+/**
+ * Routes the messages read from a dead letter queue, for the receive loop of the {@link ReQueueConsumer} and for the
+ * {@link ReQueueDrainer} : back to their original queue when the requeue policy allows it, through the delayed exchange
+ * or the delay queue of their tier when the policy delays them, otherwise to the parking lot queue when there is one,
+ * or back to the tail of the dead letter queue marked with the id of the run.
+ */
+@Slf4j
+class ReQueueRouter {
+
+  private final ReQueuePolicy reQueuePolicy;
+
+  private String parkingLotQueue;
+
+  private ReQueueThrottles reQueueThrottles;
+
+  private ReQueueBackoffConfig backoffConfig;
+
+  ReQueueRouter(ReQueuePolicy reQueuePolicy) {
+    this.reQueuePolicy = reQueuePolicy;
+  }
+
+  void setParkingLotQueue(String parkingLotQueue) {
+    this.parkingLotQueue = parkingLotQueue;
+  }
+
+  void setReQueueThrottles(ReQueueThrottles reQueueThrottles) {
+    this.reQueueThrottles = reQueueThrottles;
+  }
+
+  void setBackoffConfig(ReQueueBackoffConfig backoffConfig) {
+    this.backoffConfig = backoffConfig;
+  }
+
+  /**
+   * @return true when the message was sent back to the dead letter queue earlier in the run : the whole queue was read
+   */
+  static boolean isReadAgain(Message message, String runId) {
+    return runId.equals(message.getMessageProperties().getHeaders().get(ReQueueDrainer.REQUEUE_RUN_HEADER));
+  }
+
+  /**
+   * Updates the headers of the message for its destination, waiting for the throttle of its original queue when it is
+   * requeued.
+   *
+   * @param deadLetterQueue the dead letter queue the message was read from
+   * @param message         the message
+   * @param runId           the id of the run, marking the messages sent back to the dead letter queue
+   * @return the exchange and the routing key to publish the message with
+   * @throws InterruptedException when interrupted while waiting for the throttle, the message being left unchanged
+   */
+  Route route(String deadLetterQueue, Message message, String runId) throws InterruptedException {
+    Map<String, Object> headers = message.getMessageProperties().getHeaders();
+    String queueName = ReQueueConsumer.getOriginalQueue(headers);
+    if (queueName != null && reQueuePolicy != null && reQueuePolicy.canReQueue(message)) {
+      long delay = backoffConfig != null ? reQueuePolicy.reQueueDelay(message) : 0;
+      // paces the publishes : the delayed messages reach the queue as their delays expire, whatever the rate limit
+      ReQueueThrottle reQueueThrottle = reQueueThrottles != null ? reQueueThrottles.throttle(queueName) : null;
+      if (reQueueThrottle != null) {
+        reQueueThrottle.acquire(message.getBody().length);
+      }
+      // the retry ladder starts again
+      headers.remove("x-retry-attempt");
+      headers.remove(ReQueueDrainer.REQUEUE_RUN_HEADER);
+      if (delay > 0 && backoffConfig.getDelayedExchange() != null) {
+        message.getMessageProperties().setDelay((int) Math.min(delay, Integer.MAX_VALUE));
+        return new Route(backoffConfig.getDelayedExchange(), queueName);
+      }
+      if (delay > 0) {
+        // expires in the delay queue of its tier, then dead lettered to the original queue
+        message.getMessageProperties().setExpiration(Long.toString(delay));
+        return new Route("", QueueConfig.createReQueueDelayQueueName(queueName, backoffConfig.tierDelay(delay)));
+      }
+      return new Route("", queueName);
+    }
+    if (parkingLotQueue != null) {
+      log.warn("Can not requeue the message with correlation-id '{}' as per the requeue policy, parking it in '{}'", headers.get("correlation-id"), parkingLotQueue);
+      headers.remove(ReQueueDrainer.REQUEUE_RUN_HEADER);
+      return new Route("", parkingLotQueue);
+    }
+    log.warn("Can not requeue the message with correlation-id '{}' as per the requeue policy", headers.get("correlation-id"));
+    headers.put(ReQueueDrainer.REQUEUE_RUN_HEADER, runId);
+    return new Route("", deadLetterQueue);
+  }
+
+  static final class Route {
+
+    private final String exchange;
+
+    private final String routingKey;
+
+    private Route(String exchange, String routingKey) {
+      this.exchange = exchange;
+      this.routingKey = routingKey;
+    }
+
+    String getExchange() {
+      return exchange;
+    }
+
+    String getRoutingKey() {
+      return routingKey;
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.societegenerale.commons.amqp.core.config.ReQueueRateConfig;
+import com.societegenerale.commons.amqp.core.util.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the messages requeued to a queue : token buckets cap the messages and the bytes per second, and their rate is
+ * adapted at each check, halved when the queue depth is above the watermark or when too many requeued messages failed
+ * again since the previous check, raised by a tenth of the configured rate otherwise.
+ * <p>
+ * A message bigger than the bytes per second is requeued once the bytes bucket is full, the following messages waiting
+ * until the bytes beyond are paid back.
+ */
+@Slf4j
+public class ReQueueThrottle {
+
+  static final double MIN_RATIO = 0.05;
+
+  private static final double INCREASE = 0.1;
+
+  private static final long MIN_PAUSE = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final long MAX_PAUSE = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final String queue;
+
+  private final ReQueueRateConfig reQueueRateConfig;
+
+  private final AmqpAdmin amqpAdmin;
+
+  private final ReQueueFailureTracker failureTracker;
+
+  private double ratio = 1;
+
+  private boolean paused;
+
+  private TokenBucket messages;
+
+  private TokenBucket bytes;
+
+  private boolean messageTaken;
+
+  private long nextCheck = System.nanoTime();
+
+  private long reQueuedSinceCheck;
+
+  private long failuresAtCheck;
+
+  /**
+   * @param queue             the queue the messages are requeued to
+   * @param reQueueRateConfig the rate limit of the queue
+   * @param amqpAdmin         the admin reading the depth of the queue
+   * @param failureTracker    the failures of the queue listener, may be null
+   */
+  public ReQueueThrottle(String queue, ReQueueRateConfig reQueueRateConfig, AmqpAdmin amqpAdmin, ReQueueFailureTracker failureTracker) {
+    this.queue = queue;
+    this.reQueueRateConfig = reQueueRateConfig;
+    this.amqpAdmin = amqpAdmin;
+    this.failureTracker = failureTracker;
+    this.failuresAtCheck = failureTracker != null ? failureTracker.getFailures(queue) : 0;
+    double messagesPerSecond = reQueueRateConfig.getMessagesPerSecond();
+    messages = messagesPerSecond > 0 ? new TokenBucket(messagesCapacity(), messagesPerSecond) : null;
+    double bytesPerSecond = reQueueRateConfig.getBytesPerSecond();
+    bytes = bytesPerSecond > 0 ? new TokenBucket(bytesCapacity(), bytesPerSecond) : null;
+  }
+
+  /**
+   * Waits until the message can be requeued.
+   *
+   * @param size the size of the message body
+   */
+  public void acquire(int size) throws InterruptedException {
+    long pause;
+    while ((pause = tryAcquire(size)) > 0) {
+      TimeUnit.NANOSECONDS.sleep(pause);
+    }
+  }
+
+  /**
+   * @return the ratio of the configured rate currently allowed
+   */
+  public synchronized double getRatio() {
+    return ratio;
+  }
+
+  private long tryAcquire(int size) {
+    long now = System.nanoTime();
+    if (startCheck(now)) {
+      // the depth is read out of the lock, the other drains keep the current rate meanwhile
+      adapt(isAboveWatermark());
+    }
+    return tryAcquire(now, size);
+  }
+
+  /**
+   * @return true for the one caller due to run the check, the next check being scheduled
+   */
+  private synchronized boolean startCheck(long now) {
+    if (now - nextCheck < 0) {
+      return false;
+    }
+    nextCheck = now + TimeUnit.MILLISECONDS.toNanos(reQueueRateConfig.getCheckInterval());
+    return true;
+  }
+
+  private synchronized long tryAcquire(long now, int size) {
+    if (paused) {
+      return Math.max(MIN_PAUSE, nextCheck - now);
+    }
+    if (!messageTaken && messages != null && !messages.tryAcquire()) {
+      return pause(ratio * reQueueRateConfig.getMessagesPerSecond());
+    }
+    // the message token is kept until the bytes are available
+    messageTaken = true;
+    if (bytes != null && !bytes.tryAcquireWithDebt(size)) {
+      return pause(ratio * reQueueRateConfig.getBytesPerSecond() / Math.max(1, size));
+    }
+    messageTaken = false;
+    reQueuedSinceCheck++;
+    return 0;
+  }
+
+  private synchronized void adapt(boolean aboveWatermark) {
+    boolean overloaded = aboveWatermark || isFailing();
+    reQueuedSinceCheck = 0;
+    double previousRatio = ratio;
+    boolean limited = reQueueRateConfig.getMessagesPerSecond() > 0 || reQueueRateConfig.getBytesPerSecond() > 0;
+    if (!limited) {
+      // no rate to adapt : the requeue stops until the next check
+      if (overloaded != paused) {
+        log.info("Requeue to queue '{}' {}", queue, overloaded ? "paused" : "resumed");
+      }
+      paused = overloaded;
+      return;
+    }
+    ratio = overloaded ? Math.max(MIN_RATIO, ratio / 2) : Math.min(1, ratio + INCREASE);
+    if (ratio != previousRatio) {
+      log.debug("Requeue rate to queue '{}' set to {}% of the limit", queue, Math.round(ratio * 100));
+      // the tokens left are kept, a new full bucket would let a burst through
+      if (messages != null) {
+        messages.setRate(messagesCapacity(), ratio * reQueueRateConfig.getMessagesPerSecond());
+      }
+      if (bytes != null) {
+        bytes.setRate(bytesCapacity(), ratio * reQueueRateConfig.getBytesPerSecond());
+      }
+    }
+  }
+
+  private boolean isAboveWatermark() {
+    if (reQueueRateConfig.getDepthWatermark() <= 0) {
+      return false;
+    }
+    try {
+      QueueInformation queueInformation = amqpAdmin.getQueueInfo(queue);
+      return queueInformation != null && queueInformation.getMessageCount() > reQueueRateConfig.getDepthWatermark();
+    } catch (RuntimeException e) {
+      log.warn("Unable to read the depth of queue '{}' : {}", queue, e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean isFailing() {
+    if (reQueueRateConfig.getMaxFailureRatio() <= 0 || failureTracker == null) {
+      return false;
+    }
+    long failures = failureTracker.getFailures(queue);
+    long newFailures = failures - failuresAtCheck;
+    failuresAtCheck = failures;
+    return reQueuedSinceCheck > 0 && (double) newFailures / reQueuedSinceCheck > reQueueRateConfig.getMaxFailureRatio();
+  }
+
+  private long messagesCapacity() {
+    return Math.max(1, (long) (ratio * reQueueRateConfig.getMessagesPerSecond()));
+  }
+
+  private long bytesCapacity() {
+    return Math.max(1, (long) (ratio * reQueueRateConfig.getBytesPerSecond()));
+  }
+
+  private static long pause(double permitsPerSecond) {
+    long pause = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : MAX_PAUSE;
+    return Math.min(MAX_PAUSE, Math.max(MIN_PAUSE, pause));
+  }
+}
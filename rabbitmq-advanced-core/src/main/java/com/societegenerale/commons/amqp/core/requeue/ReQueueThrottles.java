@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.societegenerale.commons.amqp.core.config.ReQueueRateConfig;
+import org.springframework.amqp.core.AmqpAdmin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The throttles of the queues the messages are requeued to, shared by all the drains requeuing to the same queue.
+ */
+public class ReQueueThrottles {
+
+  private final Map<String, ReQueueRateConfig> reQueueRateConfigs;
+
+  private final ReQueueRateConfig defaultReQueueRateConfig;
+
+  private final AmqpAdmin amqpAdmin;
+
+  private final ReQueueFailureTracker failureTracker;
+
+  private final Map<String, ReQueueThrottle> throttles = new ConcurrentHashMap<>();
+
+  /**
+   * @param reQueueRateConfigs       the rate limit of each queue
+   * @param defaultReQueueRateConfig the rate limit of the other queues
+   * @param amqpAdmin                the admin reading the depth of the queues
+   * @param failureTracker           the failures of the queue listeners, may be null
+   */
+  public ReQueueThrottles(Map<String, ReQueueRateConfig> reQueueRateConfigs, ReQueueRateConfig defaultReQueueRateConfig,
+                          AmqpAdmin amqpAdmin, ReQueueFailureTracker failureTracker) {
+    this.reQueueRateConfigs = reQueueRateConfigs;
+    this.defaultReQueueRateConfig = defaultReQueueRateConfig;
+    this.amqpAdmin = amqpAdmin;
+    this.failureTracker = failureTracker;
+  }
+
+  /**
+   * @return the throttle of the queue, null when the requeue to the queue is not limited
+   */
+  public ReQueueThrottle throttle(String queue) {
+    ReQueueRateConfig reQueueRateConfig = reQueueRateConfigs.getOrDefault(queue, defaultReQueueRateConfig);
+    if (reQueueRateConfig == null || !reQueueRateConfig.isLimited()) {
+      return null;
+    }
+    return throttles.computeIfAbsent(queue, key -> new ReQueueThrottle(key, reQueueRateConfig, amqpAdmin, failureTracker));
+  }
+}
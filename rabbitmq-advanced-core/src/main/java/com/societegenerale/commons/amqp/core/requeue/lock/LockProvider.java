@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue.lock;
+
+/**
+ * Named locks shared by the instances of the application, electing the one running a task.
+ */
+public interface LockProvider {
+
+  /**
+   * Acquires the lock when it is free, or checks that it is still held by this instance.
+   *
+   * @param name the name of the lock
+   * @return true when this instance holds the lock
+   */
+  boolean tryLock(String name);
+
+  /**
+   * Releases the lock when it is held by this instance.
+   *
+   * @param name the name of the lock
+   */
+  void unlock(String name);
+}
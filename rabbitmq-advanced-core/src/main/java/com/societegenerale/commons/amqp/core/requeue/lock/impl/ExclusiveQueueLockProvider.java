@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue.lock.impl;
+
+import com.rabbitmq.client.Channel;
+import com.societegenerale.commons.amqp.core.requeue.lock.LockProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Locks held with exclusive queues : the broker lets a single connection declare an exclusive queue, the others getting
+ * a RESOURCE_LOCKED error, and deletes the queue when the connection is closed, e.g. when the instance holding the lock
+ * dies. The lock is lost with the connection, the channel of the lock being closed then.
+ */
+@Slf4j
+public class ExclusiveQueueLockProvider implements LockProvider, AutoCloseable {
+
+  private final ConnectionFactory connectionFactory;
+
+  private final String lockQueuePrefix;
+
+  private final Map<String, Channel> locks = new HashMap<>();
+
+  /**
+   * @param connectionFactory the connection factory
+   * @param lockQueuePrefix   the name prefix of the lock queues
+   */
+  public ExclusiveQueueLockProvider(ConnectionFactory connectionFactory, String lockQueuePrefix) {
+    this.connectionFactory = connectionFactory;
+    this.lockQueuePrefix = lockQueuePrefix;
+  }
+
+  @Override
+  public synchronized boolean tryLock(String name) {
+    Channel channel = locks.get(name);
+    if (channel != null && channel.isOpen()) {
+      return true;
+    }
+    if (channel != null) {
+      log.warn("Lock '{}' lost with its connection", name);
+      locks.remove(name);
+    }
+    try {
+      channel = connectionFactory.createConnection().createChannel(false);
+      channel.queueDeclare(lockQueuePrefix + name, false, true, true, null);
+      locks.put(name, channel);
+      log.info("Lock '{}' acquired", name);
+      return true;
+    } catch (Exception e) {
+      // RESOURCE_LOCKED when held by another instance, the channel being closed by the broker
+      log.debug("Lock '{}' not acquired : {}", name, e.getMessage());
+      closeChannel(channel);
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized void unlock(String name) {
+    Channel channel = locks.remove(name);
+    if (channel == null) {
+      return;
+    }
+    try {
+      if (channel.isOpen()) {
+        channel.queueDelete(lockQueuePrefix + name);
+      }
+    } catch (Exception e) {
+      log.warn("Unable to delete the queue of lock '{}' : {}", name, e.getMessage());
+    } finally {
+      closeChannel(channel);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    new HashMap<>(locks).keySet().forEach(this::unlock);
+  }
+
+  private void closeChannel(Channel channel) {
+    if (channel != null) {
+      RabbitUtils.setPhysicalCloseRequired(channel, true);
+      RabbitUtils.closeChannel(channel);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue.lock.impl;
+
+import com.societegenerale.commons.amqp.core.requeue.lock.LockProvider;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Locks held in memory : the providers sharing the same map stand for the instances of a cluster, e.g. in tests.
+ */
+public class InMemoryLockProvider implements LockProvider {
+
+  private final ConcurrentMap<String, String> locks;
+
+  private final String owner = UUID.randomUUID().toString();
+
+  public InMemoryLockProvider() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  /**
+   * @param locks the owner of each lock, shared by the providers of the same cluster
+   */
+  public InMemoryLockProvider(ConcurrentMap<String, String> locks) {
+    this.locks = locks;
+  }
+
+  @Override
+  public boolean tryLock(String name) {
+    return owner.equals(locks.computeIfAbsent(name, key -> owner));
+  }
+
+  @Override
+  public void unlock(String name) {
+    locks.remove(name, owner);
+  }
+}
@@ -23,4 +23,13 @@ import org.springframework.amqp.core.Message;
  */
 public interface ReQueuePolicy {
   boolean canReQueue(Message message);
+
+  /**
+   * Called once the message can be requeued, when the requeue backoff is enabled.
+   *
+   * @return the time in milliseconds the message waits before being delivered to its queue, 0 to deliver it right away
+   */
+  default long reQueueDelay(Message message) {
+    return 0;
+  }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue.policy.impl;
+
+import org.springframework.amqp.core.Message;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Threshold policy delaying each requeue of a message : the delay is multiplied at each requeue, up to the max delay, with
+ * a random part.
+ */
+public class ExponentialBackoffReQueuePolicy extends ThresholdReQueuePolicy {
+
+  private final long initialDelay;
+
+  private final double multiplier;
+
+  private final long maxDelay;
+
+  private final double jitter;
+
+  /**
+   * @param initialDelay the delay in milliseconds of the first requeue
+   * @param multiplier   the factor applied to the delay at each new requeue
+   * @param maxDelay     the max delay in milliseconds
+   * @param jitter       the random part of the delay, between 0 and 1
+   */
+  public ExponentialBackoffReQueuePolicy(long initialDelay, double multiplier, long maxDelay, double jitter) {
+    this.initialDelay = initialDelay;
+    this.multiplier = multiplier;
+    this.maxDelay = maxDelay;
+    this.jitter = jitter;
+  }
+
+  @Override
+  public long reQueueDelay(Message message) {
+    Object requeueCount = message.getMessageProperties().getHeaders().get(X_REQUEUE_COUNT);
+    int attempt = requeueCount instanceof Number ? Math.max(1, ((Number) requeueCount).intValue()) : 1;
+    double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt - 1));
+    double random = jitter > 0 ? ThreadLocalRandom.current().nextDouble(-jitter, jitter) : 0;
+    return Math.max(1, Math.min(maxDelay, Math.round(delay * (1 + random))));
+  }
+}
@@ -27,7 +27,7 @@ import java.util.Map;
  */
 public class ThresholdReQueuePolicy implements ReQueuePolicy {
 
-  private static final String X_REQUEUE_COUNT = "x-requeue-count";
+  static final String X_REQUEUE_COUNT = "x-requeue-count";
 
   @Value("${rabbitmq.auto-config.re-queue-config.threshold:3}")
   private int threshold;
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+
+/**
+ * Keeps the fingerprint on the broker, as the name of an empty marker queue shared by all the application instances.
+ * <p>
+ * The marker queue expires when it has not been used for a while, so the markers of old topologies are eventually
+ * removed by the broker itself. The marker of the current topology is declared again on each match to renew it.
+ */
+@Slf4j
+public class BrokerFingerprintStore implements FingerprintStore {
+
+  private final RabbitAdmin rabbitAdmin;
+
+  private final String markerPrefix;
+
+  private final long markerExpires;
+
+  public BrokerFingerprintStore(RabbitAdmin rabbitAdmin, String markerPrefix, long markerExpires) {
+    this.rabbitAdmin = rabbitAdmin;
+    this.markerPrefix = markerPrefix;
+    this.markerExpires = markerExpires;
+  }
+
+  @Override
+  public boolean matches(String fingerprint) {
+    try {
+      if (rabbitAdmin.getQueueInfo(markerName(fingerprint)) == null) {
+        return false;
+      }
+      rabbitAdmin.declareQueue(marker(fingerprint));
+      return true;
+    } catch (Exception e) {
+      log.warn("Unable to check the topology fingerprint marker on the broker : {}", e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public void save(String fingerprint) {
+    try {
+      rabbitAdmin.declareQueue(marker(fingerprint));
+    } catch (Exception e) {
+      log.warn("Unable to declare the topology fingerprint marker on the broker : {}", e.getMessage());
+    }
+  }
+
+  private String markerName(String fingerprint) {
+    return markerPrefix + fingerprint;
+  }
+
+  private Queue marker(String fingerprint) {
+    return QueueBuilder.durable(markerName(fingerprint))
+        .expires((int) Math.min(Integer.MAX_VALUE, markerExpires))
+        .maxLength(0)
+        .build();
+  }
+}
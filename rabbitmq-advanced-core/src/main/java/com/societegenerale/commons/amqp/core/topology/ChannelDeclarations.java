@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Method;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Low level declaration of exchanges, queues and bindings on a raw channel, following the same rules as the RabbitAdmin.
+ */
+final class ChannelDeclarations {
+
+  private static final String DELAYED_MESSAGE_EXCHANGE = "x-delayed-message";
+
+  private static final String DEFAULT_EXCHANGE_NAME = "";
+
+  private ChannelDeclarations() {
+  }
+
+  /**
+   * The default exchange and its implicit bindings can not be declared.
+   */
+  static boolean isDeclarable(Declarable declarable) {
+    if (declarable instanceof Exchange) {
+      return !DEFAULT_EXCHANGE_NAME.equals(((Exchange) declarable).getName());
+    } else if (declarable instanceof Binding) {
+      return !DEFAULT_EXCHANGE_NAME.equals(((Binding) declarable).getExchange());
+    }
+    return declarable instanceof Queue;
+  }
+
+  /**
+   * Sends the declaration without waiting for the broker reply. A failure closes the channel.
+   */
+  static void declareNoWait(Channel channel, Declarable declarable) throws IOException {
+    if (declarable instanceof Exchange) {
+      Exchange exchange = (Exchange) declarable;
+      channel.exchangeDeclareNoWait(exchange.getName(), exchangeType(exchange), exchange.isDurable(), exchange.isAutoDelete(),
+          exchange.isInternal(), exchangeArguments(exchange));
+    } else if (declarable instanceof Queue) {
+      Queue queue = (Queue) declarable;
+      channel.queueDeclareNoWait(queue.getActualName(), queue.isDurable(), queue.isExclusive(), queue.isAutoDelete(), queue.getArguments());
+    } else if (declarable instanceof Binding) {
+      Binding binding = (Binding) declarable;
+      if (binding.isDestinationQueue()) {
+        channel.queueBindNoWait(binding.getDestination(), binding.getExchange(), binding.getRoutingKey(), binding.getArguments());
+      } else {
+        channel.exchangeBindNoWait(binding.getDestination(), binding.getExchange(), binding.getRoutingKey(), binding.getArguments());
+      }
+    }
+  }
+
+  /**
+   * Sends the declaration and returns a future completed by the broker reply, without blocking the caller.
+   */
+  static CompletableFuture<?> declareAsync(Channel channel, Declarable declarable) throws IOException {
+    return channel.asyncCompletableRpc(toMethod(declarable));
+  }
+
+  /**
+   * Sends the declaration and waits for the broker reply.
+   */
+  static void declare(Channel channel, Declarable declarable, long timeout) throws IOException, InterruptedException, TimeoutException {
+    await(declareAsync(channel, declarable), timeout);
+  }
+
+  /**
+   * Checks that the exchange or queue exists, without changing it. A missing entity closes the channel.
+   * Bindings can not be checked passively and are ignored.
+   */
+  static void declarePassive(Channel channel, Declarable declarable) throws IOException {
+    if (declarable instanceof Exchange) {
+      channel.exchangeDeclarePassive(((Exchange) declarable).getName());
+    } else if (declarable instanceof Queue) {
+      channel.queueDeclarePassive(((Queue) declarable).getActualName());
+    }
+  }
+
+  static void await(CompletableFuture<?> future, long timeout) throws IOException, InterruptedException, TimeoutException {
+    try {
+      future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+  }
+
+  static Method toMethod(Declarable declarable) {
+    if (declarable instanceof Exchange) {
+      Exchange exchange = (Exchange) declarable;
+      return new AMQP.Exchange.Declare.Builder()
+          .exchange(exchange.getName())
+          .type(exchangeType(exchange))
+          .durable(exchange.isDurable())
+          .autoDelete(exchange.isAutoDelete())
+          .internal(exchange.isInternal())
+          .arguments(exchangeArguments(exchange))
+          .build();
+    } else if (declarable instanceof Queue) {
+      Queue queue = (Queue) declarable;
+      return new AMQP.Queue.Declare.Builder()
+          .queue(queue.getActualName())
+          .durable(queue.isDurable())
+          .exclusive(queue.isExclusive())
+          .autoDelete(queue.isAutoDelete())
+          .arguments(queue.getArguments())
+          .build();
+    } else if (declarable instanceof Binding) {
+      Binding binding = (Binding) declarable;
+      if (binding.isDestinationQueue()) {
+        return new AMQP.Queue.Bind.Builder()
+            .queue(binding.getDestination())
+            .exchange(binding.getExchange())
+            .routingKey(binding.getRoutingKey())
+            .arguments(binding.getArguments())
+            .build();
+      }
+      return new AMQP.Exchange.Bind.Builder()
+          .destination(binding.getDestination())
+          .source(binding.getExchange())
+          .routingKey(binding.getRoutingKey())
+          .arguments(binding.getArguments())
+          .build();
+    }
+    throw new IllegalArgumentException("Unsupported declarable : " + declarable);
+  }
+
+  private static String exchangeType(Exchange exchange) {
+    return exchange.isDelayed() ? DELAYED_MESSAGE_EXCHANGE : exchange.getType();
+  }
+
+  private static Map<String, Object> exchangeArguments(Exchange exchange) {
+    if (!exchange.isDelayed()) {
+      return exchange.getArguments();
+    }
+    Map<String, Object> arguments = exchange.getArguments() == null ? new HashMap<>() : new HashMap<>(exchange.getArguments());
+    arguments.put("x-delayed-type", exchange.getType());
+    return arguments;
+  }
+}
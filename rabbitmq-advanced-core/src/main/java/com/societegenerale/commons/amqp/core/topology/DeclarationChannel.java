@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+
+/**
+ * A channel used to declare the topology, opened again when the broker closed it after a failure.
+ * Not thread safe, each declaring thread uses its own.
+ */
+class DeclarationChannel {
+
+  private final Connection connection;
+
+  private Channel channel;
+
+  DeclarationChannel(Connection connection) {
+    this.connection = connection;
+  }
+
+  Channel get() {
+    if (channel == null || !channel.isOpen()) {
+      close();
+      channel = connection.createChannel(false);
+    }
+    return channel;
+  }
+
+  void close() {
+    if (channel != null) {
+      RabbitUtils.closeChannel(channel);
+      channel = null;
+    }
+  }
+}
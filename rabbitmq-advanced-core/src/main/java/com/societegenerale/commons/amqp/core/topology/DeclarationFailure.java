@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * A topology entry which could not be declared along with the cause reported by the broker.
+ */
+@Getter
+@AllArgsConstructor
+public class DeclarationFailure {
+
+  private final TopologyEntry entry;
+
+  private final Throwable cause;
+
+  @Override
+  public String toString() {
+    return entry + " : " + ExceptionUtils.getRootCauseMessage(cause);
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+/**
+ * Ordered declaration phases. Every entity of a phase only depends on entities of the previous phases,
+ * so the entities of a single phase can be declared in any order or concurrently.
+ */
+public enum DeclarationPhase {
+  EXCHANGES,
+  QUEUES,
+  BINDINGS
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outcome of a topology declaration. Safe to be updated concurrently by several declaring threads.
+ */
+@Slf4j
+public class DeclarationResult {
+
+  private final AtomicInteger declared = new AtomicInteger();
+
+  private final List<DeclarationFailure> failures = Collections.synchronizedList(new ArrayList<>());
+
+  private final List<DeclarationTiming> timings = Collections.synchronizedList(new ArrayList<>());
+
+  private final Map<DeclarationPhase, Long> phaseTimings = Collections.synchronizedMap(new EnumMap<>(DeclarationPhase.class));
+
+  public void success(TopologyEntry entry) {
+    declared.incrementAndGet();
+    log.debug("Declared {}", entry);
+  }
+
+  /**
+   * @param nanos time spent waiting for the broker to declare the entry
+   */
+  public void success(TopologyEntry entry, long nanos) {
+    success(entry);
+    timings.add(new DeclarationTiming(entry, nanos, true));
+  }
+
+  public void failure(TopologyEntry entry, Throwable cause) {
+    DeclarationFailure failure = new DeclarationFailure(entry, cause);
+    failures.add(failure);
+    log.error("Failed to declare {}", failure, cause);
+  }
+
+  /**
+   * @param nanos time spent waiting for the broker to reject the entry
+   */
+  public void failure(TopologyEntry entry, Throwable cause, long nanos) {
+    failure(entry, cause);
+    timings.add(new DeclarationTiming(entry, nanos, false));
+  }
+
+  /**
+   * Adds the given time to the time spent declaring the phase.
+   */
+  public void phaseDeclared(DeclarationPhase phase, long millis) {
+    phaseTimings.merge(phase, millis, Long::sum);
+  }
+
+  public int getDeclaredCount() {
+    return declared.get();
+  }
+
+  public List<DeclarationFailure> getFailures() {
+    synchronized (failures) {
+      return new ArrayList<>(failures);
+    }
+  }
+
+  /**
+   * @return the broker round trip times of the declared entries
+   */
+  public List<DeclarationTiming> getTimings() {
+    synchronized (timings) {
+      return new ArrayList<>(timings);
+    }
+  }
+
+  /**
+   * @return the time in milliseconds spent declaring each phase
+   */
+  public Map<DeclarationPhase, Long> getPhaseTimings() {
+    Map<DeclarationPhase, Long> timings = new EnumMap<>(DeclarationPhase.class);
+    synchronized (phaseTimings) {
+      timings.putAll(phaseTimings);
+    }
+    return timings;
+  }
+
+  public boolean isSuccessful() {
+    return failures.isEmpty();
+  }
+
+  public void assertSuccessful() {
+    if (!isSuccessful()) {
+      List<DeclarationFailure> currentFailures = getFailures();
+      throw new RabbitmqConfigurationException(String.format("Failed to declare %d topology entities : %s",
+          currentFailures.size(), currentFailures));
+    }
+  }
+}
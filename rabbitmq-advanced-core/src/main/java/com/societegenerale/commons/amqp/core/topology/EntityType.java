@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+/**
+ * Role of a declarable entity in the auto configured topology.
+ */
+public enum EntityType {
+  DEAD_LETTER_EXCHANGE("dead-letter-exchange", DeclarationPhase.EXCHANGES),
+  EXCEPTION_EXCHANGE("exception-exchange", DeclarationPhase.EXCHANGES),
+  EXCHANGE("exchange", DeclarationPhase.EXCHANGES),
+  QUEUE("queue", DeclarationPhase.QUEUES),
+  DEAD_LETTER_QUEUE("dead-letter-queue", DeclarationPhase.QUEUES),
+  DEAD_LETTER_BINDING("dead-letter-binding", DeclarationPhase.BINDINGS),
+  RETRY_QUEUE("retry-queue", DeclarationPhase.QUEUES),
+  REQUEUE_DELAY_QUEUE("requeue-delay-queue", DeclarationPhase.QUEUES),
+  BINDING("binding", DeclarationPhase.BINDINGS),
+  REQUEUE_EXCHANGE("requeue-exchange", DeclarationPhase.EXCHANGES),
+  REQUEUE_QUEUE("requeue-queue", DeclarationPhase.QUEUES),
+  PARKING_LOT_QUEUE("parking-lot-queue", DeclarationPhase.QUEUES),
+  REQUEUE_BINDING("requeue-binding", DeclarationPhase.BINDINGS);
+
+  private String value;
+
+  private DeclarationPhase phase;
+
+  EntityType(String value, DeclarationPhase phase) {
+    this.value = value;
+    this.phase = phase;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public DeclarationPhase getPhase() {
+    return phase;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keeps the fingerprint in a local file.
+ */
+@Slf4j
+public class FileFingerprintStore implements FingerprintStore {
+
+  private final Path file;
+
+  public FileFingerprintStore(Path file) {
+    this.file = file;
+  }
+
+  @Override
+  public boolean matches(String fingerprint) {
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+    try {
+      return fingerprint.equals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+    } catch (IOException e) {
+      log.warn("Unable to read the topology fingerprint from '{}' : {}", file, e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public void save(String fingerprint) {
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      Files.write(file, fingerprint.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      log.warn("Unable to write the topology fingerprint to '{}' : {}", file, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+/**
+ * Keeps the fingerprint of the last successfully declared topology across restarts.
+ */
+public interface FingerprintStore {
+
+  /**
+   * @return true if the given fingerprint is the one of the last successfully declared topology
+   */
+  boolean matches(String fingerprint);
+
+  /**
+   * Records the fingerprint of a topology which has just been successfully declared.
+   */
+  void save(String fingerprint);
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.rabbitmq.client.Channel;
+import com.societegenerale.commons.amqp.core.config.FingerprintMatchAction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+
+/**
+ * Declares the topology through the delegate only when its fingerprint changed since the last successful declaration.
+ * <p>
+ * When the fingerprint matches, the topology is either not declared at all, or only checked passively: the exchanges
+ * and queues must still exist on the broker, otherwise the whole topology is declared again.
+ */
+@Slf4j
+public class FingerprintTopologyDeclarer implements TopologyDeclarer {
+
+  private final TopologyDeclarer delegate;
+
+  private final FingerprintStore fingerprintStore;
+
+  private final FingerprintMatchAction onMatch;
+
+  private final ConnectionFactory connectionFactory;
+
+  public FingerprintTopologyDeclarer(TopologyDeclarer delegate, FingerprintStore fingerprintStore, FingerprintMatchAction onMatch,
+                                     ConnectionFactory connectionFactory) {
+    this.delegate = delegate;
+    this.fingerprintStore = fingerprintStore;
+    this.onMatch = onMatch;
+    this.connectionFactory = connectionFactory;
+  }
+
+  @Override
+  public DeclarationResult declare(Topology topology) {
+    String fingerprint = TopologyFingerprint.of(topology);
+    if (fingerprintStore.matches(fingerprint)) {
+      if (onMatch == FingerprintMatchAction.SKIP) {
+        log.info("Topology fingerprint {} unchanged, skipping the declaration of {} entities", fingerprint, topology.size());
+        return skipped(topology);
+      }
+      if (existsOnBroker(topology)) {
+        log.info("Topology fingerprint {} unchanged and entities found on the broker, skipping the declaration of {} entities",
+            fingerprint, topology.size());
+        return skipped(topology);
+      }
+    } else {
+      log.info("Topology fingerprint {} changed, declaring {} entities...", fingerprint, topology.size());
+    }
+    DeclarationResult result = delegate.declare(topology);
+    if (result.isSuccessful()) {
+      fingerprintStore.save(fingerprint);
+    }
+    return result;
+  }
+
+  private DeclarationResult skipped(Topology topology) {
+    DeclarationResult result = new DeclarationResult();
+    topology.getEntries().forEach(result::success);
+    return result;
+  }
+
+  private boolean existsOnBroker(Topology topology) {
+    Connection connection = null;
+    Channel channel = null;
+    TopologyEntry current = null;
+    try {
+      connection = connectionFactory.createConnection();
+      channel = connection.createChannel(false);
+      for (TopologyEntry entry : topology.getEntries()) {
+        current = entry;
+        if (ChannelDeclarations.isDeclarable(entry.getDeclarable())) {
+          ChannelDeclarations.declarePassive(channel, entry.getDeclarable());
+        }
+      }
+      return true;
+    } catch (Exception e) {
+      log.warn("Passive check of {} failed ({}), declaring the topology again...", current, e.getMessage());
+      return false;
+    } finally {
+      RabbitUtils.closeChannel(channel);
+      RabbitUtils.closeConnection(connection);
+    }
+  }
+}
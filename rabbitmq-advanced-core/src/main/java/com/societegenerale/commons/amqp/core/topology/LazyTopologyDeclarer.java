@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Only registers the topology on startup, each entity being declared through the delegate the first time it is used.
+ * <p>
+ * Publishing to an exchange declares it along with the bindings matching the routing key and their destinations.
+ * Using a queue (publishing to it through the default exchange, or consuming from it) declares it along with its dead
+ * letter exchange, its dead letter queue and the bindings to it. Once done, the check only costs a lookup in a
+ * concurrent set.
+ */
+@Slf4j
+public class LazyTopologyDeclarer implements TopologyDeclarer {
+
+  private static final String DEAD_LETTER_EXCHANGE_ARGUMENT = "x-dead-letter-exchange";
+
+  private static final String DEAD_LETTER_ROUTING_KEY_ARGUMENT = "x-dead-letter-routing-key";
+
+  private static final int MAX_CACHED_ROUTES = 10000;
+
+  private final TopologyDeclarer delegate;
+
+  private final List<TopologyEntry> entries = new ArrayList<>();
+
+  private final Map<String, TopologyEntry> exchanges = new HashMap<>();
+
+  private final Map<String, TopologyEntry> queues = new HashMap<>();
+
+  private final Map<String, List<TopologyEntry>> bindingsBySource = new HashMap<>();
+
+  private final Map<String, List<TopologyEntry>> bindingsByDestination = new HashMap<>();
+
+  private final Set<TopologyEntry> declared = ConcurrentHashMap.newKeySet();
+
+  private final Set<String> ensuredExchanges = ConcurrentHashMap.newKeySet();
+
+  private final Set<String> ensuredRoutes = ConcurrentHashMap.newKeySet();
+
+  private final Set<String> ensuredQueues = ConcurrentHashMap.newKeySet();
+
+  public LazyTopologyDeclarer(TopologyDeclarer delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Registers the topology without declaring anything.
+   */
+  @Override
+  public synchronized DeclarationResult declare(Topology topology) {
+    for (TopologyEntry entry : topology.getEntries()) {
+      entries.add(entry);
+      if (entry.getDeclarable() instanceof Exchange) {
+        exchanges.put(entry.getName(), entry);
+      } else if (entry.getDeclarable() instanceof Queue) {
+        queues.put(entry.getName(), entry);
+      } else if (entry.getDeclarable() instanceof Binding) {
+        Binding binding = (Binding) entry.getDeclarable();
+        bindingsBySource.computeIfAbsent(binding.getExchange(), name -> new ArrayList<>()).add(entry);
+        bindingsByDestination.computeIfAbsent(binding.getDestination(), name -> new ArrayList<>()).add(entry);
+      }
+    }
+    ensuredExchanges.clear();
+    ensuredRoutes.clear();
+    ensuredQueues.clear();
+    log.info("Registered {} topology entities, they will be declared on first use", topology.size());
+    return new DeclarationResult();
+  }
+
+  /**
+   * Declares what is needed to publish to the given exchange with the given routing key, if not already done.
+   */
+  public void ensureExchange(String exchange, String routingKey) {
+    if (ensuredExchanges.contains(exchange)) {
+      return;
+    }
+    String route = exchange + '\u0000' + routingKey;
+    if (ensuredRoutes.contains(route)) {
+      return;
+    }
+    ensure(exchange, closure -> collectExchange(exchange, routingKey, closure));
+    synchronized (this) {
+      if (bindingsBySource.getOrDefault(exchange, Collections.emptyList()).stream().allMatch(declared::contains)) {
+        ensuredExchanges.add(exchange);
+      } else if (ensuredRoutes.size() < MAX_CACHED_ROUTES) {
+        ensuredRoutes.add(route);
+      }
+    }
+  }
+
+  /**
+   * Declares what is needed to publish to or consume from the given queue, if not already done.
+   */
+  public void ensureQueue(String queue) {
+    if (ensuredQueues.contains(queue)) {
+      return;
+    }
+    ensure(queue, closure -> collectQueue(queue, true, closure));
+    ensuredQueues.add(queue);
+  }
+
+  public void ensureQueues(String... queueNames) {
+    for (String queue : queueNames) {
+      ensureQueue(queue);
+    }
+  }
+
+  private synchronized void ensure(String name, Consumer<Set<TopologyEntry>> collector) {
+    Set<TopologyEntry> closure = new HashSet<>();
+    collector.accept(closure);
+    Topology topology = new Topology();
+    entries.stream()
+        .filter(closure::contains)
+        .filter(entry -> !declared.contains(entry))
+        .forEach(topology::add);
+    if (topology.isEmpty()) {
+      return;
+    }
+    log.info("Declaring {} topology entities on first use of '{}'...", topology.size(), name);
+    DeclarationResult result = delegate.declare(topology);
+    Set<TopologyEntry> failed = result.getFailures().stream().map(DeclarationFailure::getEntry).collect(Collectors.toSet());
+    topology.getEntries().stream().filter(entry -> !failed.contains(entry)).forEach(declared::add);
+    result.assertSuccessful();
+  }
+
+  private void collectExchange(String name, String routingKey, Set<TopologyEntry> closure) {
+    TopologyEntry entry = exchanges.get(name);
+    if (entry == null || !closure.add(entry)) {
+      return;
+    }
+    String type = ((Exchange) entry.getDeclarable()).getType();
+    for (TopologyEntry bindingEntry : bindingsBySource.getOrDefault(name, Collections.emptyList())) {
+      Binding binding = (Binding) bindingEntry.getDeclarable();
+      if (routingKey == null || matches(type, binding.getRoutingKey(), routingKey)) {
+        closure.add(bindingEntry);
+        if (binding.isDestinationQueue()) {
+          collectQueue(binding.getDestination(), false, closure);
+        } else {
+          collectExchange(binding.getDestination(), null, closure);
+        }
+      }
+    }
+  }
+
+  private void collectQueue(String name, boolean withIncomingBindings, Set<TopologyEntry> closure) {
+    TopologyEntry entry = queues.get(name);
+    if (entry == null || !closure.add(entry)) {
+      return;
+    }
+    Map<String, Object> arguments = ((Queue) entry.getDeclarable()).getArguments();
+    Object deadLetterExchange = arguments == null ? null : arguments.get(DEAD_LETTER_EXCHANGE_ARGUMENT);
+    if (deadLetterExchange != null) {
+      Object deadLetterRoutingKey = arguments.getOrDefault(DEAD_LETTER_ROUTING_KEY_ARGUMENT, name);
+      addIfPresent(exchanges.get(deadLetterExchange.toString()), closure);
+      for (TopologyEntry bindingEntry : bindingsBySource.getOrDefault(deadLetterExchange.toString(), Collections.emptyList())) {
+        Binding binding = (Binding) bindingEntry.getDeclarable();
+        if (binding.isDestinationQueue() && String.valueOf(deadLetterRoutingKey).equals(binding.getRoutingKey())) {
+          closure.add(bindingEntry);
+          addIfPresent(queues.get(binding.getDestination()), closure);
+        }
+      }
+    }
+    if (withIncomingBindings) {
+      for (TopologyEntry bindingEntry : bindingsByDestination.getOrDefault(name, Collections.emptyList())) {
+        Binding binding = (Binding) bindingEntry.getDeclarable();
+        if (binding.isDestinationQueue()) {
+          closure.add(bindingEntry);
+          addIfPresent(exchanges.get(binding.getExchange()), closure);
+        }
+      }
+    }
+  }
+
+  private static void addIfPresent(TopologyEntry entry, Set<TopologyEntry> closure) {
+    if (entry != null) {
+      closure.add(entry);
+    }
+  }
+
+  static boolean matches(String exchangeType, String bindingKey, String routingKey) {
+    if (ExchangeTypes.DIRECT.equals(exchangeType)) {
+      return routingKey.equals(bindingKey);
+    } else if (ExchangeTypes.TOPIC.equals(exchangeType)) {
+      return topicMatches(bindingKey.split("\\.", -1), 0, routingKey.split("\\.", -1), 0);
+    }
+    return true;
+  }
+
+  private static boolean topicMatches(String[] pattern, int p, String[] words, int w) {
+    if (p == pattern.length) {
+      return w == words.length;
+    }
+    if ("#".equals(pattern[p])) {
+      for (int i = w; i <= words.length; i++) {
+        if (topicMatches(pattern, p + 1, words, i)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return w < words.length && ("*".equals(pattern[p]) || pattern[p].equals(words[w])) && topicMatches(pattern, p + 1, words, w + 1);
+  }
+}
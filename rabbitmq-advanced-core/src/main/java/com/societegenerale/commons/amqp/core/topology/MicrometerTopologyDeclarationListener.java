@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the topology declarations as Micrometer timers :
+ * <ul>
+ * <li>'rabbitmq.topology.declaration' : broker round trip of each entity, tagged by entity 'type' and 'outcome'</li>
+ * <li>'rabbitmq.topology.declaration.phase' : time spent in each 'phase' (exchanges, queues, bindings)</li>
+ * <li>'rabbitmq.topology.declaration.total' : whole declaration, tagged by 'outcome'</li>
+ * </ul>
+ */
+public class MicrometerTopologyDeclarationListener implements TopologyDeclarationListener {
+
+  public static final String ENTITY_TIMER = "rabbitmq.topology.declaration";
+
+  public static final String PHASE_TIMER = "rabbitmq.topology.declaration.phase";
+
+  public static final String TOTAL_TIMER = "rabbitmq.topology.declaration.total";
+
+  private static final String SUCCESS = "success";
+
+  private static final String FAILURE = "failure";
+
+  private final MeterRegistry meterRegistry;
+
+  public MicrometerTopologyDeclarationListener(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void topologyDeclared(Topology topology, DeclarationResult result, long durationNanos) {
+    for (DeclarationTiming timing : result.getTimings()) {
+      Timer.builder(ENTITY_TIMER)
+          .description("Broker round trip of the declaration of a topology entity")
+          .tag("type", timing.getEntry().getType().getValue())
+          .tag("outcome", timing.isSuccessful() ? SUCCESS : FAILURE)
+          .register(meterRegistry)
+          .record(timing.getNanos(), TimeUnit.NANOSECONDS);
+    }
+    for (Map.Entry<DeclarationPhase, Long> phase : result.getPhaseTimings().entrySet()) {
+      Timer.builder(PHASE_TIMER)
+          .description("Time spent declaring a phase of the topology")
+          .tag("phase", phase.getKey().name().toLowerCase())
+          .register(meterRegistry)
+          .record(phase.getValue(), TimeUnit.MILLISECONDS);
+    }
+    Timer.builder(TOTAL_TIMER)
+        .description("Time spent declaring the topology")
+        .tag("outcome", result.isSuccessful() ? SUCCESS : FAILURE)
+        .register(meterRegistry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+}
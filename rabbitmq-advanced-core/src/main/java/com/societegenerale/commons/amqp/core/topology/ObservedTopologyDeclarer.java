@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Notifies the {@link TopologyDeclarationListener}s of each declaration done by the delegate.
+ */
+@Slf4j
+public class ObservedTopologyDeclarer implements TopologyDeclarer {
+
+  private final TopologyDeclarer delegate;
+
+  private final List<TopologyDeclarationListener> listeners;
+
+  public ObservedTopologyDeclarer(TopologyDeclarer delegate, List<TopologyDeclarationListener> listeners) {
+    this.delegate = delegate;
+    this.listeners = listeners;
+  }
+
+  @Override
+  public DeclarationResult declare(Topology topology) {
+    long start = System.nanoTime();
+    DeclarationResult result = delegate.declare(topology);
+    long duration = System.nanoTime() - start;
+    for (TopologyDeclarationListener listener : listeners) {
+      try {
+        listener.topologyDeclared(topology, result, duration);
+      } catch (Exception e) {
+        log.warn("Topology declaration listener {} failed : {}", listener, e.getMessage());
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.societegenerale.commons.amqp.core.util.ExecutorServices;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Declares the topology layer by layer (exchanges, then queues and dead letter queues, then bindings), the entities of
+ * a layer being independent from each other and declared concurrently by several workers, each one with its own channel.
+ * <p>
+ * The workers run on virtual threads when available, on a pool of 'workers' threads otherwise. The startup time then
+ * depends on the depth of the topology rather than on its size.
+ */
+@Slf4j
+public class ParallelTopologyDeclarer implements TopologyDeclarer {
+
+  private final ConnectionFactory connectionFactory;
+
+  private final int workers;
+
+  private final long timeout;
+
+  public ParallelTopologyDeclarer(ConnectionFactory connectionFactory, int workers, long timeout) {
+    this.connectionFactory = connectionFactory;
+    this.workers = Math.max(1, workers);
+    this.timeout = timeout;
+  }
+
+  @Override
+  public DeclarationResult declare(Topology topology) {
+    log.info("Declaring {} topology entities in parallel with {} workers...", topology.size(), workers);
+    DeclarationResult result = new DeclarationResult();
+    Connection connection;
+    try {
+      connection = connectionFactory.createConnection();
+    } catch (Exception e) {
+      topology.getEntries().forEach(entry -> result.failure(entry, e));
+      return result;
+    }
+    ExecutorService executor = ExecutorServices.newBlockingExecutor("topology-declarer-", workers);
+    List<DeclarationChannel> channels = new ArrayList<>();
+    try {
+      for (DeclarationPhase phase : DeclarationPhase.values()) {
+        long start = System.currentTimeMillis();
+        declareLayer(connection, channels, executor, topology.getEntries(phase), result);
+        result.phaseDeclared(phase, System.currentTimeMillis() - start);
+        log.debug("Declared the {} layer in {} ms", phase, System.currentTimeMillis() - start);
+      }
+    } finally {
+      executor.shutdownNow();
+      channels.forEach(DeclarationChannel::close);
+      RabbitUtils.closeConnection(connection);
+    }
+    return result;
+  }
+
+  private void declareLayer(Connection connection, List<DeclarationChannel> channels, ExecutorService executor,
+                            List<TopologyEntry> entries, DeclarationResult result) {
+    Queue<TopologyEntry> pending = new ConcurrentLinkedQueue<>(entries);
+    List<Future<?>> running = new ArrayList<>();
+    int workerCount = Math.min(workers, entries.size());
+    for (int i = 0; i < workerCount; i++) {
+      if (channels.size() <= i) {
+        channels.add(new DeclarationChannel(connection));
+      }
+      DeclarationChannel channel = channels.get(i);
+      running.add(executor.submit(() -> drain(channel, pending, result)));
+    }
+    for (Future<?> worker : running) {
+      try {
+        worker.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        pending.forEach(entry -> result.failure(entry, e));
+        return;
+      } catch (ExecutionException e) {
+        log.error("Topology declaration worker failed", e.getCause());
+      }
+    }
+  }
+
+  private void drain(DeclarationChannel channel, Queue<TopologyEntry> pending, DeclarationResult result) {
+    TopologyEntry entry;
+    while ((entry = pending.poll()) != null) {
+      if (!ChannelDeclarations.isDeclarable(entry.getDeclarable())) {
+        result.success(entry);
+        continue;
+      }
+      long start = System.nanoTime();
+      try {
+        ChannelDeclarations.declare(channel.get(), entry.getDeclarable(), timeout);
+        result.success(entry, System.nanoTime() - start);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result.failure(entry, e);
+        return;
+      } catch (Exception e) {
+        result.failure(entry, e, System.nanoTime() - start);
+        channel.close();
+      }
+    }
+  }
+}
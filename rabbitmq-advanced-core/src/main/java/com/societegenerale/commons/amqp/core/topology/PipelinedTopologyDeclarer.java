@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Declares the topology phase by phase, pipelining the declarations over a small pool of channels.
+ * <p>
+ * On each channel, up to 'window' declarations are sent without waiting for the broker, the last one of the window
+ * being sent as an asynchronous rpc. As the broker processes the commands of a channel in order, its '*-ok' reply
+ * acknowledges the whole window. The replies of all the channels are awaited together.
+ * <p>
+ * When a window fails (the broker closes the channel on the first error), its entries are declared again one by one
+ * on a fresh channel so that the failures are reported per entity.
+ * <p>
+ * The entities acknowledged by the same reply share its round trip time.
+ */
+@Slf4j
+public class PipelinedTopologyDeclarer implements TopologyDeclarer {
+
+  private final ConnectionFactory connectionFactory;
+
+  private final int channels;
+
+  private final int window;
+
+  private final long timeout;
+
+  public PipelinedTopologyDeclarer(ConnectionFactory connectionFactory, int channels, int window, long timeout) {
+    this.connectionFactory = connectionFactory;
+    this.channels = Math.max(1, channels);
+    this.window = Math.max(1, window);
+    this.timeout = timeout;
+  }
+
+  @Override
+  public DeclarationResult declare(Topology topology) {
+    log.info("Declaring {} topology entities pipelined over {} channels with a window of {}...", topology.size(), channels, window);
+    DeclarationResult result = new DeclarationResult();
+    Connection connection;
+    try {
+      connection = connectionFactory.createConnection();
+    } catch (Exception e) {
+      topology.getEntries().forEach(entry -> result.failure(entry, e));
+      return result;
+    }
+    List<Lane> lanes = new ArrayList<>();
+    try {
+      for (DeclarationPhase phase : DeclarationPhase.values()) {
+        long start = System.currentTimeMillis();
+        declarePhase(connection, lanes, topology.getEntries(phase), result);
+        result.phaseDeclared(phase, System.currentTimeMillis() - start);
+      }
+    } finally {
+      lanes.forEach(Lane::close);
+      RabbitUtils.closeConnection(connection);
+    }
+    return result;
+  }
+
+  private void declarePhase(Connection connection, List<Lane> lanes, List<TopologyEntry> entries, DeclarationResult result) {
+    List<List<TopologyEntry>> laneEntries = new ArrayList<>();
+    int laneCount = Math.min(channels, entries.size());
+    for (int i = 0; i < laneCount; i++) {
+      laneEntries.add(new ArrayList<>());
+      if (lanes.size() <= i) {
+        lanes.add(new Lane(connection));
+      }
+    }
+    for (int i = 0; i < entries.size(); i++) {
+      TopologyEntry entry = entries.get(i);
+      if (ChannelDeclarations.isDeclarable(entry.getDeclarable())) {
+        laneEntries.get(i % laneCount).add(entry);
+      } else {
+        result.success(entry);
+      }
+    }
+    int maxLaneSize = laneEntries.stream().mapToInt(List::size).max().orElse(0);
+    for (int offset = 0; offset < maxLaneSize; offset += window) {
+      List<CompletableFuture<?>> replies = new ArrayList<>();
+      List<List<TopologyEntry>> batches = new ArrayList<>();
+      long sentAt = System.nanoTime();
+      for (int i = 0; i < laneCount; i++) {
+        List<TopologyEntry> currentEntries = laneEntries.get(i);
+        List<TopologyEntry> batch = currentEntries.subList(Math.min(offset, currentEntries.size()), Math.min(offset + window, currentEntries.size()));
+        batches.add(batch);
+        replies.add(batch.isEmpty() ? CompletableFuture.completedFuture(null) : lanes.get(i).send(batch));
+      }
+      for (int i = 0; i < laneCount; i++) {
+        lanes.get(i).await(batches.get(i), replies.get(i), sentAt, result);
+      }
+    }
+  }
+
+  /**
+   * A channel of the pool, reopened when the broker closes it after a failure.
+   */
+  private class Lane {
+
+    private final DeclarationChannel channel;
+
+    Lane(Connection connection) {
+      this.channel = new DeclarationChannel(connection);
+    }
+
+    CompletableFuture<?> send(List<TopologyEntry> batch) {
+      try {
+        Channel currentChannel = channel.get();
+        int last = batch.size() - 1;
+        for (int i = 0; i < last; i++) {
+          ChannelDeclarations.declareNoWait(currentChannel, batch.get(i).getDeclarable());
+        }
+        return ChannelDeclarations.declareAsync(currentChannel, batch.get(last).getDeclarable());
+      } catch (Exception e) {
+        CompletableFuture<?> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+      }
+    }
+
+    void await(List<TopologyEntry> batch, CompletableFuture<?> reply, long sentAt, DeclarationResult result) {
+      if (batch.isEmpty()) {
+        return;
+      }
+      try {
+        ChannelDeclarations.await(reply, timeout);
+        long duration = System.nanoTime() - sentAt;
+        batch.forEach(entry -> result.success(entry, duration));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        batch.forEach(entry -> result.failure(entry, e));
+      } catch (Exception e) {
+        log.warn("Pipelined declaration of {} entities failed ({}), declaring them one by one...", batch.size(), e.getMessage());
+        close();
+        declareOneByOne(batch, result);
+      }
+    }
+
+    private void declareOneByOne(List<TopologyEntry> batch, DeclarationResult result) {
+      for (TopologyEntry entry : batch) {
+        long start = System.nanoTime();
+        try {
+          ChannelDeclarations.declare(channel.get(), entry.getDeclarable(), timeout);
+          result.success(entry, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          result.failure(entry, e);
+        } catch (Exception e) {
+          result.failure(entry, e, System.nanoTime() - start);
+          close();
+        }
+      }
+    }
+
+    void close() {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Declares each entity one after the other through the {@link RabbitAdmin}, one broker round trip per entity.
+ */
+@Slf4j
+public class RabbitAdminTopologyDeclarer implements TopologyDeclarer {
+
+  private final RabbitAdmin rabbitAdmin;
+
+  public RabbitAdminTopologyDeclarer(RabbitAdmin rabbitAdmin) {
+    this.rabbitAdmin = rabbitAdmin;
+  }
+
+  @Override
+  public DeclarationResult declare(Topology topology) {
+    log.info("Declaring {} topology entities sequentially...", topology.size());
+    DeclarationResult result = new DeclarationResult();
+    for (TopologyEntry entry : topology.getEntries()) {
+      long start = System.nanoTime();
+      try {
+        declare(entry.getDeclarable());
+        result.success(entry, System.nanoTime() - start);
+      } catch (Exception e) {
+        result.failure(entry, e, System.nanoTime() - start);
+      }
+      result.phaseDeclared(entry.getPhase(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    return result;
+  }
+
+  private void declare(Declarable declarable) {
+    if (declarable instanceof Exchange) {
+      rabbitAdmin.declareExchange((Exchange) declarable);
+    } else if (declarable instanceof Queue) {
+      rabbitAdmin.declareQueue((Queue) declarable);
+    } else if (declarable instanceof Binding) {
+      rabbitAdmin.declareBinding((Binding) declarable);
+    }
+  }
+}
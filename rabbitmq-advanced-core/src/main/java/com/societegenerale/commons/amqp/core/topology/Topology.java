@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import org.springframework.amqp.core.Declarable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The whole resolved topology (exchanges, queues and bindings) built from the RabbitConfig before anything is declared.
+ * Entries are kept in the order they were added.
+ */
+public class Topology {
+
+  private final List<TopologyEntry> entries = new ArrayList<>();
+
+  public Topology add(String key, EntityType type, Declarable declarable) {
+    return add(new TopologyEntry(key, type, declarable));
+  }
+
+  public Topology add(TopologyEntry entry) {
+    entries.add(entry);
+    return this;
+  }
+
+  public List<TopologyEntry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  public List<TopologyEntry> getEntries(DeclarationPhase phase) {
+    return entries.stream().filter(entry -> entry.getPhase() == phase).collect(Collectors.toList());
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+
+/**
+ * A single resolved entity of the topology along with the configuration key it comes from.
+ */
+@Getter
+@AllArgsConstructor
+public class TopologyEntry {
+
+  private final String key;
+
+  private final EntityType type;
+
+  private final Declarable declarable;
+
+  public DeclarationPhase getPhase() {
+    return type.getPhase();
+  }
+
+  public String getName() {
+    if (declarable instanceof Exchange) {
+      return ((Exchange) declarable).getName();
+    } else if (declarable instanceof Queue) {
+      return ((Queue) declarable).getName();
+    } else if (declarable instanceof Binding) {
+      Binding binding = (Binding) declarable;
+      return String.format("%s->%s[%s]", binding.getExchange(), binding.getDestination(), binding.getRoutingKey());
+    }
+    return String.valueOf(declarable);
+  }
+
+  @Override
+  public String toString() {
+    return type.getValue() + " '" + key + "' (" + getName() + ")";
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stable SHA-256 fingerprint of a resolved topology.
+ * <p>
+ * Only the properties sent to the broker are taken into account, the order of the entities and of their arguments
+ * does not matter.
+ */
+public final class TopologyFingerprint {
+
+  private static final String VERSION = "v1";
+
+  private TopologyFingerprint() {
+  }
+
+  public static String of(Topology topology) {
+    List<String> lines = topology.getEntries().stream()
+        .map(entry -> canonical(entry.getDeclarable()))
+        .sorted()
+        .distinct()
+        .collect(Collectors.toList());
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+      for (String line : lines) {
+        digest.update((byte) '\n');
+        digest.update(line.getBytes(StandardCharsets.UTF_8));
+      }
+      return toHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  static String canonical(Declarable declarable) {
+    if (declarable instanceof Exchange) {
+      Exchange exchange = (Exchange) declarable;
+      return String.join("|", "exchange", exchange.getName(), exchange.getType(), String.valueOf(exchange.isDurable()),
+          String.valueOf(exchange.isAutoDelete()), String.valueOf(exchange.isInternal()), String.valueOf(exchange.isDelayed()),
+          arguments(exchange.getArguments()));
+    } else if (declarable instanceof Queue) {
+      Queue queue = (Queue) declarable;
+      return String.join("|", "queue", queue.getName(), String.valueOf(queue.isDurable()), String.valueOf(queue.isExclusive()),
+          String.valueOf(queue.isAutoDelete()), arguments(queue.getArguments()));
+    } else if (declarable instanceof Binding) {
+      Binding binding = (Binding) declarable;
+      return String.join("|", "binding", binding.getExchange(), String.valueOf(binding.getDestinationType()), binding.getDestination(),
+          String.valueOf(binding.getRoutingKey()), arguments(binding.getArguments()));
+    }
+    return String.valueOf(declarable);
+  }
+
+  private static String arguments(Map<String, Object> arguments) {
+    return arguments == null ? "{}" : new TreeMap<>(arguments).toString();
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors for blocking broker operations : virtual threads when the JVM provides them, a bounded pool otherwise.
+ */
+@Slf4j
+public final class ExecutorServices {
+
+  private ExecutorServices() {
+  }
+
+  /**
+   * Executor accepting any number of tasks, for callers submitting a known number of them.
+   *
+   * @param threadNamePrefix prefix of the platform thread names
+   * @param threads          max number of platform threads, when virtual threads are not available
+   */
+  public static ExecutorService newBlockingExecutor(String threadNamePrefix, int threads) {
+    ExecutorService virtualThreads = newVirtualThreadExecutor();
+    if (virtualThreads != null) {
+      return virtualThreads;
+    }
+    log.debug("Virtual threads not available, using a pool of {} threads", threads);
+    return Executors.newFixedThreadPool(Math.max(1, threads), new CustomizableThreadFactory(threadNamePrefix));
+  }
+
+  /**
+   * Executor rejecting the tasks with a {@link RejectedExecutionException} once the given number of tasks are running
+   * and the given number of tasks are waiting.
+   *
+   * @param threadNamePrefix prefix of the platform thread names
+   * @param threads          max number of running tasks
+   * @param queueCapacity    max number of tasks waiting for a platform thread, or added to the running ones on virtual
+   *                         threads
+   */
+  public static ExecutorService newBlockingExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+    ExecutorService virtualThreads = newVirtualThreadExecutor();
+    if (virtualThreads != null) {
+      return new BoundedExecutorService(virtualThreads, Math.max(1, threads) + Math.max(0, queueCapacity));
+    }
+    log.debug("Virtual threads not available, using a pool of {} threads", threads);
+    return new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new CustomizableThreadFactory(threadNamePrefix),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (Exception | LinkageError e) {
+      log.trace("Virtual threads not available : {}", e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Caps the number of tasks in flight on a delegate executor.
+   */
+  private static class BoundedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    private final Semaphore permits;
+
+    private BoundedExecutorService(ExecutorService delegate, int maxTasks) {
+      this.delegate = delegate;
+      this.permits = new Semaphore(maxTasks);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      if (!permits.tryAcquire()) {
+        throw new RejectedExecutionException("Too many tasks in flight");
+      }
+      try {
+        delegate.execute(() -> {
+          try {
+            command.run();
+          } finally {
+            permits.release();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        permits.release();
+        throw e;
+      }
+    }
+
+    @Override
+    public void shutdown() {
+      delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket : up to 'capacity' tokens can be taken at once, the bucket being refilled at a constant rate.
+ */
+public class TokenBucket {
+
+  private long capacity;
+
+  private double tokensPerNano;
+
+  private final LongSupplier nanoClock;
+
+  private double tokens;
+
+  private long lastRefill;
+
+  /**
+   * @param capacity        the max number of tokens, taken at once after an idle period
+   * @param tokensPerSecond the refill rate
+   */
+  public TokenBucket(long capacity, double tokensPerSecond) {
+    this(capacity, tokensPerSecond, System::nanoTime);
+  }
+
+  TokenBucket(long capacity, double tokensPerSecond, LongSupplier nanoClock) {
+    this.capacity = capacity;
+    this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.nanoClock = nanoClock;
+    this.tokens = capacity;
+    this.lastRefill = nanoClock.getAsLong();
+  }
+
+  public boolean tryAcquire() {
+    return tryAcquire(1);
+  }
+
+  /**
+   * @return true when the tokens are taken, false when there are not enough tokens left
+   */
+  public synchronized boolean tryAcquire(long permits) {
+    refill();
+    if (tokens < permits) {
+      return false;
+    }
+    tokens -= permits;
+    return true;
+  }
+
+  /**
+   * Takes more tokens than the capacity once the bucket is full, the tokens beyond being a debt paid back by the refill
+   * before any other tokens can be taken.
+   *
+   * @return true when the tokens are taken, false when there are not enough tokens left
+   */
+  public synchronized boolean tryAcquireWithDebt(long permits) {
+    refill();
+    if (tokens < Math.min(permits, capacity)) {
+      return false;
+    }
+    tokens -= permits;
+    return true;
+  }
+
+  /**
+   * Changes the capacity and the refill rate, keeping the tokens left up to the new capacity.
+   */
+  public synchronized void setRate(long capacity, double tokensPerSecond) {
+    refill();
+    this.capacity = capacity;
+    this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.tokens = Math.min(capacity, tokens);
+  }
+
+  private void refill() {
+    long now = nanoClock.getAsLong();
+    tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+    lastRefill = now;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.compression;
+
+import com.societegenerale.commons.amqp.core.config.CompressionAlgorithm;
+import com.societegenerale.commons.amqp.core.config.CompressionConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.postprocessor.GZipPostProcessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CompressingMessagePostProcessorTest {
+
+  private CompressionListener listener;
+
+  private CompressingMessagePostProcessor compressingMessagePostProcessor;
+
+  private DecompressingMessagePostProcessor decompressingMessagePostProcessor;
+
+  @BeforeEach
+  public void setUp() {
+    listener = mock(CompressionListener.class);
+    Map<String, CompressionConfig> compressionConfigs = new HashMap<>();
+    compressionConfigs.put("gzip-exchange", CompressionConfig.builder().threshold(100).build());
+    compressionConfigs.put("deflate-exchange", CompressionConfig.builder().algorithm(CompressionAlgorithm.DEFLATE).level(9).build());
+    List<CompressionListener> listeners = singletonList(listener);
+    compressingMessagePostProcessor = new CompressingMessagePostProcessor(compressionConfigs, listeners);
+    decompressingMessagePostProcessor = new DecompressingMessagePostProcessor(listeners);
+  }
+
+  @Test
+  public void compressAndDecompressWithGzipTest() {
+    Message message = compressingMessagePostProcessor.postProcessMessage(textMessage(2000), null, "gzip-exchange", "rk");
+
+    assertEquals("gzip, UTF-8", message.getMessageProperties().getContentEncoding());
+    assertTrue(message.getBody().length < 2000);
+    verify(listener).compressed(eq("gzip-exchange"), eq("gzip"), eq(2000), eq(message.getBody().length), anyLong());
+
+    Message decompressed = decompressingMessagePostProcessor.postProcessMessage(message);
+    assertEquals("UTF-8", decompressed.getMessageProperties().getContentEncoding());
+    assertArrayEquals(textMessage(2000).getBody(), decompressed.getBody());
+    verify(listener).decompressed(eq("gzip"), eq(message.getBody().length), eq(2000), anyLong());
+  }
+
+  @Test
+  public void compressAndDecompressWithDeflateTest() {
+    Message message = compressingMessagePostProcessor.postProcessMessage(textMessage(4000), null, "deflate-exchange", "rk");
+
+    assertEquals("deflate, UTF-8", message.getMessageProperties().getContentEncoding());
+    assertTrue(message.getBody().length < 4000);
+
+    Message decompressed = decompressingMessagePostProcessor.postProcessMessage(message);
+    assertArrayEquals(textMessage(4000).getBody(), decompressed.getBody());
+  }
+
+  @Test
+  public void gzipIsCompatibleWithSpringAmqpTest() throws Exception {
+    Message message = compressingMessagePostProcessor.postProcessMessage(textMessage(2000), null, "gzip-exchange", "rk");
+    Message springCompressed = new GZipPostProcessor().postProcessMessage(textMessage(2000));
+
+    assertArrayEquals(decompressingMessagePostProcessor.postProcessMessage(springCompressed).getBody(),
+        decompressingMessagePostProcessor.postProcessMessage(message).getBody());
+  }
+
+  @Test
+  public void payloadBelowThresholdIsNotCompressedTest() {
+    Message original = textMessage(99);
+    Message message = compressingMessagePostProcessor.postProcessMessage(original, null, "gzip-exchange", "rk");
+
+    assertSame(original, message);
+    assertEquals("UTF-8", message.getMessageProperties().getContentEncoding());
+    verifyNoInteractions(listener);
+  }
+
+  @Test
+  public void exchangeWithoutCompressionTest() {
+    Message original = textMessage(2000);
+
+    assertSame(original, compressingMessagePostProcessor.postProcessMessage(original, null, "other-exchange", "rk"));
+    assertSame(original, compressingMessagePostProcessor.postProcessMessage(original, null, null, "rk"));
+    assertSame(original, compressingMessagePostProcessor.postProcessMessage(original));
+    assertFalse(compressingMessagePostProcessor.isCompressed("other-exchange"));
+  }
+
+  @Test
+  public void compressedPayloadIsNotCompressedAgainTest() {
+    Message message = compressingMessagePostProcessor.postProcessMessage(textMessage(2000), null, "gzip-exchange", "rk");
+    byte[] compressed = message.getBody();
+
+    Message republished = compressingMessagePostProcessor.postProcessMessage(message, null, "deflate-exchange", "rk");
+
+    assertSame(compressed, republished.getBody());
+    assertEquals("gzip, UTF-8", republished.getMessageProperties().getContentEncoding());
+  }
+
+  @Test
+  public void payloadNotReducedIsSentAsIsTest() {
+    byte[] random = new byte[500];
+    new Random(42).nextBytes(random);
+    Message original = MessageBuilder.withBody(random).build();
+
+    Message message = compressingMessagePostProcessor.postProcessMessage(original, null, "gzip-exchange", "rk");
+
+    assertSame(original, message);
+    assertNull(message.getMessageProperties().getContentEncoding());
+    verify(listener).compressed(eq("gzip-exchange"), eq("gzip"), eq(500), intThat(size -> size >= 500), anyLong());
+  }
+
+  @Test
+  public void uncompressedPayloadIsReceivedAsIsTest() {
+    Message original = textMessage(2000);
+
+    assertSame(original, decompressingMessagePostProcessor.postProcessMessage(original));
+    verifyNoInteractions(listener);
+  }
+
+  private Message textMessage(int size) {
+    StringBuilder text = new StringBuilder(size);
+    while (text.length() < size) {
+      text.append("{\"key\":\"value\"}");
+    }
+    text.setLength(size);
+    return MessageBuilder.withBody(text.toString().getBytes(StandardCharsets.UTF_8))
+        .setContentEncoding("UTF-8")
+        .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+        .build();
+  }
+}
@@ -87,4 +87,21 @@ public class DeadLetterConfigTest {
                 .build();
         assertFalse(deadLetterConfig.validate());
     }
+
+    @Test
+    public void defaultStackTraceConfig() {
+        StackTraceConfig stackTraceConfig = new DeadLetterConfig().getStackTrace();
+        assertEquals(StackTraceMode.FULL, stackTraceConfig.getMode());
+        assertEquals(10, stackTraceConfig.getFrames());
+        assertEquals(1000, stackTraceConfig.getCacheSize());
+    }
+
+    @Test
+    public void invalidDeadLetterConfigWithInvalidStackTrace() {
+        deadLetterConfig = DeadLetterConfig.builder()
+                .deadLetterExchange(ExchangeConfig.builder().name(exchangeName).type(ExchangeTypes.TOPIC).build())
+                .stackTrace(StackTraceConfig.builder().mode(StackTraceMode.COMPACT).frames(0).build())
+                .build();
+        assertFalse(deadLetterConfig.validate());
+    }
 }
@@ -211,6 +211,45 @@ public class ExchangeConfigTest {
     assertExchange(exchange, expectedExchangeConfig);
   }
 
+  @Test
+  public void exchangeBatchingFromDefaultExchangeConfigTest() {
+    defaultExchangeConfig = ExchangeConfig.builder().batching(BatchingConfig.builder().batchSize(10).build()).build();
+    exchangeConfig = ExchangeConfig.builder().name(exchangeName).build();
+    assertEquals(10, exchangeConfig.resolveBatching(defaultExchangeConfig).getBatchSize());
+    assertNull(exchangeConfig.resolveBatching(null));
+
+    exchangeConfig.setBatching(BatchingConfig.builder().enabled(false).build());
+    assertNull(exchangeConfig.resolveBatching(defaultExchangeConfig));
+  }
+
+  @Test
+  public void exchangeWithInvalidBatchingTest(CapturedOutput output) {
+    exchangeConfig = ExchangeConfig.builder().name(exchangeName).batching(BatchingConfig.builder().batchSize(0).build()).build();
+    assertFalse(exchangeConfig.validate());
+    assertTrue(output.getOut().contains("Invalid BatchSize : BatchSize must be greater than zero"));
+
+    exchangeConfig.getBatching().setEnabled(false);
+    assertTrue(exchangeConfig.validate());
+  }
+
+  @Test
+  public void exchangeCompressionFromDefaultExchangeConfigTest() {
+    defaultExchangeConfig = ExchangeConfig.builder().compression(CompressionConfig.builder().threshold(10).build()).build();
+    exchangeConfig = ExchangeConfig.builder().name(exchangeName).build();
+    assertEquals(10, exchangeConfig.resolveCompression(defaultExchangeConfig).getThreshold());
+    assertNull(exchangeConfig.resolveCompression(null));
+
+    exchangeConfig.setCompression(CompressionConfig.builder().enabled(false).build());
+    assertNull(exchangeConfig.resolveCompression(defaultExchangeConfig));
+  }
+
+  @Test
+  public void exchangeWithInvalidCompressionTest(CapturedOutput output) {
+    exchangeConfig = ExchangeConfig.builder().name(exchangeName).compression(CompressionConfig.builder().level(10).build()).build();
+    assertFalse(exchangeConfig.validate());
+    assertTrue(output.getOut().contains("Invalid Level : Level must be between -1 and 9"));
+  }
+
   private void assertExchange(AbstractExchange exchange, ExchangeConfig exchangeConfig) {
     assertEquals(exchange.getName(), exchangeConfig.getName());
     assertEquals(exchange.getType(), exchangeConfig.getType().getValue());
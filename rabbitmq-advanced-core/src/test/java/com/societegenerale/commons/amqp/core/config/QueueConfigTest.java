@@ -27,7 +27,12 @@ import org.springframework.boot.test.system.CapturedOutput;
 import org.springframework.boot.test.system.OutputCaptureExtension;
 import org.springframework.util.CollectionUtils;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -312,6 +317,50 @@ public class QueueConfigTest {
         assertQueue(queue, expectedQueueConfig);
     }
 
+    @Test
+    public void createRetryQueuesTest() {
+        queueConfig = QueueConfig.builder().name(queueName).durable(true)
+                .retryDelays(Arrays.asList(Duration.ofSeconds(1), Duration.ofMinutes(10))).build();
+        List<Queue> retryQueues = queueConfig.buildRetryQueues(defaultQueueConfig);
+        assertEquals(2, retryQueues.size());
+        assertEquals(queueName + ".retry.1000", retryQueues.get(0).getName());
+        assertEquals(queueName + ".retry.600000", retryQueues.get(1).getName());
+        assertTrue(retryQueues.get(1).isDurable());
+        Map<String, Object> arguments = retryQueues.get(1).getArguments();
+        assertEquals(600000L, arguments.get("x-message-ttl"));
+        assertEquals("", arguments.get("x-dead-letter-exchange"));
+        assertEquals(queueName, arguments.get("x-dead-letter-routing-key"));
+    }
+
+    @Test
+    public void createRetryQueuesFromDefaultConfigurationTest() {
+        defaultQueueConfig = QueueConfig.builder().retryDelays(Collections.singletonList(Duration.ofSeconds(10))).build();
+        queueConfig = QueueConfig.builder().name(queueName).build();
+        assertEquals(queueName + ".retry.10000", queueConfig.buildRetryQueues(defaultQueueConfig).get(0).getName());
+        assertTrue(QueueConfig.builder().name(queueName).build().buildRetryQueues(QueueConfig.builder().build()).isEmpty());
+    }
+
+    @Test
+    public void createReQueueDelayQueuesTest() {
+        queueConfig = QueueConfig.builder().name(queueName).durable(true).build();
+        ReQueueBackoffConfig backoffConfig = ReQueueBackoffConfig.builder().initialDelay(1000).multiplier(2).maxDelay(5000).jitter(0.2).build();
+        List<Queue> queues = queueConfig.buildReQueueDelayQueues(defaultQueueConfig, backoffConfig);
+        assertEquals(4, queues.size());
+        assertEquals(queueName + ".requeue-delay.1000", queues.get(0).getName());
+        assertEquals(queueName + ".requeue-delay.5000", queues.get(3).getName());
+        assertTrue(queues.get(0).isDurable());
+        assertEquals("", queues.get(0).getArguments().get("x-dead-letter-exchange"));
+        assertEquals(queueName, queues.get(0).getArguments().get("x-dead-letter-routing-key"));
+        assertEquals(1200L, queues.get(0).getArguments().get("x-message-ttl"));
+        assertEquals(6000L, queues.get(3).getArguments().get("x-message-ttl"));
+    }
+
+    @Test
+    public void invalidRetryDelaysTest() {
+        queueConfig = QueueConfig.builder().name(queueName).retryDelays(Collections.singletonList(Duration.ZERO)).build();
+        assertFalse(queueConfig.validate());
+    }
+
     private void assertQueue(Queue queue, QueueConfig queueConfig) {
         assertEquals(queue.getName(), queueConfig.getName());
         assertEquals(queue.isDurable(), queueConfig.getDurable());
@@ -320,4 +369,26 @@ public class QueueConfigTest {
         assertEquals(queue.getArguments(), queueConfig.getArguments());
     }
 
+
+    @Test
+    public void resolveReQueueRateLimitTest() {
+        ReQueueRateConfig defaultRateLimit = ReQueueRateConfig.builder().messagesPerSecond(100).build();
+        ReQueueRateConfig rateLimit = ReQueueRateConfig.builder().messagesPerSecond(10).build();
+        assertSame(defaultRateLimit, QueueConfig.builder().name(queueName).build().resolveReQueueRateLimit(defaultRateLimit));
+        assertSame(rateLimit, QueueConfig.builder().name(queueName).reQueueRateLimit(rateLimit).build().resolveReQueueRateLimit(defaultRateLimit));
+    }
+
+    @Test
+    public void invalidReQueueRateLimitTest() {
+        queueConfig = QueueConfig.builder().name(queueName).reQueueRateLimit(ReQueueRateConfig.builder().messagesPerSecond(-1).build()).build();
+        assertFalse(queueConfig.validate());
+    }
+
+    @Test
+    public void createParkingLotQueueWithoutDeadLetterTest() {
+        queueConfig = QueueConfig.builder().name(queueName).deadLetterEnabled(true).build();
+        Queue queue = queueConfig.buildParkingLotQueue(defaultQueueConfig);
+        assertFalse(queue.getArguments().containsKey("x-dead-letter-exchange"));
+        assertTrue(queueConfig.getDeadLetterEnabled());
+    }
 }
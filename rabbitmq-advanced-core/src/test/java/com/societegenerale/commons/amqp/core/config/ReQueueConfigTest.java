@@ -19,6 +19,9 @@ package com.societegenerale.commons.amqp.core.config;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -108,4 +111,68 @@ public class ReQueueConfigTest {
         reQueueConfig.setCron(null);
         assertTrue(reQueueConfig.validate());
     }
+
+    @Test
+    public void invalidWhenAckBatchSizeIsGreaterThanPrefetchTest() {
+        reQueueConfig.setPrefetch(10);
+        reQueueConfig.setAckBatchSize(20);
+        assertFalse(reQueueConfig.validate());
+    }
+
+    @Test
+    public void validWhenPrefetchIsZeroTest() {
+        reQueueConfig.setPrefetch(0);
+        assertTrue(reQueueConfig.validate());
+    }
+
+    @Test
+    public void invalidWhenParkingLotQueueIsInvalidTest() {
+        reQueueConfig.setParkingLotQueue(QueueConfig.builder().build());
+        assertFalse(reQueueConfig.validate());
+    }
+
+    @Test
+    public void invalidWhenWorkersWithoutPrefetchTest() {
+        reQueueConfig.setWorkers(4);
+        reQueueConfig.setPrefetch(0);
+        assertFalse(reQueueConfig.validate());
+    }
+
+    @Test
+    public void invalidWhenRateLimitIsInvalidTest() {
+        reQueueConfig.setRateLimit(ReQueueRateConfig.builder().maxFailureRatio(2).build());
+        assertFalse(reQueueConfig.validate());
+    }
+
+    @Test
+    public void invalidWhenLeaderElectionIsInvalidTest() {
+        reQueueConfig.setLeaderElection(LeaderElectionConfig.builder().enabled(true).lockQueuePrefix("").build());
+        assertFalse(reQueueConfig.validate());
+    }
+
+    @Test
+    public void invalidWhenBackoffIsInvalidTest() {
+        reQueueConfig.setBackoff(ReQueueBackoffConfig.builder().enabled(true).initialDelay(5000).maxDelay(1000).build());
+        assertFalse(reQueueConfig.validate());
+        reQueueConfig.setBackoff(ReQueueBackoffConfig.builder().enabled(true).jitter(1).build());
+        assertFalse(reQueueConfig.validate());
+        reQueueConfig.setBackoff(ReQueueBackoffConfig.builder().enabled(true).build());
+        assertTrue(reQueueConfig.validate());
+    }
+
+    @Test
+    public void backoffTiersTest() {
+        ReQueueBackoffConfig backoffConfig = ReQueueBackoffConfig.builder().build();
+        assertEquals(11, backoffConfig.tierDelays().size());
+        assertEquals(Long.valueOf(1000), backoffConfig.tierDelays().get(0));
+        assertEquals(Long.valueOf(512000), backoffConfig.tierDelays().get(9));
+        assertEquals(Long.valueOf(600000), backoffConfig.tierDelays().get(10));
+        // the jittered delays stay in the tier of their requeue
+        assertEquals(4000, backoffConfig.tierDelay(3201));
+        assertEquals(4000, backoffConfig.tierDelay(4799));
+        assertEquals(600000, backoffConfig.tierDelay(590000));
+        assertEquals(1000, backoffConfig.tierDelay(1));
+        assertEquals(4800, backoffConfig.tierTimeToLive(4000));
+        assertEquals(Collections.singletonList(1000L), ReQueueBackoffConfig.builder().multiplier(1).build().tierDelays());
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.container;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.*;
+
+public class DeBatchingListenerContainerCustomizerTest {
+
+  @Test
+  public void deBatchingOfTheBatchedQueuesTest() {
+    DeBatchingListenerContainerCustomizer customizer = new DeBatchingListenerContainerCustomizer(Collections.singleton("queue-1"));
+    SimpleMessageListenerContainer batched = mock(SimpleMessageListenerContainer.class);
+    when(batched.getQueueNames()).thenReturn(new String[]{"queue-1", "queue-3"});
+    SimpleMessageListenerContainer notBatched = mock(SimpleMessageListenerContainer.class);
+    when(notBatched.getQueueNames()).thenReturn(new String[]{"queue-2"});
+
+    customizer.customize(batched);
+    customizer.customize(notBatched);
+
+    verify(batched).setDeBatchingEnabled(true);
+    verify(notBatched, never()).setDeBatchingEnabled(anyBoolean());
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.container;
+
+import com.rabbitmq.client.Channel;
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessagePropertiesBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DeferredAckRabbitListenerContainerFactoryTest {
+
+  private final Channel channel = mock(Channel.class);
+
+  private final Message message = MessageBuilder.withBody("DummyMessage".getBytes())
+      .andProperties(MessagePropertiesBuilder.newInstance().setDeliveryTag(7L).build()).build();
+
+  private DeferredAckRabbitListenerContainerFactory factory;
+
+  private SimpleMessageListenerContainer container;
+
+  @BeforeEach
+  public void setUp() {
+    factory = new DeferredAckRabbitListenerContainerFactory();
+    factory.setConnectionFactory(mock(ConnectionFactory.class));
+  }
+
+  @Test
+  public void ackedWhenTheListenerReturnsTest() throws Exception {
+    customize(m -> {
+    });
+
+    invokeListener();
+
+    assertEquals(AcknowledgeMode.MANUAL, container.getAcknowledgeMode());
+    verify(channel).basicAck(7, false);
+  }
+
+  @Test
+  public void nackedWhenTheListenerThrowsTest() throws Exception {
+    factory.setDefaultRequeueRejected(true);
+    customize(m -> {
+      throw new IllegalStateException("failed");
+    });
+
+    assertThrows(RuntimeException.class, this::invokeListener);
+
+    verify(channel).basicNack(7, false, true);
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+  }
+
+  @Test
+  public void notRequeuedWhenRejectedTest() throws Exception {
+    factory.setDefaultRequeueRejected(true);
+    customize(m -> {
+      throw new AmqpRejectAndDontRequeueException("rejected");
+    });
+
+    assertThrows(RuntimeException.class, this::invokeListener);
+
+    verify(channel).basicNack(7, false, false);
+  }
+
+  @Test
+  public void deferredAckTest() throws Exception {
+    AtomicReference<DeferredAck> deferredAck = new AtomicReference<>();
+    customize(m -> {
+      deferredAck.set(DeferredAckAdvice.currentAck());
+      deferredAck.get().defer();
+    });
+
+    invokeListener();
+
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    assertNull(DeferredAckAdvice.currentAck());
+    deferredAck.get().complete(false);
+    verify(channel).basicNack(7, false, true);
+    deferredAck.get().complete(true);
+    verify(channel).basicAck(7, false);
+  }
+
+  @Test
+  public void adviceChainOfTheFactoryKeptTest() throws Exception {
+    List<String> calls = new ArrayList<>();
+    factory.setAdviceChain((MethodInterceptor) invocation -> {
+      calls.add("advice");
+      return invocation.proceed();
+    });
+    customize(m -> calls.add("listener"));
+
+    invokeListener();
+
+    assertEquals(Arrays.asList("advice", "listener"), calls);
+    verify(channel).basicAck(7, false);
+  }
+
+  @Test
+  public void manualAckContainersAreLeftAsTheyAreTest() {
+    factory.setAcknowledgeMode(AcknowledgeMode.NONE);
+    customize(m -> {
+    });
+
+    assertEquals(AcknowledgeMode.NONE, container.getAcknowledgeMode());
+  }
+
+  @Test
+  public void manualAckEndpointsAreLeftAsTheyAreTest() {
+    SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+    endpoint.setMessageListener(m -> {
+    });
+    endpoint.setAckMode(AcknowledgeMode.MANUAL);
+    container = factory.createListenerContainer(endpoint);
+
+    assertEquals(AcknowledgeMode.MANUAL, container.getAcknowledgeMode());
+    Advice[] adviceChain = (Advice[]) ReflectionTestUtils.getField(container, "adviceChain");
+    assertTrue(adviceChain == null || Arrays.stream(adviceChain).noneMatch(DeferredAckAdvice.class::isInstance));
+  }
+
+  private void customize(MessageListener listener) {
+    SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+    endpoint.setMessageListener(listener);
+    container = factory.createListenerContainer(endpoint);
+    // as the endpoint registry does, once the container is built
+    container.afterPropertiesSet();
+  }
+
+  private void invokeListener() {
+    ReflectionTestUtils.invokeMethod(container, "invokeListener", channel, message);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.converter;
+
+import com.societegenerale.commons.amqp.core.config.MessageFormat;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding cost of a {@link ReQueueMessage} and of a larger business payload in each message format, with
+ * and without the Blackbird module. The size of the encoded payloads is checked by the {@link MessageFormatSizeTest}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageConverterBenchmark {
+
+  @Param({"JSON", "SMILE", "CBOR"})
+  private MessageFormat format;
+
+  @Param({"false", "true"})
+  private boolean blackbird;
+
+  @Param({"requeue", "order"})
+  private String payloadType;
+
+  private MessageConverter converter;
+
+  private Object payload;
+
+  private Message message;
+
+  @Setup
+  public void setUp() {
+    converter = JacksonMessageConverters.create(format, blackbird);
+    payload = payload(payloadType);
+    message = converter.toMessage(payload, new MessageProperties());
+  }
+
+  @Benchmark
+  public Message encode() {
+    return converter.toMessage(payload, new MessageProperties());
+  }
+
+  @Benchmark
+  public Object decode() {
+    return converter.fromMessage(message);
+  }
+
+  static Object payload(String payloadType) {
+    return "requeue".equals(payloadType)
+        ? ReQueueMessage.builder().deadLetterQueue("my-amqp-app-queue-one.dlq").messageCount(100)
+        .reQueuePolicy(Arrays.asList("first-policy", "second-policy")).build()
+        : order();
+  }
+
+  private static Order order() {
+    List<OrderLine> lines = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      lines.add(new OrderLine("SKU-" + (100000 + i), "Product description " + i, i + 1, 10.5 * (i + 1), i % 3 == 0));
+    }
+    Map<String, String> attributes = new LinkedHashMap<>();
+    attributes.put("channel", "web");
+    attributes.put("currency", "EUR");
+    attributes.put("country", "FR");
+    return new Order("ORDER-0000012345", "customer-42", 1_660_000_000_000L, "CONFIRMED", lines, attributes);
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Order {
+    private String id;
+    private String customerId;
+    private long createdAt;
+    private String status;
+    private List<OrderLine> lines;
+    private Map<String, String> attributes;
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class OrderLine {
+    private String sku;
+    private String description;
+    private int quantity;
+    private double price;
+    private boolean giftWrapped;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(MessageConverterBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
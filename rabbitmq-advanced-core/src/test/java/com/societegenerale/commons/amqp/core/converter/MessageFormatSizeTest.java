@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.converter;
+
+import com.societegenerale.commons.amqp.core.config.MessageFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The size of the payloads of the {@link MessageConverterBenchmark} in each message format.
+ */
+@Slf4j
+public class MessageFormatSizeTest {
+
+  @Test
+  public void binaryFormatsAreSmallerThanJsonTest() {
+    for (String payloadType : new String[] {"requeue", "order"}) {
+      Map<MessageFormat, Integer> sizes = sizes(payloadType);
+      log.info("Encoded size of the '{}' payload in bytes : {}", payloadType, sizes);
+
+      assertTrue(sizes.get(MessageFormat.SMILE) < sizes.get(MessageFormat.JSON), payloadType + " : " + sizes);
+      assertTrue(sizes.get(MessageFormat.CBOR) < sizes.get(MessageFormat.JSON), payloadType + " : " + sizes);
+    }
+  }
+
+  @Test
+  public void blackbirdDoesNotChangeTheSizeTest() {
+    for (MessageFormat format : MessageFormat.values()) {
+      Object payload = MessageConverterBenchmark.payload("order");
+
+      assertEquals(size(format, false, payload), size(format, true, payload), format.name());
+    }
+  }
+
+  private static Map<MessageFormat, Integer> sizes(String payloadType) {
+    Object payload = MessageConverterBenchmark.payload(payloadType);
+    Map<MessageFormat, Integer> sizes = new EnumMap<>(MessageFormat.class);
+    for (MessageFormat format : MessageFormat.values()) {
+      sizes.put(format, size(format, false, payload));
+    }
+    return sizes;
+  }
+
+  private static int size(MessageFormat format, boolean blackbird, Object payload) {
+    return JacksonMessageConverters.create(format, blackbird).toMessage(payload, new MessageProperties()).getBody().length;
+  }
+}
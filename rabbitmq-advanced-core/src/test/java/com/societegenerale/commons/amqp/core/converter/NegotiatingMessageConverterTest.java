@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.converter;
+
+import com.societegenerale.commons.amqp.core.config.MessageFormat;
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.core.ParameterizedTypeReference;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NegotiatingMessageConverterTest {
+
+  private final ReQueueMessage reQueueMessage = ReQueueMessage.builder()
+      .deadLetterQueue("queue-one.dlq").messageCount(10).reQueuePolicy(Arrays.asList("policy-1", "policy-2")).build();
+
+  private NegotiatingMessageConverter negotiatingMessageConverter;
+
+  @BeforeEach
+  public void setUp() {
+    negotiatingMessageConverter = JacksonMessageConverters.negotiating(MessageFormat.JSON, true,
+        Collections.singletonMap("smile-exchange", MessageFormat.SMILE));
+  }
+
+  @Test
+  public void allFormatsOnTheClasspathAreReceivedTest() {
+    assertEquals(Arrays.asList("application/json", "application/x-jackson-smile", "application/cbor"),
+        Arrays.asList(negotiatingMessageConverter.getConverters().keySet().toArray()));
+  }
+
+  @Test
+  public void publishWithTheDefaultFormatTest() {
+    Message message = negotiatingMessageConverter.toMessage(reQueueMessage, new MessageProperties());
+
+    assertEquals(MessageProperties.CONTENT_TYPE_JSON, message.getMessageProperties().getContentType());
+    assertEquals(reQueueMessage, negotiatingMessageConverter.fromMessage(message));
+  }
+
+  @Test
+  public void publishWithTheFormatOfTheExchangeTest() {
+    Message message = negotiatingMessageConverter.toMessage(reQueueMessage, new MessageProperties(), "smile-exchange");
+
+    assertEquals("application/x-jackson-smile", message.getMessageProperties().getContentType());
+    assertEquals(ReQueueMessage.class.getName(), message.getMessageProperties().getHeaders().get("__TypeId__"));
+    assertEquals(reQueueMessage, negotiatingMessageConverter.fromMessage(message));
+
+    Message other = negotiatingMessageConverter.toMessage(reQueueMessage, new MessageProperties(), "other-exchange");
+    assertEquals(MessageProperties.CONTENT_TYPE_JSON, other.getMessageProperties().getContentType());
+  }
+
+  @Test
+  public void convertersOfTheExchangesTest() {
+    assertSame(negotiatingMessageConverter, negotiatingMessageConverter.forExchange("other-exchange"));
+
+    MessageConverter smileConverter = negotiatingMessageConverter.forExchange("smile-exchange");
+    Message message = smileConverter.toMessage(reQueueMessage, new MessageProperties());
+    assertEquals("application/x-jackson-smile", message.getMessageProperties().getContentType());
+
+    Message json = negotiatingMessageConverter.toMessage(reQueueMessage, new MessageProperties());
+    assertEquals(reQueueMessage, smileConverter.fromMessage(json));
+  }
+
+  @Test
+  public void binaryFormatsAreSmallerThanJsonTest() {
+    for (MessageFormat format : MessageFormat.values()) {
+      Message message = JacksonMessageConverters.create(format, false).toMessage(reQueueMessage, new MessageProperties());
+      assertEquals(format.getContentType(), message.getMessageProperties().getContentType());
+      assertEquals(reQueueMessage, negotiatingMessageConverter.fromMessage(message));
+      if (format != MessageFormat.JSON) {
+        assertTrue(message.getBody().length < negotiatingMessageConverter.toMessage(reQueueMessage, new MessageProperties()).getBody().length);
+      }
+    }
+  }
+
+  @Test
+  public void receiveWithATypeReferenceTest() {
+    Message message = negotiatingMessageConverter.toMessage(Arrays.asList(reQueueMessage), new MessageProperties(), "smile-exchange");
+
+    Object converted = negotiatingMessageConverter.fromMessage(message, new ParameterizedTypeReference<List<ReQueueMessage>>() {
+    });
+
+    assertEquals(Collections.singletonList(reQueueMessage), converted);
+  }
+
+  @Test
+  public void unknownContentTypeIsGivenToTheDefaultConverterTest() {
+    Message message = MessageBuilder.withBody("text".getBytes()).setContentType("application/x-unknown").build();
+
+    assertArrayEquals("text".getBytes(), (byte[]) negotiatingMessageConverter.fromMessage(message));
+  }
+
+  @Test
+  public void exchangeWithoutConverterTest() {
+    NegotiatingMessageConverter converter = new NegotiatingMessageConverter(JacksonMessageConverters.create(MessageFormat.JSON, false));
+
+    assertThrows(RabbitmqConfigurationException.class, () -> converter.setExchangeContentType("exchange", "application/cbor"));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import com.societegenerale.commons.amqp.core.config.CorrelationIdGeneratorType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the correlation id generators when many publisher threads generate ids at the same time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CorrelationIdGeneratorBenchmark {
+
+  @Param({"RANDOM_UUID", "THREAD_LOCAL_RANDOM_UUID", "TIME_ORDERED", "NODE_COUNTER"})
+  private CorrelationIdGeneratorType type;
+
+  private CorrelationIdGenerator correlationIdGenerator;
+
+  @Setup
+  public void setUp() {
+    correlationIdGenerator = CorrelationIdGenerator.of(type, "benchmark-node");
+  }
+
+  @Benchmark
+  public String generate() {
+    return correlationIdGenerator.generate();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CorrelationIdGeneratorBenchmark.class.getSimpleName()).build()).run();
+  }
+}
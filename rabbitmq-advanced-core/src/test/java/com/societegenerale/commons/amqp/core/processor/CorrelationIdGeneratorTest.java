@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import com.societegenerale.commons.amqp.core.config.CorrelationIdGeneratorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CorrelationIdGeneratorTest {
+
+  @Test
+  public void createBuiltInGeneratorForEachTypeTest() {
+    assertTrue(CorrelationIdGenerator.of(CorrelationIdGeneratorType.RANDOM_UUID, null) instanceof RandomUuidCorrelationIdGenerator);
+    assertTrue(CorrelationIdGenerator.of(CorrelationIdGeneratorType.THREAD_LOCAL_RANDOM_UUID, null) instanceof ThreadLocalRandomUuidCorrelationIdGenerator);
+    assertTrue(CorrelationIdGenerator.of(CorrelationIdGeneratorType.TIME_ORDERED, null) instanceof TimeOrderedCorrelationIdGenerator);
+    assertTrue(CorrelationIdGenerator.of(CorrelationIdGeneratorType.NODE_COUNTER, null) instanceof NodeCounterCorrelationIdGenerator);
+  }
+
+  @Test
+  public void threadLocalRandomUuidIsVersion4Test() {
+    UUID uuid = UUID.fromString(new ThreadLocalRandomUuidCorrelationIdGenerator().generate());
+    assertEquals(4, uuid.version());
+    assertEquals(2, uuid.variant());
+  }
+
+  @Test
+  public void timeOrderedUuidIsVersion7WithCreationTimeTest() {
+    UUID uuid = UUID.fromString(new TimeOrderedCorrelationIdGenerator(() -> 1500000000000L).generate());
+    assertEquals(7, uuid.version());
+    assertEquals(2, uuid.variant());
+    assertEquals(1500000000000L, uuid.getMostSignificantBits() >>> 16);
+  }
+
+  @Test
+  public void timeOrderedIdsAreIncreasingWithinTheSameMillisecondTest() {
+    TimeOrderedCorrelationIdGenerator generator = new TimeOrderedCorrelationIdGenerator(() -> 1500000000000L);
+    String previous = generator.generate();
+    for (int i = 0; i < 10000; i++) {
+      String next = generator.generate();
+      assertTrue(next.compareTo(previous) > 0, next + " should sort after " + previous);
+      previous = next;
+    }
+  }
+
+  @Test
+  public void timeOrderedIdsStayIncreasingWhenTheClockGoesBackTest() {
+    long[] now = {1500000000000L};
+    TimeOrderedCorrelationIdGenerator generator = new TimeOrderedCorrelationIdGenerator(() -> now[0]);
+    String first = generator.generate();
+    now[0] -= 1000;
+    assertTrue(generator.generate().compareTo(first) > 0);
+  }
+
+  @Test
+  public void nodeCounterIdsArePrefixedByTheNodeIdTest() {
+    NodeCounterCorrelationIdGenerator generator = new NodeCounterCorrelationIdGenerator("node-1");
+    String first = generator.generate();
+    assertTrue(first.startsWith("node-1-"));
+    assertTrue(first.endsWith("-1"));
+    assertTrue(generator.generate().endsWith("-2"));
+  }
+
+  @Test
+  public void generatedIdsAreUniqueAcrossThreadsTest() throws InterruptedException {
+    for (CorrelationIdGeneratorType type : CorrelationIdGeneratorType.values()) {
+      CorrelationIdGenerator generator = CorrelationIdGenerator.of(type, "node-1");
+      Set<String> ids = ConcurrentHashMap.newKeySet();
+      int threads = 8;
+      int idsPerThread = 10000;
+      ExecutorService executorService = Executors.newFixedThreadPool(threads);
+      CountDownLatch done = new CountDownLatch(threads);
+      List<List<String>> generated = Collections.synchronizedList(new ArrayList<>());
+      for (int i = 0; i < threads; i++) {
+        executorService.execute(() -> {
+          List<String> threadIds = new ArrayList<>(idsPerThread);
+          for (int j = 0; j < idsPerThread; j++) {
+            threadIds.add(generator.generate());
+          }
+          generated.add(threadIds);
+          done.countDown();
+        });
+      }
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+      executorService.shutdown();
+      generated.forEach(ids::addAll);
+      assertEquals(threads * idsPerThread, ids.size(), type + " should generate unique ids");
+      if (type == CorrelationIdGeneratorType.TIME_ORDERED) {
+        for (List<String> threadIds : generated) {
+          assertEquals(new ArrayList<>(new TreeSet<>(threadIds)), threadIds);
+        }
+      }
+    }
+  }
+}
@@ -71,5 +71,16 @@ public class DefaultCorrelationDataPostProcessorTest {
     assertEquals(correlationData.getId(), inputCorrelationData.getId());
   }
 
+  @Test
+  public void postProcessAlreadyCorrelatedMessageTest() {
+    defaultCorrelationDataPostProcessor = new DefaultCorrelationDataPostProcessor(processedMessage -> {
+      throw new IllegalStateException("The message should not be post processed again");
+    });
+    message.getMessageProperties().setCorrelationId("my-correlation-id");
+    message.getMessageProperties().setHeader("correlation-id", "my-correlation-id");
+    CorrelationData correlationData = defaultCorrelationDataPostProcessor.postProcess(message, null);
+    assertEquals("my-correlation-id", correlationData.getId());
+  }
+
 
 }
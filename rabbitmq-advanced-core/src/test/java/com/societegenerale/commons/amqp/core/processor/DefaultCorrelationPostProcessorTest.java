@@ -64,6 +64,26 @@ public class DefaultCorrelationPostProcessorTest {
     assertEquals(message.getMessageProperties().getHeaders().get("correlation-id"), tracer.currentSpan().context().traceIdString());
   }
 
+  @Test
+  public void addCorrelationIdFromCurrentTraceContextToHeaderIfMissingTest() {
+    CurrentTraceContext currentTraceContext = StrictCurrentTraceContext.create();
+    correlationPostProcessor = new DefaultCorrelationPostProcessor(null, () -> "GeneratedCorrelationId");
+    correlationPostProcessor.setCurrentTraceContext(currentTraceContext);
+    TraceContext traceContext = TraceContext.newBuilder().traceId(11L).spanId(11L).build();
+    try (CurrentTraceContext.Scope scope = currentTraceContext.newScope(traceContext)) {
+      correlationPostProcessor.postProcessMessage(message);
+    }
+    assertEquals(traceContext.traceIdString(), message.getMessageProperties().getHeaders().get("correlation-id"));
+  }
+
+  @Test
+  public void addGeneratedCorrelationIdToHeaderIfNoSpanTest() {
+    correlationPostProcessor = new DefaultCorrelationPostProcessor(null, () -> "GeneratedCorrelationId");
+    correlationPostProcessor.postProcessMessage(message);
+    assertEquals("GeneratedCorrelationId", message.getMessageProperties().getCorrelationId());
+    assertEquals("GeneratedCorrelationId", message.getMessageProperties().getHeaders().get("correlation-id"));
+  }
+
   @Test
   public void addExistingCorrelationIdToHeaderIfPresentTest() {
     message.getMessageProperties().setCorrelationId("ExistingCorrelationId");
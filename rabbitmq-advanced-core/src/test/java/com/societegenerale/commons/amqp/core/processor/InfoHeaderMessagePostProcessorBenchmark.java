@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per publish of the info headers, compared with the previous implementation (a shared HashMap updated on each
+ * message). Run with the GC profiler to get the allocations per publish ('gc.alloc.rate.norm').
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InfoHeaderMessagePostProcessorBenchmark {
+
+  private InfoHeaderMessagePostProcessor infoHeaderMessagePostProcessor;
+
+  private PreviousInfoHeaderMessagePostProcessor previousInfoHeaderMessagePostProcessor;
+
+  private Message message;
+
+  @Setup
+  public void setUp() {
+    MockEnvironment environment = new MockEnvironment().withProperty("spring.application.name", "benchmark-app");
+    infoHeaderMessagePostProcessor = new InfoHeaderMessagePostProcessor();
+    infoHeaderMessagePostProcessor.getHeaders().put("source-application", "benchmark-app");
+    infoHeaderMessagePostProcessor.setEnvironment(environment);
+    previousInfoHeaderMessagePostProcessor = new PreviousInfoHeaderMessagePostProcessor(environment);
+    previousInfoHeaderMessagePostProcessor.headers.put("source-application", "benchmark-app");
+    message = MessageBuilder.withBody("DummyMessage".getBytes()).build();
+  }
+
+  @Benchmark
+  public Message current() {
+    message.getMessageProperties().getHeaders().remove(InfoHeaderMessagePostProcessor.INFO_HEADER);
+    return infoHeaderMessagePostProcessor.postProcessMessage(message);
+  }
+
+  @Benchmark
+  public Message previous() {
+    message.getMessageProperties().getHeaders().remove(InfoHeaderMessagePostProcessor.INFO_HEADER);
+    return previousInfoHeaderMessagePostProcessor.postProcessMessage(message);
+  }
+
+  /**
+   * The implementation before the info header was cached.
+   */
+  static class PreviousInfoHeaderMessagePostProcessor {
+
+    private final Map<String, Object> headers = new HashMap<>();
+
+    private final MockEnvironment environment;
+
+    PreviousInfoHeaderMessagePostProcessor(MockEnvironment environment) {
+      this.environment = environment;
+    }
+
+    Message postProcessMessage(Message message) {
+      MessageProperties messageProperties = message.getMessageProperties();
+      headers.putIfAbsent("spring-application-name", environment.getProperty("spring.application.name", String.class));
+      headers.put("execution-time", new Date().toString());
+      messageProperties.getHeaders().putIfAbsent("info", headers);
+      return message;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(InfoHeaderMessagePostProcessorBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
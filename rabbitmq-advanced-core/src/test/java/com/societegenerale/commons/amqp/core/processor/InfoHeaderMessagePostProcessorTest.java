@@ -23,10 +23,10 @@ import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageBuilder;
 import org.springframework.core.env.Environment;
 
+import java.util.Date;
 import java.util.Map;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Created by Anand Manissery on 02/07/17.
@@ -68,4 +68,23 @@ public class InfoHeaderMessagePostProcessorTest {
     assertNotNull(headers.get("execution-time"));
   }
 
+  @Test
+  public void shareTheSameImmutableInfoHeaderWithinTheSameSecond() {
+    Map<String, Object> first = infoHeaderMessagePostProcessor.infoHeader(10_000L);
+    Map<String, Object> second = infoHeaderMessagePostProcessor.infoHeader(10_999L);
+    Map<String, Object> third = infoHeaderMessagePostProcessor.infoHeader(11_000L);
+    assertSame(first, second);
+    assertNotSame(first, third);
+    assertEquals(new Date(10_000L).toString(), first.get("execution-time"));
+    assertEquals(new Date(11_000L).toString(), third.get("execution-time"));
+    assertThrows(UnsupportedOperationException.class, () -> first.put("info-key", "other-value"));
+  }
+
+  @Test
+  public void resolveTheApplicationNameOnlyOnce() {
+    infoHeaderMessagePostProcessor.postProcessMessage(message);
+    infoHeaderMessagePostProcessor.postProcessMessage(MessageBuilder.withBody("OtherMessage".getBytes()).build());
+    Mockito.verify(environment, Mockito.times(1)).getProperty("spring.application.name", String.class);
+  }
+
 }
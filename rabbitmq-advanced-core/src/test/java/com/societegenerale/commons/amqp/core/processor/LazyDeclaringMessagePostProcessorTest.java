@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import com.societegenerale.commons.amqp.core.topology.LazyTopologyDeclarer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
+
+public class LazyDeclaringMessagePostProcessorTest {
+
+  private LazyTopologyDeclarer lazyTopologyDeclarer;
+
+  private LazyDeclaringMessagePostProcessor postProcessor;
+
+  private Message message;
+
+  @BeforeEach
+  public void setUp() {
+    lazyTopologyDeclarer = mock(LazyTopologyDeclarer.class);
+    postProcessor = new LazyDeclaringMessagePostProcessor(lazyTopologyDeclarer);
+    message = MessageBuilder.withBody("DummyMessage".getBytes()).build();
+  }
+
+  @Test
+  public void shouldEnsureTheExchangeWhenPublishingToAnExchange() {
+    assertSame(message, postProcessor.postProcessMessage(message, null, "some-exchange", "some.key"));
+    verify(lazyTopologyDeclarer).ensureExchange("some-exchange", "some.key");
+  }
+
+  @Test
+  public void shouldEnsureTheQueueWhenPublishingThroughTheDefaultExchange() {
+    postProcessor.postProcessMessage(message, null, "", "some-queue");
+    verify(lazyTopologyDeclarer).ensureQueue("some-queue");
+    verify(lazyTopologyDeclarer, never()).ensureExchange(anyString(), anyString());
+  }
+}
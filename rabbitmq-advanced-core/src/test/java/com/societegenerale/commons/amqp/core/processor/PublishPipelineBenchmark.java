@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import brave.ScopedSpan;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.spring.rabbit.SpringRabbitTracing;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per publish, inside an active span, of the before publish post processors and of the correlation data post
+ * processor run on publisher confirms : the previous chain (separate post processors, the tracing one added by sleuth,
+ * the correlation computed again for the correlation data) compared with the fused pipeline. Run with the GC profiler
+ * to get the allocations per publish ('gc.alloc.rate.norm').
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PublishPipelineBenchmark {
+
+  private Tracing tracing;
+
+  private ScopedSpan span;
+
+  private MessagePostProcessor[] previousPostProcessors;
+
+  private PreviousCorrelationPostProcessor previousCorrelationPostProcessor;
+
+  private PublishPipeline publishPipeline;
+
+  private DefaultCorrelationDataPostProcessor correlationDataPostProcessor;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    tracing = Tracing.newBuilder().currentTraceContext(ThreadLocalCurrentTraceContext.create())
+        .addSpanHandler(new SpanHandler() {
+        })
+        .build();
+    InfoHeaderMessagePostProcessor infoHeaderMessagePostProcessor = new InfoHeaderMessagePostProcessor();
+    infoHeaderMessagePostProcessor.getHeaders().put("source-application", "benchmark-app");
+    infoHeaderMessagePostProcessor.setEnvironment(new MockEnvironment().withProperty("spring.application.name", "benchmark-app"));
+
+    previousCorrelationPostProcessor = new PreviousCorrelationPostProcessor(tracing.tracer());
+    RabbitTemplate rabbitTemplate = new RabbitTemplate();
+    rabbitTemplate.setBeforePublishPostProcessors(infoHeaderMessagePostProcessor, previousCorrelationPostProcessor);
+    SpringRabbitTracing.create(tracing).decorateRabbitTemplate(rabbitTemplate);
+    previousPostProcessors = ((Collection<MessagePostProcessor>) ReflectionTestUtils.getField(rabbitTemplate, "beforePublishPostProcessors"))
+        .toArray(new MessagePostProcessor[0]);
+
+    DefaultCorrelationPostProcessor correlationPostProcessor = new DefaultCorrelationPostProcessor(tracing.tracer());
+    correlationPostProcessor.setCurrentTraceContext(tracing.currentTraceContext());
+    publishPipeline = new PublishPipeline(Arrays.asList(new TracingHeaderWriter(tracing, "rabbitmq"),
+        correlationPostProcessor, infoHeaderMessagePostProcessor));
+    correlationDataPostProcessor = new DefaultCorrelationDataPostProcessor(correlationPostProcessor);
+    span = tracing.tracer().startScopedSpan("benchmark");
+  }
+
+  @TearDown
+  public void tearDown() {
+    span.finish();
+    tracing.close();
+  }
+
+  @Benchmark
+  public CorrelationData previous() {
+    Message message = MessageBuilder.withBody("DummyMessage".getBytes()).build();
+    for (MessagePostProcessor messagePostProcessor : previousPostProcessors) {
+      message = messagePostProcessor.postProcessMessage(message, null, "exchange", "routing.key");
+    }
+    CorrelationData correlationData = new CorrelationData();
+    previousCorrelationPostProcessor.postProcessMessage(message);
+    correlationData.setId(message.getMessageProperties().getCorrelationId());
+    return correlationData;
+  }
+
+  @Benchmark
+  public CorrelationData fused() {
+    Message message = MessageBuilder.withBody("DummyMessage".getBytes()).build();
+    message = publishPipeline.postProcessMessage(message, null, "exchange", "routing.key");
+    return correlationDataPostProcessor.postProcess(message, null);
+  }
+
+  /**
+   * The correlation post processor before the publish pipeline, looking up the current span twice.
+   */
+  static class PreviousCorrelationPostProcessor implements MessagePostProcessor {
+
+    private final Tracer tracer;
+
+    PreviousCorrelationPostProcessor(Tracer tracer) {
+      this.tracer = tracer;
+    }
+
+    @Override
+    public Message postProcessMessage(Message message) {
+      MessageProperties messageProperties = message.getMessageProperties();
+      String correlationId = messageProperties.getCorrelationId();
+      if (correlationId == null) {
+        correlationId = (tracer != null && tracer.currentSpan() != null) ?
+            tracer.currentSpan().context().traceIdString() : UUID.randomUUID().toString();
+        messageProperties.setCorrelationId(correlationId);
+      }
+      messageProperties.getHeaders().put("correlation-id", correlationId);
+      return message;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(PublishPipelineBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
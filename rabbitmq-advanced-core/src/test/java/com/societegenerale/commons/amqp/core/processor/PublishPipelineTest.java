@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.processor;
+
+import brave.ScopedSpan;
+import brave.Tracing;
+import brave.propagation.StrictCurrentTraceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PublishPipelineTest {
+
+  private Tracing tracing;
+
+  private InfoHeaderMessagePostProcessor infoHeaderMessagePostProcessor;
+
+  private DefaultCorrelationPostProcessor correlationPostProcessor;
+
+  private Message message;
+
+  @BeforeEach
+  public void setUp() {
+    tracing = Tracing.newBuilder().currentTraceContext(StrictCurrentTraceContext.create()).build();
+    infoHeaderMessagePostProcessor = new InfoHeaderMessagePostProcessor();
+    infoHeaderMessagePostProcessor.setEnvironment(new MockEnvironment().withProperty("spring.application.name", "my-app"));
+    correlationPostProcessor = new DefaultCorrelationPostProcessor(tracing.tracer(), () -> "GeneratedCorrelationId");
+    message = MessageBuilder.withBody("DummyMessage".getBytes()).build();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    tracing.close();
+  }
+
+  @Test
+  public void runWritersInOrderTest() {
+    List<String> calls = new ArrayList<>();
+    PublishPipeline publishPipeline = new PublishPipeline(Arrays.asList(
+        (messageProperties, exchange, routingKey) -> calls.add("first:" + exchange + ":" + routingKey),
+        (messageProperties, exchange, routingKey) -> calls.add("second:" + exchange + ":" + routingKey)));
+    publishPipeline.postProcessMessage(message, null, "exchange", "routing.key");
+    assertEquals(Arrays.asList("first:exchange:routing.key", "second:exchange:routing.key"), calls);
+  }
+
+  @Test
+  public void skipDisabledWritersTest() {
+    PublishPipeline publishPipeline = new PublishPipeline(Arrays.asList(new TracingHeaderWriter(null, "rabbitmq"), correlationPostProcessor));
+    assertEquals(1, publishPipeline.getWriters().size());
+    assertTrue(publishPipeline.contains(correlationPostProcessor));
+    assertFalse(publishPipeline.contains(infoHeaderMessagePostProcessor));
+    publishPipeline.postProcessMessage(message);
+    assertEquals("GeneratedCorrelationId", message.getMessageProperties().getCorrelationId());
+    assertEquals("GeneratedCorrelationId", message.getMessageProperties().getHeaders().get("correlation-id"));
+  }
+
+  @Test
+  public void writeTraceCorrelationAndInfoHeadersInOnePassTest() {
+    PublishPipeline publishPipeline = new PublishPipeline(Arrays.asList(new TracingHeaderWriter(tracing, "rabbitmq"),
+        correlationPostProcessor, infoHeaderMessagePostProcessor));
+    ScopedSpan span = tracing.tracer().startScopedSpan("send");
+    try {
+      publishPipeline.postProcessMessage(message, null, "exchange", "routing.key");
+    } finally {
+      span.finish();
+    }
+    Map<String, Object> headers = message.getMessageProperties().getHeaders();
+    assertEquals(span.context().traceIdString(), headers.get("X-B3-TraceId"));
+    assertNotEquals(span.context().spanIdString(), headers.get("X-B3-SpanId"));
+    assertEquals(span.context().spanIdString(), headers.get("X-B3-ParentSpanId"));
+    assertEquals(span.context().traceIdString(), message.getMessageProperties().getCorrelationId());
+    assertEquals(span.context().traceIdString(), headers.get("correlation-id"));
+    assertNotNull(headers.get("info"));
+  }
+
+  @Test
+  public void continueTraceFoundInHeadersWhenNoSpanIsActiveTest() {
+    message.getMessageProperties().setHeader("X-B3-TraceId", "000000000000000a");
+    message.getMessageProperties().setHeader("X-B3-SpanId", "000000000000000b");
+    message.getMessageProperties().setHeader("X-B3-Sampled", "1");
+    new PublishPipeline(Arrays.asList(new TracingHeaderWriter(tracing, "rabbitmq"))).postProcessMessage(message);
+    Map<String, Object> headers = message.getMessageProperties().getHeaders();
+    assertEquals("000000000000000a", headers.get("X-B3-TraceId"));
+    assertEquals("000000000000000b", headers.get("X-B3-ParentSpanId"));
+    assertNotEquals("000000000000000b", headers.get("X-B3-SpanId"));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Confirmed publishes per second through the asynchronous publisher, with a stand in broker acknowledging, every
+ * 100 microseconds, all the messages published on each channel with a single multiple ack.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AsyncRabbitPublisherBenchmark {
+
+  @Param({"1", "4"})
+  private int channels;
+
+  private final List<StandInChannel> standInChannels = new CopyOnWriteArrayList<>();
+
+  private ScheduledExecutorService broker;
+
+  private AsyncRabbitPublisher asyncRabbitPublisher;
+
+  private Message message;
+
+  @Setup
+  public void setUp() {
+    Connection connection = mock(Connection.class);
+    when(connection.createChannel(false)).thenAnswer(invocation -> newChannel());
+    ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenReturn(connection);
+    asyncRabbitPublisher = new AsyncRabbitPublisher(connectionFactory, new SimpleMessageConverter(), channels, 1000, 5000);
+    message = MessageBuilder.withBody(new byte[512]).build();
+    broker = Executors.newSingleThreadScheduledExecutor();
+    broker.scheduleAtFixedRate(() -> standInChannels.forEach(StandInChannel::ackPublished), 100, 100, TimeUnit.MICROSECONDS);
+  }
+
+  @TearDown
+  public void tearDown() {
+    broker.shutdownNow();
+    asyncRabbitPublisher.close();
+  }
+
+  @Benchmark
+  public CompletableFuture<Confirm> send() {
+    return asyncRabbitPublisher.send("exchange", "routing.key", message);
+  }
+
+  private Channel newChannel() {
+    StandInChannel standInChannel = new StandInChannel();
+    standInChannels.add(standInChannel);
+    return (Channel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Channel.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getNextPublishSeqNo":
+          return standInChannel.published.get() + 1;
+        case "basicPublish":
+          standInChannel.published.incrementAndGet();
+          return null;
+        case "addConfirmListener":
+          standInChannel.confirmListener = (ConfirmListener) args[0];
+          return null;
+        case "isOpen":
+          return true;
+        default:
+          return method.getReturnType() == boolean.class ? false : null;
+      }
+    });
+  }
+
+  private static class StandInChannel {
+
+    private final AtomicLong published = new AtomicLong();
+
+    private volatile ConfirmListener confirmListener;
+
+    private long acked;
+
+    private void ackPublished() {
+      long deliveryTag = published.get();
+      if (deliveryTag > acked && confirmListener != null) {
+        try {
+          confirmListener.handleAck(deliveryTag, true);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        acked = deliveryTag;
+      }
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(AsyncRabbitPublisherBenchmark.class.getSimpleName()).build()).run();
+  }
+}
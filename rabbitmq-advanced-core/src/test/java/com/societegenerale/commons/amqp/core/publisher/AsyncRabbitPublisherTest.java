@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AsyncRabbitPublisherTest {
+
+  private final List<Channel> channels = new ArrayList<>();
+
+  private final List<ConfirmListener> confirmListeners = new ArrayList<>();
+
+  private final List<ShutdownListener> shutdownListeners = new ArrayList<>();
+
+  private ConnectionFactory connectionFactory;
+
+  private AsyncRabbitPublisher asyncRabbitPublisher;
+
+  @BeforeEach
+  public void setUp() {
+    Connection connection = mock(Connection.class);
+    when(connection.createChannel(false)).thenAnswer(invocation -> newChannel());
+    connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenReturn(connection);
+    asyncRabbitPublisher = new AsyncRabbitPublisher(connectionFactory, new SimpleMessageConverter(), 1, 3, 50);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    asyncRabbitPublisher.close();
+  }
+
+  private Channel newChannel() {
+    Channel channel = mock(Channel.class);
+    AtomicLong nextPublishSeqNo = new AtomicLong(1);
+    when(channel.getNextPublishSeqNo()).thenAnswer(invocation -> nextPublishSeqNo.get());
+    when(channel.isOpen()).thenReturn(true);
+    try {
+      doAnswer(invocation -> nextPublishSeqNo.incrementAndGet()).when(channel)
+          .basicPublish(anyString(), anyString(), anyBoolean(), any(AMQP.BasicProperties.class), any(byte[].class));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    doAnswer(invocation -> confirmListeners.add(invocation.getArgument(0))).when(channel).addConfirmListener(any(ConfirmListener.class));
+    doAnswer(invocation -> shutdownListeners.add(invocation.getArgument(0))).when(channel).addShutdownListener(any(ShutdownListener.class));
+    channels.add(channel);
+    return channel;
+  }
+
+  private CompletableFuture<Confirm> send() {
+    return asyncRabbitPublisher.convertAndSend("exchange", "routing.key", "DummyMessage");
+  }
+
+  private static Confirm confirmOf(CompletableFuture<Confirm> future) throws Exception {
+    return future.get(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void completeOnAckTest() throws Exception {
+    CompletableFuture<Confirm> future = send();
+    assertFalse(future.isDone());
+    assertEquals(1, asyncRabbitPublisher.getInFlight());
+
+    confirmListeners.get(0).handleAck(1, false);
+
+    assertTrue(confirmOf(future).isAck());
+    assertEquals(0, asyncRabbitPublisher.getInFlight());
+    verify(channels.get(0)).confirmSelect();
+  }
+
+  @Test
+  public void completeAllUpToTheDeliveryTagOnMultipleAckTest() throws Exception {
+    CompletableFuture<Confirm> first = send();
+    CompletableFuture<Confirm> second = send();
+    CompletableFuture<Confirm> third = send();
+
+    confirmListeners.get(0).handleAck(2, true);
+
+    assertTrue(confirmOf(first).isAck());
+    assertTrue(confirmOf(second).isAck());
+    assertFalse(third.isDone());
+    assertEquals(1, asyncRabbitPublisher.getInFlight());
+  }
+
+  @Test
+  public void completeWithNegativeConfirmOnNackTest() throws Exception {
+    CompletableFuture<Confirm> future = send();
+
+    confirmListeners.get(0).handleNack(1, false);
+
+    assertFalse(confirmOf(future).isAck());
+    assertEquals(0, asyncRabbitPublisher.getInFlight());
+  }
+
+  @Test
+  public void failWhenTheWindowStaysFullTest() {
+    send();
+    send();
+    send();
+
+    CompletableFuture<Confirm> future = send();
+
+    ExecutionException exception = assertThrows(ExecutionException.class, () -> confirmOf(future));
+    assertTrue(exception.getCause() instanceof AmqpTimeoutException);
+  }
+
+  @Test
+  public void sendAgainOnceTheWindowHasRoomTest() throws Exception {
+    send();
+    send();
+    send();
+    confirmListeners.get(0).handleAck(3, true);
+
+    CompletableFuture<Confirm> future = send();
+    confirmListeners.get(0).handleAck(4, false);
+
+    assertTrue(confirmOf(future).isAck());
+  }
+
+  @Test
+  public void completeOutstandingAndOpenNewChannelWhenChannelIsClosedTest() throws Exception {
+    CompletableFuture<Confirm> future = send();
+    when(channels.get(0).isOpen()).thenReturn(false);
+
+    shutdownListeners.get(0).shutdownCompleted(new ShutdownSignalException(false, false, null, channels.get(0)));
+
+    assertFalse(confirmOf(future).isAck());
+    assertEquals(0, asyncRabbitPublisher.getInFlight());
+
+    CompletableFuture<Confirm> next = send();
+    assertEquals(2, channels.size());
+    confirmListeners.get(1).handleAck(1, false);
+    assertTrue(confirmOf(next).isAck());
+  }
+
+  @Test
+  public void failWhenThePublishFailsTest() throws Exception {
+    send();
+    doThrow(new IOException("Broken")).when(channels.get(0))
+        .basicPublish(anyString(), anyString(), anyBoolean(), any(AMQP.BasicProperties.class), any(byte[].class));
+
+    CompletableFuture<Confirm> future = send();
+
+    ExecutionException exception = assertThrows(ExecutionException.class, () -> confirmOf(future));
+    assertTrue(exception.getCause() instanceof AmqpIOException);
+    assertEquals(1, asyncRabbitPublisher.getInFlight());
+  }
+
+  @Test
+  public void applyBeforePublishPostProcessorsTest() throws Exception {
+    asyncRabbitPublisher.setBeforePublishPostProcessors(message -> {
+      message.getMessageProperties().setHeader("processed", true);
+      return message;
+    });
+
+    send();
+
+    ArgumentCaptor<AMQP.BasicProperties> properties = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+    verify(channels.get(0)).basicPublish(eq("exchange"), eq("routing.key"), eq(false), properties.capture(), any(byte[].class));
+    assertEquals(true, properties.getValue().getHeaders().get("processed"));
+  }
+
+  @Test
+  public void sendMessageTest() throws Exception {
+    Message message = MessageBuilder.withBody("DummyMessage".getBytes()).build();
+
+    asyncRabbitPublisher.send(null, "queue", message);
+
+    verify(channels.get(0)).basicPublish(eq(""), eq("queue"), eq(false), any(AMQP.BasicProperties.class), eq(message.getBody()));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.societegenerale.commons.amqp.core.config.BatchingConfig;
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BatchingRabbitTemplatesTest {
+
+  private Channel channel;
+
+  private BatchingRabbitTemplates batchingRabbitTemplates;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    channel = mock(Channel.class);
+    when(channel.isOpen()).thenReturn(true);
+    Connection connection = mock(Connection.class);
+    when(connection.isOpen()).thenReturn(true);
+    when(connection.createChannel(anyBoolean())).thenReturn(channel);
+    ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenReturn(connection);
+
+    Map<String, BatchingConfig> batchingConfigs = new LinkedHashMap<>();
+    batchingConfigs.put("exchange-1", BatchingConfig.builder().batchSize(3).flushTimeout(60_000).build());
+    batchingRabbitTemplates = new BatchingRabbitTemplates(connectionFactory, batchingConfigs,
+        template -> template.setMessageConverter(new SimpleMessageConverter()));
+    batchingRabbitTemplates.start();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    batchingRabbitTemplates.destroy();
+  }
+
+  @Test
+  public void sendBatchWhenFullTest() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      batchingRabbitTemplates.get("exchange-1").convertAndSend("routing-key", "message-" + i);
+    }
+    ArgumentCaptor<AMQP.BasicProperties> properties = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+    verify(channel, times(1)).basicPublish(eq("exchange-1"), eq("routing-key"), anyBoolean(), properties.capture(), any(byte[].class));
+    assertEquals(MessageProperties.BATCH_FORMAT_LENGTH_HEADER4, properties.getValue().getHeaders().get(MessageProperties.SPRING_BATCH_FORMAT));
+    assertEquals(3, properties.getValue().getHeaders().get(AmqpHeaders.BATCH_SIZE));
+  }
+
+  @Test
+  public void sendPendingBatchOnStopTest() throws Exception {
+    batchingRabbitTemplates.get("exchange-1").convertAndSend("routing-key", "message");
+    verify(channel, never()).basicPublish(anyString(), anyString(), anyBoolean(), any(), any(byte[].class));
+
+    batchingRabbitTemplates.stop();
+
+    assertFalse(batchingRabbitTemplates.isRunning());
+    verify(channel, times(1)).basicPublish(eq("exchange-1"), eq("routing-key"), anyBoolean(), any(), any(byte[].class));
+  }
+
+  @Test
+  public void exchangeWithoutBatchingTest() {
+    assertTrue(batchingRabbitTemplates.contains("exchange-1"));
+    assertFalse(batchingRabbitTemplates.contains("exchange-2"));
+    assertThrows(RabbitmqConfigurationException.class, () -> batchingRabbitTemplates.get("exchange-2"));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.publisher;
+
+import com.societegenerale.commons.amqp.core.config.MessageFormat;
+import com.societegenerale.commons.amqp.core.converter.JacksonMessageConverters;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExchangeConvertingRabbitTemplateTest {
+
+  private static final String SMILE = "application/x-jackson-smile";
+
+  private final ReQueueMessage reQueueMessage = ReQueueMessage.builder().deadLetterQueue("queue-one.dlq").messageCount(10).build();
+
+  private final List<Message> sentMessages = new ArrayList<>();
+
+  private ExchangeConvertingRabbitTemplate rabbitTemplate;
+
+  @BeforeEach
+  public void setUp() {
+    rabbitTemplate = new ExchangeConvertingRabbitTemplate() {
+      @Override
+      public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        sentMessages.add(message);
+      }
+    };
+    rabbitTemplate.setMessageConverter(JacksonMessageConverters.negotiating(MessageFormat.JSON, true,
+        Collections.singletonMap("smile-exchange", MessageFormat.SMILE)));
+  }
+
+  @Test
+  public void publishWithTheFormatOfTheExchangeTest() {
+    rabbitTemplate.convertAndSend("smile-exchange", "key", reQueueMessage);
+    rabbitTemplate.convertAndSend("other-exchange", "key", reQueueMessage);
+
+    assertEquals(SMILE, sentMessages.get(0).getMessageProperties().getContentType());
+    assertEquals(MessageProperties.CONTENT_TYPE_JSON, sentMessages.get(1).getMessageProperties().getContentType());
+    assertEquals(reQueueMessage, rabbitTemplate.getMessageConverter().fromMessage(sentMessages.get(0)));
+  }
+
+  @Test
+  public void publishWithThePostProcessorTest() {
+    rabbitTemplate.convertAndSend("smile-exchange", "key", reQueueMessage, message -> {
+      assertEquals(SMILE, message.getMessageProperties().getContentType());
+      message.getMessageProperties().setHeader("processed", true);
+      return message;
+    });
+
+    assertEquals(SMILE, sentMessages.get(0).getMessageProperties().getContentType());
+    assertEquals(true, sentMessages.get(0).getMessageProperties().getHeaders().get("processed"));
+  }
+
+  @Test
+  public void publishOnTheDefaultExchangeOfTheTemplateTest() {
+    rabbitTemplate.setExchange("smile-exchange");
+
+    rabbitTemplate.convertAndSend("key", reQueueMessage);
+
+    assertEquals(SMILE, sentMessages.get(0).getMessageProperties().getContentType());
+  }
+
+  @Test
+  public void messagesAreSentAsIsTest() {
+    Message message = MessageBuilder.withBody("body".getBytes()).build();
+
+    rabbitTemplate.convertAndSend("smile-exchange", "key", message);
+
+    assertSame(message, sentMessages.get(0));
+  }
+
+  @Test
+  public void otherConvertersAreUsedAsIsTest() {
+    rabbitTemplate.setMessageConverter(new SimpleMessageConverter());
+
+    rabbitTemplate.convertAndSend("smile-exchange", "key", "payload");
+
+    assertEquals(MessageProperties.CONTENT_TYPE_TEXT_PLAIN, sentMessages.get(0).getMessageProperties().getContentType());
+  }
+}
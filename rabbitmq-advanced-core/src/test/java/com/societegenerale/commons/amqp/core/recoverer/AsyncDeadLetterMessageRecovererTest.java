@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.recoverer;
+
+import com.rabbitmq.client.Channel;
+import com.societegenerale.commons.amqp.core.config.DeadLetterConfig;
+import com.societegenerale.commons.amqp.core.config.ExchangeConfig;
+import com.societegenerale.commons.amqp.core.config.RabbitConfig;
+import com.societegenerale.commons.amqp.core.container.DeferredAckAdvice;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AsyncDeadLetterMessageRecovererTest {
+
+  private final RuntimeException cause = new RuntimeException("Some Exception");
+
+  private AmqpTemplate errorTemplate;
+
+  private DeadLetterPublisher deadLetterPublisher;
+
+  private Channel channel;
+
+  private DeadLetterMessageRecoverer deadLetterMessageRecoverer;
+
+  @BeforeEach
+  public void setUp() {
+    errorTemplate = mock(AmqpTemplate.class);
+    deadLetterPublisher = mock(DeadLetterPublisher.class);
+    channel = mock(Channel.class);
+    RabbitConfig rabbitConfig = new RabbitConfig();
+    rabbitConfig.setDeadLetterConfig(DeadLetterConfig.builder()
+        .deadLetterExchange(ExchangeConfig.builder().name("dead-letter-exchange").build())
+        .build());
+    deadLetterMessageRecoverer = new DeadLetterMessageRecoverer();
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "errorTemplate", errorTemplate);
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "rabbitmqProperties", rabbitConfig);
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "deadLetterPublisher", deadLetterPublisher);
+  }
+
+  @Test
+  public void ackedOnceConfirmedTest() throws Throwable {
+    Message message = message();
+    CompletableFuture<Boolean> confirmed = new CompletableFuture<>();
+    when(deadLetterPublisher.publish("dead-letter-exchange", "queue-one.DLQ", message)).thenReturn(confirmed);
+
+    recoverInListener(message);
+
+    verifyNoInteractions(errorTemplate);
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    confirmed.complete(true);
+    verify(channel).basicAck(3, false);
+  }
+
+  @Test
+  public void nackedWhenNotConfirmedTest() throws Throwable {
+    Message message = message();
+    CompletableFuture<Boolean> confirmed = new CompletableFuture<>();
+    when(deadLetterPublisher.publish("dead-letter-exchange", "queue-one.DLQ", message)).thenReturn(confirmed);
+
+    recoverInListener(message);
+    confirmed.complete(false);
+
+    verify(channel).basicNack(3, false, true);
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    verifyNoInteractions(errorTemplate);
+  }
+
+  @Test
+  public void sentFromTheListenerThreadWhenTheBufferIsFullTest() throws Throwable {
+    Message message = message();
+    when(deadLetterPublisher.publish(any(), any(), any())).thenReturn(null);
+
+    recoverInListener(message);
+
+    verify(errorTemplate).send("dead-letter-exchange", "queue-one.DLQ", message);
+    verify(channel).basicAck(3, false);
+  }
+
+  @Test
+  public void sentFromTheListenerThreadOutsideOfTheAdviceTest() {
+    Message message = message();
+
+    deadLetterMessageRecoverer.recover(message, cause);
+
+    verify(errorTemplate).send("dead-letter-exchange", "queue-one.DLQ", message);
+    verifyNoInteractions(deadLetterPublisher);
+  }
+
+  private void recoverInListener(Message message) throws Throwable {
+    MethodInvocation invocation = mock(MethodInvocation.class);
+    when(invocation.getArguments()).thenReturn(new Object[]{channel, message});
+    when(invocation.proceed()).thenAnswer(i -> {
+      deadLetterMessageRecoverer.recover(message, cause);
+      return null;
+    });
+    new DeferredAckAdvice(false).invoke(invocation);
+  }
+
+  private Message message() {
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setConsumerQueue("queue-one");
+    messageProperties.setDeliveryTag(3);
+    return MessageBuilder.withBody("DummyMessage".getBytes()).andProperties(messageProperties).build();
+  }
+}
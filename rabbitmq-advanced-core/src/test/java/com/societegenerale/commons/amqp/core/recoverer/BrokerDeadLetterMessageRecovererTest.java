@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer;
+
+import com.societegenerale.commons.amqp.core.config.DeadLetterConfig;
+import com.societegenerale.commons.amqp.core.config.DeadLetterMode;
+import com.societegenerale.commons.amqp.core.config.ExchangeConfig;
+import com.societegenerale.commons.amqp.core.config.QueueConfig;
+import com.societegenerale.commons.amqp.core.config.RabbitConfig;
+import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BrokerDeadLetterMessageRecovererTest {
+
+  private AmqpTemplate errorTemplate;
+
+  private MessageExceptionHandler messageExceptionHandler;
+
+  private RabbitConfig rabbitConfig;
+
+  private DeadLetterMessageRecoverer deadLetterMessageRecoverer;
+
+  private final RuntimeException cause = new RuntimeException("Some Exception", new RuntimeException("Some Root Cause"));
+
+  @BeforeEach
+  public void setUp() {
+    errorTemplate = mock(AmqpTemplate.class);
+    messageExceptionHandler = mock(MessageExceptionHandler.class);
+    rabbitConfig = new RabbitConfig();
+    rabbitConfig.setDeadLetterConfig(DeadLetterConfig.builder()
+        .deadLetterExchange(ExchangeConfig.builder().name("dead-letter-exchange").build())
+        .mode(DeadLetterMode.BROKER)
+        .build());
+    rabbitConfig.getQueues().put("queue-one", QueueConfig.builder().name("queue-one").deadLetterEnabled(true).build());
+    rabbitConfig.getQueues().put("queue-two", QueueConfig.builder().name("queue-two").deadLetterEnabled(false).build());
+    deadLetterMessageRecoverer = new DeadLetterMessageRecoverer();
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "errorTemplate", errorTemplate);
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "rabbitmqProperties", rabbitConfig);
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "messageExceptionHandlers", Collections.singletonList(messageExceptionHandler));
+  }
+
+  @Test
+  public void rejectedToBeDeadLetteredByTheBroker() {
+    Message message = message("queue-one");
+
+    assertThrows(AmqpRejectAndDontRequeueException.class, () -> deadLetterMessageRecoverer.recover(message, cause));
+
+    verify(messageExceptionHandler).handle(message, cause);
+    verifyNoInteractions(errorTemplate);
+    assertTrue(message.getMessageProperties().getHeaders().isEmpty());
+  }
+
+  @Test
+  public void exceptionRecordPublishedToTheExceptionExchange() {
+    rabbitConfig.getDeadLetterConfig().setExceptionExchange(ExchangeConfig.builder().name("exception-exchange").build());
+    Message message = message("queue-one");
+    message.getMessageProperties().setMessageId("message-id");
+    message.getMessageProperties().setCorrelationId("correlation-id");
+
+    assertThrows(AmqpRejectAndDontRequeueException.class, () -> deadLetterMessageRecoverer.recover(message, cause));
+
+    ArgumentCaptor<Message> record = ArgumentCaptor.forClass(Message.class);
+    verify(errorTemplate).send(eq("exception-exchange"), eq("queue-one"), record.capture());
+    MessageProperties properties = record.getValue().getMessageProperties();
+    assertEquals("message-id", properties.getMessageId());
+    assertEquals("correlation-id", properties.getCorrelationId());
+    assertEquals(RuntimeException.class.getName(), properties.getHeaders().get("x-exception-class"));
+    assertEquals("RuntimeException: Some Exception", properties.getHeaders().get("x-exception-message"));
+    assertNotNull(properties.getHeaders().get("x-exception-fingerprint"));
+    assertEquals(0, record.getValue().getBody().length);
+    assertTrue(message.getMessageProperties().getHeaders().isEmpty());
+  }
+
+  @Test
+  public void rejectedWhenTheExceptionRecordCanNotBePublished() {
+    rabbitConfig.getDeadLetterConfig().setExceptionExchange(ExchangeConfig.builder().name("exception-exchange").build());
+    doThrow(new AmqpIOException(new IOException("closed"))).when(errorTemplate).send(eq("exception-exchange"), anyString(), any(Message.class));
+
+    assertThrows(AmqpRejectAndDontRequeueException.class, () -> deadLetterMessageRecoverer.recover(message("queue-one"), cause));
+  }
+
+  @Test
+  public void republishedWhenQueueHasNoDeadLetterExchange() {
+    Message message = message("queue-two");
+
+    deadLetterMessageRecoverer.recover(message, cause);
+
+    verify(errorTemplate).send("dead-letter-exchange", "queue-two.DLQ", message);
+  }
+
+  @Test
+  public void republishedInRepublishMode() {
+    rabbitConfig.getDeadLetterConfig().setMode(DeadLetterMode.REPUBLISH);
+    Message message = message("queue-one");
+
+    deadLetterMessageRecoverer.recover(message, cause);
+
+    verify(errorTemplate).send("dead-letter-exchange", "queue-one.DLQ", message);
+  }
+
+  private static Message message(String queue) {
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setConsumerQueue(queue);
+    return MessageBuilder.withBody("DummyMessage".getBytes()).andProperties(messageProperties).build();
+  }
+}
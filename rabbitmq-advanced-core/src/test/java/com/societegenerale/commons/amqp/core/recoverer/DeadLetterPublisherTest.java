@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DeadLetterPublisherTest {
+
+  private Channel channel;
+
+  private Connection connection;
+
+  private DeadLetterPublisher deadLetterPublisher;
+
+  @BeforeEach
+  public void setUp() {
+    channel = mock(Channel.class);
+    when(channel.isOpen()).thenReturn(true);
+    connection = mock(Connection.class);
+    when(connection.createChannel(false)).thenReturn(channel);
+    ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenReturn(connection);
+    deadLetterPublisher = new DeadLetterPublisher(connectionFactory, 2, 10, 100);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    deadLetterPublisher.close();
+  }
+
+  @Test
+  public void publishCompletesOnConfirmTest() throws Exception {
+    deadLetterPublisher.setBeforePublishPostProcessors(message -> {
+      message.getMessageProperties().setHeader("processed", true);
+      return message;
+    });
+    assertTrue(deadLetterPublisher.publish("dlx", "queue.dlq", message("failed")).get(1, TimeUnit.SECONDS));
+    verify(channel).confirmSelect();
+    verify(channel).basicPublish(eq("dlx"), eq("queue.dlq"), eq(false),
+        argThat((AMQP.BasicProperties properties) -> Boolean.TRUE.equals(properties.getHeaders().get("processed"))),
+        eq("failed".getBytes(StandardCharsets.UTF_8)));
+    verify(channel).waitForConfirmsOrDie(100);
+  }
+
+  @Test
+  public void publishDoesNotWaitForConfirmTest() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      release.await();
+      return null;
+    }).when(channel).waitForConfirmsOrDie(anyLong());
+
+    CompletableFuture<Boolean> confirmed = deadLetterPublisher.publish("dlx", "queue.dlq", message("failed"));
+
+    assertFalse(confirmed.isDone());
+    release.countDown();
+    assertTrue(confirmed.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void concurrentMessagesShareConfirmsTest() throws Exception {
+    CountDownLatch confirming = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      confirming.countDown();
+      release.await();
+      return null;
+    }).doNothing().when(channel).waitForConfirmsOrDie(anyLong());
+
+    List<CompletableFuture<Boolean>> published = new ArrayList<>();
+    published.add(deadLetterPublisher.publish("dlx", "queue.dlq", message("first")));
+    assertTrue(confirming.await(1, TimeUnit.SECONDS));
+    published.add(deadLetterPublisher.publish("dlx", "queue.dlq", message("second")));
+    published.add(deadLetterPublisher.publish("dlx", "queue.dlq", message("third")));
+    release.countDown();
+
+    for (CompletableFuture<Boolean> confirmed : published) {
+      assertTrue(confirmed.get(1, TimeUnit.SECONDS));
+    }
+    verify(channel, times(3)).basicPublish(anyString(), anyString(), anyBoolean(), any(), any());
+    verify(channel, times(2)).waitForConfirmsOrDie(100);
+  }
+
+  @Test
+  public void bufferFullTest() throws Exception {
+    CountDownLatch confirming = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      confirming.countDown();
+      release.await();
+      return null;
+    }).when(channel).waitForConfirmsOrDie(anyLong());
+
+    assertNotNull(deadLetterPublisher.publish("dlx", "queue.dlq", message("publishing")));
+    assertTrue(confirming.await(1, TimeUnit.SECONDS));
+    assertNotNull(deadLetterPublisher.publish("dlx", "queue.dlq", message("buffered")));
+    assertNotNull(deadLetterPublisher.publish("dlx", "queue.dlq", message("buffered")));
+
+    assertNull(deadLetterPublisher.publish("dlx", "queue.dlq", message("rejected")));
+    release.countDown();
+  }
+
+  @Test
+  public void notConfirmedTest() throws Exception {
+    doThrow(new IOException("nack")).when(channel).waitForConfirmsOrDie(anyLong());
+
+    assertFalse(deadLetterPublisher.publish("dlx", "queue.dlq", message("failed")).get(1, TimeUnit.SECONDS));
+
+    doNothing().when(channel).waitForConfirmsOrDie(anyLong());
+    assertTrue(deadLetterPublisher.publish("dlx", "queue.dlq", message("failed")).get(1, TimeUnit.SECONDS));
+    verify(connection, times(2)).createChannel(false);
+  }
+
+  @Test
+  public void bufferedMessagesAreNotConfirmedOnCloseTest() throws Exception {
+    CountDownLatch confirming = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      confirming.countDown();
+      Thread.sleep(10000);
+      return null;
+    }).when(channel).waitForConfirmsOrDie(anyLong());
+    deadLetterPublisher.publish("dlx", "queue.dlq", message("publishing"));
+    assertTrue(confirming.await(1, TimeUnit.SECONDS));
+    CompletableFuture<Boolean> buffered = deadLetterPublisher.publish("dlx", "queue.dlq", message("buffered"));
+
+    deadLetterPublisher.close();
+
+    assertFalse(buffered.get(1, TimeUnit.SECONDS));
+    assertNull(deadLetterPublisher.publish("dlx", "queue.dlq", message("closed")));
+  }
+
+  private static Message message(String body) {
+    return MessageBuilder.withBody(body.getBytes(StandardCharsets.UTF_8)).build();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer;
+
+import com.societegenerale.commons.amqp.core.config.DeadLetterConfig;
+import com.societegenerale.commons.amqp.core.config.ExchangeConfig;
+import com.societegenerale.commons.amqp.core.config.QueueConfig;
+import com.societegenerale.commons.amqp.core.config.RabbitConfig;
+import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RetryDeadLetterMessageRecovererTest {
+
+  private AmqpTemplate errorTemplate;
+
+  private MessageExceptionHandler messageExceptionHandler;
+
+  private DeadLetterMessageRecoverer deadLetterMessageRecoverer;
+
+  private final RuntimeException cause = new RuntimeException("Some Exception");
+
+  @BeforeEach
+  public void setUp() {
+    errorTemplate = mock(AmqpTemplate.class);
+    messageExceptionHandler = mock(MessageExceptionHandler.class);
+    RabbitConfig rabbitConfig = new RabbitConfig();
+    rabbitConfig.setDeadLetterConfig(DeadLetterConfig.builder()
+        .deadLetterExchange(ExchangeConfig.builder().name("dead-letter-exchange").build())
+        .build());
+    rabbitConfig.getQueues().put("queue-one", QueueConfig.builder().name("queue-one")
+        .retryDelays(Arrays.asList(Duration.ofSeconds(1), Duration.ofSeconds(10))).build());
+    rabbitConfig.getQueues().put("queue-two", QueueConfig.builder().name("queue-two").build());
+    deadLetterMessageRecoverer = new DeadLetterMessageRecoverer();
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "errorTemplate", errorTemplate);
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "rabbitmqProperties", rabbitConfig);
+    ReflectionTestUtils.setField(deadLetterMessageRecoverer, "messageExceptionHandlers", Collections.singletonList(messageExceptionHandler));
+  }
+
+  @Test
+  public void failedMessageClimbsTheRetryLadder() {
+    Message message = message("queue-one");
+
+    deadLetterMessageRecoverer.recover(message, cause);
+    verify(errorTemplate).send("", "queue-one.retry.1000", message);
+    assertEquals(1, message.getMessageProperties().getHeaders().get("x-retry-attempt"));
+
+    deadLetterMessageRecoverer.recover(message, cause);
+    verify(errorTemplate).send("", "queue-one.retry.10000", message);
+    assertEquals(2, message.getMessageProperties().getHeaders().get("x-retry-attempt"));
+    verifyNoInteractions(messageExceptionHandler);
+
+    deadLetterMessageRecoverer.recover(message, cause);
+    verify(errorTemplate).send("dead-letter-exchange", "queue-one.DLQ", message);
+    verify(messageExceptionHandler).handle(message, cause);
+  }
+
+  @Test
+  public void deadLetteredWithoutRetryLadder() {
+    Message message = message("queue-two");
+
+    deadLetterMessageRecoverer.recover(message, cause);
+
+    verify(errorTemplate).send("dead-letter-exchange", "queue-two.DLQ", message);
+    verify(errorTemplate, times(1)).send(anyString(), anyString(), any(Message.class));
+  }
+
+  private static Message message(String queue) {
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setConsumerQueue(queue);
+    return MessageBuilder.withBody("DummyMessage".getBytes()).andProperties(messageProperties).build();
+  }
+}
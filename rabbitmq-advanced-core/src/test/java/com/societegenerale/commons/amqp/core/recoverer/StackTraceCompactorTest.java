@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackTraceCompactorTest {
+
+  private StackTraceCompactor stackTraceCompactor;
+
+  @BeforeEach
+  public void setUp() {
+    stackTraceCompactor = new StackTraceCompactor(3, 2);
+  }
+
+  @Test
+  public void sameFingerprintForDifferentMessagesTest() {
+    String[] fingerprints = new String[2];
+    for (int i = 0; i < fingerprints.length; i++) {
+      fingerprints[i] = stackTraceCompactor.fingerprint(fail("order " + i + " failed"));
+    }
+    assertEquals(fingerprints[0], fingerprints[1]);
+    assertEquals(16, fingerprints[0].length());
+  }
+
+  @Test
+  public void differentFingerprintForDifferentCausesTest() {
+    Throwable illegalState = new IllegalStateException("failed", new IllegalArgumentException("root"));
+    Throwable unsupported = new IllegalStateException("failed", new UnsupportedOperationException("root"));
+    illegalState.setStackTrace(unsupported.getStackTrace());
+    illegalState.getCause().setStackTrace(unsupported.getCause().getStackTrace());
+    assertNotEquals(stackTraceCompactor.fingerprint(illegalState), stackTraceCompactor.fingerprint(unsupported));
+  }
+
+  @Test
+  public void generatedClassesIgnoredInFingerprintTest() {
+    Throwable lambda = new IllegalStateException("failed");
+    lambda.setStackTrace(new StackTraceElement[]{
+        new StackTraceElement("com.acme.Listener$$Lambda$123/0x0000000800c0b440", "accept", null, -1),
+        new StackTraceElement("jdk.internal.reflect.GeneratedMethodAccessor12", "invoke", null, -1)});
+    Throwable otherLambda = new IllegalStateException("failed");
+    otherLambda.setStackTrace(new StackTraceElement[]{
+        new StackTraceElement("com.acme.Listener$$Lambda$456/0x0000000800d0c550", "accept", null, -1),
+        new StackTraceElement("jdk.internal.reflect.GeneratedMethodAccessor47", "invoke", null, -1)});
+    assertEquals(stackTraceCompactor.fingerprint(lambda), stackTraceCompactor.fingerprint(otherLambda));
+  }
+
+  @Test
+  public void compactKeepsTopFramesAndRootCauseTest() {
+    Throwable cause = new RuntimeException("Some Exception", new IllegalArgumentException("Some Root Cause"));
+    String compact = stackTraceCompactor.compact(cause);
+    String[] lines = compact.split("\n");
+    assertEquals("java.lang.RuntimeException: Some Exception", lines[0]);
+    assertTrue(lines[1].startsWith("\tat "));
+    assertTrue(lines[4].startsWith("\t... "));
+    assertEquals("Caused by: java.lang.IllegalArgumentException: Some Root Cause", lines[5]);
+    assertEquals(10, lines.length);
+  }
+
+  @Test
+  public void firstSeenOnceUntilEvictedTest() {
+    assertTrue(stackTraceCompactor.firstSeen("a"));
+    assertFalse(stackTraceCompactor.firstSeen("a"));
+    assertTrue(stackTraceCompactor.firstSeen("b"));
+    assertFalse(stackTraceCompactor.firstSeen("a"));
+    assertTrue(stackTraceCompactor.firstSeen("c"));
+    assertTrue(stackTraceCompactor.firstSeen("b"));
+  }
+
+  private static Throwable fail(String message) {
+    return new IllegalStateException(message, new IllegalArgumentException(message + " : invalid amount"));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageExceptionHandlerDispatcherTest {
+
+  private final Message message = MessageBuilder.withBody("failed".getBytes(StandardCharsets.UTF_8)).build();
+
+  private final Throwable cause = new IllegalStateException("failed");
+
+  private MessageExceptionHandlerDispatcher dispatcher;
+
+  @AfterEach
+  public void tearDown() {
+    dispatcher.close();
+  }
+
+  @Test
+  public void criticalHandlersWaitedForTest() {
+    AtomicReference<Message> criticalMessage = new AtomicReference<>();
+    AtomicReference<Message> fireAndForgetMessage = new AtomicReference<>();
+    CountDownLatch release = new CountDownLatch(1);
+    MessageExceptionHandler critical = (failed, cause) -> criticalMessage.set(failed);
+    dispatcher = new MessageExceptionHandlerDispatcher(Arrays.asList(critical, fireAndForget((failed, cause) -> {
+      fireAndForgetMessage.set(failed);
+      await(release);
+    })), 2, 1000, 5, 1000);
+
+    dispatcher.dispatch(message, cause);
+
+    assertNotSame(message, criticalMessage.get());
+    assertArrayEquals(message.getBody(), criticalMessage.get().getBody());
+    release.countDown();
+    while (fireAndForgetMessage.get() == null) {
+      Thread.yield();
+    }
+    assertNotSame(message, fireAndForgetMessage.get());
+    assertArrayEquals(message.getBody(), fireAndForgetMessage.get().getBody());
+  }
+
+  @Test
+  public void slowHandlerTimedOutTest() {
+    CountDownLatch release = new CountDownLatch(1);
+    dispatcher = new MessageExceptionHandlerDispatcher(Arrays.asList((failed, cause) -> await(release)), 2, 50, 5, 1000);
+
+    long start = System.nanoTime();
+    dispatcher.dispatch(message, cause);
+
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    release.countDown();
+  }
+
+  @Test
+  public void handlersBeyondTheBoundRejectedTest() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    MessageExceptionHandler handler = fireAndForget((failed, cause) -> {
+      calls.incrementAndGet();
+      await(release);
+    });
+    dispatcher = new MessageExceptionHandlerDispatcher(Arrays.asList(handler, handler, handler), 1, 1000, 5, 1000);
+
+    dispatcher.dispatch(message, cause);
+    release.countDown();
+    dispatcher.close();
+
+    while (calls.get() < 2) {
+      Thread.yield();
+    }
+    Thread.sleep(50);
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void circuitBreakerOpenedAfterFailuresTest() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    dispatcher = new MessageExceptionHandlerDispatcher(Arrays.asList((failed, cause) -> {
+      calls.incrementAndGet();
+      throw new IllegalStateException("database down");
+    }), 2, 1000, 2, 100);
+
+    for (int i = 0; i < 4; i++) {
+      dispatcher.dispatch(message, cause);
+    }
+    assertEquals(2, calls.get());
+
+    Thread.sleep(150);
+    dispatcher.dispatch(message, cause);
+    dispatcher.dispatch(message, cause);
+    assertEquals(3, calls.get());
+  }
+
+  private static MessageExceptionHandler fireAndForget(MessageExceptionHandler handler) {
+    return new MessageExceptionHandler() {
+      @Override
+      public void handle(Message message, Throwable cause) {
+        handler.handle(message, cause);
+      }
+
+      @Override
+      public boolean isCritical() {
+        return false;
+      }
+    };
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
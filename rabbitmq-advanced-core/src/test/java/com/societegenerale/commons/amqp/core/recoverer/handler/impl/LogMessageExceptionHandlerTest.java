@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.recoverer.handler.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(OutputCaptureExtension.class)
+public class LogMessageExceptionHandlerTest {
+
+  private LogMessageExceptionHandler logMessageExceptionHandler;
+
+  @BeforeEach
+  public void setUp() {
+    logMessageExceptionHandler = new LogMessageExceptionHandler();
+    logMessageExceptionHandler.setMaxBodyPreview(4);
+  }
+
+  @Test
+  public void readableBodyTruncatedTest() {
+    assertEquals("abcd...(byte[6])", logMessageExceptionHandler.getMessageString(message("abcdef", MessageProperties.CONTENT_TYPE_JSON)));
+    assertEquals("abc", logMessageExceptionHandler.getMessageString(message("abc", MessageProperties.CONTENT_TYPE_TEXT_PLAIN)));
+  }
+
+  @Test
+  public void binaryBodyPreviewTest() {
+    Message message = MessageBuilder.withBody(new byte[]{0x01, (byte) 0xAB, 0x7F, 0x00, 0x10}).build();
+    assertEquals("01ab7f00...(byte[5])", logMessageExceptionHandler.getMessageString(message));
+    logMessageExceptionHandler.setBinaryPreview(LogMessageExceptionHandler.BinaryPreview.BASE64);
+    assertEquals("Aat/AA==...(byte[5])", logMessageExceptionHandler.getMessageString(message));
+  }
+
+  @Test
+  public void logsRateLimitedPerQueueAndExceptionTest(CapturedOutput output) {
+    logMessageExceptionHandler.setRateLimit(2, 0.001);
+    Message message = message("abc", MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+    message.getMessageProperties().setHeader("x-original-queue", "limited-queue");
+    message.getMessageProperties().setHeader("x-exception-stacktrace", "full-stack-trace-header");
+    for (int i = 0; i < 5; i++) {
+      logMessageExceptionHandler.handle(message, new IllegalStateException("failed"));
+    }
+    logMessageExceptionHandler.handle(message, new IllegalArgumentException("failed"));
+
+    assertEquals(3, count(output.getOut(), "message from queue {limited-queue}"));
+    assertFalse(output.getOut().contains("full-stack-trace-header"));
+  }
+
+  @Test
+  public void logsRateLimitedPerConsumerQueueWithoutOriginalQueueHeaderTest(CapturedOutput output) {
+    logMessageExceptionHandler.setRateLimit(1, 0.001);
+    Message message = message("abc", MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+    message.getMessageProperties().setConsumerQueue("broker-dead-lettered-queue");
+    Message otherMessage = message("abc", MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+    otherMessage.getMessageProperties().setConsumerQueue("other-broker-dead-lettered-queue");
+    for (int i = 0; i < 3; i++) {
+      logMessageExceptionHandler.handle(message, new IllegalStateException("failed"));
+      logMessageExceptionHandler.handle(otherMessage, new IllegalStateException("failed"));
+    }
+
+    assertEquals(1, count(output.getOut(), "message from queue {broker-dead-lettered-queue}"));
+    assertEquals(1, count(output.getOut(), "message from queue {other-broker-dead-lettered-queue}"));
+  }
+
+  @Test
+  public void suppressedLogsSummarizedTest(CapturedOutput output) throws InterruptedException {
+    logMessageExceptionHandler.setRateLimit(1, 20);
+    Message message = message("abc", MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+    message.getMessageProperties().setHeader("x-original-queue", "summarized-queue");
+    for (int i = 0; i < 3; i++) {
+      logMessageExceptionHandler.handle(message, new IllegalStateException("failed"));
+    }
+    Thread.sleep(100);
+    logMessageExceptionHandler.handle(message, new IllegalStateException("failed"));
+    assertTrue(output.getOut().contains("suppressed 2 similar errors"));
+  }
+
+  @Test
+  public void suppressedLogsSummarizedWhenErrorsStopTest(CapturedOutput output) throws InterruptedException {
+    logMessageExceptionHandler.setRateLimit(1, 0.001);
+    logMessageExceptionHandler.setSummaryInterval(50);
+    Message message = message("abc", MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+    message.getMessageProperties().setHeader("x-original-queue", "stopped-queue");
+    for (int i = 0; i < 3; i++) {
+      logMessageExceptionHandler.handle(message, new IllegalStateException("failed"));
+    }
+    Thread.sleep(300);
+    logMessageExceptionHandler.close();
+
+    assertEquals(1, count(output.getOut(), "from queue {stopped-queue} , suppressed 2 similar errors since the last one , cause {java.lang.IllegalStateException}"));
+  }
+
+  @Test
+  public void suppressedLogsSummarizedWhenLimitersDroppedTest(CapturedOutput output) {
+    logMessageExceptionHandler.setRateLimit(1, 0.001);
+    Message message = message("abc", MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+    message.getMessageProperties().setHeader("x-original-queue", "dropped-queue");
+    for (int i = 0; i < 3; i++) {
+      logMessageExceptionHandler.handle(message, new IllegalStateException("failed"));
+    }
+    logMessageExceptionHandler.setRateLimit(1, 0.001);
+
+    assertTrue(output.getOut().contains("from queue {dropped-queue} , suppressed 2 similar errors"));
+    logMessageExceptionHandler.close();
+  }
+
+  private static Message message(String body, String contentType) {
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setContentType(contentType);
+    return MessageBuilder.withBody(body.getBytes(StandardCharsets.UTF_8)).andProperties(messageProperties).build();
+  }
+
+  private static int count(String text, String part) {
+    int count = 0;
+    for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -16,13 +16,22 @@
 
 package com.societegenerale.commons.amqp.core.requeue;
 
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.impl.AMQImpl;
 import com.societegenerale.commons.amqp.core.config.*;
+import com.societegenerale.commons.amqp.core.requeue.lock.impl.InMemoryLockProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import static org.mockito.Mockito.*;
 
 /**
@@ -59,4 +68,61 @@ public class AutoReQueueSchedulerTest {
     verify(rabbitTemplate, times(2)).convertAndSend(anyString(), anyString(), any(ReQueueMessage.class));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void depthAwareAutoReQueueTest() throws Exception {
+    RabbitConfig rabbitConfig = RabbitConfig.builder()
+        .deadLetterConfig(DeadLetterConfig.builder()
+            .deadLetterExchange(ExchangeConfig.builder().name("my-dlx-exchange").build()).queuePostfix(".dlq").build())
+        .queue("empty", QueueConfig.builder().name("empty").deadLetterEnabled(true).build())
+        .queue("small", QueueConfig.builder().name("small").deadLetterEnabled(true).build())
+        .queue("missing", QueueConfig.builder().name("missing").deadLetterEnabled(true).build())
+        .queue("huge", QueueConfig.builder().name("huge").deadLetterEnabled(true).build())
+        .reQueueConfig(ReQueueConfig.builder().depthAware(true)
+            .exchange(ExchangeConfig.builder().name("re-queue-exchange").build()).routingKey("re-queue-key").build())
+        .build();
+    Channel channel = mock(Channel.class);
+    when(channel.queueDeclarePassive("empty.dlq")).thenReturn(new AMQImpl.Queue.DeclareOk("empty.dlq", 0, 0));
+    when(channel.queueDeclarePassive("small.dlq")).thenReturn(new AMQImpl.Queue.DeclareOk("small.dlq", 3, 0));
+    when(channel.queueDeclarePassive("missing.dlq")).thenThrow(new IOException("NOT_FOUND"));
+    when(channel.queueDeclarePassive("huge.dlq")).thenReturn(new AMQImpl.Queue.DeclareOk("huge.dlq", 5000, 0));
+    RabbitTemplate template = mock(RabbitTemplate.class);
+    when(template.execute(any())).thenAnswer(invocation -> ((ChannelCallback<?>) invocation.getArgument(0)).doInRabbit(channel));
+    AutoReQueueScheduler scheduler = new AutoReQueueScheduler();
+    scheduler.setRabbitConfig(rabbitConfig);
+    scheduler.setRabbitTemplate(template);
+    scheduler.setMessageCount(-1);
+
+    scheduler.autoReQueue();
+
+    // a single channel until the missing queue closes it
+    verify(template, times(2)).execute(any());
+    InOrder inOrder = inOrder(template);
+    inOrder.verify(template).convertAndSend("re-queue-exchange", "re-queue-key",
+        ReQueueMessage.builder().deadLetterQueue("huge.dlq").messageCount(5000).build());
+    inOrder.verify(template).convertAndSend("re-queue-exchange", "re-queue-key",
+        ReQueueMessage.builder().deadLetterQueue("small.dlq").messageCount(3).build());
+    verify(template, times(2)).convertAndSend(anyString(), anyString(), any(ReQueueMessage.class));
+  }
+
+  @Test
+  public void autoReQueueScheduledByTheLeaderOnlyTest() {
+    RabbitConfig rabbitConfig = RabbitConfig.builder()
+        .deadLetterConfig(DeadLetterConfig.builder()
+            .deadLetterExchange(ExchangeConfig.builder().name("my-dlx-exchange").build()).queuePostfix(".dlq").build())
+        .queue("queue-with-dlq", QueueConfig.builder().name("queue-with-dlq").deadLetterEnabled(true).build())
+        .reQueueConfig(ReQueueConfig.builder()
+            .exchange(ExchangeConfig.builder().name("re-queue-exchange").build()).routingKey("re-queue-key").build())
+        .build();
+    ConcurrentMap<String, String> locks = new ConcurrentHashMap<>();
+    RabbitTemplate template = mock(RabbitTemplate.class);
+    for (int i = 0; i < 3; i++) {
+      AutoReQueueScheduler scheduler = new AutoReQueueScheduler();
+      scheduler.setRabbitConfig(rabbitConfig);
+      scheduler.setRabbitTemplate(template);
+      scheduler.setLockProvider(new InMemoryLockProvider(locks));
+      scheduler.autoReQueue();
+    }
+    verify(template, times(1)).convertAndSend(anyString(), anyString(), any(ReQueueMessage.class));
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManagementApiQueueNodeResolverTest {
+
+  private HttpServer server;
+
+  private final List<String> paths = new CopyOnWriteArrayList<>();
+
+  private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/queues/", exchange -> {
+      paths.add(exchange.getRequestURI().getRawPath());
+      authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+      boolean known = exchange.getRequestURI().getRawPath().endsWith("/queue-one.DLQ");
+      byte[] body = (known ? "{\"name\":\"queue-one.DLQ\",\"node\":\"rabbit@node-1\"}" : "{\"error\":\"Object Not Found\"}")
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(known ? 200 : 404, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void nodeReadFromTheManagementApiTest() {
+    ManagementApiQueueNodeResolver resolver = resolver(60000);
+
+    assertEquals("rabbit@node-1", resolver.resolveNode("queue-one.DLQ"));
+    assertEquals("/api/queues/%2F/queue-one.DLQ", paths.get(0));
+    assertEquals("Basic Z3Vlc3Q6Z3Vlc3Q=", authorizations.get(0));
+  }
+
+  @Test
+  public void unknownQueueHasNoNodeTest() {
+    assertNull(resolver(60000).resolveNode("queue-two.DLQ"));
+  }
+
+  @Test
+  public void nodesCachedTest() throws Exception {
+    ManagementApiQueueNodeResolver resolver = resolver(60000);
+
+    resolver.resolveNode("queue-one.DLQ");
+    resolver.resolveNode("queue-one.DLQ");
+    resolver.resolveNode("queue-two.DLQ");
+    resolver.resolveNode("queue-two.DLQ");
+    assertEquals(2, paths.size());
+
+    ManagementApiQueueNodeResolver expiringResolver = resolver(0);
+    expiringResolver.resolveNode("queue-one.DLQ");
+    expiringResolver.resolveNode("queue-one.DLQ");
+    assertEquals(4, paths.size());
+  }
+
+  @Test
+  public void unreachableManagementApiTest() {
+    ManagementApiQueueNodeResolver resolver = resolver(60000);
+    server.stop(0);
+
+    assertNull(resolver.resolveNode("queue-one.DLQ"));
+  }
+
+  private ManagementApiQueueNodeResolver resolver(long cacheTtl) {
+    return new ManagementApiQueueNodeResolver("http://localhost:" + server.getAddress().getPort() + "/", "/", "guest", "guest", cacheTtl);
+  }
+}
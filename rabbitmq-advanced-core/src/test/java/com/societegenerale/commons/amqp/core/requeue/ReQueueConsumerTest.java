@@ -16,6 +16,7 @@
 
 package com.societegenerale.commons.amqp.core.requeue;
 
+import com.societegenerale.commons.amqp.core.config.ReQueueBackoffConfig;
 import com.societegenerale.commons.amqp.core.requeue.policy.ReQueuePolicy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +26,11 @@ import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.MessagePropertiesBuilder;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 /**
@@ -65,7 +71,20 @@ public class ReQueueConsumerTest {
     when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(message);
     when(reQueuePolicy.canReQueue(message)).thenReturn(true);
     reQueueConsumer.onMessage(reQueueMessage);
-    verify(rabbitTemplate, times(2)).send("dummy-queue", message);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue", message);
+  }
+
+  @Test
+  public void reQueuedMessagesArePacedByTheThrottleOfTheirQueue() throws Exception {
+    ReQueueThrottles reQueueThrottles = mock(ReQueueThrottles.class);
+    ReQueueThrottle reQueueThrottle = mock(ReQueueThrottle.class);
+    when(reQueueThrottles.throttle("dummy-queue")).thenReturn(reQueueThrottle);
+    reQueueConsumer.setReQueueThrottles(reQueueThrottles);
+    when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(message);
+    when(reQueuePolicy.canReQueue(message)).thenReturn(true);
+    reQueueConsumer.onMessage(reQueueMessage);
+    verify(reQueueThrottle, times(2)).acquire(message.getBody().length);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue", message);
   }
 
   @Test
@@ -73,14 +92,14 @@ public class ReQueueConsumerTest {
     when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(message);
     when(reQueuePolicy.canReQueue(message)).thenReturn(false);
     reQueueConsumer.onMessage(reQueueMessage);
-    verify(rabbitTemplate, times(2)).send("dummy-queue.dlq", message);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue.dlq", message);
   }
 
   @Test
   public void shouldNotReQueueIfTheMessageIsNull() {
     when(rabbitTemplate.receive(anyString(), anyLong())).thenReturn(null);
     reQueueConsumer.onMessage(reQueueMessage);
-    verify(rabbitTemplate, never()).send(anyString(), any(Message.class));
+    verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class));
   }
 
   @Test
@@ -92,6 +111,83 @@ public class ReQueueConsumerTest {
     //When
     reQueueConsumer.onMessage(reQueueMessage);
     //Then
-    verify(rabbitTemplate, times(2)).send("dummy-queue.dlq", message);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue.dlq", message);
+  }
+
+  @Test
+  public void reQueueMessageDeadLetteredByTheBroker() {
+    Map<String, Object> death = new HashMap<>();
+    death.put("queue", "dummy-queue");
+    death.put("reason", "rejected");
+    MessageProperties messageProperties = MessagePropertiesBuilder.newInstance()
+        .setHeader("x-death", Collections.singletonList(death)).build();
+    Message deadLettered = MessageBuilder.withBody("DummyMessage".getBytes()).andProperties(messageProperties).build();
+    when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(deadLettered);
+    when(reQueuePolicy.canReQueue(deadLettered)).thenReturn(true);
+    reQueueConsumer.onMessage(reQueueMessage);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue", deadLettered);
+  }
+
+  @Test
+  public void messagesWithoutOriginalQueueAreSentToTheParkingLotQueue() {
+    reQueueConsumer.setParkingLotQueue("dummy-queue.parking-lot");
+    Message orphan = MessageBuilder.withBody("DummyMessage".getBytes()).build();
+    when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(orphan);
+    when(reQueuePolicy.canReQueue(orphan)).thenReturn(true);
+    reQueueConsumer.onMessage(reQueueMessage);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue.parking-lot", orphan);
+  }
+
+  @Test
+  public void rejectedMessagesAreSentToTheParkingLotQueue() {
+    reQueueConsumer.setParkingLotQueue("dummy-queue.parking-lot");
+    when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(message);
+    when(reQueuePolicy.canReQueue(message)).thenReturn(false);
+    reQueueConsumer.onMessage(reQueueMessage);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue.parking-lot", message);
+    verify(rabbitTemplate, never()).send(eq(""), eq("dummy-queue.dlq"), any(Message.class));
+  }
+
+  @Test
+  public void rejectedMessagesAreReadOnceInARun() {
+    reQueueMessage.setMessageCount(-1);
+    when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(message);
+    when(reQueuePolicy.canReQueue(message)).thenReturn(false);
+    reQueueConsumer.onMessage(reQueueMessage);
+    // sent back marked with the run id, then read again and put back at the tail
+    verify(rabbitTemplate, times(2)).receive("dummy-queue.dlq", TIME_OUT);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue.dlq", message);
+    verify(reQueuePolicy, times(1)).canReQueue(message);
+  }
+
+  @Test
+  public void deadLetterQueueIsSubmittedToTheEngine() {
+    ReQueueEngine reQueueEngine = mock(ReQueueEngine.class);
+    reQueueConsumer.setReQueueEngine(reQueueEngine);
+    reQueueConsumer.onMessage(reQueueMessage);
+    verify(reQueueEngine).submit("dummy-queue.dlq", 2);
+    verify(rabbitTemplate, never()).receive(anyString(), anyLong());
+  }
+
+  @Test
+  public void delayedMessagesAreSentToTheDelayQueue() {
+    when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(message);
+    when(reQueuePolicy.canReQueue(message)).thenReturn(true);
+    when(reQueuePolicy.reQueueDelay(message)).thenReturn(2100L);
+    reQueueConsumer.setBackoffConfig(ReQueueBackoffConfig.builder().enabled(true).build());
+    reQueueConsumer.onMessage(reQueueMessage);
+    verify(rabbitTemplate, times(2)).send("", "dummy-queue.requeue-delay.2000", message);
+    assertEquals("2100", message.getMessageProperties().getExpiration());
+  }
+
+  @Test
+  public void delayedMessagesAreSentToTheDelayedExchange() {
+    reQueueConsumer.setBackoffConfig(ReQueueBackoffConfig.builder().enabled(true).delayedExchange("delayed-exchange").build());
+    when(rabbitTemplate.receive("dummy-queue.dlq", TIME_OUT)).thenReturn(message);
+    when(reQueuePolicy.canReQueue(message)).thenReturn(true);
+    when(reQueuePolicy.reQueueDelay(message)).thenReturn(2000L);
+    reQueueConsumer.onMessage(reQueueMessage);
+    verify(rabbitTemplate, times(2)).send("delayed-exchange", "dummy-queue", message);
+    assertEquals(Integer.valueOf(2000), message.getMessageProperties().getDelay());
   }
 }
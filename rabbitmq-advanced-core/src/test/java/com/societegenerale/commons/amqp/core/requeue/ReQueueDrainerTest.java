@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.societegenerale.commons.amqp.core.config.ReQueueBackoffConfig;
+import com.societegenerale.commons.amqp.core.requeue.policy.ReQueuePolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReQueueDrainerTest {
+
+  private static final String DEAD_LETTER_QUEUE = "dummy-queue.dlq";
+
+  private Channel channel;
+
+  private ConnectionFactory connectionFactory;
+
+  private ReQueuePolicy reQueuePolicy;
+
+  private final AtomicReference<Consumer> consumer = new AtomicReference<>();
+
+  private final AtomicLong deliveryTag = new AtomicLong();
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    channel = mock(Channel.class);
+    Connection connection = mock(Connection.class);
+    when(connection.createChannel(false)).thenReturn(channel);
+    connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenReturn(connection);
+    reQueuePolicy = mock(ReQueuePolicy.class);
+  }
+
+  @Test
+  public void reQueueAndAckByBatchAfterConfirmsTest() throws Exception {
+    when(reQueuePolicy.canReQueue(any())).thenReturn(true);
+    deliverOnConsume(5);
+
+    int count = new ReQueueDrainer(connectionFactory, reQueuePolicy, 10, 2, 50).drain(DEAD_LETTER_QUEUE, -1);
+
+    assertEquals(5, count);
+    verify(channel).basicQos(10);
+    verify(channel).confirmSelect();
+    verify(channel, times(5)).basicPublish(eq(""), eq("dummy-queue"), eq(false), any(), any());
+    InOrder inOrder = inOrder(channel);
+    inOrder.verify(channel).waitForConfirmsOrDie(50);
+    inOrder.verify(channel).basicAck(2, true);
+    inOrder.verify(channel).waitForConfirmsOrDie(50);
+    inOrder.verify(channel).basicAck(4, true);
+    inOrder.verify(channel).waitForConfirmsOrDie(50);
+    inOrder.verify(channel).basicAck(5, true);
+    verify(channel).basicCancel("consumer");
+  }
+
+  @Test
+  public void stopAtTheMessageCountTest() throws Exception {
+    when(reQueuePolicy.canReQueue(any())).thenReturn(true);
+    deliverOnConsume(5);
+
+    int count = new ReQueueDrainer(connectionFactory, reQueuePolicy, 10, 100, 50).drain(DEAD_LETTER_QUEUE, 3);
+
+    assertEquals(3, count);
+    verify(channel, times(3)).basicPublish(eq(""), eq("dummy-queue"), eq(false), any(), any());
+    verify(channel).basicAck(3, true);
+    verify(channel, never()).basicAck(eq(5L), anyBoolean());
+  }
+
+  @Test
+  public void rejectedMessagesGoBackToTheTailUntilReadAgainTest() throws Exception {
+    when(reQueuePolicy.canReQueue(any())).thenReturn(false);
+    deliverOnConsume(2);
+    // the messages published back to the dead letter queue are delivered again
+    doAnswer(invocation -> {
+      consumer.get().handleDelivery("consumer", new Envelope(deliveryTag.incrementAndGet(), false, "", DEAD_LETTER_QUEUE),
+          invocation.getArgument(3), invocation.getArgument(4));
+      return null;
+    }).when(channel).basicPublish(eq(""), eq(DEAD_LETTER_QUEUE), eq(false), any(), any());
+
+    int count = new ReQueueDrainer(connectionFactory, reQueuePolicy, 10, 100, 1000).drain(DEAD_LETTER_QUEUE, -1);
+
+    assertEquals(2, count);
+    verify(channel, times(2)).basicPublish(eq(""), eq(DEAD_LETTER_QUEUE), eq(false),
+        argThat((AMQP.BasicProperties properties) -> properties.getHeaders().get(ReQueueDrainer.REQUEUE_RUN_HEADER) != null), any());
+    verify(channel).basicAck(2, true);
+    verify(channel, never()).basicPublish(eq(""), eq("dummy-queue"), anyBoolean(), any(), any());
+  }
+
+  @Test
+  public void rejectedMessagesAreSentToTheParkingLotQueueTest() throws Exception {
+    when(reQueuePolicy.canReQueue(any())).thenReturn(false);
+    deliverOnConsume(3);
+    ReQueueDrainer reQueueDrainer = new ReQueueDrainer(connectionFactory, reQueuePolicy, 10, 100, 50);
+    reQueueDrainer.setParkingLotQueue("dummy-queue.parking-lot");
+
+    int count = reQueueDrainer.drain(DEAD_LETTER_QUEUE, -1);
+
+    assertEquals(3, count);
+    verify(channel, times(3)).basicPublish(eq(""), eq("dummy-queue.parking-lot"), eq(false),
+        argThat((AMQP.BasicProperties properties) -> properties.getHeaders().get(ReQueueDrainer.REQUEUE_RUN_HEADER) == null), any());
+    verify(channel, never()).basicPublish(eq(""), eq(DEAD_LETTER_QUEUE), anyBoolean(), any(), any());
+    verify(channel).basicAck(3, true);
+  }
+
+  @Test
+  public void requeuedMessagesArePacedByTheThrottleTest() throws Exception {
+    when(reQueuePolicy.canReQueue(any())).thenReturn(true);
+    deliverOnConsume(2);
+    ReQueueThrottle throttle = mock(ReQueueThrottle.class);
+    ReQueueThrottles throttles = mock(ReQueueThrottles.class);
+    when(throttles.throttle("dummy-queue")).thenReturn(throttle);
+    ReQueueDrainer reQueueDrainer = new ReQueueDrainer(connectionFactory, reQueuePolicy, 10, 100, 50);
+    reQueueDrainer.setReQueueThrottles(throttles);
+
+    reQueueDrainer.drain(DEAD_LETTER_QUEUE, -1);
+
+    InOrder inOrder = inOrder(throttle, channel);
+    inOrder.verify(throttle).acquire("message-0".getBytes().length);
+    inOrder.verify(channel).basicPublish(eq(""), eq("dummy-queue"), eq(false), any(), any());
+    inOrder.verify(throttle).acquire("message-1".getBytes().length);
+    inOrder.verify(channel).basicPublish(eq(""), eq("dummy-queue"), eq(false), any(), any());
+  }
+
+  @Test
+  public void delayedMessagesWaitInTheDelayQueueTest() throws Exception {
+    when(reQueuePolicy.canReQueue(any())).thenReturn(true);
+    when(reQueuePolicy.reQueueDelay(any())).thenReturn(2100L);
+    deliverOnConsume(2);
+    ReQueueDrainer reQueueDrainer = new ReQueueDrainer(connectionFactory, reQueuePolicy, 10, 100, 50);
+    reQueueDrainer.setBackoffConfig(ReQueueBackoffConfig.builder().enabled(true).build());
+
+    reQueueDrainer.drain(DEAD_LETTER_QUEUE, -1);
+
+    verify(channel, times(2)).basicPublish(eq(""), eq("dummy-queue.requeue-delay.2000"), eq(false),
+        argThat((AMQP.BasicProperties properties) -> "2100".equals(properties.getExpiration())), any());
+    verify(channel, never()).basicPublish(eq(""), eq("dummy-queue"), anyBoolean(), any(), any());
+  }
+
+  @Test
+  public void delayedMessagesArePublishedToTheDelayedExchangeTest() throws Exception {
+    when(reQueuePolicy.canReQueue(any())).thenReturn(true);
+    when(reQueuePolicy.reQueueDelay(any())).thenReturn(2000L);
+    deliverOnConsume(2);
+    ReQueueDrainer reQueueDrainer = new ReQueueDrainer(connectionFactory, reQueuePolicy, 10, 100, 50);
+    reQueueDrainer.setBackoffConfig(ReQueueBackoffConfig.builder().enabled(true).delayedExchange("delayed-exchange").build());
+
+    reQueueDrainer.drain(DEAD_LETTER_QUEUE, -1);
+
+    verify(channel, times(2)).basicPublish(eq("delayed-exchange"), eq("dummy-queue"), eq(false),
+        argThat((AMQP.BasicProperties properties) -> Integer.valueOf(2000).equals(properties.getHeaders().get("x-delay"))
+            && properties.getExpiration() == null), any());
+  }
+
+  private void deliverOnConsume(int messages) throws Exception {
+    when(channel.basicConsume(eq(DEAD_LETTER_QUEUE), eq(false), any(Consumer.class))).thenAnswer(invocation -> {
+      consumer.set(invocation.getArgument(2));
+      for (int i = 0; i < messages; i++) {
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+            .headers(Collections.singletonMap("x-original-queue", "dummy-queue"))
+            .build();
+        consumer.get().handleDelivery("consumer", new Envelope(deliveryTag.incrementAndGet(), false, "", DEAD_LETTER_QUEUE),
+            properties, ("message-" + i).getBytes());
+      }
+      return "consumer";
+    });
+  }
+}
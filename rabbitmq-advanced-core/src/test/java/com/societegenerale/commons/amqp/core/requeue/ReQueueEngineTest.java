@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReQueueEngineTest {
+
+  private ReQueueDrainer reQueueDrainer;
+
+  private ReQueueEngine reQueueEngine;
+
+  private final Map<String, AtomicInteger> deadLetterQueues = new ConcurrentHashMap<>();
+
+  private final List<String> drains = new CopyOnWriteArrayList<>();
+
+  private volatile String blockedQueue;
+
+  private volatile CountDownLatch firstDrain = new CountDownLatch(0);
+
+  @BeforeEach
+  public void setUp() {
+    reQueueDrainer = mock(ReQueueDrainer.class);
+    // reads up to 'messageCount' of the messages left in the dead letter queue
+    when(reQueueDrainer.drain(anyString(), anyInt(), anyString())).thenAnswer(invocation -> {
+      String queue = invocation.getArgument(0);
+      if (queue.equals(blockedQueue)) {
+        blockedQueue = null;
+        firstDrain.await(5, TimeUnit.SECONDS);
+      }
+      int messageCount = invocation.getArgument(1);
+      drains.add(queue);
+      AtomicInteger messages = deadLetterQueues.get(queue);
+      int read = Math.min(messageCount, messages.get());
+      messages.addAndGet(-read);
+      return read;
+    });
+  }
+
+  @AfterEach
+  public void tearDown() {
+    reQueueEngine.close();
+  }
+
+  @Test
+  public void deadLetterQueuesShareTheWorkersTest() throws Exception {
+    deadLetterQueues.put("huge.dlq", new AtomicInteger(6));
+    deadLetterQueues.put("small.dlq", new AtomicInteger(1));
+    reQueueEngine = new ReQueueEngine(reQueueDrainer, queue -> "node", 1, 1, 2);
+
+    CountDownLatch blocked = blockFirstDrain("huge.dlq");
+    assertTrue(reQueueEngine.submit("huge.dlq", -1));
+    assertTrue(reQueueEngine.submit("small.dlq", -1));
+    blocked.countDown();
+
+    awaitCompleted("huge.dlq");
+    awaitCompleted("small.dlq");
+    // the small queue is drained after the first slice of the huge one
+    assertEquals("small.dlq", drains.get(1));
+    Map<String, ReQueueProgress> progress = reQueueEngine.getProgress();
+    assertEquals(6, progress.get("huge.dlq").getMessagesRead());
+    assertEquals(4, progress.get("huge.dlq").getSlices());
+    assertEquals(1, progress.get("small.dlq").getMessagesRead());
+    assertEquals(0, deadLetterQueues.get("huge.dlq").get());
+  }
+
+  @Test
+  public void deadLetterQueueSubmittedOnceTest() throws Exception {
+    deadLetterQueues.put("queue.dlq", new AtomicInteger(3));
+    reQueueEngine = new ReQueueEngine(reQueueDrainer, queue -> "node", 2, 2, 10);
+
+    CountDownLatch blocked = blockFirstDrain("queue.dlq");
+    assertTrue(reQueueEngine.submit("queue.dlq", -1));
+    assertFalse(reQueueEngine.submit("queue.dlq", -1));
+    blocked.countDown();
+
+    awaitCompleted("queue.dlq");
+    assertEquals(3, reQueueEngine.getProgress().get("queue.dlq").getMessagesRead());
+    // submitted again once completed
+    assertTrue(reQueueEngine.submit("queue.dlq", -1));
+  }
+
+  @Test
+  public void drainsPerNodeAreCappedTest() throws Exception {
+    deadLetterQueues.put("a.dlq", new AtomicInteger(1));
+    deadLetterQueues.put("b.dlq", new AtomicInteger(1));
+    deadLetterQueues.put("c.dlq", new AtomicInteger(1));
+    reQueueEngine = new ReQueueEngine(reQueueDrainer, queue -> queue.equals("c.dlq") ? "node-2" : "node-1", 4, 1, 10);
+
+    CountDownLatch blocked = blockFirstDrain("a.dlq");
+    reQueueEngine.submit("a.dlq", -1);
+    reQueueEngine.submit("b.dlq", -1);
+    reQueueEngine.submit("c.dlq", -1);
+
+    // the other node is not held up by the busy one
+    awaitCompleted("c.dlq");
+    assertEquals(ReQueueProgress.State.RUNNING, reQueueEngine.getProgress().get("a.dlq").getState());
+    assertEquals(ReQueueProgress.State.QUEUED, reQueueEngine.getProgress().get("b.dlq").getState());
+    blocked.countDown();
+
+    awaitCompleted("a.dlq");
+    awaitCompleted("b.dlq");
+  }
+
+  @Test
+  public void drainsOfUnknownNodesAreNotCappedTest() throws Exception {
+    deadLetterQueues.put("a.dlq", new AtomicInteger(1));
+    deadLetterQueues.put("b.dlq", new AtomicInteger(1));
+    reQueueEngine = new ReQueueEngine(reQueueDrainer, queue -> null, 4, 1, 10);
+
+    CountDownLatch blocked = blockFirstDrain("a.dlq");
+    reQueueEngine.submit("a.dlq", -1);
+    reQueueEngine.submit("b.dlq", -1);
+
+    awaitCompleted("b.dlq");
+    assertEquals(ReQueueProgress.State.RUNNING, reQueueEngine.getProgress().get("a.dlq").getState());
+    blocked.countDown();
+
+    awaitCompleted("a.dlq");
+  }
+
+  @Test
+  public void messageCountIsSplitInSlicesTest() throws Exception {
+    deadLetterQueues.put("queue.dlq", new AtomicInteger(10));
+    reQueueEngine = new ReQueueEngine(reQueueDrainer, queue -> "node", 1, 1, 3);
+
+    reQueueEngine.submit("queue.dlq", 5);
+
+    awaitCompleted("queue.dlq");
+    verify(reQueueDrainer).drain(eq("queue.dlq"), eq(3), anyString());
+    verify(reQueueDrainer).drain(eq("queue.dlq"), eq(2), anyString());
+    assertEquals(5, deadLetterQueues.get("queue.dlq").get());
+  }
+
+  @Test
+  public void failedDrainIsReportedTest() throws Exception {
+    doThrow(new IllegalStateException("channel closed")).when(reQueueDrainer).drain(eq("queue.dlq"), anyInt(), anyString());
+    reQueueEngine = new ReQueueEngine(reQueueDrainer, queue -> "node", 1, 1, 3);
+
+    reQueueEngine.submit("queue.dlq", -1);
+
+    awaitState("queue.dlq", ReQueueProgress.State.FAILED);
+  }
+
+  private CountDownLatch blockFirstDrain(String deadLetterQueue) {
+    blockedQueue = deadLetterQueue;
+    firstDrain = new CountDownLatch(1);
+    return firstDrain;
+  }
+
+  private void awaitCompleted(String deadLetterQueue) throws InterruptedException {
+    awaitState(deadLetterQueue, ReQueueProgress.State.COMPLETED);
+  }
+
+  private void awaitState(String deadLetterQueue, ReQueueProgress.State state) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline) {
+      ReQueueProgress progress = reQueueEngine.getProgress().get(deadLetterQueue);
+      if (progress != null && progress.getState() == state) {
+        return;
+      }
+      Thread.sleep(10);
+    }
+    fail("Requeue of " + deadLetterQueue + " not " + state);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue;
+
+import com.societegenerale.commons.amqp.core.config.ReQueueRateConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.QueueInformation;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReQueueThrottleTest {
+
+  private AmqpAdmin amqpAdmin;
+
+  private ReQueueFailureTracker failureTracker;
+
+  @BeforeEach
+  public void setUp() {
+    amqpAdmin = mock(AmqpAdmin.class);
+    failureTracker = new ReQueueFailureTracker();
+  }
+
+  @Test
+  public void messagesPerSecondAreCappedTest() throws Exception {
+    ReQueueThrottle throttle = new ReQueueThrottle("queue",
+        ReQueueRateConfig.builder().messagesPerSecond(100).build(), amqpAdmin, failureTracker);
+
+    long start = System.nanoTime();
+    // a burst of 100 messages, then 20 more at 100 per second
+    for (int i = 0; i < 120; i++) {
+      throttle.acquire(10);
+    }
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+  }
+
+  @Test
+  public void bytesPerSecondAreCappedTest() throws Exception {
+    ReQueueThrottle throttle = new ReQueueThrottle("queue",
+        ReQueueRateConfig.builder().bytesPerSecond(1000).build(), amqpAdmin, failureTracker);
+
+    long start = System.nanoTime();
+    throttle.acquire(1000);
+    // bigger than the bucket : waits for a full bucket, then the bytes beyond are paid back by the next message
+    throttle.acquire(2000);
+    throttle.acquire(1);
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1800));
+  }
+
+  @Test
+  public void rateIsHalvedAboveTheWatermarkAndRaisedBelowTest() throws Exception {
+    when(amqpAdmin.getQueueInfo("queue")).thenReturn(new QueueInformation("queue", 500, 1), new QueueInformation("queue", 0, 1));
+    ReQueueThrottle throttle = new ReQueueThrottle("queue",
+        ReQueueRateConfig.builder().messagesPerSecond(1000).depthWatermark(100).checkInterval(1).build(), amqpAdmin, failureTracker);
+
+    throttle.acquire(10);
+    assertEquals(0.5, throttle.getRatio(), 0.001);
+    Thread.sleep(5);
+    throttle.acquire(10);
+    assertEquals(0.6, throttle.getRatio(), 0.001);
+  }
+
+  @Test
+  public void depthReadOutOfTheLockTest() throws Exception {
+    ReQueueThrottle[] throttle = new ReQueueThrottle[1];
+    when(amqpAdmin.getQueueInfo("queue")).thenAnswer(invocation -> {
+      // a slow passive declare must not block the other drains
+      assertFalse(Thread.holdsLock(throttle[0]));
+      return new QueueInformation("queue", 0, 1);
+    });
+    throttle[0] = new ReQueueThrottle("queue",
+        ReQueueRateConfig.builder().messagesPerSecond(1000).depthWatermark(100).build(), amqpAdmin, failureTracker);
+
+    throttle[0].acquire(10);
+    verify(amqpAdmin).getQueueInfo("queue");
+  }
+
+  @Test
+  public void requeuePausesAboveTheWatermarkWithoutRateLimitTest() throws Exception {
+    when(amqpAdmin.getQueueInfo("queue")).thenReturn(new QueueInformation("queue", 500, 1), new QueueInformation("queue", 0, 1));
+    ReQueueThrottle throttle = new ReQueueThrottle("queue",
+        ReQueueRateConfig.builder().depthWatermark(100).checkInterval(200).build(), amqpAdmin, failureTracker);
+
+    long start = System.nanoTime();
+    throttle.acquire(10);
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+    verify(amqpAdmin, times(2)).getQueueInfo("queue");
+  }
+
+  @Test
+  public void rateIsHalvedWhenRequeuedMessagesFailTest() throws Exception {
+    ReQueueThrottle throttle = new ReQueueThrottle("queue",
+        ReQueueRateConfig.builder().messagesPerSecond(1000).maxFailureRatio(0.2).checkInterval(1).build(), amqpAdmin, failureTracker);
+
+    throttle.acquire(10);
+    throttle.acquire(10);
+    Message failed = MessageBuilder.withBody("failed".getBytes()).build();
+    failed.getMessageProperties().setConsumerQueue("queue");
+    failureTracker.handle(failed, new IllegalStateException());
+    Thread.sleep(5);
+    throttle.acquire(10);
+    // 1 failure for 2 requeued messages
+    assertEquals(0.5, throttle.getRatio(), 0.001);
+    verifyNoInteractions(amqpAdmin);
+  }
+}
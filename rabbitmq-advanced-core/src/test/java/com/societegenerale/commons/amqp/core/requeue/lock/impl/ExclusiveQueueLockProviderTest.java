@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue.lock.impl;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ExclusiveQueueLockProviderTest {
+
+  private static final String LOCK_QUEUE = "rabbitmq-advanced.lock.auto-requeue";
+
+  private Channel channel;
+
+  private ExclusiveQueueLockProvider lockProvider;
+
+  @BeforeEach
+  public void setUp() {
+    channel = mock(Channel.class);
+    when(channel.isOpen()).thenReturn(true);
+    Connection connection = mock(Connection.class);
+    when(connection.createChannel(false)).thenReturn(channel);
+    ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenReturn(connection);
+    lockProvider = new ExclusiveQueueLockProvider(connectionFactory, "rabbitmq-advanced.lock.");
+  }
+
+  @Test
+  public void lockHeldWithAnExclusiveQueueTest() throws Exception {
+    assertTrue(lockProvider.tryLock("auto-requeue"));
+    assertTrue(lockProvider.tryLock("auto-requeue"));
+    verify(channel, times(1)).queueDeclare(LOCK_QUEUE, false, true, true, null);
+
+    lockProvider.unlock("auto-requeue");
+    verify(channel).queueDelete(LOCK_QUEUE);
+    verify(channel).close();
+  }
+
+  @Test
+  public void lockHeldByAnotherInstanceTest() throws Exception {
+    when(channel.queueDeclare(LOCK_QUEUE, false, true, true, null)).thenThrow(new IOException("RESOURCE_LOCKED"));
+
+    assertFalse(lockProvider.tryLock("auto-requeue"));
+    verify(channel).close();
+    lockProvider.unlock("auto-requeue");
+    verify(channel, never()).queueDelete(anyString());
+  }
+
+  @Test
+  public void lockAcquiredAgainOnceLostTest() throws Exception {
+    assertTrue(lockProvider.tryLock("auto-requeue"));
+    // the connection holding the lock was closed
+    when(channel.isOpen()).thenReturn(false);
+    assertTrue(lockProvider.tryLock("auto-requeue"));
+    verify(channel, times(2)).queueDeclare(LOCK_QUEUE, false, true, true, null);
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue.lock.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryLockProviderTest {
+
+  @Test
+  public void singleOwnerTest() {
+    ConcurrentMap<String, String> locks = new ConcurrentHashMap<>();
+    InMemoryLockProvider first = new InMemoryLockProvider(locks);
+    InMemoryLockProvider second = new InMemoryLockProvider(locks);
+
+    assertTrue(first.tryLock("lock"));
+    assertTrue(first.tryLock("lock"));
+    assertFalse(second.tryLock("lock"));
+    assertTrue(second.tryLock("other-lock"));
+
+    // only released by its owner
+    second.unlock("lock");
+    assertFalse(second.tryLock("lock"));
+    first.unlock("lock");
+    assertTrue(second.tryLock("lock"));
+  }
+}
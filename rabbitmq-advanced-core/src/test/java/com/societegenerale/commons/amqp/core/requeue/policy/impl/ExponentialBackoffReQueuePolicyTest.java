@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.core.requeue.policy.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessagePropertiesBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExponentialBackoffReQueuePolicyTest {
+
+  private Message message;
+
+  @BeforeEach
+  public void setUp() {
+    message = MessageBuilder.withBody("DummyMessage".getBytes()).andProperties(MessagePropertiesBuilder.newInstance().build()).build();
+  }
+
+  @Test
+  public void shouldMultiplyTheDelayAtEachRequeue() {
+    ExponentialBackoffReQueuePolicy policy = new ExponentialBackoffReQueuePolicy(1000, 2, 600000, 0);
+    ReflectionTestUtils.setField(policy, "threshold", 10);
+
+    assertTrue(policy.canReQueue(message));
+    assertEquals(1000, policy.reQueueDelay(message));
+    assertTrue(policy.canReQueue(message));
+    assertEquals(2000, policy.reQueueDelay(message));
+    assertTrue(policy.canReQueue(message));
+    assertEquals(4000, policy.reQueueDelay(message));
+  }
+
+  @Test
+  public void shouldCapTheDelayToTheMaxDelay() {
+    ExponentialBackoffReQueuePolicy policy = new ExponentialBackoffReQueuePolicy(1000, 10, 30000, 0.2);
+    message.getMessageProperties().getHeaders().put("x-requeue-count", 5);
+
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.reQueueDelay(message);
+      assertTrue(delay >= 24000 && delay <= 30000, "delay " + delay);
+    }
+  }
+
+  @Test
+  public void shouldKeepTheJitteredDelayWithinItsBounds() {
+    ExponentialBackoffReQueuePolicy policy = new ExponentialBackoffReQueuePolicy(1000, 2, 600000, 0.2);
+    message.getMessageProperties().getHeaders().put("x-requeue-count", 3);
+
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.reQueueDelay(message);
+      assertTrue(delay >= 3200 && delay <= 4800, "delay " + delay);
+    }
+  }
+
+  @Test
+  public void shouldStillRejectTheMessagesAboveTheThreshold() {
+    ExponentialBackoffReQueuePolicy policy = new ExponentialBackoffReQueuePolicy(1000, 2, 600000, 0.2);
+    ReflectionTestUtils.setField(policy, "threshold", 3);
+    message.getMessageProperties().getHeaders().put("x-requeue-count", 3);
+
+    assertFalse(policy.canReQueue(message));
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.societegenerale.commons.amqp.core.config.FingerprintMatchAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FingerprintTopologyDeclarerTest {
+
+  @TempDir
+  Path folder;
+
+  private StandInBroker broker;
+
+  private TopologyDeclarer delegate;
+
+  private FingerprintStore fingerprintStore;
+
+  private Topology topology;
+
+  @BeforeEach
+  public void setUp() {
+    broker = new StandInBroker(0);
+    delegate = spy(new PipelinedTopologyDeclarer(broker.connectionFactory(), 2, 10, 1000));
+    fingerprintStore = new FileFingerprintStore(folder.resolve("topology.fingerprint"));
+    topology = PipelinedTopologyDeclarerTest.topology(5);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    broker.close();
+  }
+
+  @Test
+  public void shouldDeclareAndSaveTheFingerprintOnFirstStartup() {
+    DeclarationResult result = declarer(FingerprintMatchAction.SKIP).declare(topology);
+
+    assertTrue(result.isSuccessful());
+    verify(delegate).declare(topology);
+    assertTrue(fingerprintStore.matches(TopologyFingerprint.of(topology)));
+  }
+
+  @Test
+  public void shouldSkipTheDeclarationWhenTheFingerprintMatches() {
+    declarer(FingerprintMatchAction.SKIP).declare(topology);
+    DeclarationResult result = declarer(FingerprintMatchAction.SKIP).declare(topology);
+
+    assertTrue(result.isSuccessful());
+    assertEquals(topology.size(), result.getDeclaredCount());
+    verify(delegate, times(1)).declare(topology);
+  }
+
+  @Test
+  public void shouldOnlyCheckPassivelyWhenTheFingerprintMatches() {
+    declarer(FingerprintMatchAction.PASSIVE).declare(topology);
+    broker.reset();
+    broker.getDeclared().add("exchange-0");
+    fingerprintStore.save(TopologyFingerprint.of(topology));
+
+    // the other entities are missing on the broker : declared again
+    declarer(FingerprintMatchAction.PASSIVE).declare(topology);
+    verify(delegate, times(2)).declare(topology);
+
+    // everything exists on the broker : only checked
+    declarer(FingerprintMatchAction.PASSIVE).declare(topology);
+    verify(delegate, times(2)).declare(topology);
+  }
+
+  @Test
+  public void shouldDeclareAgainWhenTheTopologyChanged() {
+    declarer(FingerprintMatchAction.SKIP).declare(PipelinedTopologyDeclarerTest.topology(4));
+    declarer(FingerprintMatchAction.SKIP).declare(topology);
+
+    verify(delegate).declare(topology);
+    assertTrue(fingerprintStore.matches(TopologyFingerprint.of(topology)));
+  }
+
+  @Test
+  public void shouldNotSaveTheFingerprintWhenTheDeclarationFailed() {
+    broker = new StandInBroker(0, "queue-1");
+    delegate = new PipelinedTopologyDeclarer(broker.connectionFactory(), 2, 10, 1000);
+
+    DeclarationResult result = declarer(FingerprintMatchAction.SKIP).declare(topology);
+
+    assertFalse(result.isSuccessful());
+    assertFalse(fingerprintStore.matches(TopologyFingerprint.of(topology)));
+  }
+
+  private FingerprintTopologyDeclarer declarer(FingerprintMatchAction onMatch) {
+    return new FingerprintTopologyDeclarer(delegate, fingerprintStore, onMatch, broker.connectionFactory());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class LazyTopologyDeclarerTest {
+
+  private StandInBroker broker;
+
+  private TopologyDeclarer delegate;
+
+  private LazyTopologyDeclarer lazyTopologyDeclarer;
+
+  @BeforeEach
+  public void setUp() {
+    broker = new StandInBroker(0, "failing-queue");
+    delegate = spy(new PipelinedTopologyDeclarer(broker.connectionFactory(), 2, 10, 1000));
+    lazyTopologyDeclarer = new LazyTopologyDeclarer(delegate);
+
+    TopicExchange deadLetterExchange = new TopicExchange("dlx");
+    DirectExchange orders = new DirectExchange("orders");
+    TopicExchange events = new TopicExchange("events");
+    Queue created = QueueBuilder.durable("created").deadLetterExchange("dlx").deadLetterRoutingKey("created.dlq").build();
+    Queue createdDlq = new Queue("created.dlq");
+    Queue cancelled = new Queue("cancelled");
+    Queue audit = new Queue("audit");
+    Queue failing = new Queue("failing-queue");
+
+    Topology topology = new Topology()
+        .add("dlx", EntityType.DEAD_LETTER_EXCHANGE, deadLetterExchange)
+        .add("orders", EntityType.EXCHANGE, orders)
+        .add("events", EntityType.EXCHANGE, events)
+        .add("created", EntityType.QUEUE, created)
+        .add("created.dlq", EntityType.DEAD_LETTER_QUEUE, createdDlq)
+        .add("created.dlq", EntityType.DEAD_LETTER_BINDING, BindingBuilder.bind(createdDlq).to(deadLetterExchange).with("created.dlq"))
+        .add("cancelled", EntityType.QUEUE, cancelled)
+        .add("audit", EntityType.QUEUE, audit)
+        .add("failing-queue", EntityType.QUEUE, failing)
+        .add("orders-created", EntityType.BINDING, BindingBuilder.bind(created).to(orders).with("created"))
+        .add("orders-cancelled", EntityType.BINDING, BindingBuilder.bind(cancelled).to(orders).with("cancelled"))
+        .add("events-audit", EntityType.BINDING, BindingBuilder.bind(audit).to(events).with("order.*.done"))
+        .add("events-failing", EntityType.BINDING, BindingBuilder.bind(failing).to(events).with("failing.#"));
+
+    DeclarationResult result = lazyTopologyDeclarer.declare(topology);
+    assertTrue(result.isSuccessful());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    broker.close();
+  }
+
+  @Test
+  public void shouldNotDeclareAnythingOnRegistration() {
+    verify(delegate, never()).declare(any(Topology.class));
+    assertTrue(broker.getDeclared().isEmpty());
+  }
+
+  @Test
+  public void shouldDeclareTheExchangeAndTheMatchingRouteOnFirstPublish() {
+    lazyTopologyDeclarer.ensureExchange("orders", "created");
+
+    assertEquals(new HashSet<>(Arrays.asList("dlx", "orders", "created", "created.dlq",
+        StandInBroker.bindingName("dlx", "created.dlq", "created.dlq"),
+        StandInBroker.bindingName("orders", "created", "created"))), broker.getDeclared());
+  }
+
+  @Test
+  public void shouldOnlyDeclareOncePerRoute() {
+    lazyTopologyDeclarer.ensureExchange("orders", "created");
+    lazyTopologyDeclarer.ensureExchange("orders", "created");
+    lazyTopologyDeclarer.ensureQueue("created");
+    verify(delegate, times(1)).declare(any(Topology.class));
+
+    lazyTopologyDeclarer.ensureExchange("orders", "cancelled");
+    lazyTopologyDeclarer.ensureExchange("orders", "anything");
+    lazyTopologyDeclarer.ensureExchange("unknown", "anything");
+    verify(delegate, times(2)).declare(any(Topology.class));
+  }
+
+  @Test
+  public void shouldDeclareTheQueueWithItsIncomingBindingsOnFirstUse() {
+    lazyTopologyDeclarer.ensureQueues("audit");
+
+    assertEquals(new HashSet<>(Arrays.asList("events", "audit", StandInBroker.bindingName("events", "audit", "order.*.done"))),
+        broker.getDeclared());
+  }
+
+  @Test
+  public void shouldFollowTopicRoutingKeys() {
+    lazyTopologyDeclarer.ensureExchange("events", "order.42.created");
+    assertEquals(new HashSet<>(Arrays.asList("events")), broker.getDeclared());
+
+    lazyTopologyDeclarer.ensureExchange("events", "order.42.done");
+    assertTrue(broker.getDeclared().contains("audit"));
+  }
+
+  @Test
+  public void shouldFailAndRetryWhenTheDeclarationFailed() {
+    assertThrows(RabbitmqConfigurationException.class, () -> lazyTopologyDeclarer.ensureExchange("events", "failing.order"));
+    assertThrows(RabbitmqConfigurationException.class, () -> lazyTopologyDeclarer.ensureExchange("events", "failing.order"));
+    assertTrue(broker.getDeclared().contains("events"));
+  }
+
+  @Test
+  public void topicBindingKeysShouldMatchLikeTheBroker() {
+    assertTrue(LazyTopologyDeclarer.matches(ExchangeTypes.TOPIC, "a.*.c", "a.b.c"));
+    assertTrue(LazyTopologyDeclarer.matches(ExchangeTypes.TOPIC, "a.#", "a"));
+    assertTrue(LazyTopologyDeclarer.matches(ExchangeTypes.TOPIC, "#.c", "a.b.c"));
+    assertFalse(LazyTopologyDeclarer.matches(ExchangeTypes.TOPIC, "a.*", "a.b.c"));
+    assertFalse(LazyTopologyDeclarer.matches(ExchangeTypes.DIRECT, "a", "b"));
+    assertTrue(LazyTopologyDeclarer.matches(ExchangeTypes.FANOUT, "a", "b"));
+  }
+}
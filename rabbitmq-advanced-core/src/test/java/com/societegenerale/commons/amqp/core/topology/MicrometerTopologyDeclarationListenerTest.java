@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MicrometerTopologyDeclarationListenerTest {
+
+  private StandInBroker broker;
+
+  private MeterRegistry meterRegistry;
+
+  private TopologyDeclarer topologyDeclarer;
+
+  @BeforeEach
+  public void setUp() {
+    broker = new StandInBroker(1, "queue-2");
+    meterRegistry = new SimpleMeterRegistry();
+    topologyDeclarer = new ObservedTopologyDeclarer(new ParallelTopologyDeclarer(broker.connectionFactory(), 2, 1000),
+        Collections.singletonList(new MicrometerTopologyDeclarationListener(meterRegistry)));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    broker.close();
+  }
+
+  @Test
+  public void shouldRecordEachDeclarationByTypeAndOutcome() {
+    topologyDeclarer.declare(PipelinedTopologyDeclarerTest.topology(5));
+
+    assertEquals(5, meterRegistry.get(MicrometerTopologyDeclarationListener.ENTITY_TIMER)
+        .tags("type", EntityType.EXCHANGE.getValue(), "outcome", "success").timer().count());
+    assertEquals(4, meterRegistry.get(MicrometerTopologyDeclarationListener.ENTITY_TIMER)
+        .tags("type", EntityType.QUEUE.getValue(), "outcome", "success").timer().count());
+    assertEquals(1, meterRegistry.get(MicrometerTopologyDeclarationListener.ENTITY_TIMER)
+        .tags("type", EntityType.QUEUE.getValue(), "outcome", "failure").timer().count());
+    assertTrue(meterRegistry.get(MicrometerTopologyDeclarationListener.ENTITY_TIMER)
+        .tags("type", EntityType.BINDING.getValue()).timer().totalTime(TimeUnit.NANOSECONDS) > 0);
+  }
+
+  @Test
+  public void shouldRecordEachPhaseAndTheWholeDeclaration() {
+    topologyDeclarer.declare(PipelinedTopologyDeclarerTest.topology(5));
+
+    assertEquals(3, meterRegistry.get(MicrometerTopologyDeclarationListener.PHASE_TIMER).timers().size());
+    assertEquals(1, meterRegistry.get(MicrometerTopologyDeclarationListener.PHASE_TIMER).tag("phase", "queues").timer().count());
+    assertEquals(1, meterRegistry.get(MicrometerTopologyDeclarationListener.TOTAL_TIMER).tag("outcome", "failure").timer().count());
+  }
+}
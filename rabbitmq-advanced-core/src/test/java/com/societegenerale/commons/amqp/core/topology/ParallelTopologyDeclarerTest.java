@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelTopologyDeclarerTest {
+
+  private static final int SIZE = 50;
+
+  private StandInBroker broker;
+
+  @BeforeEach
+  public void setUp() {
+    broker = new StandInBroker(2, "queue-7", "exchange-3");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    broker.close();
+  }
+
+  @Test
+  public void shouldDeclareEachLayerConcurrently() {
+    broker = new StandInBroker(2);
+    long start = System.currentTimeMillis();
+    DeclarationResult result = new ParallelTopologyDeclarer(broker.connectionFactory(), 10, 1000).declare(PipelinedTopologyDeclarerTest.topology(SIZE));
+    long duration = System.currentTimeMillis() - start;
+
+    assertTrue(result.isSuccessful());
+    assertEquals(3 * SIZE, result.getDeclaredCount());
+    assertEquals(3 * SIZE, broker.getDeclared().size());
+    assertEquals(3 * SIZE, broker.getRoundTrips());
+    // 150 round trips of 2 ms, declared by 10 workers
+    assertTrue(duration < 3 * SIZE * 2, "declared in " + duration + " ms");
+    assertEquals(3, result.getPhaseTimings().size());
+  }
+
+  @Test
+  public void shouldReportTheFailuresPerEntityAndDeclareTheOthers() {
+    DeclarationResult result = new ParallelTopologyDeclarer(broker.connectionFactory(), 4, 1000).declare(PipelinedTopologyDeclarerTest.topology(SIZE));
+
+    assertEquals(2, result.getFailures().size());
+    assertEquals(3 * SIZE - 2, result.getDeclaredCount());
+    assertFalse(broker.getDeclared().contains("queue-7"));
+    assertTrue(broker.getDeclared().contains("queue-8"));
+    assertTrue(broker.getDeclared().contains("exchange-4"));
+  }
+}
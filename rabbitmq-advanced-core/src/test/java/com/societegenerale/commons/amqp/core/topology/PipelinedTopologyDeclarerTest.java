@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.societegenerale.commons.amqp.core.exception.RabbitmqConfigurationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PipelinedTopologyDeclarerTest {
+
+  private static final int SIZE = 50;
+
+  private StandInBroker broker;
+
+  @BeforeEach
+  public void setUp() {
+    broker = new StandInBroker(1, "queue-7");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    broker.close();
+  }
+
+  static Topology topology(int size) {
+    Topology topology = new Topology();
+    for (int i = 0; i < size; i++) {
+      DirectExchange exchange = new DirectExchange("exchange-" + i);
+      Queue queue = new Queue("queue-" + i);
+      Binding binding = BindingBuilder.bind(queue).to(exchange).with("key-" + i);
+      topology.add("exchange-" + i, EntityType.EXCHANGE, exchange)
+          .add("queue-" + i, EntityType.QUEUE, queue)
+          .add("binding-" + i, EntityType.BINDING, binding);
+    }
+    return topology;
+  }
+
+  @Test
+  public void shouldDeclareTheWholeTopologyInFewRoundTrips() {
+    broker = new StandInBroker(1);
+    DeclarationResult result = new PipelinedTopologyDeclarer(broker.connectionFactory(), 4, 10, 1000).declare(topology(SIZE));
+
+    assertTrue(result.isSuccessful());
+    assertEquals(3 * SIZE, result.getDeclaredCount());
+    assertEquals(3 * SIZE, broker.getDeclared().size());
+    assertTrue(broker.getDeclared().contains(StandInBroker.bindingName("exchange-3", "queue-3", "key-3")));
+    // 3 phases, each of 50 entities over 4 channels with a window of 10 : 2 windows of 4 replies
+    assertEquals(3 * 2 * 4, broker.getRoundTrips());
+  }
+
+  @Test
+  public void shouldReportTheFailurePerEntityAndDeclareTheOthers() {
+    DeclarationResult result = new PipelinedTopologyDeclarer(broker.connectionFactory(), 4, 10, 1000).declare(topology(SIZE));
+
+    assertFalse(result.isSuccessful());
+    assertEquals(1, result.getFailures().size());
+    assertEquals("queue-7", result.getFailures().get(0).getEntry().getKey());
+    assertEquals(3 * SIZE - 1, result.getDeclaredCount());
+    assertFalse(broker.getDeclared().contains("queue-7"));
+    assertTrue(broker.getDeclared().contains("queue-8"));
+    assertThrows(RabbitmqConfigurationException.class, result::assertSuccessful);
+  }
+
+  @Test
+  public void shouldNotDeclareTheDefaultExchange() {
+    Queue queue = new Queue("queue-1");
+    Topology topology = new Topology()
+        .add("default", EntityType.EXCHANGE, new DirectExchange(""))
+        .add("queue-1", EntityType.QUEUE, queue)
+        .add("binding-1", EntityType.BINDING, new Binding("queue-1", Binding.DestinationType.QUEUE, "", "queue-1", null));
+
+    DeclarationResult result = new PipelinedTopologyDeclarer(broker.connectionFactory(), 4, 10, 1000).declare(topology);
+
+    assertTrue(result.isSuccessful());
+    assertEquals(3, result.getDeclaredCount());
+    assertEquals(1, broker.getDeclared().size());
+  }
+
+  @Test
+  public void shouldFailAllEntitiesWhenTheConnectionCanNotBeCreated() {
+    ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenThrow(new IllegalStateException("connection refused"));
+
+    DeclarationResult result = new PipelinedTopologyDeclarer(connectionFactory, 4, 10, 1000).declare(topology(2));
+
+    assertEquals(6, result.getFailures().size());
+    assertEquals(0, result.getDeclaredCount());
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Command;
+import com.rabbitmq.client.Method;
+import com.rabbitmq.client.impl.AMQImpl;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-process stand-in for an AMQP broker, only understanding the declaration commands.
+ * <p>
+ * Every synchronous command costs a network round trip of 'roundTripMillis', while the no-wait commands are
+ * processed in order without any reply. A declaration of one of the 'failing' names closes the channel, as a real
+ * broker does on a precondition failure.
+ */
+public class StandInBroker implements AutoCloseable {
+
+  private final long roundTripMillis;
+
+  private final Set<String> failing = new HashSet<>();
+
+  private final Set<String> declared = ConcurrentHashMap.newKeySet();
+
+  private final AtomicInteger roundTrips = new AtomicInteger();
+
+  private final ScheduledExecutorService network = Executors.newScheduledThreadPool(2);
+
+  public StandInBroker(long roundTripMillis, String... failing) {
+    this.roundTripMillis = roundTripMillis;
+    Collections.addAll(this.failing, failing);
+  }
+
+  public ConnectionFactory connectionFactory() {
+    Connection connection = mock(Connection.class);
+    when(connection.isOpen()).thenReturn(true);
+    when(connection.createChannel(anyBoolean())).thenAnswer(invocation -> newChannel());
+    ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+    when(connectionFactory.createConnection()).thenReturn(connection);
+    return connectionFactory;
+  }
+
+  public Set<String> getDeclared() {
+    return declared;
+  }
+
+  public int getRoundTrips() {
+    return roundTrips.get();
+  }
+
+  public void reset() {
+    declared.clear();
+    roundTrips.set(0);
+  }
+
+  @Override
+  public void close() {
+    network.shutdownNow();
+  }
+
+  private Channel newChannel() {
+    StandInChannel channel = new StandInChannel();
+    return (Channel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Channel.class}, (proxy, method, args) -> {
+      try {
+        return StandInChannel.class.getDeclaredMethod(method.getName(), method.getParameterTypes()).invoke(channel, args);
+      } catch (NoSuchMethodException e) {
+        return defaultValue(method.getReturnType());
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  private class StandInChannel {
+
+    private volatile boolean open = true;
+
+    public boolean isOpen() {
+      return open;
+    }
+
+    public void close() {
+      open = false;
+    }
+
+    public void abort() {
+      open = false;
+    }
+
+    public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable, boolean autoDelete, boolean internal,
+        Map<String, Object> arguments) throws IOException {
+      roundTrip();
+      process(exchange);
+      return new AMQImpl.Exchange.DeclareOk();
+    }
+
+    public AMQP.Queue.DeclareOk queueDeclare(String queue, boolean durable, boolean exclusive, boolean autoDelete,
+        Map<String, Object> arguments) throws IOException {
+      roundTrip();
+      process(queue);
+      return new AMQImpl.Queue.DeclareOk(queue, 0, 0);
+    }
+
+    public AMQP.Queue.BindOk queueBind(String queue, String exchange, String routingKey, Map<String, Object> arguments)
+        throws IOException {
+      roundTrip();
+      process(bindingName(exchange, queue, routingKey));
+      return new AMQImpl.Queue.BindOk();
+    }
+
+    public AMQP.Exchange.DeclareOk exchangeDeclarePassive(String exchange) throws IOException {
+      roundTrip();
+      checkExists(exchange);
+      return new AMQImpl.Exchange.DeclareOk();
+    }
+
+    public AMQP.Queue.DeclareOk queueDeclarePassive(String queue) throws IOException {
+      roundTrip();
+      checkExists(queue);
+      return new AMQImpl.Queue.DeclareOk(queue, 0, 0);
+    }
+
+    public void exchangeDeclareNoWait(String exchange, String type, boolean durable, boolean autoDelete, boolean internal,
+        Map<String, Object> arguments) {
+      processQuietly(exchange);
+    }
+
+    public void queueDeclareNoWait(String queue, boolean durable, boolean exclusive, boolean autoDelete,
+        Map<String, Object> arguments) {
+      processQuietly(queue);
+    }
+
+    public void queueBindNoWait(String queue, String exchange, String routingKey, Map<String, Object> arguments) {
+      processQuietly(bindingName(exchange, queue, routingKey));
+    }
+
+    public CompletableFuture<Command> asyncCompletableRpc(Method method) {
+      CompletableFuture<Command> reply = new CompletableFuture<>();
+      roundTrips.incrementAndGet();
+      network.schedule(() -> {
+        try {
+          process(nameOf(method));
+          reply.complete(null);
+        } catch (IOException e) {
+          reply.completeExceptionally(e);
+        }
+      }, roundTripMillis, TimeUnit.MILLISECONDS);
+      return reply;
+    }
+
+    private void roundTrip() {
+      roundTrips.incrementAndGet();
+      try {
+        Thread.sleep(roundTripMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private synchronized void process(String name) throws IOException {
+      if (!open) {
+        throw new IOException("channel is already closed");
+      }
+      if (failing.contains(name)) {
+        open = false;
+        throw new IOException("PRECONDITION_FAILED - inequivalent arg for '" + name + "'");
+      }
+      declared.add(name);
+    }
+
+    private synchronized void checkExists(String name) throws IOException {
+      if (!open) {
+        throw new IOException("channel is already closed");
+      }
+      if (!declared.contains(name)) {
+        open = false;
+        throw new IOException("NOT_FOUND - no entity '" + name + "'");
+      }
+    }
+
+    private void processQuietly(String name) {
+      try {
+        process(name);
+      } catch (IOException e) {
+        // a no-wait command has no reply, the failure is only seen through the closed channel
+      }
+    }
+  }
+
+  static String bindingName(String exchange, String destination, String routingKey) {
+    return exchange + "->" + destination + "[" + routingKey + "]";
+  }
+
+  private static String nameOf(Method method) {
+    if (method instanceof AMQP.Exchange.Declare) {
+      return ((AMQP.Exchange.Declare) method).getExchange();
+    } else if (method instanceof AMQP.Queue.Declare) {
+      return ((AMQP.Queue.Declare) method).getQueue();
+    } else if (method instanceof AMQP.Queue.Bind) {
+      AMQP.Queue.Bind bind = (AMQP.Queue.Bind) method;
+      return bindingName(bind.getExchange(), bind.getQueue(), bind.getRoutingKey());
+    }
+    return method.protocolMethodName();
+  }
+}
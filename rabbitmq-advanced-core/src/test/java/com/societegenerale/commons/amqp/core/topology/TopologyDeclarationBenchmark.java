@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup benchmark of the topology declaration against the {@link StandInBroker}.
+ * <p>
+ * Run it from the IDE, or with 'java -cp target/test-classes:&lt;test classpath&gt; ...TopologyDeclarationBenchmark'.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopologyDeclarationBenchmark {
+
+  /**
+   * Number of queues, each one coming with its exchange and binding.
+   */
+  @Param({"500"})
+  private int size;
+
+  @Param({"1", "5"})
+  private long roundTripMillis;
+
+  private StandInBroker broker;
+
+  private Topology topology;
+
+  private TopologyDeclarer sequential;
+
+  private TopologyDeclarer pipelined;
+
+  private TopologyDeclarer parallel;
+
+  @Setup
+  public void setUp() {
+    broker = new StandInBroker(roundTripMillis);
+    topology = PipelinedTopologyDeclarerTest.topology(size);
+    sequential = new RabbitAdminTopologyDeclarer(new RabbitAdmin(broker.connectionFactory()));
+    pipelined = new PipelinedTopologyDeclarer(broker.connectionFactory(), 4, 100, 30000);
+    parallel = new ParallelTopologyDeclarer(broker.connectionFactory(), 16, 30000);
+  }
+
+  @Setup(Level.Invocation)
+  public void resetBroker() {
+    broker.reset();
+  }
+
+  @TearDown
+  public void tearDown() {
+    broker.close();
+  }
+
+  @Benchmark
+  public DeclarationResult sequential() {
+    return sequential.declare(topology);
+  }
+
+  @Benchmark
+  public DeclarationResult pipelined() {
+    return pipelined.declare(topology);
+  }
+
+  @Benchmark
+  public DeclarationResult parallel() {
+    return parallel.declare(topology);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TopologyDeclarationBenchmark.class.getSimpleName()).build()).run();
+  }
+}
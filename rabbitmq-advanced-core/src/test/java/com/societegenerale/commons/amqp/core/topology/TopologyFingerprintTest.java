@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.topology;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class TopologyFingerprintTest {
+
+  @Test
+  public void fingerprintShouldBeStableWhateverTheOrderOfEntitiesAndArguments() {
+    Topology topology = new Topology()
+        .add("exchange", EntityType.EXCHANGE, new DirectExchange("exchange"))
+        .add("queue", EntityType.QUEUE, QueueBuilder.durable("queue").ttl(1000).maxLength(10).build());
+    Topology sameTopology = new Topology()
+        .add("queue", EntityType.QUEUE, QueueBuilder.durable("queue").maxLength(10).ttl(1000).build())
+        .add("exchange", EntityType.EXCHANGE, new DirectExchange("exchange"));
+
+    assertEquals(TopologyFingerprint.of(topology), TopologyFingerprint.of(sameTopology));
+    assertEquals(64, TopologyFingerprint.of(topology).length());
+  }
+
+  @Test
+  public void fingerprintShouldChangeWhenAnyPropertyChanges() {
+    Topology topology = new Topology().add("queue", EntityType.QUEUE, new Queue("queue", true));
+    Topology notDurable = new Topology().add("queue", EntityType.QUEUE, new Queue("queue", false));
+    Topology withArgument = new Topology().add("queue", EntityType.QUEUE, QueueBuilder.durable("queue").ttl(1000).build());
+
+    assertNotEquals(TopologyFingerprint.of(topology), TopologyFingerprint.of(notDurable));
+    assertNotEquals(TopologyFingerprint.of(topology), TopologyFingerprint.of(withArgument));
+  }
+}
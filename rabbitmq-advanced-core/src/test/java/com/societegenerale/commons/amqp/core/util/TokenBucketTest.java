@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @Test
+  public void burstThenRefillAtRateTest() {
+    TokenBucket tokenBucket = new TokenBucket(3, 2, nanoTime::get);
+    assertTrue(tokenBucket.tryAcquire());
+    assertTrue(tokenBucket.tryAcquire(2));
+    assertFalse(tokenBucket.tryAcquire());
+
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertTrue(tokenBucket.tryAcquire());
+    assertFalse(tokenBucket.tryAcquire());
+  }
+
+  @Test
+  public void refillCappedAtCapacityTest() {
+    TokenBucket tokenBucket = new TokenBucket(2, 100, nanoTime::get);
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    assertFalse(tokenBucket.tryAcquire(3));
+    assertTrue(tokenBucket.tryAcquire(2));
+    assertFalse(tokenBucket.tryAcquire());
+  }
+
+  @Test
+  public void permitsBeyondTheCapacityTakenAsDebtTest() {
+    TokenBucket tokenBucket = new TokenBucket(2, 2, nanoTime::get);
+    assertTrue(tokenBucket.tryAcquire());
+    assertFalse(tokenBucket.tryAcquireWithDebt(4));
+
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertTrue(tokenBucket.tryAcquireWithDebt(4));
+    // the 2 tokens beyond the capacity are paid back first
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    assertFalse(tokenBucket.tryAcquire());
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertTrue(tokenBucket.tryAcquire());
+  }
+
+  @Test
+  public void tokensKeptWhenTheRateChangesTest() {
+    TokenBucket tokenBucket = new TokenBucket(10, 10, nanoTime::get);
+    assertTrue(tokenBucket.tryAcquire(9));
+
+    tokenBucket.setRate(5, 5);
+    assertTrue(tokenBucket.tryAcquire());
+    assertFalse(tokenBucket.tryAcquire());
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertTrue(tokenBucket.tryAcquire(5));
+    assertFalse(tokenBucket.tryAcquire());
+  }
+}
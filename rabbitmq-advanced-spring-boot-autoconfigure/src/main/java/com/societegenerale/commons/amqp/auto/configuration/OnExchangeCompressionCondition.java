@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.auto.configuration;
+
+import com.societegenerale.commons.amqp.core.config.ExchangeConfig;
+import com.societegenerale.commons.amqp.core.config.RabbitConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Matches when at least one exchange is configured with compression, directly or through the default exchange.
+ */
+class OnExchangeCompressionCondition extends SpringBootCondition {
+
+  @Override
+  public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+    RabbitConfig rabbitConfig = Binder.get(context.getEnvironment())
+        .bind("rabbitmq.auto-config", RabbitConfig.class)
+        .orElseGet(RabbitConfig::new);
+    for (ExchangeConfig exchangeConfig : rabbitConfig.getExchanges().values()) {
+      if (exchangeConfig.resolveCompression(rabbitConfig.getDefaultExchange()) != null) {
+        return ConditionOutcome.match("Compression configured on the exchange '" + exchangeConfig.getName() + "'");
+      }
+    }
+    return ConditionOutcome.noMatch("No exchange configured with compression");
+  }
+}
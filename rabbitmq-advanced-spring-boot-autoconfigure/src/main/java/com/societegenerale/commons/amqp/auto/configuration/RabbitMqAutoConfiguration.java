@@ -16,25 +16,42 @@
 
 package com.societegenerale.commons.amqp.auto.configuration;
 
+import brave.Tracing;
 import brave.spring.rabbit.SpringRabbitTracing;
+import com.societegenerale.commons.amqp.core.compression.CompressingMessagePostProcessor;
 import com.societegenerale.commons.amqp.core.config.*;
 import com.societegenerale.commons.amqp.core.config.ExchangeTypes;
+import com.societegenerale.commons.amqp.core.processor.PublishPipeline;
+import com.societegenerale.commons.amqp.core.processor.TracingHeaderWriter;
+import com.societegenerale.commons.amqp.core.publisher.AsyncRabbitPublisher;
+import com.societegenerale.commons.amqp.core.publisher.BatchingRabbitTemplates;
+import com.societegenerale.commons.amqp.core.recoverer.DeadLetterPublisher;
+import com.societegenerale.commons.amqp.core.topology.DeclarationResult;
+import com.societegenerale.commons.amqp.core.topology.EntityType;
+import com.societegenerale.commons.amqp.core.topology.Topology;
+import com.societegenerale.commons.amqp.core.topology.TopologyDeclarer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
 import org.springframework.amqp.rabbit.core.CorrelationDataPostProcessor;
-import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationStartupAware;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.util.CollectionUtils;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -42,112 +59,204 @@ import java.util.Map;
 @EnableRabbit
 @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "enabled", matchIfMissing = true)
 @Slf4j
-public class RabbitMqAutoConfiguration implements ApplicationContextAware {
+public class RabbitMqAutoConfiguration implements ApplicationContextAware, ApplicationStartupAware {
 
   private RabbitConfig rabbitConfig;
 
-  private RabbitAdmin rabbitAdmin;
+  private TopologyDeclarer topologyDeclarer;
 
   private Map<String, Exchange> exchangeMap;
 
   private Map<String, Queue>queueMap;
 
+  private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
   @Autowired
-  public RabbitMqAutoConfiguration(RabbitConfig rabbitConfig, RabbitAdmin rabbitAdmin) {
+  public RabbitMqAutoConfiguration(RabbitConfig rabbitConfig, TopologyDeclarer topologyDeclarer) {
     this.rabbitConfig=rabbitConfig;
-    this.rabbitAdmin = rabbitAdmin;
+    this.topologyDeclarer = topologyDeclarer;
     this.exchangeMap = new LinkedHashMap<>();
     this.queueMap = new LinkedHashMap<>();
   }
 
   @PostConstruct
   public void init() {
-    Exchange deadLetterExchange = loadDeadLetterExchangeConfig();
-    loadExchangeConfigs();
-    loadQueueConfigs(deadLetterExchange);
-    loadBindingConfigs();
-    loadReQueueConfig();
+    Topology topology = new Topology();
+    Exchange deadLetterExchange = loadDeadLetterExchangeConfig(topology);
+    loadExchangeConfigs(topology);
+    loadQueueConfigs(topology, deadLetterExchange);
+    loadBindingConfigs(topology);
+    loadReQueueConfig(topology);
+    declareTopology(topology);
+  }
+
+  private void declareTopology(Topology topology) {
+    StartupStep step = applicationStartup.start("rabbitmq.topology.declare")
+        .tag("entities", String.valueOf(topology.size()));
+    long start = System.currentTimeMillis();
+    DeclarationResult result = topologyDeclarer.declare(topology);
+    log.info("Auto configuration declared {} of {} entities in {} ms (per phase : {})", result.getDeclaredCount(), topology.size(),
+        System.currentTimeMillis() - start, result.getPhaseTimings());
+    step.tag("declared", String.valueOf(result.getDeclaredCount()))
+        .tag("failures", String.valueOf(result.getFailures().size()));
+    result.getPhaseTimings().forEach((phase, millis) -> step.tag(phase.name().toLowerCase() + ".millis", String.valueOf(millis)));
+    step.end();
+    result.assertSuccessful();
   }
 
-  private Exchange loadDeadLetterExchangeConfig() {
+  private Exchange loadDeadLetterExchangeConfig(Topology topology) {
     ExchangeConfig deadLetterExchangeConfig =  (rabbitConfig.getDeadLetterConfig() != null && rabbitConfig.getDeadLetterConfig().getDeadLetterExchange() != null) ?
        rabbitConfig.getDeadLetterConfig().getDeadLetterExchange():ExchangeConfig.builder().name("DEFAULT-DEAD-LETTER-EXCHANGE.DLQ").type(ExchangeTypes.TOPIC).build();
     Exchange deadLetterExchange = deadLetterExchangeConfig.buildExchange(rabbitConfig.getDefaultExchange());
-    rabbitAdmin.declareExchange(deadLetterExchange);
+    topology.add(deadLetterExchange.getName(), EntityType.DEAD_LETTER_EXCHANGE, deadLetterExchange);
     log.info("Auto configuring dead letter exchange: Key = {} , DeadLetterExchange = {{}}", deadLetterExchange.getName(), deadLetterExchange);
+    if (rabbitConfig.getDeadLetterConfig() != null && rabbitConfig.getDeadLetterConfig().getExceptionExchange() != null) {
+      Exchange exceptionExchange = rabbitConfig.getDeadLetterConfig().getExceptionExchange().buildExchange(rabbitConfig.getDefaultExchange());
+      topology.add(exceptionExchange.getName(), EntityType.EXCEPTION_EXCHANGE, exceptionExchange);
+      log.info("Auto configuring exception exchange: Key = {} , ExceptionExchange = {{}}", exceptionExchange.getName(), exceptionExchange);
+    }
     return deadLetterExchange;
   }
 
-  private void loadExchangeConfigs() {
+  private void loadExchangeConfigs(Topology topology) {
     if (!CollectionUtils.isEmpty(rabbitConfig.getExchanges())) {
       log.info("Auto configuring exchange...");
       for (Map.Entry<String, ExchangeConfig> entry : rabbitConfig.getExchanges().entrySet()) {
         Exchange exchange = entry.getValue().buildExchange(rabbitConfig.getDefaultExchange());
         exchangeMap.put(entry.getKey(), exchange);
-        rabbitAdmin.declareExchange(exchange);
+        topology.add(entry.getKey(), EntityType.EXCHANGE, exchange);
         log.info("Auto configuring exchange: Key = {} , Exchange = {{}}", entry.getKey(), exchange);
       }
     }
   }
 
-  private void loadQueueConfigs(Exchange deadLetterExchange) {
+  private void loadQueueConfigs(Topology topology, Exchange deadLetterExchange) {
     if (!CollectionUtils.isEmpty(rabbitConfig.getQueues())) {
       log.info("Auto configuring queue...");
       for (Map.Entry<String, QueueConfig> entry : rabbitConfig.getQueues().entrySet()) {
         Queue queue = entry.getValue().buildQueue(rabbitConfig.getDefaultQueue(), rabbitConfig.getDeadLetterConfig());
         queueMap.put(entry.getKey(), queue);
-        rabbitAdmin.declareQueue(queue);
+        topology.add(entry.getKey(), EntityType.QUEUE, queue);
         log.info("Auto configuring queue: Key = {} , Queue = {{}}", entry.getKey(), queue);
         if (entry.getValue().getDeadLetterEnabled()) {
           Queue deadLetterQueue = entry.getValue().buildDeadLetterQueue(rabbitConfig.getDefaultQueue(), rabbitConfig.getDeadLetterConfig());
-          rabbitAdmin.declareQueue(deadLetterQueue);
+          topology.add(deadLetterQueue.getName(), EntityType.DEAD_LETTER_QUEUE, deadLetterQueue);
           log.info("Auto configuring dead letter queue: Key = {} , DeadLetterQueue = {{}}", deadLetterQueue.getName(), deadLetterQueue);
           Binding deadLetterBinding = BindingBuilder.bind(deadLetterQueue).to(deadLetterExchange).with(deadLetterQueue.getName()).noargs();
-          rabbitAdmin.declareBinding(deadLetterBinding);
+          topology.add(deadLetterQueue.getName(), EntityType.DEAD_LETTER_BINDING, deadLetterBinding);
           log.info("Auto configuring dead letter binding: Key = {{}:{}} , DeadLetterBinding = {{}}", deadLetterExchange.getName(), deadLetterQueue.getName(), deadLetterBinding);
+          ReQueueBackoffConfig backoff = rabbitConfig.getReQueueConfig() != null ? rabbitConfig.getReQueueConfig().getBackoff() : null;
+          if (backoff != null && backoff.isEnabled() && backoff.getDelayedExchange() == null) {
+            for (Queue reQueueDelayQueue : entry.getValue().buildReQueueDelayQueues(rabbitConfig.getDefaultQueue(), backoff)) {
+              topology.add(reQueueDelayQueue.getName(), EntityType.REQUEUE_DELAY_QUEUE, reQueueDelayQueue);
+              log.info("Auto configuring requeue delay queue: Key = {} , ReQueueDelayQueue = {{}}", reQueueDelayQueue.getName(), reQueueDelayQueue);
+            }
+          }
+        }
+        for (Queue retryQueue : entry.getValue().buildRetryQueues(rabbitConfig.getDefaultQueue())) {
+          topology.add(retryQueue.getName(), EntityType.RETRY_QUEUE, retryQueue);
+          log.info("Auto configuring retry queue: Key = {} , RetryQueue = {{}}", retryQueue.getName(), retryQueue);
         }
       }
     }
   }
 
-  private void loadBindingConfigs() {
+  private void loadBindingConfigs(Topology topology) {
     if (!CollectionUtils.isEmpty(rabbitConfig.getBindings())) {
       log.info("Auto configuring binding...");
       for (Map.Entry<String, BindingConfig> entry : rabbitConfig.getBindings().entrySet()) {
         Exchange exchange = exchangeMap.get(entry.getValue().getExchange());
         Queue queue = queueMap.get(entry.getValue().getQueue());
         Binding binding = entry.getValue().bind(exchange, queue);
-        rabbitAdmin.declareBinding(binding);
+        topology.add(entry.getKey(), EntityType.BINDING, binding);
         log.info("Auto configuring binding: Key = {} , Binding = {{}}", entry.getKey(), binding);
       }
     }
   }
 
-  private void loadReQueueConfig() {
+  private void loadReQueueConfig(Topology topology) {
     if(rabbitConfig.getReQueueConfig()!=null && rabbitConfig.getReQueueConfig().isEnabled()) {
       ReQueueConfig reQueueConfig = rabbitConfig.getReQueueConfig();
 
       Exchange exchange = reQueueConfig.getExchange().buildExchange(rabbitConfig.getDefaultExchange());
-      rabbitAdmin.declareExchange(exchange);
+      topology.add(exchange.getName(), EntityType.REQUEUE_EXCHANGE, exchange);
       log.info("Auto configuring exchange: Key = {} , Exchange = {{}}", exchange.getName(), exchange);
 
       Queue queue = reQueueConfig.getQueue().buildQueue(rabbitConfig.getDefaultQueue(), rabbitConfig.getDeadLetterConfig());
-      rabbitAdmin.declareQueue(queue);
+      topology.add(queue.getName(), EntityType.REQUEUE_QUEUE, queue);
       log.info("Auto configuring queue: Key = {} , Queue = {{}}", queue.getName(), queue);
 
+      if (reQueueConfig.getParkingLotQueue() != null) {
+        Queue parkingLotQueue = reQueueConfig.getParkingLotQueue().buildParkingLotQueue(rabbitConfig.getDefaultQueue());
+        topology.add(parkingLotQueue.getName(), EntityType.PARKING_LOT_QUEUE, parkingLotQueue);
+        log.info("Auto configuring queue: Key = {} , Queue = {{}}", parkingLotQueue.getName(), parkingLotQueue);
+      }
+
       Binding binding = BindingBuilder.bind(queue).to(exchange).with(reQueueConfig.getRoutingKey()).noargs();
-      rabbitAdmin.declareBinding(binding);
+      topology.add("requeueBinding", EntityType.REQUEUE_BINDING, binding);
       log.info("Auto configuring binding: Key = {} , Binding = {{}}", "requeueBinding", binding);
 
     }
   }
 
+  @Override
+  public void setApplicationStartup(ApplicationStartup applicationStartup) {
+    this.applicationStartup = applicationStartup;
+  }
+
   @Override
   public void setApplicationContext(ApplicationContext applicationContext) {
     RabbitTemplate rabbitTemplate = applicationContext.getBean(RabbitTemplate.class);
     SpringRabbitTracing springRabbitTracing = applicationContext.getBean(SpringRabbitTracing.class);
-    rabbitTemplate.setBeforePublishPostProcessors(applicationContext.getBeansOfType(MessagePostProcessor.class).values().toArray(new MessagePostProcessor[0]));
-    rabbitTemplate.setCorrelationDataPostProcessor(applicationContext.getBean(CorrelationDataPostProcessor.class));
-    springRabbitTracing.decorateRabbitTemplate(rabbitTemplate);
+    PublishPipeline publishPipeline = applicationContext.getBeanProvider(PublishPipeline.class).getIfAvailable();
+    List<MessagePostProcessor> beforePublishPostProcessors = new ArrayList<>();
+    if (publishPipeline != null) {
+      beforePublishPostProcessors.add(publishPipeline);
+    }
+    List<MessagePostProcessor> compressingPostProcessors = new ArrayList<>();
+    for (MessagePostProcessor messagePostProcessor : applicationContext.getBeansOfType(MessagePostProcessor.class).values()) {
+      if (messagePostProcessor instanceof CompressingMessagePostProcessor) {
+        compressingPostProcessors.add(messagePostProcessor);
+      } else if (publishPipeline == null || !publishPipeline.contains(messagePostProcessor)) {
+        beforePublishPostProcessors.add(messagePostProcessor);
+      }
+    }
+    // the payload can not be changed once compressed
+    beforePublishPostProcessors.addAll(compressingPostProcessors);
+    boolean traced = publishPipeline != null && publishPipeline.getWriters().stream().anyMatch(TracingHeaderWriter.class::isInstance);
+    CorrelationDataPostProcessor correlationDataPostProcessor = applicationContext.getBean(CorrelationDataPostProcessor.class);
+    configurePublisher(rabbitTemplate, beforePublishPostProcessors, correlationDataPostProcessor, traced, springRabbitTracing);
+    BatchingRabbitTemplates batchingRabbitTemplates = applicationContext.getBeanProvider(BatchingRabbitTemplates.class).getIfAvailable();
+    if (batchingRabbitTemplates != null) {
+      for (BatchingRabbitTemplate batchingRabbitTemplate : batchingRabbitTemplates.getTemplates()) {
+        configurePublisher(batchingRabbitTemplate, beforePublishPostProcessors, correlationDataPostProcessor, traced, springRabbitTracing);
+      }
+    }
+    AsyncRabbitPublisher asyncRabbitPublisher = applicationContext.getBeanProvider(AsyncRabbitPublisher.class).getIfAvailable();
+    DeadLetterPublisher deadLetterPublisher = applicationContext.getBeanProvider(DeadLetterPublisher.class).getIfAvailable();
+    if (asyncRabbitPublisher == null && deadLetterPublisher == null) {
+      return;
+    }
+    if (!traced) {
+      String remoteServiceName = applicationContext.getEnvironment().getProperty("spring.sleuth.messaging.rabbit.remote-service-name", "rabbitmq");
+      beforePublishPostProcessors.add(0, new PublishPipeline(Collections.singletonList(
+          new TracingHeaderWriter(applicationContext.getBeanProvider(Tracing.class).getIfAvailable(), remoteServiceName))));
+    }
+    MessagePostProcessor[] confirmedPublishPostProcessors = beforePublishPostProcessors.toArray(new MessagePostProcessor[0]);
+    if (asyncRabbitPublisher != null) {
+      asyncRabbitPublisher.setBeforePublishPostProcessors(confirmedPublishPostProcessors);
+    }
+    if (deadLetterPublisher != null) {
+      deadLetterPublisher.setBeforePublishPostProcessors(confirmedPublishPostProcessors);
+    }
+  }
+
+  private void configurePublisher(RabbitTemplate rabbitTemplate, List<MessagePostProcessor> beforePublishPostProcessors,
+                                  CorrelationDataPostProcessor correlationDataPostProcessor, boolean traced, SpringRabbitTracing springRabbitTracing) {
+    rabbitTemplate.setBeforePublishPostProcessors(beforePublishPostProcessors.toArray(new MessagePostProcessor[0]));
+    rabbitTemplate.setCorrelationDataPostProcessor(correlationDataPostProcessor);
+    if (!traced) {
+      springRabbitTracing.decorateRabbitTemplate(rabbitTemplate);
+    }
   }
 }
@@ -16,36 +16,126 @@
 
 package com.societegenerale.commons.amqp.auto.configuration;
 
+import com.societegenerale.commons.amqp.core.compression.CompressingMessagePostProcessor;
+import com.societegenerale.commons.amqp.core.compression.CompressionListener;
+import com.societegenerale.commons.amqp.core.compression.DecompressingMessagePostProcessor;
+import com.societegenerale.commons.amqp.core.compression.MicrometerCompressionListener;
+import com.societegenerale.commons.amqp.core.config.AsyncPublisherConfig;
+import com.societegenerale.commons.amqp.core.config.AsyncRecoveryConfig;
+import com.societegenerale.commons.amqp.core.config.BatchingConfig;
+import com.societegenerale.commons.amqp.core.config.BindingConfig;
+import com.societegenerale.commons.amqp.core.config.CompressionConfig;
+import com.societegenerale.commons.amqp.core.config.CorrelationConfig;
+import com.societegenerale.commons.amqp.core.config.DeclarationConfig;
+import com.societegenerale.commons.amqp.core.config.DeclarationStrategy;
+import com.societegenerale.commons.amqp.core.config.ExceptionHandlersConfig;
+import com.societegenerale.commons.amqp.core.config.ExchangeConfig;
+import com.societegenerale.commons.amqp.core.config.FingerprintConfig;
+import com.societegenerale.commons.amqp.core.config.FingerprintStoreType;
+import com.societegenerale.commons.amqp.core.config.LeaderElectionConfig;
+import com.societegenerale.commons.amqp.core.config.LockProviderType;
+import com.societegenerale.commons.amqp.core.config.ManagementApiConfig;
+import com.societegenerale.commons.amqp.core.config.MessageFormat;
+import com.societegenerale.commons.amqp.core.config.PublisherConfig;
+import com.societegenerale.commons.amqp.core.config.QueueConfig;
 import com.societegenerale.commons.amqp.core.config.RabbitConfig;
+import com.societegenerale.commons.amqp.core.config.ReQueueBackoffConfig;
+import com.societegenerale.commons.amqp.core.config.ReQueueConfig;
+import com.societegenerale.commons.amqp.core.config.ReQueueRateConfig;
+import com.societegenerale.commons.amqp.core.container.DeBatchingListenerContainerCustomizer;
+import com.societegenerale.commons.amqp.core.container.DecompressingListenerContainerCustomizer;
+import com.societegenerale.commons.amqp.core.container.DeferredAckRabbitListenerContainerFactory;
+import com.societegenerale.commons.amqp.core.container.ListenerContainerCustomizer;
+import com.societegenerale.commons.amqp.core.container.ListenerContainersInitializer;
+import com.societegenerale.commons.amqp.core.converter.JacksonMessageConverters;
+import com.societegenerale.commons.amqp.core.processor.CorrelationIdGenerator;
 import com.societegenerale.commons.amqp.core.processor.CorrelationPostProcessor;
 import com.societegenerale.commons.amqp.core.processor.DefaultCorrelationDataPostProcessor;
 import com.societegenerale.commons.amqp.core.processor.DefaultCorrelationPostProcessor;
 import com.societegenerale.commons.amqp.core.processor.InfoHeaderMessagePostProcessor;
+import com.societegenerale.commons.amqp.core.processor.LazyDeclaringMessagePostProcessor;
+import com.societegenerale.commons.amqp.core.processor.PublishHeaderWriter;
+import com.societegenerale.commons.amqp.core.processor.PublishPipeline;
+import com.societegenerale.commons.amqp.core.processor.TracingHeaderWriter;
+import com.societegenerale.commons.amqp.core.publisher.AsyncRabbitPublisher;
+import com.societegenerale.commons.amqp.core.publisher.BatchingRabbitTemplates;
+import com.societegenerale.commons.amqp.core.publisher.ExchangeConvertingRabbitTemplate;
 import com.societegenerale.commons.amqp.core.recoverer.DeadLetterMessageRecoverer;
+import com.societegenerale.commons.amqp.core.recoverer.DeadLetterPublisher;
+import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandler;
+import com.societegenerale.commons.amqp.core.recoverer.handler.MessageExceptionHandlerDispatcher;
 import com.societegenerale.commons.amqp.core.requeue.AutoReQueueScheduler;
+import com.societegenerale.commons.amqp.core.requeue.ManagementApiQueueNodeResolver;
+import com.societegenerale.commons.amqp.core.requeue.QueueNodeResolver;
 import com.societegenerale.commons.amqp.core.requeue.ReQueueConsumer;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueDrainer;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueEngine;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueFailureTracker;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueThrottles;
+import com.societegenerale.commons.amqp.core.requeue.lock.LockProvider;
+import com.societegenerale.commons.amqp.core.requeue.lock.impl.ExclusiveQueueLockProvider;
+import com.societegenerale.commons.amqp.core.requeue.lock.impl.InMemoryLockProvider;
 import com.societegenerale.commons.amqp.core.requeue.policy.ReQueuePolicy;
+import com.societegenerale.commons.amqp.core.requeue.policy.impl.ExponentialBackoffReQueuePolicy;
 import com.societegenerale.commons.amqp.core.requeue.policy.impl.ThresholdReQueuePolicy;
+import com.societegenerale.commons.amqp.core.topology.BrokerFingerprintStore;
+import com.societegenerale.commons.amqp.core.topology.FileFingerprintStore;
+import com.societegenerale.commons.amqp.core.topology.FingerprintStore;
+import com.societegenerale.commons.amqp.core.topology.FingerprintTopologyDeclarer;
+import com.societegenerale.commons.amqp.core.topology.LazyTopologyDeclarer;
+import com.societegenerale.commons.amqp.core.topology.MicrometerTopologyDeclarationListener;
+import com.societegenerale.commons.amqp.core.topology.ObservedTopologyDeclarer;
+import com.societegenerale.commons.amqp.core.topology.ParallelTopologyDeclarer;
+import com.societegenerale.commons.amqp.core.topology.PipelinedTopologyDeclarer;
+import com.societegenerale.commons.amqp.core.topology.RabbitAdminTopologyDeclarer;
+import com.societegenerale.commons.amqp.core.topology.TopologyDeclarationListener;
+import com.societegenerale.commons.amqp.core.topology.TopologyDeclarer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.CorrelationDataPostProcessor;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.rabbit.retry.MessageRecoverer;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateConfigurer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import brave.Tracer;
+import brave.Tracing;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 @Configuration
 @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "enabled", matchIfMissing = true)
 @EnableScheduling
+@Slf4j
 public class RabbitMqConfiguration {
 
   @Autowired(required = false)
@@ -58,8 +148,32 @@ public class RabbitMqConfiguration {
 
   @Bean
   @ConditionalOnMissingBean(MessageConverter.class)
-  public MessageConverter messageConverter() {
-    return new Jackson2JsonMessageConverter();
+  public MessageConverter messageConverter(RabbitConfig rabbitConfig) {
+    PublisherConfig publisherConfig = rabbitConfig.getPublisher();
+    Map<String, MessageFormat> exchangeFormats = new LinkedHashMap<>();
+    for (ExchangeConfig exchangeConfig : rabbitConfig.getExchanges().values()) {
+      MessageFormat messageFormat = exchangeConfig.resolveMessageFormat(rabbitConfig.getDefaultExchange());
+      if (messageFormat != null && messageFormat != publisherConfig.getMessageFormat()) {
+        exchangeFormats.put(exchangeConfig.getName(), messageFormat);
+      }
+    }
+    return JacksonMessageConverters.negotiating(publisherConfig.getMessageFormat(), publisherConfig.isBlackbird(), exchangeFormats);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(RabbitOperations.class)
+  public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter,
+                                       ObjectProvider<RabbitTemplateConfigurer> rabbitTemplateConfigurer) {
+    // replaces the template of Spring Boot, configured the same way, to publish with the message format of the exchange
+    RabbitTemplate rabbitTemplate = new ExchangeConvertingRabbitTemplate();
+    RabbitTemplateConfigurer configurer = rabbitTemplateConfigurer.getIfAvailable();
+    if (configurer != null) {
+      configurer.configure(rabbitTemplate, connectionFactory);
+    } else {
+      rabbitTemplate.setConnectionFactory(connectionFactory);
+      rabbitTemplate.setMessageConverter(messageConverter);
+    }
+    return rabbitTemplate;
   }
 
   @Bean
@@ -68,6 +182,39 @@ public class RabbitMqConfiguration {
     return new DeadLetterMessageRecoverer();
   }
 
+  @Bean
+  @ConditionalOnMissingBean(MessageExceptionHandlerDispatcher.class)
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "dead-letter-config.exception-handlers.parallel")
+  public MessageExceptionHandlerDispatcher messageExceptionHandlerDispatcher(RabbitConfig rabbitConfig,
+                                                                             ObjectProvider<MessageExceptionHandler> messageExceptionHandlers) {
+    ExceptionHandlersConfig exceptionHandlersConfig = rabbitConfig.getDeadLetterConfig().getExceptionHandlers();
+    return new MessageExceptionHandlerDispatcher(messageExceptionHandlers.orderedStream().collect(Collectors.toList()),
+        exceptionHandlersConfig.getThreads(), exceptionHandlersConfig.getTimeout(), exceptionHandlersConfig.getFailureThreshold(),
+        exceptionHandlersConfig.getOpenDuration());
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(DeadLetterPublisher.class)
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "dead-letter-config.async-recovery.enabled")
+  public DeadLetterPublisher deadLetterPublisher(RabbitConfig rabbitConfig, ConnectionFactory connectionFactory) {
+    AsyncRecoveryConfig asyncRecoveryConfig = rabbitConfig.getDeadLetterConfig().getAsyncRecovery();
+    return new DeadLetterPublisher(connectionFactory, asyncRecoveryConfig.getBufferSize(), asyncRecoveryConfig.getBatchSize(),
+        asyncRecoveryConfig.getConfirmTimeout());
+  }
+
+  @Bean(name = "rabbitListenerContainerFactory")
+  @ConditionalOnMissingBean(name = "rabbitListenerContainerFactory")
+  @ConditionalOnExpression("${rabbitmq.auto-config.dead-letter-config.async-recovery.enabled:false} and '${spring.rabbitmq.listener.type:simple}' == 'simple'")
+  public SimpleRabbitListenerContainerFactory deferredAckRabbitListenerContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                                       ConnectionFactory connectionFactory,
+                                                                                       ObjectProvider<ContainerCustomizer<SimpleMessageListenerContainer>> containerCustomizer) {
+    // replaces the factory of Spring Boot, configured the same way
+    SimpleRabbitListenerContainerFactory factory = new DeferredAckRabbitListenerContainerFactory();
+    configurer.configure(factory, connectionFactory);
+    containerCustomizer.ifUnique(factory::setContainerCustomizer);
+    return factory;
+  }
+
   @Bean
   public MessagePostProcessor headerMessagePostProcessor(RabbitConfig rabbitConfig) {
     InfoHeaderMessagePostProcessor infoHeaderMessagePostProcessor = new InfoHeaderMessagePostProcessor();
@@ -83,15 +230,168 @@ public class RabbitMqConfiguration {
 
   @Bean
   @ConditionalOnMissingBean(CorrelationPostProcessor.class)
-  public CorrelationPostProcessor correlationPostProcessor() {
-    return new DefaultCorrelationPostProcessor(tracer);
+  public CorrelationPostProcessor correlationPostProcessor(CorrelationIdGenerator correlationIdGenerator, ObjectProvider<Tracing> tracing) {
+    DefaultCorrelationPostProcessor correlationPostProcessor = new DefaultCorrelationPostProcessor(tracer, correlationIdGenerator);
+    tracing.ifAvailable(currentTracing -> correlationPostProcessor.setCurrentTraceContext(currentTracing.currentTraceContext()));
+    return correlationPostProcessor;
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(CorrelationIdGenerator.class)
+  public CorrelationIdGenerator correlationIdGenerator(RabbitConfig rabbitConfig) {
+    CorrelationConfig correlationConfig = rabbitConfig.getCorrelation() != null ? rabbitConfig.getCorrelation() : new CorrelationConfig();
+    return CorrelationIdGenerator.of(correlationConfig.getGenerator(), correlationConfig.getNodeId());
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "publisher.fused-pipeline")
+  public PublishPipeline publishPipeline(ObjectProvider<Tracing> tracing, CorrelationPostProcessor correlationPostProcessor,
+                                         @Qualifier("headerMessagePostProcessor") MessagePostProcessor headerMessagePostProcessor,
+                                         @Value("${spring.sleuth.messaging.rabbit.remote-service-name:rabbitmq}") String remoteServiceName) {
+    List<PublishHeaderWriter> writers = new ArrayList<>();
+    writers.add(new TracingHeaderWriter(tracing.getIfAvailable(), remoteServiceName));
+    if (correlationPostProcessor instanceof PublishHeaderWriter) {
+      writers.add((PublishHeaderWriter) correlationPostProcessor);
+    }
+    if (headerMessagePostProcessor instanceof PublishHeaderWriter) {
+      writers.add((PublishHeaderWriter) headerMessagePostProcessor);
+    }
+    return new PublishPipeline(writers);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(AsyncRabbitPublisher.class)
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "publisher.async.enabled")
+  public AsyncRabbitPublisher asyncRabbitPublisher(RabbitConfig rabbitConfig, ConnectionFactory connectionFactory, MessageConverter messageConverter) {
+    AsyncPublisherConfig asyncPublisherConfig = rabbitConfig.getPublisher().getAsync();
+    return new AsyncRabbitPublisher(connectionFactory, messageConverter, asyncPublisherConfig.getChannels(),
+        asyncPublisherConfig.getWindow(), asyncPublisherConfig.getWindowTimeout());
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(BatchingRabbitTemplates.class)
+  public BatchingRabbitTemplates batchingRabbitTemplates(RabbitConfig rabbitConfig, ConnectionFactory connectionFactory, MessageConverter messageConverter,
+                                                         ObjectProvider<RabbitTemplateConfigurer> rabbitTemplateConfigurer) {
+    Map<String, BatchingConfig> batchingConfigs = new LinkedHashMap<>();
+    for (ExchangeConfig exchangeConfig : rabbitConfig.getExchanges().values()) {
+      BatchingConfig batchingConfig = exchangeConfig.resolveBatching(rabbitConfig.getDefaultExchange());
+      if (batchingConfig != null) {
+        batchingConfigs.put(exchangeConfig.getName(), batchingConfig);
+      }
+    }
+    RabbitTemplateConfigurer configurer = rabbitTemplateConfigurer.getIfAvailable();
+    return new BatchingRabbitTemplates(connectionFactory, batchingConfigs, template -> {
+      if (configurer != null) {
+        configurer.configure(template, connectionFactory);
+      } else {
+        template.setMessageConverter(messageConverter);
+      }
+    });
+  }
+
+  @Bean
+  public ListenerContainerCustomizer deBatchingListenerContainerCustomizer(RabbitConfig rabbitConfig) {
+    Set<String> batchedQueues = new HashSet<>();
+    for (BindingConfig bindingConfig : rabbitConfig.getBindings().values()) {
+      ExchangeConfig exchangeConfig = rabbitConfig.getExchanges().get(bindingConfig.getExchange());
+      QueueConfig queueConfig = rabbitConfig.getQueues().get(bindingConfig.getQueue());
+      if (exchangeConfig != null && queueConfig != null && exchangeConfig.resolveBatching(rabbitConfig.getDefaultExchange()) != null) {
+        batchedQueues.add(queueConfig.getName());
+      }
+    }
+    return new DeBatchingListenerContainerCustomizer(batchedQueues);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(CompressingMessagePostProcessor.class)
+  @Conditional(OnExchangeCompressionCondition.class)
+  public CompressingMessagePostProcessor compressingMessagePostProcessor(RabbitConfig rabbitConfig, ObjectProvider<CompressionListener> listeners) {
+    Map<String, CompressionConfig> compressionConfigs = new LinkedHashMap<>();
+    for (ExchangeConfig exchangeConfig : rabbitConfig.getExchanges().values()) {
+      CompressionConfig compressionConfig = exchangeConfig.resolveCompression(rabbitConfig.getDefaultExchange());
+      if (compressionConfig != null) {
+        compressionConfigs.put(exchangeConfig.getName(), compressionConfig);
+      }
+    }
+    return new CompressingMessagePostProcessor(compressionConfigs, listeners.orderedStream().collect(Collectors.toList()));
+  }
+
+  @Bean
+  public ListenerContainerCustomizer decompressingListenerContainerCustomizer(ObjectProvider<CompressionListener> listeners) {
+    return new DecompressingListenerContainerCustomizer(
+        new DecompressingMessagePostProcessor(listeners.orderedStream().collect(Collectors.toList())));
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "re-queue-config.enabled", matchIfMissing = true)
+  public ReQueueConsumer reQueueConsumer(RabbitConfig rabbitConfig, RabbitTemplate rabbitTemplate, ReQueuePolicy reQueuePolicy,
+                                         @Value("${rabbitmq.auto-config.re-queue-config.timeout:3000}") Long timeout,
+                                         ReQueueThrottles reQueueThrottles, ObjectProvider<ReQueueEngine> reQueueEngine) {
+    ReQueueConfig reQueueConfig = reQueueConfig(rabbitConfig);
+    ReQueueDrainer reQueueDrainer = reQueueConfig.getPrefetch() > 0 ?
+        reQueueDrainer(reQueueConfig, rabbitTemplate, reQueuePolicy, timeout, reQueueThrottles) : null;
+    ReQueueConsumer reQueueConsumer = new ReQueueConsumer(rabbitTemplate, reQueuePolicy, timeout, reQueueDrainer);
+    reQueueConsumer.setParkingLotQueue(reQueueConfig.getParkingLotQueue() != null ? reQueueConfig.getParkingLotQueue().getName() : null);
+    reQueueConsumer.setReQueueEngine(reQueueEngine.getIfAvailable());
+    reQueueConsumer.setReQueueThrottles(reQueueThrottles);
+    reQueueConsumer.setBackoffConfig(reQueueConfig.getBackoff() != null && reQueueConfig.getBackoff().isEnabled() ? reQueueConfig.getBackoff() : null);
+    return reQueueConsumer;
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(QueueNodeResolver.class)
+  @ConditionalOnExpression("${rabbitmq.auto-config.re-queue-config.workers:0} > 0")
+  public QueueNodeResolver queueNodeResolver(RabbitConfig rabbitConfig, ConnectionFactory connectionFactory) {
+    ManagementApiConfig managementApi = reQueueConfig(rabbitConfig).getManagementApi();
+    if (managementApi != null) {
+      return new ManagementApiQueueNodeResolver(managementApi.getUrl(), connectionFactory.getVirtualHost(), managementApi.getUsername(),
+          managementApi.getPassword(), managementApi.getCacheTtl());
+    }
+    // the node of a queue is unknown without the management API : only the workers limit the drains
+    log.warn("No 're-queue-config.management-api' nor QueueNodeResolver bean : 'max-drains-per-node' is not applied");
+    return queue -> null;
   }
 
   @Bean
   @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "re-queue-config.enabled", matchIfMissing = true)
-  public ReQueueConsumer reQueueConsumer(RabbitTemplate rabbitTemplate, ReQueuePolicy reQueuePolicy,
-                                         @Value("${rabbitmq.auto-config.re-queue-config.timeout:3000}") Long timeout) {
-    return new ReQueueConsumer(rabbitTemplate, reQueuePolicy, timeout);
+  @ConditionalOnExpression("${rabbitmq.auto-config.re-queue-config.workers:0} > 0")
+  public ReQueueEngine reQueueEngine(RabbitConfig rabbitConfig, RabbitTemplate rabbitTemplate, ReQueuePolicy reQueuePolicy,
+                                     @Value("${rabbitmq.auto-config.re-queue-config.timeout:3000}") Long timeout,
+                                     ReQueueThrottles reQueueThrottles, QueueNodeResolver queueNodeResolver) {
+    ReQueueConfig reQueueConfig = reQueueConfig(rabbitConfig);
+    return new ReQueueEngine(reQueueDrainer(reQueueConfig, rabbitTemplate, reQueuePolicy, timeout, reQueueThrottles), queueNodeResolver,
+        reQueueConfig.getWorkers(), reQueueConfig.getMaxDrainsPerNode(), reQueueConfig.getSliceSize());
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "re-queue-config.enabled", matchIfMissing = true)
+  public ReQueueFailureTracker reQueueFailureTracker() {
+    return new ReQueueFailureTracker();
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "re-queue-config.enabled", matchIfMissing = true)
+  public ReQueueThrottles reQueueThrottles(RabbitConfig rabbitConfig, RabbitAdmin rabbitAdmin, ReQueueFailureTracker reQueueFailureTracker) {
+    ReQueueRateConfig defaultReQueueRateConfig = reQueueConfig(rabbitConfig).getRateLimit();
+    Map<String, ReQueueRateConfig> reQueueRateConfigs = new HashMap<>();
+    for (QueueConfig queueConfig : rabbitConfig.getQueues().values()) {
+      reQueueRateConfigs.put(queueConfig.getName(), queueConfig.resolveReQueueRateLimit(defaultReQueueRateConfig));
+    }
+    return new ReQueueThrottles(reQueueRateConfigs, defaultReQueueRateConfig, rabbitAdmin, reQueueFailureTracker);
+  }
+
+  private ReQueueConfig reQueueConfig(RabbitConfig rabbitConfig) {
+    return rabbitConfig.getReQueueConfig() != null ? rabbitConfig.getReQueueConfig() : new ReQueueConfig();
+  }
+
+  private ReQueueDrainer reQueueDrainer(ReQueueConfig reQueueConfig, RabbitTemplate rabbitTemplate, ReQueuePolicy reQueuePolicy, long timeout,
+                                        ReQueueThrottles reQueueThrottles) {
+    ReQueueDrainer reQueueDrainer = new ReQueueDrainer(rabbitTemplate.getConnectionFactory(), reQueuePolicy,
+        reQueueConfig.getPrefetch(), reQueueConfig.getAckBatchSize(), timeout);
+    reQueueDrainer.setParkingLotQueue(reQueueConfig.getParkingLotQueue() != null ? reQueueConfig.getParkingLotQueue().getName() : null);
+    reQueueDrainer.setReQueueThrottles(reQueueThrottles);
+    reQueueDrainer.setBackoffConfig(reQueueConfig.getBackoff() != null && reQueueConfig.getBackoff().isEnabled() ? reQueueConfig.getBackoff() : null);
+    return reQueueDrainer;
   }
 
   @Bean
@@ -100,9 +400,24 @@ public class RabbitMqConfiguration {
     return new AutoReQueueScheduler();
   }
 
+  @Bean
+  @ConditionalOnMissingBean(LockProvider.class)
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "re-queue-config.leader-election.enabled")
+  public LockProvider lockProvider(RabbitConfig rabbitConfig, ConnectionFactory connectionFactory) {
+    LeaderElectionConfig leaderElectionConfig = rabbitConfig.getReQueueConfig().getLeaderElection();
+    if (leaderElectionConfig.getLockProvider() == LockProviderType.IN_MEMORY) {
+      return new InMemoryLockProvider();
+    }
+    return new ExclusiveQueueLockProvider(connectionFactory, leaderElectionConfig.getLockQueuePrefix());
+  }
+
   @Bean
   @ConditionalOnMissingBean(ReQueuePolicy.class)
-  public ReQueuePolicy reQueuePolicy() {
+  public ReQueuePolicy reQueuePolicy(RabbitConfig rabbitConfig) {
+    ReQueueBackoffConfig backoff = reQueueConfig(rabbitConfig).getBackoff();
+    if (backoff != null && backoff.isEnabled()) {
+      return new ExponentialBackoffReQueuePolicy(backoff.getInitialDelay(), backoff.getMultiplier(), backoff.getMaxDelay(), backoff.getJitter());
+    }
     return new ThresholdReQueuePolicy();
   }
 
@@ -112,4 +427,98 @@ public class RabbitMqConfiguration {
     return new RabbitAdmin(rabbitTemplate);
   }
 
-}
\ No newline at end of file
+  @Bean
+  @ConditionalOnMissingBean(TopologyDeclarer.class)
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "declaration.lazy")
+  public LazyTopologyDeclarer lazyTopologyDeclarer(RabbitConfig rabbitConfig, RabbitAdmin rabbitAdmin, ConnectionFactory connectionFactory,
+                                                   ObjectProvider<TopologyDeclarationListener> listeners) {
+    return new LazyTopologyDeclarer(eagerTopologyDeclarer(rabbitConfig.getDeclaration(), rabbitAdmin, connectionFactory, listeners));
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(TopologyDeclarer.class)
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "declaration.lazy", havingValue = "false", matchIfMissing = true)
+  public TopologyDeclarer topologyDeclarer(RabbitConfig rabbitConfig, RabbitAdmin rabbitAdmin, ConnectionFactory connectionFactory,
+                                           ObjectProvider<FingerprintStore> fingerprintStore,
+                                           ObjectProvider<TopologyDeclarationListener> listeners) {
+    DeclarationConfig declarationConfig = rabbitConfig.getDeclaration() != null ? rabbitConfig.getDeclaration() : new DeclarationConfig();
+    TopologyDeclarer topologyDeclarer = eagerTopologyDeclarer(declarationConfig, rabbitAdmin, connectionFactory, listeners);
+    FingerprintConfig fingerprintConfig = declarationConfig.getFingerprint();
+    FingerprintStore store = fingerprintStore.getIfAvailable();
+    if (fingerprintConfig != null && fingerprintConfig.isEnabled() && store != null) {
+      topologyDeclarer = new FingerprintTopologyDeclarer(topologyDeclarer, store, fingerprintConfig.getOnMatch(), connectionFactory);
+    }
+    return topologyDeclarer;
+  }
+
+  private TopologyDeclarer eagerTopologyDeclarer(DeclarationConfig declarationConfig, RabbitAdmin rabbitAdmin, ConnectionFactory connectionFactory,
+                                                 ObjectProvider<TopologyDeclarationListener> listeners) {
+    List<TopologyDeclarationListener> declarationListeners = listeners.orderedStream().collect(Collectors.toList());
+    TopologyDeclarer topologyDeclarer = strategyTopologyDeclarer(declarationConfig, rabbitAdmin, connectionFactory);
+    return declarationListeners.isEmpty() ? topologyDeclarer : new ObservedTopologyDeclarer(topologyDeclarer, declarationListeners);
+  }
+
+  private TopologyDeclarer strategyTopologyDeclarer(DeclarationConfig declarationConfig, RabbitAdmin rabbitAdmin, ConnectionFactory connectionFactory) {
+    DeclarationStrategy strategy = declarationConfig != null ? declarationConfig.getStrategy() : DeclarationStrategy.SEQUENTIAL;
+    switch (strategy) {
+      case PIPELINED:
+        return new PipelinedTopologyDeclarer(connectionFactory, declarationConfig.getChannels(), declarationConfig.getWindow(),
+            declarationConfig.getTimeout());
+      case PARALLEL:
+        return new ParallelTopologyDeclarer(connectionFactory, declarationConfig.getChannels(), declarationConfig.getTimeout());
+      case SEQUENTIAL:
+      default:
+        return new RabbitAdminTopologyDeclarer(rabbitAdmin);
+    }
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "declaration.lazy")
+  public MessagePostProcessor lazyDeclaringMessagePostProcessor(LazyTopologyDeclarer lazyTopologyDeclarer) {
+    return new LazyDeclaringMessagePostProcessor(lazyTopologyDeclarer);
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "declaration.lazy")
+  public ListenerContainerCustomizer lazyDeclaringListenerContainerCustomizer(LazyTopologyDeclarer lazyTopologyDeclarer) {
+    return container -> {
+      if (container.isAutoStartup()) {
+        lazyTopologyDeclarer.ensureQueues(container.getQueueNames());
+      }
+    };
+  }
+
+  @Bean
+  public ListenerContainersInitializer listenerContainersInitializer(ObjectProvider<ListenerContainerCustomizer> customizers) {
+    return new ListenerContainersInitializer(customizers.orderedStream().collect(Collectors.toList()));
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(FingerprintStore.class)
+  @ConditionalOnProperty(prefix = "rabbitmq.auto-config", name = "declaration.fingerprint.enabled")
+  public FingerprintStore fingerprintStore(RabbitConfig rabbitConfig, RabbitAdmin rabbitAdmin) {
+    FingerprintConfig fingerprintConfig = rabbitConfig.getDeclaration().getFingerprint();
+    if (fingerprintConfig.getStore() == FingerprintStoreType.BROKER) {
+      return new BrokerFingerprintStore(rabbitAdmin, fingerprintConfig.getMarkerPrefix(), fingerprintConfig.getMarkerExpires());
+    }
+    return new FileFingerprintStore(Paths.get(fingerprintConfig.getFile()));
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(MeterRegistry.class)
+  static class TopologyMetricsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(MicrometerTopologyDeclarationListener.class)
+    public MicrometerTopologyDeclarationListener micrometerTopologyDeclarationListener(ObjectProvider<MeterRegistry> meterRegistry) {
+      return new MicrometerTopologyDeclarationListener(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(MicrometerCompressionListener.class)
+    public MicrometerCompressionListener micrometerCompressionListener(ObjectProvider<MeterRegistry> meterRegistry) {
+      return new MicrometerCompressionListener(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.auto.configuration;
+
+import com.societegenerale.commons.amqp.core.container.DeferredAckRabbitListenerContainerFactory;
+import com.societegenerale.commons.amqp.core.processor.PublishPipeline;
+import com.societegenerale.commons.amqp.core.recoverer.DeadLetterPublisher;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.listener.RabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "rabbitmq.auto-config.dead-letter-config.async-recovery.enabled=true",
+    "rabbitmq.auto-config.dead-letter-config.async-recovery.batch-size=50"})
+public class AsyncRecoveryAutoConfigurationTest {
+
+  @MockBean
+  private RabbitAdmin rabbitAdmin;
+
+  @Autowired
+  private MessageRecoverer messageRecoverer;
+
+  @Autowired
+  private DeadLetterPublisher deadLetterPublisher;
+
+  @Autowired
+  private RabbitListenerContainerFactory<?> rabbitListenerContainerFactory;
+
+  @Test
+  public void checkRecovererPublishesAsynchronously() {
+    assertSame(deadLetterPublisher, ReflectionTestUtils.getField(messageRecoverer, "deadLetterPublisher"));
+    assertEquals(50, ReflectionTestUtils.getField(deadLetterPublisher, "batchSize"));
+
+    MessagePostProcessor[] beforePublishPostProcessors =
+        (MessagePostProcessor[]) ReflectionTestUtils.getField(deadLetterPublisher, "beforePublishPostProcessors");
+    assertTrue(beforePublishPostProcessors.length > 1);
+    assertTrue(beforePublishPostProcessors[0] instanceof PublishPipeline);
+  }
+
+  @Test
+  public void checkListenerContainersAreBuiltWithDeferredAcks() {
+    assertTrue(rabbitListenerContainerFactory instanceof DeferredAckRabbitListenerContainerFactory);
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.auto.configuration;
+
+import com.societegenerale.commons.amqp.core.publisher.BatchingRabbitTemplates;
+import com.societegenerale.commons.amqp.core.publisher.ExchangeConvertingRabbitTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "rabbitmq.auto-config.exchanges.exchange-one.batching.batch-size=10")
+public class BatchingAutoConfigurationTest {
+
+  @MockBean
+  private RabbitAdmin rabbitAdmin;
+
+  @Autowired
+  private RabbitTemplate rabbitTemplate;
+
+  @Autowired
+  private BatchingRabbitTemplates batchingRabbitTemplates;
+
+  @Test
+  public void checkBatchingTemplateIsConfiguredLikeTheRabbitTemplate() {
+    String user = System.getProperty("user.name");
+    assertTrue(rabbitTemplate instanceof ExchangeConvertingRabbitTemplate);
+    assertEquals(1, batchingRabbitTemplates.getTemplates().size());
+    assertFalse(batchingRabbitTemplates.contains("my-amqp-app-exchange-two-" + user));
+
+    BatchingRabbitTemplate batchingRabbitTemplate = batchingRabbitTemplates.get("my-amqp-app-exchange-one-" + user);
+    assertEquals("my-amqp-app-exchange-one-" + user, batchingRabbitTemplate.getExchange());
+    assertSame(rabbitTemplate.getMessageConverter(), batchingRabbitTemplate.getMessageConverter());
+    assertEquals(((Collection<?>) ReflectionTestUtils.getField(rabbitTemplate, "beforePublishPostProcessors")).size(),
+        ((Collection<?>) ReflectionTestUtils.getField(batchingRabbitTemplate, "beforePublishPostProcessors")).size());
+  }
+}
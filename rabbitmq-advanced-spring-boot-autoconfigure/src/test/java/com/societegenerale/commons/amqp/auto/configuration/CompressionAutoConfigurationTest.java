@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.auto.configuration;
+
+import com.societegenerale.commons.amqp.core.compression.CompressingMessagePostProcessor;
+import com.societegenerale.commons.amqp.core.processor.PublishPipeline;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "rabbitmq.auto-config.publisher.fused-pipeline=true",
+    "rabbitmq.auto-config.exchanges.exchange-one.compression.threshold=2048"})
+public class CompressionAutoConfigurationTest {
+
+  @MockBean
+  private RabbitAdmin rabbitAdmin;
+
+  @Autowired
+  private RabbitTemplate rabbitTemplate;
+
+  @Autowired
+  private CompressingMessagePostProcessor compressingMessagePostProcessor;
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void checkPayloadIsCompressedLast() {
+    String user = System.getProperty("user.name");
+    assertTrue(compressingMessagePostProcessor.isCompressed("my-amqp-app-exchange-one-" + user));
+    assertFalse(compressingMessagePostProcessor.isCompressed("my-amqp-app-exchange-two-" + user));
+
+    List<MessagePostProcessor> beforePublishPostProcessors = new ArrayList<>(
+        (Collection<MessagePostProcessor>) ReflectionTestUtils.getField(rabbitTemplate, "beforePublishPostProcessors"));
+    assertEquals(2, beforePublishPostProcessors.size());
+    assertTrue(beforePublishPostProcessors.get(0) instanceof PublishPipeline);
+    assertSame(compressingMessagePostProcessor, beforePublishPostProcessors.get(1));
+  }
+}
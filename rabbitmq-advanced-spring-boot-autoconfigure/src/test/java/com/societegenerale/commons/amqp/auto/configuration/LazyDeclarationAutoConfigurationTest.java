@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.societegenerale.commons.amqp.auto.configuration;
+
+import com.societegenerale.commons.amqp.core.topology.LazyTopologyDeclarer;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = "rabbitmq.auto-config.declaration.lazy=true")
+public class LazyDeclarationAutoConfigurationTest {
+
+  @MockBean
+  private RabbitAdmin rabbitAdmin;
+
+  @Autowired
+  private LazyTopologyDeclarer lazyTopologyDeclarer;
+
+  @Test
+  public void checkTopologyIsOnlyDeclaredOnFirstUse() {
+    verify(rabbitAdmin, never()).declareExchange(any(Exchange.class));
+    verify(rabbitAdmin, never()).declareQueue(any(Queue.class));
+    verify(rabbitAdmin, never()).declareBinding(any(Binding.class));
+
+    lazyTopologyDeclarer.ensureQueue("my-amqp-app-queue-one-" + System.getProperty("user.name"));
+
+    verify(rabbitAdmin, times(2)).declareExchange(any(Exchange.class));
+    verify(rabbitAdmin, times(2)).declareQueue(any(Queue.class));
+    verify(rabbitAdmin, times(2)).declareBinding(any(Binding.class));
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.auto.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "rabbitmq.auto-config.re-queue-config.parking-lot-queue.name=my-amqp-app-parking-lot")
+public class ParkingLotAutoConfigurationTest {
+
+  @MockBean
+  private RabbitAdmin rabbitAdmin;
+
+  @Test
+  public void checkParkingLotQueueIsNotDeadLettered() {
+    ArgumentCaptor<Queue> queues = ArgumentCaptor.forClass(Queue.class);
+    verify(rabbitAdmin, atLeastOnce()).declareQueue(queues.capture());
+
+    Queue parkingLotQueue = queues.getAllValues().stream()
+        .filter(queue -> queue.getName().equals("my-amqp-app-parking-lot"))
+        .findFirst().orElseThrow(AssertionError::new);
+    assertFalse(parkingLotQueue.getArguments().containsKey("x-dead-letter-exchange"));
+    assertTrue(queues.getAllValues().stream().noneMatch(queue -> queue.getName().startsWith("my-amqp-app-parking-lot.")));
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-2018, Société Générale All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.societegenerale.commons.amqp.auto.configuration;
+
+import com.societegenerale.commons.amqp.core.requeue.ReQueueConsumer;
+import com.societegenerale.commons.amqp.core.requeue.ReQueueEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "rabbitmq.auto-config.re-queue-config.workers=3",
+    "rabbitmq.auto-config.re-queue-config.slice-size=500"})
+public class ReQueueEngineAutoConfigurationTest {
+
+  @MockBean
+  private RabbitAdmin rabbitAdmin;
+
+  @Autowired
+  private ReQueueConsumer reQueueConsumer;
+
+  @Autowired
+  private ReQueueEngine reQueueEngine;
+
+  @Test
+  public void checkReQueueConsumerSubmitsToTheEngine() {
+    assertSame(reQueueEngine, ReflectionTestUtils.getField(reQueueConsumer, "reQueueEngine"));
+    assertEquals(3, ReflectionTestUtils.getField(reQueueEngine, "workers"));
+    assertEquals(500, ReflectionTestUtils.getField(reQueueEngine, "sliceSize"));
+  }
+}